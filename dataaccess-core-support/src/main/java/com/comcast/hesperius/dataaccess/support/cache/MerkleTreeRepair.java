@@ -0,0 +1,112 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.hesperius.dataaccess.support.cache;
+
+import com.comcast.hesperius.dataaccess.core.cache.CacheManager;
+import com.comcast.hesperius.dataaccess.core.cache.MerkleTree;
+import com.comcast.hesperius.dataaccess.core.config.ConfigurationProvider;
+import com.comcast.hesperius.dataaccess.core.config.DataServiceConfiguration;
+import com.comcast.hesperius.dataaccess.core.util.CoreUtil;
+import com.comcast.hesperius.dataaccess.support.exception.WebAppException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.springframework.http.HttpStatus;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Compares Merkle tree of a cf cache with the tree of the same cf on a peer host, fetches key hashes of differing
+ * buckets only and reloads diverged keys from the source, instead of refreshing the whole cf.
+ * Only hosts listed in peerHosts of cache configuration may be compared with, requests to them share one client.
+ */
+public class MerkleTreeRepair {
+
+    public static final String MERKLE_PATH = "/info/merkle/";
+
+    private static final TypeReference<Map<String, Long>> BUCKET_HASHES = new TypeReference<Map<String, Long>>() {};
+
+    private static final DataServiceConfiguration.CacheConfiguration cacheConfig =
+            ConfigurationProvider.getConfiguration().getCacheConfiguration();
+    private static final CloseableHttpClient client = HttpClients.custom()
+            .setDefaultRequestConfig(RequestConfig.custom()
+                    .setConnectTimeout(cacheConfig.getPeerTimeout())
+                    .setConnectionRequestTimeout(cacheConfig.getPeerTimeout())
+                    .setSocketTimeout(cacheConfig.getPeerTimeout())
+                    .build())
+            .build();
+
+    private final String host;
+
+    /**
+     * @throws WebAppException if host is not one of configured peer hosts
+     */
+    public MerkleTreeRepair(String host) {
+        if (!cacheConfig.getPeerHosts().contains(host)) {
+            throw new WebAppException("Not a configured peer host: " + host, HttpStatus.BAD_REQUEST);
+        }
+        this.host = host;
+    }
+
+    /**
+     * @return keys which differ from the peer host, empty if caches are in sync
+     */
+    public Set<String> findDivergedKeys(String cfName) {
+        final MerkleTree own = CacheManager.getMerkleTree(cfName);
+        if (own == null) {
+            throw new WebAppException("Not found cache for CF: " + cfName, HttpStatus.NOT_FOUND);
+        }
+        final MerkleTree peer = CoreUtil.fromJSON(MerkleTree.class, get(MERKLE_PATH + cfName));
+        final Set<String> result = new TreeSet<>();
+        for (Integer bucket : own.diff(peer)) {
+            final Map<String, Long> peerHashes = CoreUtil.fromJSON(BUCKET_HASHES, get(MERKLE_PATH + cfName + "/" + bucket));
+            result.addAll(CacheManager.diffBucket(cfName, bucket, peerHashes));
+        }
+        return result;
+    }
+
+    /**
+     * Reloads keys which differ from the peer host
+     * @return reloaded keys
+     */
+    public List<String> repair(String cfName) {
+        return CacheManager.repair(cfName, findDivergedKeys(cfName));
+    }
+
+    private String get(String path) {
+        try (CloseableHttpResponse response = client.execute(new HttpGet(host + path))) {
+            final String responseString = EntityUtils.toString(response.getEntity());
+            if (response.getStatusLine().getStatusCode() != HttpStatus.OK.value()) {
+                throw new WebAppException(host + path + " responded " + response.getStatusLine() + ": " + responseString,
+                        HttpStatus.BAD_GATEWAY);
+            }
+            return responseString;
+        } catch (IOException e) {
+            throw new WebAppException(e, HttpStatus.BAD_GATEWAY);
+        }
+    }
+}
@@ -21,11 +21,13 @@ package com.comcast.hesperius.dataaccess.support.services;
 import com.comcast.hesperius.dataaccess.core.CustomConnectionPoolMonitor;
 import com.comcast.hesperius.dataaccess.core.ServiceInfo;
 import com.comcast.hesperius.dataaccess.core.cache.CacheManager;
+import com.comcast.hesperius.dataaccess.core.cache.MerkleTree;
 import com.comcast.hesperius.dataaccess.core.cache.mbean.CacheInfo;
 import com.comcast.hesperius.dataaccess.core.config.ConfigurationProvider;
 import com.comcast.hesperius.dataaccess.core.config.DataServiceConfiguration;
 import com.comcast.hesperius.dataaccess.support.cache.HashChecker;
 import com.comcast.hesperius.dataaccess.support.cache.HashCheckerResult;
+import com.comcast.hesperius.dataaccess.support.cache.MerkleTreeRepair;
 import com.comcast.hesperius.dataaccess.support.exception.WebAppException;
 import com.netflix.astyanax.connectionpool.ConnectionPoolMonitor;
 import org.apache.commons.configuration.Configuration;
@@ -42,6 +44,7 @@ import javax.xml.bind.annotation.XmlRootElement;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("")
@@ -121,6 +124,31 @@ public class DataServiceInfo {
         return Long.toString(CacheManager.calculateHash(cfName, itemId));
     }
 
+    @RequestMapping(value = "/merkle/{cfName}", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public MerkleTree merkleTree(@PathVariable(value = "cfName") String cfName) {
+        MerkleTree tree = CacheManager.getMerkleTree(cfName);
+        if (tree == null) {
+            throw new WebAppException("Not found cache for CF: " + cfName, HttpStatus.NOT_FOUND);
+        }
+        return tree;
+    }
+
+    @RequestMapping(value = "/merkle/{cfName}/{bucket}", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public Map<String, Long> merkleBucket(@PathVariable(value = "cfName") String cfName, @PathVariable(value = "bucket") int bucket) {
+        return CacheManager.getBucketHashes(cfName, bucket);
+    }
+
+    //http://localhost:9090/appdiscoveryDataService/info/diff/Environment?host=http://peer:9090/appdiscoveryDataService
+    @RequestMapping(value = "/diff/{cfName}", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public Set<String> diff(@PathVariable(value = "cfName") String cfName, @RequestParam("host") String host) {
+        return new MerkleTreeRepair(host).findDivergedKeys(cfName);
+    }
+
+    @RequestMapping(value = "/repair/{cfName}", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<String> repair(@PathVariable(value = "cfName") String cfName, @RequestParam("host") String host) {
+        return new MerkleTreeRepair(host).repair(cfName);
+    }
+
     //http://localhost:9090/appdiscoveryDataService/info/hashHosts?hosts[]=a,b
     @RequestMapping(value = "/hashHosts", method = RequestMethod.GET,
             produces = {MediaType.APPLICATION_JSON_VALUE})
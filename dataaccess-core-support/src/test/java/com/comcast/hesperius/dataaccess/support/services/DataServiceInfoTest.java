@@ -99,6 +99,15 @@ public class DataServiceInfoTest extends BaseTest {
                 .andExpect(content().string(DataServiceInfo.OK));
     }
 
+    @Test
+    public void testDiffWithNotConfiguredPeerIsRejected() throws Exception {
+        getMockMvc().perform(
+                get("/diff/SampleEntities").param("host", "http://localhost:1")
+                        .accept(MediaType.APPLICATION_JSON)
+        )
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void testRefreshAll() throws Exception {
         getMockMvc().perform(
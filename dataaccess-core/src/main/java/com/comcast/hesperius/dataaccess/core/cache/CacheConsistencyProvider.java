@@ -27,12 +27,10 @@ import com.comcast.hesperius.dataaccess.core.config.ColumnFamilySchemaDefinition
 import com.comcast.hesperius.dataaccess.core.dao.DaoFactory;
 import com.comcast.hesperius.dataaccess.core.dao.ISimpleCachedDAO;
 import com.comcast.hesperius.dataaccess.core.util.CoreUtil;
-import com.google.common.base.Optional;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.*;
 import com.netflix.astyanax.serializers.ComparatorType;
 import org.apache.commons.lang.StringUtils;
-import org.apache.commons.lang.mutable.MutableInt;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.slf4j.Logger;
@@ -50,8 +48,26 @@ import java.util.concurrent.Executors;
 public final class CacheConsistencyProvider {
     private static final Logger log = LoggerFactory.getLogger(CacheConsistencyProvider.class);
 
+    /**
+     * Orders changes by time of their time-based column names
+     */
+    private static final Comparator<ChangedData> CHANGE_ORDER = new Comparator<ChangedData>() {
+        @Override
+        public int compare(ChangedData first, ChangedData second) {
+            final long firstTime = timeOf(first);
+            final long secondTime = timeOf(second);
+            return firstTime < secondTime ? -1 : (firstTime == secondTime ? 0 : 1);
+        }
+
+        private long timeOf(ChangedData data) {
+            final UUID columnName = data.getColumnName();
+            return columnName != null && columnName.version() == 1 ? columnName.timestamp() : 0;
+        }
+    };
+
     private final ExecutorService changeWriter = Executors.newFixedThreadPool(4);
     private long lastRefreshedTimestamp;
+    private volatile long appliedTimestamp;
     private final ChangedKeysProcessingDAO changedKeysDAO;
     private final long changedKeysTimeWindowSize;
     private final int retryUntilFullReload;
@@ -83,6 +99,27 @@ public final class CacheConsistencyProvider {
         new Timer().scheduleAtFixedRate(new ReadTask(), delay, refreshPeriod);
     }
 
+    /**
+     * @return timestamp before which all changes from the change log are applied to caches, 0 if no changes were loaded yet
+     */
+    public long getAppliedTimestamp() {
+        return appliedTimestamp;
+    }
+
+    /**
+     * Makes the next update load changes since the given timestamp if it is earlier than the one planned,
+     * used to catch up with changes made after caches were restored from a snapshot
+     */
+    public synchronized void rewindTo(long timestamp) {
+        if (timestamp < lastRefreshedTimestamp) {
+            log.info("rewinding cache update from {} to {}", lastRefreshedTimestamp, timestamp);
+            lastRefreshedTimestamp = timestamp;
+        }
+        if (timestamp < appliedTimestamp) {
+            appliedTimestamp = timestamp;
+        }
+    }
+
     public void writeCacheLog(final String columnFamilyName, final Object key, final ChangedData.Operation operation, final int daoId, final int daoCacheSize) {
         changeWriter.execute(new WriteTask(columnFamilyName, key, operation, daoId, daoCacheSize));
     }
@@ -134,6 +171,12 @@ public final class CacheConsistencyProvider {
          */
         @Override
         public void run() {
+            synchronized (CacheConsistencyProvider.this) {
+                update();
+            }
+        }
+
+        private void update() {
             long now = DateTime.now(DateTimeZone.UTC).getMillis();
             log.info("starting cache update for[{} - {}], system time - {}", lastRefreshedTimestamp, now, System.currentTimeMillis());
             if (refreshAttemptsLeft == 0) {     // load all data
@@ -145,6 +188,7 @@ public final class CacheConsistencyProvider {
                 try {
                     loadChanges(lastRefreshedTimestamp, now);
                     lastRefreshedTimestamp = now;
+                    appliedTimestamp = now;
                     refreshAttemptsLeft = retryUntilFullReload;
                 } catch (Exception e) {
                     log.warn("Exception caught while trying to sync cache changes", e);
@@ -154,110 +198,96 @@ public final class CacheConsistencyProvider {
         }
 
         /**
-         * Loads changes for given time-window defined by {@param #start} & {@param #end} parameters
+         * Loads changes for given time-window defined by {@param #start} & {@param #end} parameters.
+         * Changes are grouped by DAO id, only the last operation of each key is kept. Changed entities of each
+         * cache are read by one multi-get, then all changes are applied to caches as one batch,
+         * so a {@link CacheSnapshot} never contains only a part of them. Cache size is validated once per cache.
          *
          * @param start lower time-window bound, inclusive
          * @param end   upper time-window bound, exclusive
          */
         private void loadChanges(long start, long end) throws Exception {
-            final PeekingIterator<ChangedData> changedKeysIterator = Iterators.peekingIterator(
-                    changedKeysDAO.getIteratedChangedKeysForTick(start, end));
-            MutableInt maybeUpdated = new MutableInt(0);
+            final List<ChangedData> changedKeys = Lists.newArrayList(changedKeysDAO.getIteratedChangedKeysForTick(start, end));
+            Collections.sort(changedKeys, CHANGE_ORDER);    // rows of the time-window are not read in order
+            final Map<Integer, ChangeBatch> batches = new LinkedHashMap<>();
 
-            while (changedKeysIterator.hasNext()) {
-                final ChangedData data = changedKeysIterator.next();
-                final ChangedData nextData = changedKeysIterator.hasNext() ? changedKeysIterator.peek() : null;
-
-                if(data.getChangedKey() == null || data.getDAOid() == null
-                        || data.getOperation() == null || data.getValidCacheSize() == null
-                        || (nextData != null && nextData.getOperation() == null)) {
+            for (ChangedData data : changedKeys) {
+                if (data.getChangedKey() == null || data.getDAOid() == null
+                        || data.getOperation() == null || data.getValidCacheSize() == null) {
                     log.warn("Unable to load changed data");
                     continue;
                 }
 
-                final boolean updateDetected = nextData != null ?
-                        data.getChangedKey().equals(nextData.getChangedKey())
-                                && data.getDAOid().equals(nextData.getDAOid())
-                                && data.getOperation().equals(ChangedData.Operation.DELETE)
-                                && nextData.getOperation().equals(ChangedData.Operation.CREATE)
-                        : false;
-
                 if (!CacheManager.hasCacheFor(data.getDAOid())) {
                     log.warn("Unable to locate cache for {} given {} as id (changed key is {})",
                             data.getCfName(), data.getDAOid(), data.getChangedKey());
                     continue;
                 }
 
-                List<Class<?>> typeParams;
-                try {
-                    typeParams = Lists.newArrayList(CacheManager.findTypeParamsByDAOId(data.getDAOid()));
-                } catch (Exception e) {
-                    log.warn("Unable to get typeParams by daoId: {}", data.getDAOid());
-                    throw e;
-                }
+                ChangeBatch batch = batches.get(data.getDAOid());
+                if (batch == null) {
+                    List<Class<?>> typeParams;
+                    try {
+                        typeParams = Lists.newArrayList(CacheManager.findTypeParamsByDAOId(data.getDAOid()));
+                    } catch (Exception e) {
+                        log.warn("Unable to get typeParams by daoId: {}", data.getDAOid());
+                        throw e;
+                    }
 
-                LoadingCache cache;
-                try {
-                    cache = CacheManager.findCacheByDAOId(data.getDAOid());
-                } catch(Exception e) {
-                    log.warn("Unable to get cache by daoId: {}", data.getDAOid());
-                    throw e;
+                    LoadingCache cache;
+                    try {
+                        cache = CacheManager.findCacheByDAOId(data.getDAOid());
+                    } catch(Exception e) {
+                        log.warn("Unable to get cache by daoId: {}", data.getDAOid());
+                        throw e;
+                    }
+                    batch = new ChangeBatch(data.getDAOid(), data.getCfName(), typeParams, cache,
+                            CacheManager.findSourceByDAOId(data.getDAOid()));
+                    batches.put(data.getDAOid(), batch);
                 }
+                batch.add(data);
+            }
 
+            int maybeUpdated = 0;
+            for (ChangeBatch batch : batches.values()) {
                 try {
-                    refreshCache(data, typeParams, cache, updateDetected, changedKeysIterator, maybeUpdated);
+                    batch.load();
                 } catch(Exception e) {
-                    log.warn("Unable to refresh cache for {} CF", data.getCfName());
+                    log.warn("Unable to refresh cache for {} CF", batch.cfName);
                     throw e;
                 }
+                maybeUpdated += batch.operations.size();
+                log.info("Processing {} for {} type={}: {} keys{}", new Object[]{batch.cfName, batch.typeParams.get(0).getSimpleName(),
+                        batch.typeParams.get(1).getSimpleName(), batch.operations.size(), batch.truncated ? " after TRUNCATE_CF" : ""});
             }
 
-            if (maybeUpdated.toInteger() > 0) {
-                log.info("Expected to refresh {} entries", maybeUpdated);
+            CacheManager.applyChanges(new Runnable() {
+                @Override
+                public void run() {
+                    for (ChangeBatch batch : batches.values()) {
+                        batch.apply();
+                    }
+                }
+            });
+            CacheManager.getSnapshot();     // new generations are built here rather than by the next request
+            for (ChangeBatch batch : batches.values()) {
+                validateCacheSize(batch);
             }
-        }
 
-        private void refreshCache(ChangedData data, List<Class<?>> typeParams, LoadingCache cache, boolean updateDetected, PeekingIterator<ChangedData> changedKeysIterator, MutableInt maybeUpdated) throws Exception {
-            StringBuilder stringBuilder = new StringBuilder();
-            stringBuilder.append("Processing ").append(data.getOperation()).append(" for ").append(typeParams.get(0).getSimpleName());
-            final String changedKeyString = data.getChangedKey();
-            final Object changedKey = CoreUtil.fromJSON(typeParams.get(0), data.getChangedKey());
-            stringBuilder.append(" type=").append(typeParams.get(1).getSimpleName()).append(" key=").append(changedKeyString);
-            if(updateDetected) {
-                log.info("detected UPDATE for "+changedKeyString);
-                data.setOperation(ChangedData.Operation.UPDATE);
-                changedKeysIterator.next();
-            }
-            switch (data.getOperation()) {
-                case CREATE:
-                    cache.refresh(changedKey);   //add to cache
-                case UPDATE: {
-                    maybeUpdated.increment();
-                    cache.refresh(changedKey);  // to guarantee key is not stuck Optional::Absent
-                    log.info(stringBuilder.toString());
-                    break;
-                }
-                case DELETE: {
-                    maybeUpdated.increment();
-                    cache.invalidate(changedKey);    // evict key
-                    log.info(stringBuilder.toString());
-                    break;
-                }
-                case TRUNCATE_CF: {
-                    cache.invalidateAll();
-                    log.info(stringBuilder.toString());
-                    break;
-                }
+            if (maybeUpdated > 0) {
+                log.info("Expected to refresh {} entries of {} changes", maybeUpdated, changedKeys.size());
             }
+        }
 
-            final int cachesize = Iterables.size(Optional.presentInstances(cache.asMap().values()));
-            if (cachesize < data.getValidCacheSize()) {
-                final ISimpleCachedDAO dao = DaoFactory.Simple.findDaoInCachedDaoCacheById(data.getDAOid());
+        private void validateCacheSize(ChangeBatch batch) {
+            final int cachesize = CacheManager.getPresentCount(batch.daoId);
+            if (cachesize < batch.validCacheSize) {
+                final ISimpleCachedDAO dao = DaoFactory.Simple.findDaoInCachedDaoCacheById(batch.daoId);
                 if (dao != null) {
-                    log.warn("sizes differ for caches, got {} instead of {}, scheduling full refresh for {}", new Object[]{cachesize, data.getValidCacheSize(), dao.getColumnFamilyName()});
+                    log.warn("sizes differ for caches, got {} instead of {}, scheduling full refresh for {}", new Object[]{cachesize, batch.validCacheSize, dao.getColumnFamilyName()});
                     dao.refreshAll();
                 } else {
-                    log.error("no dao found for id " + data.getDAOid());
+                    log.error("no dao found for id " + batch.daoId);
                 }
             }
         }
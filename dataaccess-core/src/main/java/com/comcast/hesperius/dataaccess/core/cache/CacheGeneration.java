@@ -0,0 +1,96 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.hesperius.dataaccess.core.cache;
+
+import com.google.common.base.Optional;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Immutable state of present entries of one column family cache taken at some version.
+ * New generation is derived by {@link CacheManager} from the previous one by applying keys changed since,
+ * it shares all unchanged entries with the previous one and is never modified afterwards,
+ * so it can be read without locking and its version can key anything derived from its entries.
+ * Entities are shared with the cache and must not be modified.
+ *
+ * @see CacheSnapshot
+ */
+public final class CacheGeneration<K, T> {
+
+    private final long version;
+    private final PersistentMap<K, T> entries;
+
+    private CacheGeneration(long version, PersistentMap<K, T> entries) {
+        this.version = version;
+        this.entries = entries;
+    }
+
+    static <K, T> CacheGeneration<K, T> of(long version, Map<K, Optional<T>> cache) {
+        PersistentMap<K, T> entries = PersistentMap.empty();
+        for (Map.Entry<K, Optional<T>> entry : cache.entrySet()) {
+            if (entry.getValue().isPresent()) {
+                entries = entries.plus(entry.getKey(), entry.getValue().get());
+            }
+        }
+        return new CacheGeneration<>(version, entries);
+    }
+
+    /**
+     * @return generation with current cache values of the changed keys, this generation if none of its entries changed
+     */
+    CacheGeneration<K, T> with(long version, Map<K, Optional<T>> cache, Iterable<K> changedKeys) {
+        PersistentMap<K, T> changed = entries;
+        for (K key : changedKeys) {
+            final Optional<T> value = cache.get(key);
+            changed = value != null && value.isPresent() ? changed.plus(key, value.get()) : changed.minus(key);
+        }
+        return changed != entries ? new CacheGeneration<>(version, changed) : this;
+    }
+
+    /**
+     * @return version of the snapshot this generation was built for, grows with every rebuild of any cache
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public T get(K key) {
+        return entries.get(key);
+    }
+
+    public boolean containsKey(K key) {
+        return entries.containsKey(key);
+    }
+
+    public Collection<T> values() {
+        return entries.values();
+    }
+
+    /**
+     * @return unmodifiable map of present entries
+     */
+    public Map<K, T> asMap() {
+        return entries;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+}
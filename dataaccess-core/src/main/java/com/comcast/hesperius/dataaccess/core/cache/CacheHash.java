@@ -0,0 +1,206 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.hesperius.dataaccess.core.cache;
+
+import com.comcast.hesperius.dataaccess.core.util.CoreUtil;
+import com.google.common.base.Charsets;
+import com.google.common.base.Optional;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.Striped;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Content hash of present entries of one column family cache, kept up to date on each put, load and removal
+ * of an entry instead of hashing all entries on request.
+ *
+ * Entry hash is 64 bit hash of the entity JSON, cache hash is the sum of entry hashes, so it does not depend
+ * on the order entries were added in. Entries are also split into {@link #BUCKETS} buckets by hash of the key
+ * with sum of entry hashes kept per bucket, these are leaves of the cache {@link MerkleTree}.
+ * Entries are hashed before they are stored in the cache. After each put, and on removal or replacement of the very
+ * value recorded for a key, the entry is synchronized with the value actually stored in the cache under a lock of the key,
+ * so concurrent writes of one key, late removal notifications and discarded loads can't leave hash of another value.
+ */
+final class CacheHash {
+
+    static final int BUCKETS = 1024;
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+    private static final HashFunction BUCKET_FUNCTION = Hashing.murmur3_32();
+
+    private final ConcurrentMap<String, HashedValue>[] entries;
+    private final AtomicLongArray bucketSums = new AtomicLongArray(BUCKETS);
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicInteger size = new AtomicInteger();
+    private final Striped<Lock> locks = Striped.lock(64);
+    private volatile Map<?, ?> cache;
+
+    @SuppressWarnings("unchecked")
+    CacheHash() {
+        entries = new ConcurrentMap[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            entries[i] = new ConcurrentHashMap<>();
+        }
+    }
+
+    /**
+     * Binds the hash to the map view of the cache, entries are synchronized with it
+     */
+    void bind(Map<?, ?> cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Records value about to be stored in the cache under the given key, absent value removes the entry
+     */
+    void update(Object key, Optional<?> value) {
+        final String keyString = key.toString();
+        final int bucket = bucketOf(keyString);
+        if (!value.isPresent()) {
+            final HashedValue previous = entries[bucket].remove(keyString);
+            if (previous != null) {
+                add(bucket, -previous.hash);
+                size.decrementAndGet();
+            }
+            return;
+        }
+        final HashedValue current = entries[bucket].get(keyString);
+        if (current != null && current.value == value) {
+            return;
+        }
+        final HashedValue hashed = new HashedValue(key, value, hash(value.get()));
+        final HashedValue previous = entries[bucket].put(keyString, hashed);
+        if (previous != null) {
+            add(bucket, hashed.hash - previous.hash);
+        } else {
+            add(bucket, hashed.hash);
+            size.incrementAndGet();
+        }
+    }
+
+    /**
+     * Synchronizes entry of the key with the value currently stored in the cache
+     */
+    void sync(Object key) {
+        final Map<?, ?> view = cache;
+        if (key == null || view == null) {
+            return;
+        }
+        final Lock lock = locks.get(key.toString());
+        lock.lock();
+        try {
+            final Object stored = view.get(key);
+            update(key, stored instanceof Optional ? (Optional<?>) stored : Optional.absent());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Synchronizes entry of the key with the cache if its hash was recorded for the given removed or replaced value
+     */
+    void removed(Object key, Object value) {
+        if (key == null) {
+            return;
+        }
+        final HashedValue current = entries[bucketOf(key.toString())].get(key.toString());
+        if (current != null && current.value == value) {
+            sync(key);
+        }
+    }
+
+    /**
+     * @return number of present entries
+     */
+    int size() {
+        return size.get();
+    }
+
+    long getHash() {
+        return sum.get();
+    }
+
+    /**
+     * @return hash of the entry by string representation of its key, 0 if there is no such entry
+     */
+    long getHash(String key) {
+        final HashedValue hashed = entries[bucketOf(key)].get(key);
+        return hashed != null ? hashed.hash : 0;
+    }
+
+    /**
+     * @return key of the entry by string representation of the key, null if there is no such entry
+     */
+    Object getKey(String key) {
+        final HashedValue hashed = entries[bucketOf(key)].get(key);
+        return hashed != null ? hashed.key : null;
+    }
+
+    /**
+     * @return string representation of the key -> entry hash for all entries of the bucket
+     */
+    Map<String, Long> getBucketHashes(int bucket) {
+        final Map<String, Long> result = new HashMap<>();
+        for (Map.Entry<String, HashedValue> entry : entries[bucket].entrySet()) {
+            result.put(entry.getKey(), entry.getValue().hash);
+        }
+        return result;
+    }
+
+    MerkleTree getMerkleTree() {
+        final long[] leaves = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            leaves[i] = bucketSums.get(i);
+        }
+        return MerkleTree.of(leaves);
+    }
+
+    static int bucketOf(String key) {
+        return BUCKET_FUNCTION.hashString(key, Charsets.UTF_8).asInt() & (BUCKETS - 1);
+    }
+
+    static long hash(Object entity) {
+        return HASH_FUNCTION.hashString(CoreUtil.toJSON(entity), Charsets.UTF_8).asLong();
+    }
+
+    private void add(int bucket, long delta) {
+        bucketSums.addAndGet(bucket, delta);
+        sum.addAndGet(delta);
+    }
+
+    private static final class HashedValue {
+        private final Object key;
+        private final Object value;
+        private final long hash;
+
+        private HashedValue(Object key, Object value, long hash) {
+            this.key = key;
+            this.value = value;
+            this.hash = hash;
+        }
+    }
+}
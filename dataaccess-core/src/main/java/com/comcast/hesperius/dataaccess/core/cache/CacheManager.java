@@ -19,9 +19,12 @@
 package com.comcast.hesperius.dataaccess.core.cache;
 
 import com.comcast.hesperius.data.annotation.CF;
+import com.comcast.hesperius.data.annotation.ListingCF;
 import com.comcast.hesperius.data.annotation.NonCached;
 import com.comcast.hesperius.dataaccess.core.ValidationException;
 import com.comcast.hesperius.dataaccess.core.cache.mbean.CacheInfo;
+import com.comcast.hesperius.dataaccess.core.cache.mbean.DerivedViewInfo;
+import com.comcast.hesperius.dataaccess.core.cache.mbean.PrecacheInfo;
 import com.comcast.hesperius.dataaccess.core.cache.support.data.ChangedData;
 import com.comcast.hesperius.dataaccess.core.config.DataServiceConfiguration;
 import com.comcast.hesperius.dataaccess.core.dao.DaoFactory;
@@ -31,6 +34,7 @@ import com.comcast.hesperius.dataaccess.core.dao.ISimpleCachedDAO;
 import com.comcast.hesperius.dataaccess.core.jmx.JMXAgent;
 import com.comcast.hesperius.dataaccess.core.util.CoreUtil;
 import com.comcast.hydra.astyanax.data.IPersistable;
+import com.google.common.base.Function;
 import com.google.common.base.Objects;
 import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
@@ -38,16 +42,18 @@ import com.google.common.base.Predicate;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
 import com.google.common.collect.*;
-import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.swing.text.html.Option;
 import java.util.*;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
-import java.util.zip.CRC32;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Performs routine cache-related tasks such as creating loaders and dao-augmentations
@@ -69,6 +75,19 @@ public final class CacheManager {
 
     private static final DataServiceConfiguration.CacheConfiguration cacheConfig = CoreUtil.dsconfig.getCacheConfiguration();
     private static final int keySetChunkSize = cacheConfig.getKeysetChunkSizeForMassCacheLoad();
+    private static final CachePreloader preloader = new CachePreloader(cacheConfig.getPrecacheThreads(), keySetChunkSize, cacheConfig.getPrecachePriority());
+    private static final CacheSnapshotStore snapshotStore = new CacheSnapshotStore(cacheConfig.getSnapshotDirectory(),
+            TimeUnit.SECONDS.toMillis(ChangedData.class.getAnnotation(ListingCF.class).ttl()) - cacheConfig.getTickDuration());
+
+    private static final Object generationLock = new Object();
+    private static final AtomicLong generationVersion = new AtomicLong();
+    private static final Set<Integer> changedCaches = Sets.newConcurrentHashSet();
+    private static final Set<Integer> fullyChangedCaches = Sets.newConcurrentHashSet();
+    private static final ConcurrentMap<Integer, Set<Object>> changedKeys = Maps.newConcurrentMap();
+    private static final Map<Integer, IADSSimpleDAO> cacheSources = Maps.newConcurrentMap();
+    private static final Map<Integer, CacheHash> cacheHashes = Maps.newConcurrentMap();
+    private static volatile CacheSnapshot snapshot = CacheSnapshot.EMPTY;
+    private static final Map<String, DerivedView<?>> views = Maps.newConcurrentMap();
 
 
     public static final <K, T extends IPersistable> ISimpleCachedDAO<K, T> augmentWithCache(final IADSSimpleDAO<K, T> targetDAO) {
@@ -96,7 +115,11 @@ public final class CacheManager {
         return new CachedSimpleDAO<K, T>(targetDAO, cache);
     }
 
-    private static final <K, T extends IPersistable> CacheLoader<K, Optional<T>> createSimpleCacheLoader(final IADSSimpleDAO<K, T> source, final Class<K> keytype, final Class<T> valueType) {
+    /**
+     * Loaded values are not stored in the cache yet when the loader returns, so the loader does not mark the cache
+     * as changed: a snapshot built in between would miss them. Callers mark the cache once the load completes.
+     */
+    private static final <K, T extends IPersistable> CacheLoader<K, Optional<T>> createSimpleCacheLoader(final IADSSimpleDAO<K, T> source, final Class<K> keytype, final Class<T> valueType, final CacheHash hash) {
         return new CacheLoader<K, Optional<T>>() {
             @Override
             public Optional<T> load(K key) throws Exception {
@@ -104,7 +127,9 @@ public final class CacheManager {
                 if (value == null) {
                     log.warn("loaded null for ".concat(valueType.getSimpleName()).concat(" ").concat(CoreUtil.toJSON(key)).concat(", rendering value Absent"));
                 }
-                return Optional.fromNullable(value);
+                final Optional<T> result = Optional.fromNullable(value);
+                hash.update(key, result);
+                return result;
             }
 
             @Override
@@ -118,11 +143,178 @@ public final class CacheManager {
                     }
                     return loaded;
                 }
+                for (Map.Entry<K, Optional<T>> entry : values.entrySet()) {
+                    hash.update(entry.getKey(), entry.getValue());
+                }
                 return values;
             }
         };
     }
 
+    /**
+     * Returns consistent snapshot of all caches. Generations of caches changed since the last call are derived
+     * from the previous ones by applying the changed keys first, otherwise the same snapshot is returned without locking.
+     * Marks are consumed before the caches are read, so a change stored meanwhile is applied by the next call.
+     */
+    public static CacheSnapshot getSnapshot() {
+        if (changedCaches.isEmpty()) {
+            return snapshot;
+        }
+        synchronized (generationLock) {
+            if (!changedCaches.isEmpty()) {
+                final long version = generationVersion.get() + 1;
+                final Map<Integer, CacheGeneration<?, ?>> changed = new HashMap<>();
+                for (Iterator<Integer> it = changedCaches.iterator(); it.hasNext(); ) {
+                    final Integer daoId = it.next();
+                    it.remove();
+                    final List<Object> keys = drainChangedKeys(daoId);
+                    final boolean fully = fullyChangedCaches.remove(daoId);
+                    final LoadingCache cache = findCacheByDAOId(daoId);
+                    if (cache != null) {
+                        final CacheGeneration previous = snapshot.getGeneration(daoId);
+                        final CacheGeneration<?, ?> generation = previous == null || fully
+                                ? CacheGeneration.of(version, cache.asMap()) : previous.with(version, cache.asMap(), keys);
+                        if (generation != previous) {
+                            changed.put(daoId, generation);
+                        }
+                    }
+                }
+                if (!changed.isEmpty()) {
+                    generationVersion.set(version);
+                    snapshot = snapshot.with(version, changed);
+                }
+            }
+            return snapshot;
+        }
+    }
+
+    private static List<Object> drainChangedKeys(int daoId) {
+        final List<Object> keys = new ArrayList<>();
+        final Set<Object> pending = changedKeys.get(daoId);
+        if (pending != null) {
+            for (Iterator<Object> it = pending.iterator(); it.hasNext(); ) {
+                keys.add(it.next());
+                it.remove();
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Marks the whole cache of the given DAO as changed, its new generation is copied from the cache
+     * on the next {@link #getSnapshot()}. Must be called after the cache is changed
+     */
+    static void markChanged(int daoId) {
+        fullyChangedCaches.add(daoId);
+        changedCaches.add(daoId);
+    }
+
+    /**
+     * Marks the key of the cache of the given DAO as changed, it is applied to the generation of the cache
+     * on the next {@link #getSnapshot()}. Must be called after the value is stored or removed
+     */
+    static void markChanged(int daoId, Object key) {
+        Set<Object> keys = changedKeys.get(daoId);
+        if (keys == null) {
+            final Set<Object> created = Sets.newConcurrentHashSet();
+            keys = Objects.firstNonNull(changedKeys.putIfAbsent(daoId, created), created);
+        }
+        keys.add(key);
+        changedCaches.add(daoId);
+    }
+
+    /**
+     * Puts value into the cache of the given DAO, all writes to the caches should go through this method
+     * to keep {@link CacheHash} of the cache up to date
+     */
+    static void put(int daoId, LoadingCache cache, Object key, Optional<?> value) {
+        final CacheHash hash = cacheHashes.get(daoId);
+        if (hash != null) {
+            hash.update(key, value);
+        }
+        cache.put(key, value);
+        if (hash != null) {
+            hash.sync(key);     // a concurrent write of the key may have been stored in between
+        }
+        markChanged(daoId, key);
+    }
+
+    /**
+     * Applies changes of several caches as one batch: no snapshot is built while the changes are applied,
+     * so either all or none of them are visible in any snapshot. Changes must only modify caches in memory.
+     */
+    static void applyChanges(Runnable changes) {
+        synchronized (generationLock) {
+            changes.run();
+        }
+    }
+
+    /**
+     * Reads the current value of the given key bypassing the cache, value is absent if there is no such entity
+     */
+    static Optional<?> loadFromSource(int daoId, Object key) {
+        return Optional.fromNullable(findSourceByDAOId(daoId).getOne(key));
+    }
+
+    /**
+     * Reads current values of the given keys from the source of a cache, by one multi-get per chunk of keys.
+     * Value is absent if there is no such entity
+     */
+    static Map<Object, Optional<?>> loadAllFromSource(IADSSimpleDAO source, Set<?> keys) {
+        final Map<Object, Optional<?>> result = new HashMap<>();
+        for (List<?> chunk : Iterables.partition(keys, keySetChunkSize)) {
+            final Map<?, Optional<?>> values = source.getAllAsMap(Sets.newHashSet(chunk));
+            for (Object key : chunk) {
+                final Optional<?> value = values.get(key);
+                result.put(key, value != null ? value : Optional.absent());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return number of present entries in the cache of the given DAO, maintained on each change of the cache
+     */
+    public static int getPresentCount(int daoId) {
+        final CacheHash hash = cacheHashes.get(daoId);
+        return hash != null ? hash.size() : Iterables.size(Optional.presentInstances(findCacheByDAOId(daoId).asMap().values()));
+    }
+
+    /**
+     * Removes absent values (tombstones) of keys not found in the source from the cache of the given DAO,
+     * a tombstone replaced by a value meanwhile is kept. Key of a removed tombstone is loaded again on next request
+     * @return number of removed tombstones
+     */
+    public static int compactTombstones(int daoId) {
+        final Map<Object, Optional<?>> entries = findCacheByDAOId(daoId).asMap();
+        int removed = 0;
+        for (Map.Entry<Object, Optional<?>> entry : entries.entrySet()) {
+            if (!entry.getValue().isPresent() && entries.remove(entry.getKey(), entry.getValue())) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Registers view derived by the given function from caches of the source DAOs, replacing view of the same name.
+     * Function must only read caches of the sources through the snapshot it is given and return immutable value.
+     */
+    public static <V> DerivedView<V> registerView(String name, Function<CacheSnapshot, V> builder, ISimpleCachedDAO<?, ?>... sources) {
+        final ImmutableList.Builder<Integer> sourceIds = ImmutableList.builder();
+        for (ISimpleCachedDAO<?, ?> source : sources) {
+            sourceIds.add(source.id());
+        }
+        final DerivedView<V> view = new DerivedView<V>(name, builder, sourceIds.build());
+        views.put(name, view);
+        JMXAgent.INSTANCE.registerMbean(CacheManager.class.getPackage().getName() + ".views", name, new DerivedViewInfo(view));
+        return view;
+    }
+
+    public static Map<String, DerivedView<?>> getViews() {
+        return Collections.unmodifiableMap(views);
+    }
+
     public static synchronized void initCaches(final Iterable<Class<?>> cfDefs) {
 
         log.info("Initializing caches");
@@ -143,7 +335,7 @@ public final class CacheManager {
                 cacheMapBuilder.put(targetDao.id(), tCache);
 
                 String cfName = cfAnnotation.cfName();
-                CacheInfo mbean = new CacheInfo(cfName, tCache);
+                CacheInfo mbean = new CacheInfo(cfName, targetDao.id(), tCache);
                 JMXAgent.INSTANCE.registerMbean(domainName, cfName, mbean);
                 cacheMBeansBuilder.put(cfName, mbean);
             }
@@ -153,6 +345,27 @@ public final class CacheManager {
         cacheMBeans = cacheMBeansBuilder.build();
 
         JMXAgent.INSTANCE.registerMbean(domainName, "AllColumnFamilies", new com.comcast.hesperius.dataaccess.core.cache.mbean.CacheLoader());
+        JMXAgent.INSTANCE.registerMbean(domainName, "Precache", new PrecacheInfo(preloader));
+        snapshotStore.start(cacheConfig.getSnapshotPeriod());
+        scheduleTombstoneCompaction(cacheConfig.getTombstoneCompactionPeriod());
+    }
+
+    private static void scheduleTombstoneCompaction(long period) {
+        if (period <= 0) {
+            return;
+        }
+        new Timer("tombstone-compaction", true).scheduleAtFixedRate(new TimerTask() {
+            @Override
+            public void run() {
+                for (Map.Entry<String, CacheInfo> mbean : cacheMBeans.entrySet()) {
+                    try {
+                        mbean.getValue().compactTombstones();
+                    } catch (Exception e) {
+                        log.warn("Unable to compact tombstones of " + mbean.getKey(), e);
+                    }
+                }
+            }
+        }, period, period);
     }
 
     public static Map<String, CacheInfo> getCacheMBeans() {
@@ -178,104 +391,135 @@ public final class CacheManager {
     }
 
     /**
-     * Calculate hash for all objects in cf
+     * Hash of all present objects in cf, maintained on each change of the cache
      * @return long - hash value
      */
     public static long calculateHash(String cfName) {
-        if (ignoreDuringRefresh.contains(cfName)) {
-            log.warn("Cache doesn't exist for CF: " + cfName);
-            return 0;
-        }
-        ISimpleCachedDAO cachedDao = createCachedDao(cfName);
-        CRC32 globalCrc = new CRC32();
-        calculateCrcForCache(cachedDao.asLoadingCache(), globalCrc);
-        return globalCrc.getValue();
+        final CacheHash hash = findCacheHash(cfName);
+        return hash != null ? hash.getHash() : 0;
     }
 
     /**
-     * Calculate hash for a specific object in cf
-     * @return long - hash value
+     * Hash of a specific object in cf
+     * @return long - hash value, 0 if there is no such object
      */
     public static long calculateHash(String cfName, String itemId) {
-        if (ignoreDuringRefresh.contains(cfName)) {
-            log.warn("Cache doesn't exist for CF: " + cfName);
-            return 0;
-        }
-        ISimpleCachedDAO cachedDao = createCachedDao(cfName);
-        return calculateCrcForItem(cachedDao.asLoadingCache(), itemId);
-    }
-
-    private static long calculateCrcForItem(LoadingCache cache, String itemId) {
-        Set<Map.Entry> set = cache.asMap().entrySet();
-        for (Map.Entry entry : set) {
-            Object key = entry.getKey();
-            Optional<IPersistable> value = (Optional<IPersistable>) entry.getValue();
-            if (value.isPresent() && StringUtils.equals(itemId, key.toString())) {
-                CRC32 localCrc = new CRC32();
-                return countCrcForObject(value.get(), localCrc);
-            }
-        }
-        return 0;
+        final CacheHash hash = findCacheHash(cfName);
+        return hash != null ? hash.getHash(itemId) : 0;
     }
 
     /**
-     * Calculate hash of all objects in service
+     * Hash of all objects in service: combined hashes of all caches in order of DAO id
      * @return long - hash value
      */
     public static long calculateHash() {
-        CRC32 globalCrc = new CRC32();
-
-        //Sorting by class name since CoreUtil.CF_DEFINITIONS returns data in random order
-        TreeMap<Integer, LoadingCache> treeMap = new TreeMap<>();
-        treeMap.putAll(cachemap);
-        treeMap.putAll(dynamicCaches);
-
-        for (Map.Entry<Integer, LoadingCache> entry: treeMap.entrySet()) {
-            LoadingCache value = entry.getValue();
-            calculateCrcForCache(value, globalCrc);
+        long result = 0;
+        for (CacheHash hash : new TreeMap<>(cacheHashes).values()) {
+            result = 31 * result + hash.getHash();
         }
-        return globalCrc.getValue();
+        return result;
     }
 
-    private static void calculateCrcForCache(LoadingCache cache, CRC32 globalCrc) {
-        Iterator<IPersistable> it = Optional.presentInstances(cache.asMap().values()).iterator();
+    /**
+     * @return Merkle tree over key-hash buckets of the cf, null if there is no cache for it
+     */
+    public static MerkleTree getMerkleTree(String cfName) {
+        final CacheHash hash = findCacheHash(cfName);
+        return hash != null ? hash.getMerkleTree() : null;
+    }
 
-        //store crc of each object to sorted map
-        TreeMap<Long, Long> crcAndItsCount = new TreeMap<>();
+    /**
+     * @return key -> entity hash of all objects in the bucket of cf Merkle tree, empty if there is no cache for the cf
+     */
+    public static Map<String, Long> getBucketHashes(String cfName, int bucket) {
+        Preconditions.checkArgument(bucket >= 0 && bucket < CacheHash.BUCKETS, "bucket must be in [0, " + CacheHash.BUCKETS + ")");
+        final CacheHash hash = findCacheHash(cfName);
+        return hash != null ? hash.getBucketHashes(bucket) : Collections.<String, Long>emptyMap();
+    }
 
-        CRC32 localCrc = new CRC32();
-        while(it.hasNext()) {
-            IPersistable obj = it.next();
-            if (obj != null) {
-                Long crc = countCrcForObject(obj, localCrc);
-                addObjectCrcToMap(crc, crcAndItsCount);
-                localCrc.reset();
+    /**
+     * Compares objects of the bucket with hashes of the same bucket taken from another node
+     * @return keys of objects which differ or are present on one side only
+     */
+    public static Set<String> diffBucket(String cfName, int bucket, Map<String, Long> otherHashes) {
+        final Map<String, Long> ownHashes = getBucketHashes(cfName, bucket);
+        final Set<String> result = new TreeSet<>();
+        for (Map.Entry<String, Long> entry : ownHashes.entrySet()) {
+            if (!entry.getValue().equals(otherHashes.get(entry.getKey()))) {
+                result.add(entry.getKey());
             }
         }
-
-        for (Map.Entry<Long, Long> entryCrc : crcAndItsCount.entrySet()) {
-            for (int i = 0; i < entryCrc.getValue(); i++) {
-                globalCrc.update(entryCrc.getKey().byteValue());
+        for (String key : otherHashes.keySet()) {
+            if (!ownHashes.containsKey(key)) {
+                result.add(key);
             }
         }
+        return result;
     }
 
-    private static Long countCrcForObject(IPersistable obj, CRC32 localCrc) {
-        String json = CoreUtil.toJSON(obj);
-        localCrc.update(json.getBytes());
-        return localCrc.getValue();
+    /**
+     * Reloads only the given keys of cf from the source, changes are applied as one batch
+     * @param keys string representations of keys, as in {@link #getBucketHashes(String, int)}
+     * @return keys which were reloaded
+     */
+    public static List<String> repair(String cfName, Collection<String> keys) {
+        final CacheHash hash = findCacheHash(cfName);
+        if (hash == null) {
+            return Collections.emptyList();
+        }
+        final ISimpleCachedDAO dao = createCachedDao(cfName);
+        final int daoId = dao.id();
+        final LoadingCache cache = findCacheByDAOId(daoId);
+        final Map<Object, Optional<?>> loaded = new LinkedHashMap<>();
+        final List<String> repaired = new ArrayList<>();
+        for (String keyString : keys) {
+            final Object key = toKey(keyString, dao.getKeyClass(), hash);
+            if (key == null) {
+                log.warn("Unable to repair {} {}: can't convert key to {}", cfName, keyString, dao.getKeyClass().getSimpleName());
+                continue;
+            }
+            loaded.put(key, loadFromSource(daoId, key));
+            repaired.add(keyString);
+        }
+        applyChanges(new Runnable() {
+            @Override
+            public void run() {
+                for (Map.Entry<Object, Optional<?>> entry : loaded.entrySet()) {
+                    if (entry.getValue().isPresent()) {
+                        put(daoId, cache, entry.getKey(), entry.getValue());
+                    } else {
+                        cache.invalidate(entry.getKey());
+                    }
+                }
+            }
+        });
+        log.info("Repaired {} keys of {}: {}", repaired.size(), cfName, repaired);
+        return repaired;
     }
 
-    private static void addObjectCrcToMap(Long crc, TreeMap<Long, Long> crcAndItsCount) {
-        Long existingCount = crcAndItsCount.get(crc);
-        if (existingCount == null) {
-            existingCount = 1L;
-        } else {
-            existingCount++;
+    private static Object toKey(String keyString, Class<?> keyClass, CacheHash hash) {
+        final Object key = hash.getKey(keyString);
+        if (key != null) {
+            return key;
+        }
+        if (String.class.equals(keyClass)) {
+            return keyString;
+        }
+        try {
+            return CoreUtil.fromJSON(keyClass, keyString);
+        } catch (Exception e) {
+            return null;
         }
-        crcAndItsCount.put(crc, existingCount);
     }
 
+    private static CacheHash findCacheHash(String cfName) {
+        if (ignoreDuringRefresh.contains(cfName)) {
+            log.warn("Cache doesn't exist for CF: " + cfName);
+            return null;
+        }
+        final ISimpleCachedDAO cachedDao = createCachedDao(cfName);
+        return cachedDao != null ? cacheHashes.get(cachedDao.id()) : null;
+    }
 
     public static boolean refreshAll(String cfName) {
         return refresh(cfName, createCachedDao(cfName));
@@ -308,34 +552,47 @@ public final class CacheManager {
         return null;
     }
 
-    private static void initiatePrecaching(final IADSSimpleDAO targetDao, final LoadingCache cache) {
-        final Class<? extends IPersistable> valueClass = targetDao.getValueClass();
-        log.info("Scheduling precaching for " + valueClass.getSimpleName());
-        CoreUtil.doAsync(new Runnable() {
+    private static void initiatePrecaching(final IADSSimpleDAO targetDao, final LoadingCache cache, final boolean dynamic) {
+        preloader.schedule(targetDao, cache, new Runnable() {
             @Override
             public void run() {
-                try {
-                    final long timestamp = System.currentTimeMillis();
-                    for (final Iterable<?> chunk : (Iterable<List>) Iterables.partition(targetDao.getKeys(), keySetChunkSize)) {
-                        cache.getAll(chunk);
-                    }
-                    final int effectiveSetSize = Iterables.size(Optional.presentInstances(cache.asMap().values()));
-                    log.info("{} precached {} entries in {}ms ( {} effective records, {} tombstones )",
-                            new Object[]{
-                                    valueClass.getSimpleName(),
-                                    cache.size(),
-                                    System.currentTimeMillis() - timestamp,
-                                    effectiveSetSize,
-                                    cache.size() - effectiveSetSize
-                            }
-                    );
-                } catch (Exception e) {
-                    log.info("Precaching failed ", e);
+                markChanged(targetDao.id());
+                if (!dynamic) {
+                    snapshotStore.ready(targetDao);
                 }
             }
         });
     }
 
+    /**
+     * Fills the cache from its local snapshot, changes made since the snapshot was taken are loaded
+     * by the next update of {@link CacheConsistencyProvider}
+     * @return false if there is no usable snapshot
+     */
+    private static boolean restoreFromSnapshot(final IADSSimpleDAO targetDao, final LoadingCache cache) {
+        if (!snapshotStore.isEnabled()) {
+            return false;
+        }
+        final long start = System.currentTimeMillis();
+        final String cfName = targetDao.getColumnFamilyName();
+        final CacheSnapshotStore.Restored restored = snapshotStore.read(cfName, targetDao.getKeyClass(), targetDao.getValueClass());
+        if (restored == null) {
+            return false;
+        }
+        for (Map.Entry<Object, Object> entry : restored.getEntries().entrySet()) {
+            put(targetDao.id(), cache, entry.getKey(), Optional.of(entry.getValue()));
+        }
+        CoreUtil.cacheConsistencyProvider.rewindTo(restored.getTick());
+        snapshotStore.ready(targetDao);
+        log.info("{} restored {} entries from snapshot taken at {} in {}ms",
+                cfName, restored.getEntries().size(), restored.getTick(), System.currentTimeMillis() - start);
+        return true;
+    }
+
+    public static CachePreloader getPreloader() {
+        return preloader;
+    }
+
     private static LoadingCache createCache(final IADSSimpleDAO targetDao) {
         return createCache(targetDao, false);
     }
@@ -353,8 +610,16 @@ public final class CacheManager {
         else if (dynamicCaches != null && dynamicCaches.containsKey(targetDao.id()))
             return dynamicCaches.get(targetDao.id());
         //  create new cache otherwise
-        final CacheLoader loader = CacheLoader.asyncReloading(createSimpleCacheLoader(targetDao, keyClass, valueClass), CoreUtil.getAsyncTaskProcessor());
-        CacheBuilder cBuilder = CacheBuilder.newBuilder().recordStats();
+        final CacheHash hash = new CacheHash();
+        final CacheLoader loader = CacheLoader.asyncReloading(createSimpleCacheLoader(targetDao, keyClass, valueClass, hash), CoreUtil.getAsyncTaskProcessor());
+        final int daoId = targetDao.id();
+        CacheBuilder cBuilder = CacheBuilder.newBuilder().recordStats().removalListener(new RemovalListener() {
+            @Override
+            public void onRemoval(RemovalNotification notification) {
+                hash.removed(notification.getKey(), notification.getValue());
+                markChanged(daoId, notification.getKey());   // replaced by reload or invalidated
+            }
+        });
         if (Boolean.valueOf(cacheConfig.isReloadCacheEntries())) {
             final long refreshTimeout = cacheConfig.getReloadCacheEntriesTimeout();
             final TimeUnit refreshTimeUnit = cacheConfig.getReloadCacheEntriesTimeUnit();
@@ -363,13 +628,19 @@ public final class CacheManager {
 
 
         final LoadingCache cache = cBuilder.build(loader);
+        hash.bind(cache.asMap());
+        cacheSources.put(daoId, targetDao);
+        cacheHashes.put(daoId, hash);
+        markChanged(daoId);
 
         if (dynamic && !dynamicCaches.containsKey(targetDao.id())) {
             dynamicCaches.put(targetDao.id(), cache);
             dynamicDaoTypeParams.put(targetDao.id(), Arrays.asList(keyClass, valueClass));
         }
 
-        initiatePrecaching(targetDao, cache);
+        if (dynamic || !restoreFromSnapshot(targetDao, cache)) {
+            initiatePrecaching(targetDao, cache, dynamic);
+        }
         return cache;
     }
 
@@ -381,6 +652,15 @@ public final class CacheManager {
         return dynamicDaoTypeParams.containsKey(daoId) || daoTypeParams.containsKey(daoId);
     }
 
+    /**
+     * @return DAO the cache of the given DAO id loads from, bypassing the cache
+     */
+    static IADSSimpleDAO findSourceByDAOId(final int daoId) {
+        final IADSSimpleDAO source = cacheSources.get(daoId);
+        Preconditions.checkState(source != null, "no cache source found for dao id " + daoId);
+        return source;
+    }
+
     public static LoadingCache findCacheByDAOId(final int daoId) {
         return Objects.firstNonNull(cachemap.get(daoId), dynamicCaches.get(daoId));
     }
@@ -392,10 +672,12 @@ public final class CacheManager {
     private static class CachedSimpleDAO<K, T extends IPersistable> extends ForwardingAdsSimpleDao<K, T> implements ISimpleCachedDAO<K, T> {
 
         final LoadingCache<K, Optional<T>> ownCache;
+        final ReadOnlyGuard guard;
 
         CachedSimpleDAO(final IADSSimpleDAO<K, T> delegate, final LoadingCache<K, Optional<T>> cache) {
             super(delegate);
             this.ownCache = cache;
+            this.guard = cacheConfig.isVerifyReadOnlyAccess() ? new ReadOnlyGuard(delegate.getValueClass().getSimpleName()) : null;
         }
 
         @Override
@@ -403,9 +685,13 @@ public final class CacheManager {
             return ownCache;
         }
 
+        /**
+         * Absent key is loaded right away, present one is reloaded asynchronously and marked by the removal listener
+         */
         @Override
         public void refresh(K key) {
             ownCache.refresh(key);
+            markChanged(super.id(), key);
         }
 
         @Override
@@ -415,6 +701,7 @@ public final class CacheManager {
             for (final K key : allKeys) {
                 ownCache.refresh(key);
             }
+            markChanged(super.id());
         }
 
         @Override
@@ -444,7 +731,7 @@ public final class CacheManager {
         @Override
         public T getOne(K rowkey) {
             try {
-                final T res = ownCache.get(rowkey).orNull();
+                final T res = load(rowkey).orNull();
                 return res != null ? CoreUtil.clone(res) : null;
             } catch (ExecutionException e) {
                 return super.getOne(rowkey);
@@ -454,7 +741,7 @@ public final class CacheManager {
         @Override
         public List<T> getAll(Set<K> keys) {
             try {
-                final List<T> res = Lists.newArrayList(Optional.presentInstances(ownCache.getAll(keys).values()));
+                final List<T> res = Lists.newArrayList(Optional.presentInstances(loadAll(keys).values()));
                 return CoreUtil.clone(res);
             } catch (ExecutionException e) {
                 log.debug("exception while trying to return cached falling back to noncached implementation");
@@ -532,6 +819,9 @@ public final class CacheManager {
             }
         }
 
+        /**
+         * A copy of the written instance is cached, it is shared with read only readers while the writer keeps the instance
+         */
         @Override
         public T setOne(final K rowKey, final T obj) throws ValidationException {
             boolean successful = true;
@@ -542,8 +832,8 @@ public final class CacheManager {
                 throw e;
             } finally {
                 if (successful) {
-                    ownCache.put(rowKey, Optional.fromNullable(obj));
-                    CoreUtil.cacheConsistencyProvider.writeCacheLog(getColumnFamilyName(), rowKey, ChangedData.Operation.CREATE, super.id(), Iterables.size(Optional.presentInstances(ownCache.asMap().values())));
+                    put(super.id(), ownCache, rowKey, Optional.fromNullable(CoreUtil.clone(obj)));
+                    CoreUtil.cacheConsistencyProvider.writeCacheLog(getColumnFamilyName(), rowKey, ChangedData.Operation.CREATE, super.id(), getPresentCount(super.id()));
                 }
             }
         }
@@ -558,8 +848,8 @@ public final class CacheManager {
                 throw e;
             } finally {
                 if (successful) {
-                    ownCache.put(rowKey, Optional.fromNullable(obj));
-                    CoreUtil.cacheConsistencyProvider.writeCacheLog(getColumnFamilyName(), rowKey, ChangedData.Operation.CREATE, super.id(), Iterables.size(Optional.presentInstances(ownCache.asMap().values())));
+                    put(super.id(), ownCache, rowKey, Optional.fromNullable(CoreUtil.clone(obj)));
+                    CoreUtil.cacheConsistencyProvider.writeCacheLog(getColumnFamilyName(), rowKey, ChangedData.Operation.CREATE, super.id(), getPresentCount(super.id()));
                 }
             }
         }
@@ -574,10 +864,9 @@ public final class CacheManager {
                 throw e;
             } finally {
                 if (successful) {
-                    int cacheSize = Iterables.size(Optional.presentInstances(ownCache.asMap().values()));
                     for (final Map.Entry<K, T> entry : entities.entrySet()) {
-                        ownCache.put(entry.getKey(), Optional.fromNullable(entry.getValue()));
-                        CoreUtil.cacheConsistencyProvider.writeCacheLog(getColumnFamilyName(), entry.getKey(), ChangedData.Operation.CREATE, super.id(), cacheSize++);
+                        put(super.id(), ownCache, entry.getKey(), Optional.fromNullable(CoreUtil.clone(entry.getValue())));
+                        CoreUtil.cacheConsistencyProvider.writeCacheLog(getColumnFamilyName(), entry.getKey(), ChangedData.Operation.CREATE, super.id(), getPresentCount(super.id()));
                     }
                 }
             }
@@ -594,7 +883,7 @@ public final class CacheManager {
             } finally {
                 if (successful) {
                     ownCache.invalidate(rowKey);
-                    CoreUtil.cacheConsistencyProvider.writeCacheLog(getColumnFamilyName(), rowKey, ChangedData.Operation.DELETE, super.id(), Iterables.size(Optional.presentInstances(ownCache.asMap().values())));
+                    CoreUtil.cacheConsistencyProvider.writeCacheLog(getColumnFamilyName(), rowKey, ChangedData.Operation.DELETE, super.id(), getPresentCount(super.id()));
                 }
             }
         }
@@ -607,7 +896,7 @@ public final class CacheManager {
         @Override
         public Map<K, Optional<T>> getAllAsMap(Set<K> keys) {
             try {
-                final Map<K, Optional<T>> filtered = Maps.newHashMap(Maps.filterValues(ownCache.getAll(keys), new Predicate<Optional<T>>() {
+                final Map<K, Optional<T>> filtered = Maps.newHashMap(Maps.filterValues(loadAll(keys), new Predicate<Optional<T>>() {
                     @Override
                     public boolean apply(final Optional<T> input) {
                         return input.isPresent();
@@ -623,11 +912,83 @@ public final class CacheManager {
         @Override
         public T getOne(K rowKey, boolean clone) {
             try {
-                final T res = ownCache.get(rowKey).orNull();
+                final T res = load(rowKey).orNull();
                 return res != null ? (clone ? CoreUtil.clone(res) : res) : null;
             } catch (ExecutionException e) {
                 return super.getOne(rowKey);
             }
         }
+
+        /**
+         * Key missing in the pinned generation is read from the cache: it is null for a cached tombstone only,
+         * key loaded or written after the snapshot was taken is returned as cached
+         */
+        @Override
+        public T getOneReadOnly(K rowKey) {
+            final CacheGeneration<K, T> generation = getPinnedGeneration();
+            if (generation != null) {
+                final T res = generation.get(rowKey);
+                if (res != null) {
+                    return guard != null ? guard.check(res) : res;
+                }
+            }
+            try {
+                final T res = load(rowKey).orNull();
+                return guard != null ? guard.check(res) : res;
+            } catch (ExecutionException e) {
+                return super.getOne(rowKey);
+            }
+        }
+
+        @Override
+        public Iterable<T> viewAll() {
+            final CacheGeneration<K, T> generation = getPinnedGeneration();
+            final Iterable<T> all = generation != null ? generation.values() : Optional.presentInstances(ownCache.asMap().values());
+            if (guard == null) {
+                return all;
+            }
+            return Iterables.transform(all, new Function<T, T>() {
+                @Override
+                public T apply(T input) {
+                    return guard.check(input);
+                }
+            });
+        }
+
+        @Override
+        public CacheGeneration<K, T> getGeneration() {
+            return CacheSnapshot.current().getGeneration(this);
+        }
+
+        /**
+         * Gets value from the cache, loading it if absent. Loaded key is marked as changed after its value is stored
+         */
+        private Optional<T> load(K rowKey) throws ExecutionException {
+            final boolean loading = !ownCache.asMap().containsKey(rowKey);
+            final Optional<T> value = ownCache.get(rowKey);
+            if (loading) {
+                markChanged(super.id(), rowKey);
+            }
+            return value;
+        }
+
+        private Map<K, Optional<T>> loadAll(Iterable<? extends K> keys) throws ExecutionException {
+            final List<K> loading = new ArrayList<>();
+            for (K key : keys) {
+                if (!ownCache.asMap().containsKey(key)) {
+                    loading.add(key);
+                }
+            }
+            final Map<K, Optional<T>> values = ownCache.getAll(keys);
+            for (K key : loading) {
+                markChanged(super.id(), key);
+            }
+            return values;
+        }
+
+        private CacheGeneration<K, T> getPinnedGeneration() {
+            final CacheSnapshot pinned = CacheSnapshot.pinned();
+            return pinned != null ? pinned.<K, T>getGeneration(super.id()) : null;
+        }
     }
 }
@@ -0,0 +1,278 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.hesperius.dataaccess.core.cache;
+
+import com.comcast.hesperius.dataaccess.core.dao.IADSSimpleDAO;
+import com.google.common.base.Optional;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loads all entries of column family caches on startup.
+ *
+ * Keys of each cf are split into chunks loaded by one multi-get each, chunks of all cfs are loaded in parallel
+ * by a dedicated pool of threads. Its queue is unbounded and ordered by priority of the cf, so cfs needed for
+ * evaluation are loaded first and no task is ever rejected. A failed task is retried a few times, keys of a chunk
+ * which still fails are left to be loaded on demand.
+ */
+public final class CachePreloader {
+    private static final Logger log = LoggerFactory.getLogger(CachePreloader.class);
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final ThreadPoolExecutor executor;
+    private final int chunkSize;
+    private final List<String> priority;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<String, Progress> progress = Collections.synchronizedMap(new LinkedHashMap<String, Progress>());
+
+    /**
+     * @param threads  number of chunks loaded in parallel
+     * @param priority names of column families loaded first, in the given order
+     */
+    CachePreloader(int threads, int chunkSize, List<String> priority) {
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new PriorityBlockingQueue<Runnable>(),
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("precache-%d").build());
+        this.executor.allowCoreThreadTimeOut(true);
+        this.chunkSize = chunkSize;
+        this.priority = ImmutableList.copyOf(priority);
+    }
+
+    /**
+     * Schedules loading of all keys of the dao into the cache
+     * @param onComplete called once all chunks are loaded or failed
+     */
+    void schedule(final IADSSimpleDAO<?, ?> targetDao, final LoadingCache cache, final Runnable onComplete) {
+        final String cfName = targetDao.getColumnFamilyName();
+        final int rank = priority.contains(cfName) ? priority.indexOf(cfName) : priority.size();
+        final Progress cfProgress = new Progress(cfName);
+        progress.put(cfName, cfProgress);
+        log.info("Scheduling precaching for {} with priority {}", cfName, rank);
+        executor.execute(new ScanTask(rank, 1, targetDao, cache, cfProgress, onComplete));
+    }
+
+    /**
+     * @return progress of precaching of each column family, in order of scheduling
+     */
+    public List<Progress> getProgress() {
+        synchronized (progress) {
+            return new ArrayList<>(progress.values());
+        }
+    }
+
+    private void complete(Progress cfProgress, LoadingCache cache, Runnable onComplete) {
+        cfProgress.finish();
+        onComplete.run();
+        final int effectiveSetSize = Iterables.size(Optional.presentInstances(cache.asMap().values()));
+        log.info("{} precached {} entries in {}ms ( {} effective records, {} tombstones, {} keys failed )",
+                cfProgress.getCfName(), cache.size(), cfProgress.getLoadTime(), effectiveSetSize,
+                cache.size() - effectiveSetSize, cfProgress.getFailedKeys());
+        int done = 0;
+        final List<Progress> all = getProgress();
+        for (Progress each : all) {
+            if (each.isDone()) {
+                done++;
+            }
+        }
+        log.info("Precaching progress: {} of {} column families loaded", done, all.size());
+    }
+
+    /**
+     * Tasks of higher priority cfs go first, tasks of the same cf in order of submission
+     */
+    private abstract class Task implements Runnable, Comparable<Task> {
+        final int rank;
+        final int attempt;
+        final long order = sequence.incrementAndGet();
+
+        Task(int rank, int attempt) {
+            this.rank = rank;
+            this.attempt = attempt;
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            if (rank != other.rank) {
+                return rank < other.rank ? -1 : 1;
+            }
+            return order < other.order ? -1 : (order == other.order ? 0 : 1);
+        }
+    }
+
+    private final class ScanTask extends Task {
+        private final IADSSimpleDAO<?, ?> targetDao;
+        private final LoadingCache cache;
+        private final Progress cfProgress;
+        private final Runnable onComplete;
+
+        ScanTask(int rank, int attempt, IADSSimpleDAO<?, ?> targetDao, LoadingCache cache, Progress cfProgress, Runnable onComplete) {
+            super(rank, attempt);
+            this.targetDao = targetDao;
+            this.cache = cache;
+            this.cfProgress = cfProgress;
+            this.onComplete = onComplete;
+        }
+
+        @Override
+        public void run() {
+            final List<?> keys;
+            try {
+                keys = Lists.newArrayList(targetDao.getKeys());
+            } catch (Exception e) {
+                if (attempt < MAX_ATTEMPTS) {
+                    log.warn("Reading keys of " + cfProgress.getCfName() + " failed, retrying", e);
+                    executor.execute(new ScanTask(rank, attempt + 1, targetDao, cache, cfProgress, onComplete));
+                } else {
+                    log.error("Reading keys of " + cfProgress.getCfName() + " failed, entries will be loaded on demand", e);
+                    complete(cfProgress, cache, onComplete);
+                }
+                return;
+            }
+            final List<? extends List<?>> chunks = Lists.partition(keys, chunkSize);
+            cfProgress.start(keys.size(), chunks.size());
+            if (chunks.isEmpty()) {
+                complete(cfProgress, cache, onComplete);
+            }
+            for (List<?> chunk : chunks) {
+                executor.execute(new ChunkTask(rank, 1, chunk, cache, cfProgress, onComplete));
+            }
+        }
+    }
+
+    private final class ChunkTask extends Task {
+        private final List<?> keys;
+        private final LoadingCache cache;
+        private final Progress cfProgress;
+        private final Runnable onComplete;
+
+        ChunkTask(int rank, int attempt, List<?> keys, LoadingCache cache, Progress cfProgress, Runnable onComplete) {
+            super(rank, attempt);
+            this.keys = keys;
+            this.cache = cache;
+            this.cfProgress = cfProgress;
+            this.onComplete = onComplete;
+        }
+
+        @Override
+        public void run() {
+            try {
+                cache.getAll(keys);
+                cfProgress.loaded(keys.size());
+            } catch (Exception e) {
+                if (attempt < MAX_ATTEMPTS) {
+                    log.warn("Precaching chunk of " + keys.size() + " " + cfProgress.getCfName() + " keys failed, retrying", e);
+                    executor.execute(new ChunkTask(rank, attempt + 1, keys, cache, cfProgress, onComplete));
+                    return;
+                }
+                log.error("Precaching chunk of " + keys.size() + " " + cfProgress.getCfName() + " keys failed, they will be loaded on demand", e);
+                cfProgress.failed(keys.size());
+            }
+            if (cfProgress.chunkDone()) {
+                complete(cfProgress, cache, onComplete);
+            }
+        }
+    }
+
+    /**
+     * Precaching progress of one column family
+     */
+    public static final class Progress {
+        private final String cfName;
+        private final long scheduled = System.currentTimeMillis();
+        private volatile long finished;
+        private volatile long totalKeys = -1;
+        private final AtomicLong loadedKeys = new AtomicLong();
+        private final AtomicLong failedKeys = new AtomicLong();
+        private final AtomicInteger pendingChunks = new AtomicInteger();
+
+        Progress(String cfName) {
+            this.cfName = cfName;
+        }
+
+        void start(long totalKeys, int chunks) {
+            this.pendingChunks.set(chunks);
+            this.totalKeys = totalKeys;
+        }
+
+        void loaded(int keys) {
+            loadedKeys.addAndGet(keys);
+        }
+
+        void failed(int keys) {
+            failedKeys.addAndGet(keys);
+        }
+
+        /**
+         * @return true if it was the last pending chunk
+         */
+        boolean chunkDone() {
+            return pendingChunks.decrementAndGet() == 0;
+        }
+
+        void finish() {
+            finished = System.currentTimeMillis();
+        }
+
+        public String getCfName() {
+            return cfName;
+        }
+
+        /**
+         * @return number of keys to load, -1 if keys are not read yet
+         */
+        public long getTotalKeys() {
+            return totalKeys;
+        }
+
+        public long getLoadedKeys() {
+            return loadedKeys.get();
+        }
+
+        public long getFailedKeys() {
+            return failedKeys.get();
+        }
+
+        public boolean isDone() {
+            return finished != 0;
+        }
+
+        /**
+         * @return time since scheduling till completion, or till now if not done yet, ms
+         */
+        public long getLoadTime() {
+            return (isDone() ? finished : System.currentTimeMillis()) - scheduled;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.hesperius.dataaccess.core.cache;
+
+import com.comcast.hesperius.dataaccess.core.dao.ISimpleCachedDAO;
+import com.comcast.hydra.astyanax.data.IPersistable;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Map;
+
+/**
+ * Consistent state of all column family caches: one {@link CacheGeneration} per cached DAO id.
+ * Changes applied as one batch (e.g. one tick of {@link CacheConsistencyProvider}) are either all visible
+ * in a snapshot or none of them are.
+ *
+ * A snapshot can be pinned to the current thread for the lifetime of a request, then read only access of
+ * cached DAOs ({@link com.comcast.hesperius.dataaccess.core.dao.ISimpleCachedDAO#getOneReadOnly},
+ * {@link com.comcast.hesperius.dataaccess.core.dao.ISimpleCachedDAO#viewAll}) reads the pinned generations
+ * instead of the live caches, so the whole request sees the same data.
+ */
+public final class CacheSnapshot {
+
+    static final CacheSnapshot EMPTY = new CacheSnapshot(0, ImmutableMap.<Integer, CacheGeneration<?, ?>>of());
+
+    private static final ThreadLocal<CacheSnapshot> PINNED = new ThreadLocal<>();
+
+    private final long version;
+    private final ImmutableMap<Integer, CacheGeneration<?, ?>> generations;
+
+    private CacheSnapshot(long version, ImmutableMap<Integer, CacheGeneration<?, ?>> generations) {
+        this.version = version;
+        this.generations = generations;
+    }
+
+    /**
+     * @return copy of this snapshot with the given generations replaced
+     */
+    CacheSnapshot with(long version, Map<Integer, CacheGeneration<?, ?>> changed) {
+        final ImmutableMap.Builder<Integer, CacheGeneration<?, ?>> builder = ImmutableMap.builder();
+        for (Map.Entry<Integer, CacheGeneration<?, ?>> entry : generations.entrySet()) {
+            if (!changed.containsKey(entry.getKey())) {
+                builder.put(entry);
+            }
+        }
+        return new CacheSnapshot(version, builder.putAll(changed).build());
+    }
+
+    /**
+     * Pins current snapshot of all caches to this thread until {@link #release()}
+     */
+    public static CacheSnapshot pin() {
+        final CacheSnapshot snapshot = CacheManager.getSnapshot();
+        PINNED.set(snapshot);
+        return snapshot;
+    }
+
+    /**
+     * @return snapshot pinned to this thread, or null if none
+     */
+    public static CacheSnapshot pinned() {
+        return PINNED.get();
+    }
+
+    /**
+     * @return snapshot pinned to this thread, or the latest one if none
+     */
+    public static CacheSnapshot current() {
+        final CacheSnapshot pinned = PINNED.get();
+        return pinned != null ? pinned : CacheManager.getSnapshot();
+    }
+
+    public static void release() {
+        PINNED.remove();
+    }
+
+    /**
+     * @return version of the latest change included into this snapshot
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return generation of the cache of given DAO id, or null if the cache has not been built yet
+     */
+    @SuppressWarnings("unchecked")
+    public <K, T> CacheGeneration<K, T> getGeneration(int daoId) {
+        return (CacheGeneration<K, T>) generations.get(daoId);
+    }
+
+    /**
+     * @return generation of the cache of given DAO, or a copy of its live cache if the cache has not been built yet
+     */
+    public <K, T extends IPersistable> CacheGeneration<K, T> getGeneration(ISimpleCachedDAO<K, T> dao) {
+        final CacheGeneration<K, T> generation = getGeneration(dao.id());
+        return generation != null ? generation : CacheGeneration.of(0, dao.asLoadingCache().asMap());
+    }
+}
@@ -0,0 +1,325 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.hesperius.dataaccess.core.cache;
+
+import com.comcast.hesperius.dataaccess.core.dao.IADSSimpleDAO;
+import com.comcast.hesperius.dataaccess.core.util.CoreUtil;
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Local binary snapshots of column family caches, so a restarted service does not have to read all of them from cassandra.
+ *
+ * Generation of each completely loaded cache is periodically written to its own file together with the timestamp
+ * before which all changes from the change log are applied to caches. File holds a header followed by key and value
+ * of each entry as length-prefixed Kryo records, it is written to a temporary file first and then renamed,
+ * and is memory-mapped when read. A snapshot whose timestamp is older than changes are kept in the change log
+ * is not used, the cache is fully loaded from the source instead.
+ *
+ * Kryo records hold field values by position only, so the header also holds a {@link #fingerprint(Class[]) fingerprint}
+ * of field layout of key and value classes. Snapshot written by a build with another layout is not used either,
+ * it would be read without error into shifted fields.
+ */
+public final class CacheSnapshotStore {
+    private static final Logger log = LoggerFactory.getLogger(CacheSnapshotStore.class);
+
+    private static final int MAGIC = 0x48435346;
+    private static final int FORMAT_VERSION = 2;
+    private static final int TICK_OFFSET = 8;
+    private static final int HEADER_SIZE = 28;
+    private static final String SUFFIX = ".snapshot";
+
+    private final File directory;
+    private final long maxAge;
+    private final Map<Integer, IADSSimpleDAO<?, ?>> ready = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> writtenVersions = new HashMap<>();
+    private Timer timer;
+
+    /**
+     * @param directory directory of snapshot files, snapshots are disabled if null or empty
+     * @param maxAge    max age of a usable snapshot, ms
+     */
+    public CacheSnapshotStore(String directory, long maxAge) {
+        this.directory = directory != null && !directory.isEmpty() ? new File(directory) : null;
+        this.maxAge = maxAge;
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Starts writing snapshots of ready caches with the given period, ms
+     */
+    synchronized void start(long period) {
+        if (!isEnabled() || timer != null) {
+            return;
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            log.error("Unable to create cache snapshot directory {}, snapshots are not written", directory);
+            return;
+        }
+        timer = new Timer("cache-snapshot", true);
+        timer.scheduleAtFixedRate(new TimerTask() {
+            @Override
+            public void run() {
+                try {
+                    writeAll();
+                } catch (Exception e) {
+                    log.warn("Unable to write cache snapshots", e);
+                }
+            }
+        }, period, period);
+        log.info("Writing cache snapshots to {} every {}ms", directory, period);
+    }
+
+    /**
+     * Marks cache as completely loaded, only such caches are written
+     */
+    void ready(IADSSimpleDAO<?, ?> dao) {
+        ready.put(dao.id(), dao);
+    }
+
+    /**
+     * Writes generations of ready caches changed since they were last written, only updates the timestamp of others
+     */
+    synchronized void writeAll() {
+        final long tick = CoreUtil.cacheConsistencyProvider.getAppliedTimestamp();
+        if (tick == 0) {
+            return;     // no changes were loaded since caches were loaded or restored, they may miss some
+        }
+        final CacheSnapshot snapshot = CacheManager.getSnapshot();
+        for (Map.Entry<Integer, IADSSimpleDAO<?, ?>> cache : ready.entrySet()) {
+            final IADSSimpleDAO<?, ?> dao = cache.getValue();
+            final CacheGeneration<?, ?> generation = snapshot.getGeneration(cache.getKey());
+            if (generation == null) {
+                continue;
+            }
+            try {
+                final Long writtenVersion = writtenVersions.get(cache.getKey());
+                if (writtenVersion != null && writtenVersion == generation.getVersion()) {
+                    updateTick(dao.getColumnFamilyName(), tick);
+                } else {
+                    write(dao.getColumnFamilyName(), dao.getKeyClass(), dao.getValueClass(), tick, generation);
+                    writtenVersions.put(cache.getKey(), generation.getVersion());
+                }
+            } catch (IOException e) {
+                log.warn("Unable to write snapshot of " + dao.getColumnFamilyName(), e);
+                writtenVersions.remove(cache.getKey());
+            }
+        }
+    }
+
+    /**
+     * Replaces snapshot of the cf with entries of the given generation
+     * @param tick timestamp before which all changes are included into the generation
+     */
+    public void write(String cfName, Class<?> keyClass, Class<?> valueClass, long tick, CacheGeneration<?, ?> generation) throws IOException {
+        final long start = System.currentTimeMillis();
+        final File temp = new File(directory, cfName + SUFFIX + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(tick);
+            out.writeLong(fingerprint(keyClass, valueClass));
+            out.writeInt(generation.size());
+            for (Map.Entry<?, ?> entry : generation.asMap().entrySet()) {
+                writeRecord(out, entry.getKey());
+                writeRecord(out, entry.getValue());
+            }
+        }
+        Files.move(temp.toPath(), file(cfName).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Snapshot of {} written: {} entries in {}ms", cfName, generation.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Reads snapshot of the cf
+     * @return null if there is no usable snapshot: it is missing, unreadable, holds entries of other types
+     * or of another field layout, or is older than max age
+     */
+    public Restored read(String cfName, Class<?> keyClass, Class<?> valueClass) {
+        final File file = file(cfName);
+        if (!isEnabled() || !file.isFile()) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                log.warn("Snapshot of {} has unknown format, loading it from source", cfName);
+                return null;
+            }
+            final long tick = buffer.getLong();
+            if (System.currentTimeMillis() - tick > maxAge) {
+                log.info("Snapshot of {} taken at {} is older than the change log, loading it from source", cfName, tick);
+                return null;
+            }
+            if (buffer.getLong() != fingerprint(keyClass, valueClass)) {
+                log.info("Snapshot of {} was written for another layout of {}, loading it from source", cfName, valueClass.getSimpleName());
+                return null;
+            }
+            final int size = buffer.getInt();
+            final Map<Object, Object> entries = new LinkedHashMap<>(size * 2);
+            for (int i = 0; i < size; i++) {
+                final Object key = readRecord(buffer);
+                final Object value = readRecord(buffer);
+                if (!keyClass.isInstance(key) || !valueClass.isInstance(value)) {
+                    log.warn("Snapshot of {} holds entries of other types, loading it from source", cfName);
+                    return null;
+                }
+                entries.put(key, value);
+            }
+            return new Restored(tick, entries);
+        } catch (Exception e) {
+            log.warn("Unable to read snapshot of " + cfName + ", loading it from source", e);
+            return null;
+        }
+    }
+
+    /**
+     * Hash of field layout of the given classes: names and declared types of serialized fields of each class
+     * and its superclasses, in declaration order, and of classes of those fields outside of java packages,
+     * constants of enums which are serialized by ordinal. Names of the given classes themselves are not included
+     */
+    public static long fingerprint(Class<?>... classes) {
+        final StringBuilder layout = new StringBuilder();
+        final Set<Class<?>> visited = new HashSet<>();
+        for (Class<?> clazz : classes) {
+            appendLayout(layout, clazz, visited);
+            layout.append(';');
+        }
+        return Hashing.murmur3_128().hashString(layout, Charsets.UTF_8).asLong();
+    }
+
+    private static void appendLayout(StringBuilder layout, Class<?> clazz, Set<Class<?>> visited) {
+        if (clazz.isPrimitive() || clazz.getName().startsWith("java.") || !visited.add(clazz)) {
+            return;
+        }
+        if (clazz.isArray()) {
+            appendLayout(layout, clazz.getComponentType(), visited);
+            return;
+        }
+        if (clazz.isEnum()) {
+            for (Object constant : clazz.getEnumConstants()) {
+                layout.append(constant).append(',');
+            }
+            return;
+        }
+        for (Class<?> type = clazz; type != null && type != Object.class; type = type.getSuperclass()) {
+            layout.append('{');
+            for (Field field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers())) {
+                    continue;
+                }
+                layout.append(field.getName()).append(':').append(field.getGenericType()).append(',');
+                appendLayout(layout, field.getGenericType(), visited);
+            }
+            layout.append('}');
+        }
+    }
+
+    private static void appendLayout(StringBuilder layout, Type type, Set<Class<?>> visited) {
+        if (type instanceof Class) {
+            appendLayout(layout, (Class<?>) type, visited);
+        } else if (type instanceof ParameterizedType) {
+            appendLayout(layout, ((ParameterizedType) type).getRawType(), visited);
+            for (Type argument : ((ParameterizedType) type).getActualTypeArguments()) {
+                appendLayout(layout, argument, visited);
+            }
+        } else if (type instanceof GenericArrayType) {
+            appendLayout(layout, ((GenericArrayType) type).getGenericComponentType(), visited);
+        }
+    }
+
+    private void updateTick(String cfName, long tick) throws IOException {
+        try (FileChannel channel = FileChannel.open(file(cfName).toPath(), StandardOpenOption.WRITE)) {
+            final ByteBuffer buffer = ByteBuffer.allocate(8);
+            buffer.putLong(tick);
+            buffer.flip();
+            channel.write(buffer, TICK_OFFSET);
+        }
+    }
+
+    private File file(String cfName) {
+        return new File(directory, cfName + SUFFIX);
+    }
+
+    private static void writeRecord(DataOutputStream out, Object object) throws IOException {
+        final byte[] bytes = CoreUtil.serialize(object);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static Object readRecord(ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return CoreUtil.deserialize(bytes);
+    }
+
+    /**
+     * Entries read from a snapshot
+     */
+    public static final class Restored {
+        private final long tick;
+        private final Map<Object, Object> entries;
+
+        private Restored(long tick, Map<Object, Object> entries) {
+            this.tick = tick;
+            this.entries = Collections.unmodifiableMap(entries);
+        }
+
+        /**
+         * @return timestamp before which all changes are included into the snapshot
+         */
+        public long getTick() {
+            return tick;
+        }
+
+        public Map<Object, Object> getEntries() {
+            return entries;
+        }
+    }
+}
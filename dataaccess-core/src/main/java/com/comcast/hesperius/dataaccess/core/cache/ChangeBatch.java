@@ -0,0 +1,97 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.hesperius.dataaccess.core.cache;
+
+import com.comcast.hesperius.dataaccess.core.cache.support.data.ChangedData;
+import com.comcast.hesperius.dataaccess.core.dao.IADSSimpleDAO;
+import com.comcast.hesperius.dataaccess.core.util.CoreUtil;
+import com.google.common.base.Optional;
+import com.google.common.cache.LoadingCache;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Changes of one cache within a time-window: the last operation of each changed key, in order of the last operations.
+ * Changed entities are loaded before the batch is applied, so applying it only modifies the cache
+ *
+ * @see CacheConsistencyProvider
+ */
+final class ChangeBatch {
+    final int daoId;
+    final String cfName;
+    final List<Class<?>> typeParams;
+    final LoadingCache cache;
+    final IADSSimpleDAO source;
+    final Map<Object, ChangedData.Operation> operations = new LinkedHashMap<>();
+    boolean truncated;
+    int validCacheSize;
+    Map<Object, Optional<?>> values = Collections.emptyMap();
+
+    ChangeBatch(int daoId, String cfName, List<Class<?>> typeParams, LoadingCache cache, IADSSimpleDAO source) {
+        this.daoId = daoId;
+        this.cfName = cfName;
+        this.typeParams = typeParams;
+        this.cache = cache;
+        this.source = source;
+    }
+
+    void add(ChangedData data) {
+        validCacheSize = data.getValidCacheSize();
+        if (data.getOperation() == ChangedData.Operation.TRUNCATE_CF) {
+            operations.clear();     // all previous changes are gone with the truncated data
+            truncated = true;
+            return;
+        }
+        final Object key = CoreUtil.fromJSON(typeParams.get(0), data.getChangedKey());
+        operations.remove(key);
+        operations.put(key, data.getOperation());
+    }
+
+    void load() {
+        final Set<Object> changed = new HashSet<>();
+        for (Map.Entry<Object, ChangedData.Operation> entry : operations.entrySet()) {
+            if (entry.getValue() != ChangedData.Operation.DELETE) {
+                changed.add(entry.getKey());
+            }
+        }
+        if (!changed.isEmpty()) {
+            values = CacheManager.loadAllFromSource(source, changed);
+        }
+    }
+
+    void apply() {
+        if (truncated) {
+            cache.invalidateAll();
+            CacheManager.markChanged(daoId);
+        }
+        for (Map.Entry<Object, ChangedData.Operation> entry : operations.entrySet()) {
+            if (entry.getValue() == ChangedData.Operation.DELETE) {
+                cache.invalidate(entry.getKey());    // evict key
+                CacheManager.markChanged(daoId, entry.getKey());
+            } else {
+                CacheManager.put(daoId, cache, entry.getKey(), values.get(entry.getKey()));
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.hesperius.dataaccess.core.cache;
+
+import com.comcast.hesperius.dataaccess.core.dao.ISimpleCachedDAO;
+import com.google.common.base.Function;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Named structure derived from one or more cached column families, e.g. rules grouped by type or sorted by priority,
+ * so that request handling reads it instead of building it again from all entities on every request.
+ *
+ * View is built lazily by its function from a {@link CacheSnapshot} and reused while generations of its source caches
+ * keep the same versions; after any of them changes the next read builds it again. Results for the two latest
+ * combinations of versions are kept, so requests pinned to the previous snapshot don't rebuild it back and forth.
+ * Built value is shared by all readers and must be immutable.
+ *
+ * @see CacheManager#registerView(String, Function, ISimpleCachedDAO[])
+ */
+public final class DerivedView<V> {
+    private static final Logger log = LoggerFactory.getLogger(DerivedView.class);
+
+    private final String name;
+    private final ImmutableList<Integer> sourceIds;
+    private final Function<CacheSnapshot, V> builder;
+    private final Cache<List<Long>, V> built = CacheBuilder.newBuilder().maximumSize(2).build();
+    private final AtomicLong buildCount = new AtomicLong();
+    private final AtomicLong totalBuildNanos = new AtomicLong();
+    private volatile long lastBuildNanos;
+    private volatile List<Long> lastBuiltVersions = ImmutableList.of();
+
+    DerivedView(String name, Function<CacheSnapshot, V> builder, ImmutableList<Integer> sourceIds) {
+        this.name = name;
+        this.builder = builder;
+        this.sourceIds = sourceIds;
+    }
+
+    /**
+     * @return view of the snapshot pinned to this thread, or of the latest one
+     */
+    public V get() {
+        return get(CacheSnapshot.current());
+    }
+
+    public V get(final CacheSnapshot snapshot) {
+        final List<Long> versions = getSourceVersions(snapshot);
+        final V value = built.getIfPresent(versions);
+        if (value != null) {
+            return value;
+        }
+        try {
+            return built.get(versions, new Callable<V>() {
+                @Override
+                public V call() {
+                    return build(snapshot, versions);
+                }
+            });
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    private V build(CacheSnapshot snapshot, List<Long> versions) {
+        final long start = System.nanoTime();
+        final V value = builder.apply(snapshot);
+        final long time = System.nanoTime() - start;
+        buildCount.incrementAndGet();
+        totalBuildNanos.addAndGet(time);
+        lastBuildNanos = time;
+        lastBuiltVersions = versions;
+        log.debug("view {} built for versions {} in {}ms", name, versions, TimeUnit.NANOSECONDS.toMillis(time));
+        return value;
+    }
+
+    private List<Long> getSourceVersions(CacheSnapshot snapshot) {
+        final Long[] versions = new Long[sourceIds.size()];
+        for (int i = 0; i < versions.length; i++) {
+            final CacheGeneration<?, ?> generation = snapshot.getGeneration(sourceIds.get(i));
+            versions[i] = generation != null ? generation.getVersion() : 0L;
+        }
+        return ImmutableList.copyOf(versions);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return how many times the view was built since registration
+     */
+    public long getBuildCount() {
+        return buildCount.get();
+    }
+
+    public long getTotalBuildTime(TimeUnit unit) {
+        return unit.convert(totalBuildNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    public long getLastBuildTime(TimeUnit unit) {
+        return unit.convert(lastBuildNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return generation versions of source caches the view was last built for, in order of registration
+     */
+    public List<Long> getLastBuiltVersions() {
+        return lastBuiltVersions;
+    }
+}
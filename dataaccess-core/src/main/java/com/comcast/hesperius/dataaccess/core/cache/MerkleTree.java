@@ -0,0 +1,112 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.hesperius.dataaccess.core.cache;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.Preconditions;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Binary hash tree over key-hash buckets of one column family cache, see {@link CacheHash}.
+ *
+ * Nodes are kept in heap order: root is node 1, children of node i are 2i and 2i + 1, leaves are the last
+ * {@link #getLeafCount()} nodes and hold sums of entry hashes of their buckets. Two trees are compared top-down
+ * so that only subtrees with different hashes are visited, result is the list of buckets whose entries differ.
+ */
+public final class MerkleTree {
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final long[] nodes;
+
+    @JsonCreator
+    public MerkleTree(@JsonProperty("nodes") long[] nodes) {
+        Preconditions.checkArgument(nodes.length >= 2 && Integer.bitCount(nodes.length) == 1, "number of nodes must be a power of two");
+        this.nodes = nodes;
+    }
+
+    static MerkleTree of(long[] leaves) {
+        final long[] nodes = new long[leaves.length * 2];
+        System.arraycopy(leaves, 0, nodes, leaves.length, leaves.length);
+        for (int i = leaves.length - 1; i > 0; i--) {
+            nodes[i] = combine(nodes[2 * i], nodes[2 * i + 1]);
+        }
+        return new MerkleTree(nodes);
+    }
+
+    public long[] getNodes() {
+        return nodes;
+    }
+
+    @JsonIgnore
+    public long getRoot() {
+        return nodes[1];
+    }
+
+    @JsonIgnore
+    public int getLeafCount() {
+        return nodes.length / 2;
+    }
+
+    /**
+     * @return indexes of buckets which differ in the other tree, all buckets if trees are of different size
+     */
+    public List<Integer> diff(MerkleTree other) {
+        final int leafCount = getLeafCount();
+        final List<Integer> result = new ArrayList<>();
+        if (other.nodes.length != nodes.length) {
+            for (int i = 0; i < leafCount; i++) {
+                result.add(i);
+            }
+            return result;
+        }
+        final Deque<Integer> pending = new ArrayDeque<>();
+        pending.push(1);
+        while (!pending.isEmpty()) {
+            final int node = pending.pop();
+            if (nodes[node] == other.nodes[node]) {
+                continue;
+            }
+            if (node >= leafCount) {
+                result.add(node - leafCount);
+            } else {
+                pending.push(2 * node + 1);
+                pending.push(2 * node);
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    private static long combine(long left, long right) {
+        if (left == 0 && right == 0) {
+            return 0;   // keeps hashing of sparse trees cheap
+        }
+        return HASH_FUNCTION.newHasher().putLong(left).putLong(right).hash().asLong();
+    }
+}
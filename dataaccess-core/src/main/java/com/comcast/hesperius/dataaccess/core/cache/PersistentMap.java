@@ -0,0 +1,353 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.hesperius.dataaccess.core.cache;
+
+import com.google.common.base.Preconditions;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable hash map sharing structure with the map it was derived from (hash array mapped trie):
+ * {@link #plus(Object, Object)} and {@link #minus(Object)} copy only the O(log32 n) nodes on the path to the key,
+ * so a new version of a large map is built per changed key instead of per entry. Null keys and values are not allowed.
+ *
+ * Mutators of {@link Map} are not supported.
+ */
+final class PersistentMap<K, V> extends AbstractMap<K, V> {
+
+    private static final int BITS = 5;
+    private static final int MAX_DEPTH = 8;   // 7 levels of 5 bits cover 32 bit hash, collisions go one level deeper
+
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(BitmapNode.EMPTY, 0);
+
+    private final Node root;
+    private final int size;
+
+    private PersistentMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        return key != null ? (V) root.get(key, hash(key), 0) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return map with the given value of the key, this map if the key already has the same instance
+     */
+    PersistentMap<K, V> plus(K key, V value) {
+        Preconditions.checkNotNull(key);
+        Preconditions.checkNotNull(value);
+        final Object previous = get(key);
+        if (previous == value) {
+            return this;
+        }
+        return new PersistentMap<>(root.put(new Leaf(key, value, hash(key)), 0), previous == null ? size + 1 : size);
+    }
+
+    /**
+     * @return map without the key, this map if there is no such key
+     */
+    PersistentMap<K, V> minus(Object key) {
+        if (!containsKey(key)) {
+            return this;
+        }
+        final Node removed = root.remove(key, hash(key), 0);
+        return new PersistentMap<>(removed != null ? removed : BitmapNode.EMPTY, size - 1);
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<Entry<K, V>>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return new EntryIterator<>(root);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private static int hash(Object key) {
+        final int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & 31);
+    }
+
+    private static final class Leaf extends SimpleImmutableEntry<Object, Object> {
+        final int hash;
+
+        Leaf(Object key, Object value, int hash) {
+            super(key, value);
+            this.hash = hash;
+        }
+    }
+
+    private abstract static class Node {
+        /**
+         * @return leaves and child nodes of this node
+         */
+        abstract Object[] slots();
+
+        abstract Object get(Object key, int hash, int shift);
+
+        abstract Node put(Leaf leaf, int shift);
+
+        /**
+         * @return node without the key, null if the node is left empty
+         */
+        abstract Node remove(Object key, int hash, int shift);
+    }
+
+    private static final class BitmapNode extends Node {
+        static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        private final int bitmap;
+        private final Object[] slots;
+
+        BitmapNode(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        @Override
+        Object[] slots() {
+            return slots;
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        Object get(Object key, int hash, int shift) {
+            final int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            final Object slot = slots[index(bit)];
+            if (slot instanceof Leaf) {
+                return key.equals(((Leaf) slot).getKey()) ? ((Leaf) slot).getValue() : null;
+            }
+            return ((Node) slot).get(key, hash, shift + BITS);
+        }
+
+        @Override
+        Node put(Leaf leaf, int shift) {
+            final int bit = bit(leaf.hash, shift);
+            final int index = index(bit);
+            if ((bitmap & bit) == 0) {
+                final Object[] added = new Object[slots.length + 1];
+                System.arraycopy(slots, 0, added, 0, index);
+                added[index] = leaf;
+                System.arraycopy(slots, index, added, index + 1, slots.length - index);
+                return new BitmapNode(bitmap | bit, added);
+            }
+            final Object slot = slots[index];
+            final Object replacement;
+            if (slot instanceof Node) {
+                replacement = ((Node) slot).put(leaf, shift + BITS);
+            } else if (leaf.getKey().equals(((Leaf) slot).getKey())) {
+                replacement = leaf;
+            } else {
+                replacement = merge((Leaf) slot, leaf, shift + BITS);
+            }
+            final Object[] replaced = slots.clone();
+            replaced[index] = replacement;
+            return new BitmapNode(bitmap, replaced);
+        }
+
+        @Override
+        Node remove(Object key, int hash, int shift) {
+            final int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            final int index = index(bit);
+            final Object slot = slots[index];
+            if (slot instanceof Node) {
+                final Node child = ((Node) slot).remove(key, hash, shift + BITS);
+                if (child == slot) {
+                    return this;
+                }
+                if (child != null) {
+                    final Object[] replaced = slots.clone();
+                    replaced[index] = child;
+                    return new BitmapNode(bitmap, replaced);
+                }
+            } else if (!key.equals(((Leaf) slot).getKey())) {
+                return this;
+            }
+            if (slots.length == 1) {
+                return null;
+            }
+            final Object[] removed = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, removed, 0, index);
+            System.arraycopy(slots, index + 1, removed, index, slots.length - index - 1);
+            return new BitmapNode(bitmap & ~bit, removed);
+        }
+
+        private static Node merge(Leaf first, Leaf second, int shift) {
+            if (first.hash == second.hash) {
+                return new CollisionNode(first.hash, new Object[]{first, second});
+            }
+            return EMPTY.put(first, shift).put(second, shift);
+        }
+    }
+
+    /**
+     * Leaves of different keys with the same hash
+     */
+    private static final class CollisionNode extends Node {
+        private final int hash;
+        private final Object[] leaves;
+
+        CollisionNode(int hash, Object[] leaves) {
+            this.hash = hash;
+            this.leaves = leaves;
+        }
+
+        @Override
+        Object[] slots() {
+            return leaves;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < leaves.length; i++) {
+                if (key.equals(((Leaf) leaves[i]).getKey())) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Object get(Object key, int hash, int shift) {
+            final int index = hash == this.hash ? indexOf(key) : -1;
+            return index >= 0 ? ((Leaf) leaves[index]).getValue() : null;
+        }
+
+        @Override
+        Node put(Leaf leaf, int shift) {
+            if (leaf.hash != hash) {
+                return new BitmapNode(bit(hash, shift), new Object[]{this}).put(leaf, shift);
+            }
+            final int index = indexOf(leaf.getKey());
+            final Object[] replaced = Arrays.copyOf(leaves, index >= 0 ? leaves.length : leaves.length + 1);
+            replaced[index >= 0 ? index : leaves.length] = leaf;
+            return new CollisionNode(hash, replaced);
+        }
+
+        @Override
+        Node remove(Object key, int hash, int shift) {
+            final int index = hash == this.hash ? indexOf(key) : -1;
+            if (index < 0) {
+                return this;
+            }
+            if (leaves.length == 1) {
+                return null;
+            }
+            final Object[] removed = new Object[leaves.length - 1];
+            System.arraycopy(leaves, 0, removed, 0, index);
+            System.arraycopy(leaves, index + 1, removed, index, leaves.length - index - 1);
+            return new CollisionNode(hash, removed);
+        }
+    }
+
+    private static final class EntryIterator<K, V> implements Iterator<Entry<K, V>> {
+        private final Object[][] path = new Object[MAX_DEPTH + 1][];
+        private final int[] positions = new int[MAX_DEPTH + 1];
+        private int depth;
+        private Leaf next;
+
+        EntryIterator(Node root) {
+            path[0] = root.slots();
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (depth >= 0) {
+                final Object[] slots = path[depth];
+                if (positions[depth] == slots.length) {
+                    depth--;
+                    continue;
+                }
+                final Object slot = slots[positions[depth]++];
+                if (slot instanceof Leaf) {
+                    next = (Leaf) slot;
+                    return;
+                }
+                depth++;
+                path[depth] = ((Node) slot).slots();
+                positions[depth] = 0;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Entry<K, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            final Leaf result = next;
+            advance();
+            return (Entry<K, V>) (Entry<?, ?>) result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Can not remove via this iterator");
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.hesperius.dataaccess.core.cache;
+
+import com.comcast.hesperius.dataaccess.core.util.CoreUtil;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Debug aid for read only access of cached DAOs: remembers JSON form of every instance handed out without copying
+ * and fails once the instance is handed out again with a different JSON form, i.e. it was modified by some reader.
+ * Instances are tracked by identity and forgotten once evicted and garbage collected.
+ * Serializes each entity on every access, so meant for tests and debugging only.
+ */
+final class ReadOnlyGuard {
+
+    private final String name;
+    private final Cache<Object, String> snapshots = CacheBuilder.newBuilder().weakKeys().build();
+
+    ReadOnlyGuard(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @throws IllegalStateException if entity was modified since it was handed out before
+     */
+    <T> T check(T entity) {
+        if (entity == null) {
+            return null;
+        }
+        final String current = CoreUtil.toJSON(entity);
+        final String previous = snapshots.asMap().put(entity, current);
+        if (previous != null && !previous.equals(current)) {
+            throw new IllegalStateException("cached " + name + " " + previous + " was modified through read only access: " + current);
+        }
+        return entity;
+    }
+}
@@ -19,15 +19,14 @@
 package com.comcast.hesperius.dataaccess.core.cache.mbean;
 
 import com.comcast.hesperius.dataaccess.core.cache.CacheManager;
-import com.google.common.base.Optional;
 import com.google.common.cache.LoadingCache;
-import com.google.common.collect.Iterables;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * User: ikostrov
@@ -41,13 +40,16 @@ public class CacheInfo implements CacheInfoMBean {
 
     private long daoRefreshTime;
     private String cfName;
+    private int daoId;
     private LoadingCache cache;
+    private final AtomicLong compactedTombstones = new AtomicLong();
 
     public CacheInfo() {
     }
 
-    public CacheInfo(String cfName, LoadingCache cache) {
+    public CacheInfo(String cfName, int daoId, LoadingCache cache) {
         this.cfName = cfName;
+        this.daoId = daoId;
         this.cache = cache;
     }
 
@@ -90,7 +92,19 @@ public class CacheInfo implements CacheInfoMBean {
     @XmlElement
     @Override
     public long getNonAbsentCount() {
-        return Iterables.size(Optional.presentInstances(cache.asMap().values()));
+        return CacheManager.getPresentCount(daoId);
+    }
+
+    @XmlElement
+    @Override
+    public long getTombstoneCount() {
+        return Math.max(0, cache.size() - CacheManager.getPresentCount(daoId));
+    }
+
+    @XmlElement
+    @Override
+    public long getCompactedTombstones() {
+        return compactedTombstones.get();
     }
 
     @XmlElement
@@ -105,4 +119,14 @@ public class CacheInfo implements CacheInfoMBean {
         daoRefreshTime = System.currentTimeMillis();
     }
 
+    @Override
+    public int compactTombstones() {
+        final int removed = CacheManager.compactTombstones(daoId);
+        compactedTombstones.addAndGet(removed);
+        if (removed > 0) {
+            log.info("Compacted {} tombstones of {}", removed, cfName);
+        }
+        return removed;
+    }
+
 }
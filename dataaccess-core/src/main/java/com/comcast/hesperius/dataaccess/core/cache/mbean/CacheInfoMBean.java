@@ -39,7 +39,13 @@ public interface CacheInfoMBean {
 
     long getNonAbsentCount();
 
+    long getTombstoneCount();
+
+    long getCompactedTombstones();
+
     long getDaoRefreshTime();
 
     void refreshCache();
+
+    int compactTombstones();
 }
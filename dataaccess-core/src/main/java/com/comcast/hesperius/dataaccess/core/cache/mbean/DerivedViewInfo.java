@@ -0,0 +1,55 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.hesperius.dataaccess.core.cache.mbean;
+
+import com.comcast.hesperius.dataaccess.core.cache.DerivedView;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Build statistics of a {@link DerivedView}, times are in milliseconds
+ */
+public class DerivedViewInfo implements DerivedViewInfoMBean {
+
+    private final DerivedView<?> view;
+
+    public DerivedViewInfo(DerivedView<?> view) {
+        this.view = view;
+    }
+
+    @Override
+    public long getBuildCount() {
+        return view.getBuildCount();
+    }
+
+    @Override
+    public long getTotalBuildTime() {
+        return view.getTotalBuildTime(TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public long getLastBuildTime() {
+        return view.getLastBuildTime(TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public String getLastBuiltVersions() {
+        return view.getLastBuiltVersions().toString();
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.hesperius.dataaccess.core.cache.mbean;
+
+import com.comcast.hesperius.dataaccess.core.cache.CachePreloader;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Startup precaching progress of all column families
+ */
+public class PrecacheInfo implements PrecacheInfoMBean {
+
+    private final CachePreloader preloader;
+
+    public PrecacheInfo(CachePreloader preloader) {
+        this.preloader = preloader;
+    }
+
+    @Override
+    public int getColumnFamiliesScheduled() {
+        return preloader.getProgress().size();
+    }
+
+    @Override
+    public int getColumnFamiliesLoaded() {
+        int result = 0;
+        for (CachePreloader.Progress progress : preloader.getProgress()) {
+            if (progress.isDone()) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public long getKeysLoaded() {
+        long result = 0;
+        for (CachePreloader.Progress progress : preloader.getProgress()) {
+            result += progress.getLoadedKeys();
+        }
+        return result;
+    }
+
+    @Override
+    public long getKeysFailed() {
+        long result = 0;
+        for (CachePreloader.Progress progress : preloader.getProgress()) {
+            result += progress.getFailedKeys();
+        }
+        return result;
+    }
+
+    /**
+     * @return cf name (loaded/total keys) of column families not loaded yet
+     */
+    @Override
+    public String getPendingColumnFamilies() {
+        final List<String> result = new ArrayList<>();
+        for (CachePreloader.Progress progress : preloader.getProgress()) {
+            if (!progress.isDone()) {
+                result.add(progress.getCfName() + " (" + progress.getLoadedKeys() + "/" + progress.getTotalKeys() + ")");
+            }
+        }
+        return result.toString();
+    }
+}
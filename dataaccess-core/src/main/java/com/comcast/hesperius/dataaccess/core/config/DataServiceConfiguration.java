@@ -34,7 +34,9 @@ import org.slf4j.LoggerFactory;
 
 import javax.xml.bind.annotation.XmlRootElement;
 import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
@@ -650,6 +652,14 @@ public class DataServiceConfiguration {
         private int numberOfEntriesToProcessSequentially = 10000;
         private int keysetChunkSizeForMassCacheLoad = 500;
         private int tickDuration = 60000;
+        private boolean verifyReadOnlyAccess = false;
+        private int precacheThreads = 4;
+        private List<String> precachePriority = new ArrayList<>();
+        private String snapshotDirectory;
+        private int snapshotPeriod = 300000;
+        private int tombstoneCompactionPeriod = 3600000;
+        private List<String> peerHosts = new ArrayList<>();
+        private int peerTimeout = 5000;
 
         public int getRetryCountUntilFullRefresh() {
             return retryCountUntilFullRefresh;
@@ -714,5 +724,93 @@ public class DataServiceConfiguration {
         public void setTickDuration(int tickDuration) {
             this.tickDuration = tickDuration;
         }
+
+        /**
+         * debug mode: entities returned by read only access of cached DAOs are checked not to be modified by readers
+         */
+        public boolean isVerifyReadOnlyAccess() {
+            return verifyReadOnlyAccess;
+        }
+
+        public void setVerifyReadOnlyAccess(boolean verifyReadOnlyAccess) {
+            this.verifyReadOnlyAccess = verifyReadOnlyAccess;
+        }
+
+        /**
+         * number of chunks of keys loaded in parallel while precaching on startup
+         */
+        public int getPrecacheThreads() {
+            return precacheThreads;
+        }
+
+        public void setPrecacheThreads(int precacheThreads) {
+            this.precacheThreads = precacheThreads;
+        }
+
+        /**
+         * column families precached first, in the given order, others follow in order of creation of their caches
+         */
+        public List<String> getPrecachePriority() {
+            return precachePriority;
+        }
+
+        public void setPrecachePriority(List<String> precachePriority) {
+            this.precachePriority = precachePriority;
+        }
+
+        /**
+         * local directory caches are periodically written to and restored from on startup, snapshots are disabled if not set
+         */
+        public String getSnapshotDirectory() {
+            return snapshotDirectory;
+        }
+
+        public void setSnapshotDirectory(String snapshotDirectory) {
+            this.snapshotDirectory = snapshotDirectory;
+        }
+
+        /**
+         * period of writing cache snapshots, ms
+         */
+        public int getSnapshotPeriod() {
+            return snapshotPeriod;
+        }
+
+        public void setSnapshotPeriod(int snapshotPeriod) {
+            this.snapshotPeriod = snapshotPeriod;
+        }
+
+        /**
+         * period of removing absent values (tombstones) of keys not found in cassandra from caches, ms, 0 disables it
+         */
+        public int getTombstoneCompactionPeriod() {
+            return tombstoneCompactionPeriod;
+        }
+
+        public void setTombstoneCompactionPeriod(int tombstoneCompactionPeriod) {
+            this.tombstoneCompactionPeriod = tombstoneCompactionPeriod;
+        }
+
+        /**
+         * base urls of peer instances caches may be compared with and repaired from, e.g. http://peer:9090/appdiscoveryDataService
+         */
+        public List<String> getPeerHosts() {
+            return peerHosts;
+        }
+
+        public void setPeerHosts(List<String> peerHosts) {
+            this.peerHosts = peerHosts;
+        }
+
+        /**
+         * connect and read timeout of requests to peer hosts, ms
+         */
+        public int getPeerTimeout() {
+            return peerTimeout;
+        }
+
+        public void setPeerTimeout(int peerTimeout) {
+            this.peerTimeout = peerTimeout;
+        }
     }
 }
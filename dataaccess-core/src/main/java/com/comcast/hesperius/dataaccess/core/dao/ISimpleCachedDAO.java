@@ -18,6 +18,7 @@
  */
 package com.comcast.hesperius.dataaccess.core.dao;
 
+import com.comcast.hesperius.dataaccess.core.cache.CacheGeneration;
 import com.comcast.hydra.astyanax.data.IPersistable;
 import com.google.common.base.Optional;
 import com.google.common.cache.LoadingCache;
@@ -45,4 +46,21 @@ public interface ISimpleCachedDAO<K, T extends IPersistable> extends IADSSimpleD
 
     T getOne(K rowKey, boolean clone);
 
+    /**
+     * Same as {@link #getOne(Object)} but returns cached instance itself instead of a copy.
+     * Instance is shared by all readers and must not be modified.
+     */
+    T getOneReadOnly(K rowKey);
+
+    /**
+     * Live view of all cached entities without copying. Instances are shared by all readers and must not be modified.
+     */
+    Iterable<T> viewAll();
+
+    /**
+     * Immutable generation of this cache: the one pinned to the current thread if any, the latest one otherwise.
+     * Its version changes only when cache content changes, so it can key structures derived from the entities.
+     */
+    CacheGeneration<K, T> getGeneration();
+
 }
@@ -47,6 +47,8 @@ import com.comcast.hesperius.dataaccess.core.config.DataServiceConfiguration;
 import com.comcast.hesperius.dataaccess.core.dao.mapper.ColumnRange;
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
 import com.esotericsoftware.kryo.pool.KryoCallback;
 import com.esotericsoftware.kryo.pool.KryoFactory;
 import com.esotericsoftware.kryo.pool.KryoPool;
@@ -289,6 +291,29 @@ public final class CoreUtil {
         });
     }
 
+    /**
+     * Writes object together with its class in compact binary form readable by {@link #deserialize(byte[])}
+     */
+    public static byte[] serialize(final Object object) {
+        return kryoPool.run(new KryoCallback<byte[]>() {
+            @Override
+            public byte[] execute(Kryo kryo) {
+                final Output output = new Output(256, -1);
+                kryo.writeClassAndObject(output, object);
+                return output.toBytes();
+            }
+        });
+    }
+
+    public static Object deserialize(final byte[] bytes) {
+        return kryoPool.run(new KryoCallback<Object>() {
+            @Override
+            public Object execute(Kryo kryo) {
+                return kryo.readClassAndObject(new Input(bytes));
+            }
+        });
+    }
+
     /**
      * Creates an utility for byte oriented compressing/decompressing and joining/splitting.
      *
@@ -0,0 +1,186 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.apps.hesperius.ruleengine.benchmarks;
+
+import com.comcast.apps.hesperius.ruleengine.RuleEngine;
+import com.comcast.apps.hesperius.ruleengine.domain.additional.AuxFreeArgType;
+import com.comcast.apps.hesperius.ruleengine.domain.additional.data.IpAddress;
+import com.comcast.apps.hesperius.ruleengine.domain.additional.data.MacAddress;
+import com.comcast.apps.hesperius.ruleengine.domain.additional.data.Time;
+import com.comcast.apps.hesperius.ruleengine.domain.standard.StandardEvaluators;
+import com.comcast.apps.hesperius.ruleengine.domain.standard.StandardFreeArgType;
+import com.comcast.apps.hesperius.ruleengine.domain.standard.StandardOperation;
+import com.comcast.apps.hesperius.ruleengine.main.api.EvaluationContext;
+import com.comcast.apps.hesperius.ruleengine.main.api.FreeArgType;
+import com.comcast.apps.hesperius.ruleengine.main.api.IConditionEvaluator;
+import com.comcast.apps.hesperius.ruleengine.main.api.Operation;
+import com.comcast.apps.hesperius.ruleengine.main.impl.Condition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Each standard and auxiliary evaluator in isolation, on a prepared fixedArg (as compiled rules use it) and a context
+ * holding a handful of values of which the condition reads one. IN conditions hold {@link RuleSets#LIST_SIZE} values.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvaluatorBenchmark {
+
+    @Param({"ANY EXISTS", "VOID IS", "VOID PERCENT",
+            "STRING IS", "STRING LIKE", "STRING IN", "STRING ANY_MATCHED", "STRING PERCENT",
+            "LONG IS", "LONG GT", "LONG GTE", "LONG LT", "LONG LTE", "LONG IN", "LONG PERCENT",
+            "TIME IS", "TIME GT", "TIME GTE", "TIME LT", "TIME LTE",
+            "IP_ADDRESS IS", "IP_ADDRESS IN", "IP_ADDRESS PERCENT",
+            "MAC_ADDRESS IS", "MAC_ADDRESS LIKE", "MAC_ADDRESS IN", "MAC_ADDRESS ANY_MATCHED", "MAC_ADDRESS PERCENT"})
+    public String evaluator;
+
+    private IConditionEvaluator conditionEvaluator;
+    private Condition condition;
+    private Map<String, String> context;
+
+    @Setup
+    public void setUp() {
+        RuleEngine.getRuleProcessor(); // registers auxiliary evaluators
+        final String[] typeAndOperation = evaluator.split(" ");
+        final FreeArgType type = FreeArgType.forName(typeAndOperation[0]);
+        final Operation operation = Operation.forName(typeAndOperation[1]);
+        conditionEvaluator = StandardEvaluators.get().getEvaluator(type, operation);
+        if (conditionEvaluator == null) {
+            throw new IllegalArgumentException("no evaluator for " + evaluator);
+        }
+        final Object fixedArg = fixedArg(type, operation, new Random(4));
+        condition = RuleSets.condition(type, "value", operation,
+                fixedArg != null ? conditionEvaluator.prepare(fixedArg) : null);
+
+        context = new HashMap<String, String>();
+        context.put("model", "MODEL1");
+        context.put("env", "PROD");
+        context.put("partnerId", "partner1");
+        context.put("value", freeArgValue(type));
+    }
+
+    @Benchmark
+    public boolean evaluate() {
+        return conditionEvaluator.evaluate(condition, context);
+    }
+
+    /**
+     * typed context is created per request, so this includes its creation and a single conversion
+     */
+    @Benchmark
+    public boolean evaluateTyped() {
+        return conditionEvaluator.evaluate(condition, EvaluationContext.of(context));
+    }
+
+    private static Object fixedArg(FreeArgType type, Operation operation, Random random) {
+        if (StandardOperation.EXISTS.equals(operation)) {
+            return null;
+        }
+        if (StandardOperation.PERCENT.equals(operation)) {
+            return 50.0;
+        }
+        if (StandardFreeArgType.VOID.equals(type)) {
+            return Boolean.TRUE;
+        }
+        if (StandardFreeArgType.STRING.equals(type)) {
+            if (StandardOperation.IN.equals(operation)) {
+                return new ArrayList<String>(RuleSets.macs(random, RuleSets.LIST_SIZE));
+            }
+            if (StandardOperation.LIKE.equals(operation)) {
+                return "^MODEL[0-9]+_[0-9]+\\.[0-9]+p[0-9]+s1_.*$";
+            }
+            if (StandardOperation.ANY_MATCHED.equals(operation)) {
+                return Arrays.asList("^X1_.*$", "^XG[0-9]_.*$", "^MODEL[0-9]+_1\\..*$", "^MODEL[0-9]+_.*_PROD.*$");
+            }
+            return "MODEL1_1.1p1s1_PROD_sey";
+        }
+        if (StandardFreeArgType.LONG.equals(type)) {
+            if (StandardOperation.IN.equals(operation)) {
+                final List<Long> values = new ArrayList<Long>(RuleSets.LIST_SIZE);
+                for (int i = 0; i < RuleSets.LIST_SIZE; i++) {
+                    values.add(random.nextLong());
+                }
+                return values;
+            }
+            return 1234567L;
+        }
+        if (AuxFreeArgType.TIME.equals(type)) {
+            return Time.parse("12:30:00");
+        }
+        if (AuxFreeArgType.IP_ADDRESS.equals(type)) {
+            return StandardOperation.IN.equals(operation)
+                    ? RuleSets.ipGroup(random, "benchmark", RuleSets.IP_RANGES) : new IpAddress("10.20.30.40");
+        }
+        if (AuxFreeArgType.MAC_ADDRESS.equals(type)) {
+            if (StandardOperation.IN.equals(operation)) {
+                final List<MacAddress> values = new ArrayList<MacAddress>(RuleSets.LIST_SIZE);
+                for (String mac : RuleSets.macs(random, RuleSets.LIST_SIZE)) {
+                    values.add(MacAddress.parse(mac));
+                }
+                return values;
+            }
+            if (StandardOperation.LIKE.equals(operation)) {
+                return "^AA:BB:.*$";
+            }
+            if (StandardOperation.ANY_MATCHED.equals(operation)) {
+                return Collections.singletonList("^AA:BB:CC:.*$");
+            }
+            return MacAddress.parse("AA:BB:CC:DD:EE:FF");
+        }
+        throw new IllegalArgumentException("unsupported free arg type " + type);
+    }
+
+    private static String freeArgValue(FreeArgType type) {
+        if (StandardFreeArgType.LONG.equals(type)) {
+            return "7654321";
+        }
+        if (AuxFreeArgType.TIME.equals(type)) {
+            return "13:15:00";
+        }
+        if (AuxFreeArgType.IP_ADDRESS.equals(type)) {
+            return "10.20.30.41";
+        }
+        if (AuxFreeArgType.MAC_ADDRESS.equals(type)) {
+            return "aa-bb-cc-dd-ee-f0";
+        }
+        return "MODEL1_1.1p1s1_PROD_sey";
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.apps.hesperius.ruleengine.benchmarks;
+
+import com.comcast.apps.hesperius.ruleengine.main.impl.Rule;
+import com.comcast.apps.hesperius.ruleengine.parser.Parser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of rule expressions: single condition, typical rule and a large rule with long IN list.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({"small", "medium", "large"})
+    public String expression;
+
+    private String input;
+
+    @Setup
+    public void setUp() {
+        if ("small".equals(expression)) {
+            input = "model IS MODEL1";
+        } else if ("medium".equals(expression)) {
+            input = "(model IN [MODEL1, MODEL2, MODEL3] AND env IS PROD) AND (firmwareVersion LIKE \"^MODEL1_[0-9]+\\.p.*$\""
+                    + " OR partnerId IS partner1) AND NOT estbMac IS \"AA:BB:CC:DD:EE:FF\"";
+        } else {
+            final Random random = new Random(3);
+            final StringBuilder builder = new StringBuilder("estbMac IN [");
+            for (int i = 0; i < 1000; i++) {
+                builder.append(i > 0 ? ", " : "").append('"').append(RuleSets.mac(random)).append('"');
+            }
+            builder.append(']');
+            for (int i = 0; i < 50; i++) {
+                builder.append(i % 5 == 4 ? " OR " : " AND ").append("field").append(i).append(" IS value").append(i);
+            }
+            input = builder.toString();
+        }
+    }
+
+    @Benchmark
+    public Rule parse() {
+        return new Parser(input).getRule();
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.apps.hesperius.ruleengine.benchmarks;
+
+import com.comcast.apps.hesperius.ruleengine.RuleEngine;
+import com.comcast.apps.hesperius.ruleengine.main.api.IRuleProcessor;
+import com.comcast.apps.hesperius.ruleengine.main.impl.CompiledRule;
+import com.comcast.apps.hesperius.ruleengine.main.impl.Condition;
+import com.comcast.apps.hesperius.ruleengine.main.impl.EvaluationSession;
+import com.comcast.apps.hesperius.ruleengine.main.impl.Rule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluation of a whole rule set against one request context, as done by rule bases for each request.
+ * Each invocation takes the next of the pre-generated contexts.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class RuleProcessorBenchmark {
+
+    private static final int CONTEXTS = 1024;
+
+    @Param({"1000", "10000", "50000"})
+    public int ruleCount;
+
+    private IRuleProcessor<Condition, Rule> processor;
+    private List<Rule> rules;
+    private List<CompiledRule<Rule>> compiledRules;
+    private List<Map<String, String>> contexts;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        processor = RuleEngine.getRuleProcessor();
+        rules = RuleSets.rules(ruleCount, 1);
+        compiledRules = new ArrayList<CompiledRule<Rule>>(rules.size());
+        for (Rule rule : rules) {
+            compiledRules.add(processor.getCompiled(rule));
+        }
+        contexts = RuleSets.contexts(CONTEXTS, 2);
+    }
+
+    @Benchmark
+    public int evaluate() {
+        final Map<String, String> context = nextContext();
+        int matched = 0;
+        for (Rule rule : rules) {
+            if (processor.evaluate(rule, context)) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    @Benchmark
+    public int evaluateCompiled() {
+        final Map<String, String> context = nextContext();
+        int matched = 0;
+        for (CompiledRule<Rule> rule : compiledRules) {
+            if (processor.evaluate(rule, context)) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    @Benchmark
+    public int evaluateSession() {
+        final EvaluationSession session = new EvaluationSession(nextContext());
+        int matched = 0;
+        for (CompiledRule<Rule> rule : compiledRules) {
+            if (processor.evaluate(rule, session)) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    @Benchmark
+    public Rule find() {
+        return processor.find(rules, nextContext());
+    }
+
+    @Benchmark
+    public void filter(Blackhole blackhole) {
+        for (Rule rule : processor.filter(rules, nextContext())) {
+            blackhole.consume(rule);
+        }
+    }
+
+    private Map<String, String> nextContext() {
+        next = (next + 1) & (CONTEXTS - 1);
+        return contexts.get(next);
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.apps.hesperius.ruleengine.benchmarks;
+
+import com.comcast.apps.hesperius.ruleengine.domain.additional.AuxFreeArgType;
+import com.comcast.apps.hesperius.ruleengine.domain.additional.data.IpAddress;
+import com.comcast.apps.hesperius.ruleengine.domain.additional.data.IpAddressGroup;
+import com.comcast.apps.hesperius.ruleengine.domain.additional.data.MacAddress;
+import com.comcast.apps.hesperius.ruleengine.domain.standard.StandardFreeArgType;
+import com.comcast.apps.hesperius.ruleengine.domain.standard.StandardOperation;
+import com.comcast.apps.hesperius.ruleengine.main.api.FixedArg;
+import com.comcast.apps.hesperius.ruleengine.main.api.FreeArg;
+import com.comcast.apps.hesperius.ruleengine.main.api.FreeArgType;
+import com.comcast.apps.hesperius.ruleengine.main.api.Operation;
+import com.comcast.apps.hesperius.ruleengine.main.impl.Condition;
+import com.comcast.apps.hesperius.ruleengine.main.impl.Rule;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Deterministic synthetic rules shaped like firmware and log upload rules: model/env conditions, nested OR groups,
+ * IN lists of thousands of mac addresses shared by many rules (as namespaced lists are), regex LIKE on versions,
+ * ip groups and PERCENT.
+ */
+final class RuleSets {
+
+    static final int MODELS = 200;
+    static final int LIST_SIZE = 10000;
+    static final int IP_RANGES = 500;
+
+    private RuleSets() {
+    }
+
+    static List<Rule> rules(int count, long seed) {
+        final Random random = new Random(seed);
+        final List<Set<String>> macLists = new ArrayList<Set<String>>(); // sets, so compiled rules share them instead of copying
+        for (int i = 0; i < 5; i++) {
+            macLists.add(macs(random, LIST_SIZE));
+        }
+        final List<IpAddressGroup> ipGroups = new ArrayList<IpAddressGroup>();
+        for (int i = 0; i < 5; i++) {
+            ipGroups.add(ipGroup(random, "group" + i, IP_RANGES));
+        }
+        final List<Rule> rules = new ArrayList<Rule>(count);
+        for (int i = 0; i < count; i++) {
+            Rule.Builder builder = Rule.Builder.of(condition(StandardFreeArgType.STRING, "model", StandardOperation.IS, model(random)));
+            if (random.nextBoolean()) {
+                builder = builder.and(condition(StandardFreeArgType.STRING, "env", StandardOperation.IN, randomEnvs(random)));
+            }
+            switch (random.nextInt(4)) {
+                case 0:
+                    builder = builder.and(condition(StandardFreeArgType.STRING, "estbMac", StandardOperation.IN,
+                            macLists.get(random.nextInt(macLists.size()))));
+                    break;
+                case 1:
+                    builder = builder.and(condition(AuxFreeArgType.IP_ADDRESS, "ipAddress", StandardOperation.IN,
+                            ipGroups.get(random.nextInt(ipGroups.size()))));
+                    break;
+                case 2:
+                    builder = builder.and(Rule.Builder.of(condition(StandardFreeArgType.STRING, "firmwareVersion", StandardOperation.LIKE,
+                            "^" + model(random) + "_[0-9]+\\.[0-9]+p" + random.nextInt(20) + "s1_.*$"))
+                            .or(condition(StandardFreeArgType.STRING, "partnerId", StandardOperation.IS, "partner" + random.nextInt(10)))
+                            .build());
+                    break;
+                default:
+                    builder = builder.and(condition(StandardFreeArgType.STRING, "estbMac", StandardOperation.PERCENT, (double) random.nextInt(100)));
+            }
+            if (random.nextInt(10) == 0) {
+                builder = builder.and(Rule.Builder.not(condition(StandardFreeArgType.ANY, "timeZone", StandardOperation.EXISTS, null)));
+            }
+            rules.add(builder.build());
+        }
+        return rules;
+    }
+
+    static List<Map<String, String>> contexts(int count, long seed) {
+        final Random random = new Random(seed);
+        final List<Map<String, String>> contexts = new ArrayList<Map<String, String>>(count);
+        for (int i = 0; i < count; i++) {
+            final Map<String, String> context = new HashMap<String, String>();
+            final String model = model(random);
+            context.put("model", model);
+            context.put("env", ENVS[random.nextInt(ENVS.length)]);
+            context.put("estbMac", mac(random));
+            context.put("ipAddress", ipv4(random));
+            context.put("firmwareVersion", model + "_" + random.nextInt(5) + "." + random.nextInt(5) + "p" + random.nextInt(20) + "s1_PROD_sey");
+            context.put("partnerId", "partner" + random.nextInt(10));
+            if (random.nextBoolean()) {
+                context.put("timeZone", "Australia/Brisbane");
+            }
+            contexts.add(context);
+        }
+        return contexts;
+    }
+
+    static Condition condition(FreeArgType type, String name, Operation operation, Object value) {
+        return new Condition(new FreeArg(type, name), operation, value != null ? FixedArg.from(value) : null);
+    }
+
+    static Set<String> macs(Random random, int count) {
+        final Set<String> result = new HashSet<String>(count * 2);
+        while (result.size() < count) {
+            result.add(mac(random));
+        }
+        return result;
+    }
+
+    static IpAddressGroup ipGroup(Random random, String name, int ranges) {
+        final Set<IpAddress> addresses = new HashSet<IpAddress>();
+        for (int i = 0; i < ranges; i++) {
+            addresses.add(new IpAddress(random.nextInt(224) + "." + random.nextInt(256) + "." + random.nextInt(256) + ".0/24"));
+        }
+        final IpAddressGroup group = new IpAddressGroup();
+        group.setId(name);
+        group.setName(name);
+        group.setIpAddresses(addresses);
+        return group;
+    }
+
+    static String mac(Random random) {
+        return MacAddress.parse(String.format("%012X", random.nextLong() & 0xFFFFFFFFFFFFL)).toString();
+    }
+
+    static String ipv4(Random random) {
+        return random.nextInt(224) + "." + random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256);
+    }
+
+    private static final String[] ENVS = {"PROD", "QA", "DEV", "CI", "VBN"};
+
+    private static String model(Random random) {
+        return "MODEL" + random.nextInt(MODELS);
+    }
+
+    private static List<String> randomEnvs(Random random) {
+        final List<String> result = new ArrayList<String>();
+        for (String env : ENVS) {
+            if (random.nextBoolean()) {
+                result.add(env);
+            }
+        }
+        return result;
+    }
+}
@@ -21,26 +21,35 @@
  */
 package com.comcast.apps.hesperius.ruleengine;
 
+import com.comcast.apps.hesperius.ruleengine.domain.PatternCache;
 import com.comcast.apps.hesperius.ruleengine.domain.RuleEngineConfig;
 import com.comcast.apps.hesperius.ruleengine.domain.additional.AuxEvaluators;
 import com.comcast.apps.hesperius.ruleengine.domain.standard.StandardEvaluators;
 import com.comcast.apps.hesperius.ruleengine.main.api.*;
+import com.comcast.apps.hesperius.ruleengine.main.impl.EvaluatorTable;
 import com.comcast.apps.hesperius.ruleengine.main.impl.Evaluators;
 import com.comcast.apps.hesperius.ruleengine.main.impl.RuleProcessor;
+import com.comcast.apps.hesperius.ruleengine.main.impl.RuleProfiler;
 import com.google.common.base.Function;
 import com.google.common.collect.FluentIterable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
 import java.util.Set;
 
 public final class RuleEngine {
     private static final Logger LOGGER = LoggerFactory.getLogger(RuleEngine.class);
-    private static final Evaluators RULE_EVALUATORS;
+    /**
+     * Frozen once all evaluators including custom ones are registered, never changes afterwards
+     */
+    private static final EvaluatorTable RULE_EVALUATORS;
 
     static {
-        RULE_EVALUATORS = StandardEvaluators.get();
-        RULE_EVALUATORS.add(AuxEvaluators.get());
+        final Evaluators evaluators = StandardEvaluators.get();
+        evaluators.add(AuxEvaluators.get());
 
             final RuleEngineConfig config = RuleEngineConfig.Provider.INSTANCE.getConfig();
             for (String className : config.getEvaluatorClasses()) {
@@ -48,9 +57,9 @@ public final class RuleEngine {
                     final Class evaluatorClass = Class.forName(className);
                     LOGGER.info("registering {} as customEvaluator", evaluatorClass.getSimpleName());
                     if (Evaluators.class.isAssignableFrom(evaluatorClass)) {
-                        RULE_EVALUATORS.add((Evaluators)evaluatorClass.newInstance(),config.isAllowDefaultOperationsOverrides());
+                        evaluators.add((Evaluators)evaluatorClass.newInstance(),config.isAllowDefaultOperationsOverrides());
                     } else if(IConditionEvaluator.class.isAssignableFrom(evaluatorClass)) {
-                        RULE_EVALUATORS.add((IConditionEvaluator)evaluatorClass.newInstance(), config.isAllowDefaultOperationsOverrides());
+                        evaluators.add((IConditionEvaluator)evaluatorClass.newInstance(), config.isAllowDefaultOperationsOverrides());
                     }else {
                         LOGGER.error("inappropriate type supplied as evaluators source {}, must be either {} or {}", className);
                     }
@@ -62,7 +71,29 @@ public final class RuleEngine {
                     LOGGER.error("could not instantiate " + className, e);
                 }
             }
+            RULE_EVALUATORS = EvaluatorTable.of(evaluators);
+            registerMBean(PatternCache.class, PatternCache.get());
+            registerMBean(RuleProfiler.class, RuleProfiler.get());
+        }
+
+    /**
+     * Registers rule engine MBean in platform MBean server as {@code <package>:name=<simple class name>},
+     * replacing one registered earlier under the same name
+     */
+    private static void registerMBean(Class<?> type, Object mbean) {
+        final String objName = type.getPackage().getName() + ":name=" + type.getSimpleName();
+        try {
+            final MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName on = new ObjectName(objName);
+            if (mbs.isRegistered(on)) {
+                mbs.unregisterMBean(on);
+            }
+            mbs.registerMBean(mbean, on);
+            LOGGER.info("Mbean {} is registered", objName);
+        } catch (Exception ex) {
+            LOGGER.error("Not able to register MBean: " + objName, ex);
         }
+    }
 
     /**
      * Currently by default standard and auxiliary evaluators
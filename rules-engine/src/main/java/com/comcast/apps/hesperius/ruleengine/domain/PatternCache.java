@@ -0,0 +1,186 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.apps.hesperius.ruleengine.domain;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Bounded, thread safe cache of compiled regular expressions used by LIKE and ANY_MATCHED evaluators
+ * instead of {@link String#matches(String)}, which compiles the pattern on each call.
+ *
+ * Matching is guarded against catastrophic backtracking: once a single match reads more than
+ * {@link RuleEngineConfig#getPatternMatchLimit()} chars of the input it is aborted and treated as not matched.
+ * Aborted matches are counted and logged at debug level, warning is logged at most once per {@link #WARN_INTERVAL}.
+ */
+public final class PatternCache implements PatternCacheMBean {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PatternCache.class);
+
+    private static final long WARN_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+    private static enum InstanceHolder {
+        INSTANCE;
+        PatternCache CACHE = new PatternCache(RuleEngineConfig.Provider.INSTANCE.getConfig());
+    }
+
+    public static PatternCache get() {
+        return InstanceHolder.INSTANCE.CACHE;
+    }
+
+    private final LoadingCache<String, Pattern> patterns;
+    private final long matchLimit;
+    private final AtomicLong abortedMatches = new AtomicLong();
+    private final AtomicLong lastWarning = new AtomicLong();
+
+    PatternCache(RuleEngineConfig config) {
+        this.matchLimit = config.getPatternMatchLimit();
+        this.patterns = CacheBuilder.newBuilder()
+                .maximumSize(config.getPatternCacheSize())
+                .recordStats()
+                .build(new CacheLoader<String, Pattern>() {
+                    @Override
+                    public Pattern load(String regex) {
+                        return Pattern.compile(regex);
+                    }
+                });
+    }
+
+    /**
+     * @throws java.util.regex.PatternSyntaxException if regex is invalid, same as {@link String#matches(String)}
+     */
+    public Pattern getPattern(String regex) {
+        try {
+            return patterns.getUnchecked(regex);
+        } catch (UncheckedExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    /**
+     * Same as input.matches(regex) except that pathological matches exceeding the limit return false
+     */
+    public boolean matches(String input, String regex) {
+        final Pattern pattern = getPattern(regex);
+        if (matchLimit <= 0) {
+            return pattern.matcher(input).matches();
+        }
+        try {
+            return pattern.matcher(new LimitedCharSequence(input, matchLimit)).matches();
+        } catch (MatchLimitExceededException e) {
+            final long aborted = abortedMatches.incrementAndGet();
+            LOGGER.debug("regex '{}' exceeded limit of {} reads matching '{}', treated as not matched", regex, matchLimit, input);
+            final long now = System.currentTimeMillis();
+            final long last = lastWarning.get();
+            if (now - last >= WARN_INTERVAL && lastWarning.compareAndSet(last, now)) {
+                LOGGER.warn("regex '{}' exceeded limit of {} reads, treated as not matched, {} matches aborted so far",
+                        regex, matchLimit, aborted);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * @return hit, miss, load and eviction counts of compiled patterns
+     */
+    public CacheStats getStats() {
+        return patterns.stats();
+    }
+
+    @Override
+    public long getAbortedMatches() {
+        return abortedMatches.get();
+    }
+
+    public long size() {
+        return patterns.size();
+    }
+
+    @Override
+    public long getSize() {
+        return size();
+    }
+
+    @Override
+    public long getHitCount() {
+        return getStats().hitCount();
+    }
+
+    @Override
+    public long getMissCount() {
+        return getStats().missCount();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return getStats().evictionCount();
+    }
+
+    private static final class MatchLimitExceededException extends RuntimeException {
+        private MatchLimitExceededException() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * Counts reads of the underlying string and throws once the limit is exceeded.
+     * Not thread safe, new instance is created for each match.
+     */
+    private static final class LimitedCharSequence implements CharSequence {
+        private final String value;
+        private long readsLeft;
+
+        private LimitedCharSequence(String value, long limit) {
+            this.value = value;
+            this.readsLeft = limit;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (--readsLeft < 0) {
+                throw new MatchLimitExceededException();
+            }
+            return value.charAt(index);
+        }
+
+        @Override
+        public int length() {
+            return value.length();
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return value.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return value;
+        }
+    }
+}
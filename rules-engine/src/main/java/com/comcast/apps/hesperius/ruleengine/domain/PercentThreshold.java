@@ -0,0 +1,220 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.apps.hesperius.ruleengine.domain;
+
+import com.google.common.base.Function;
+
+/**
+ * Precomputed bound of a PERCENT condition: a key fits the percent if its 64 bit sipHash24 value is not greater than
+ * the bound, so evaluation is a single long comparison instead of double arithmetic.
+ *
+ * Bucketing is bit-compatible with {@link RuleUtils#fitsPercent(String, double)}: hash is the same sipHash24 with the
+ * default key Guava's {@link com.google.common.hash.Hashing#sipHash24()} uses, and the bound is the greatest hash
+ * which fits by the original double comparison, found by binary search over the (monotonic) mapping of hash to double.
+ * Hashing itself neither allocates byte arrays nor builds Guava hashers, and its result can be cached per request by
+ * {@link com.comcast.apps.hesperius.ruleengine.main.api.EvaluationContext#get(String, Function)} with
+ * {@link #STRING_HASH} or {@link #LONG_HASH}.
+ */
+public final class PercentThreshold {
+
+    private static final double OFFSET = (double) Long.MAX_VALUE + 1;
+    private static final double RANGE = (double) Long.MAX_VALUE * 2 + 1;
+
+    private static final long K0 = 0x0706050403020100L;
+    private static final long K1 = 0x0f0e0d0c0b0a0908L;
+
+    /**
+     * sipHash24 of UTF-8 bytes of the value, same as {@link #hash(String)}
+     */
+    public static final Function<String, Long> STRING_HASH = new Function<String, Long>() {
+        @Override
+        public Long apply(String input) {
+            return hash(input);
+        }
+    };
+
+    /**
+     * sipHash24 of the value parsed as long, null if it is not a number
+     */
+    public static final Function<String, Long> LONG_HASH = new Function<String, Long>() {
+        @Override
+        public Long apply(String input) {
+            try {
+                return hash(Long.parseLong(input));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    };
+
+    private final double percent;
+    private final boolean none;
+    private final long maxHash;
+
+    private PercentThreshold(double percent) {
+        this.percent = percent;
+        if (!fits(Long.MIN_VALUE, percent)) {
+            this.none = true;
+            this.maxHash = Long.MIN_VALUE;
+            return;
+        }
+        long low = Long.MIN_VALUE; // fits
+        long high = Long.MAX_VALUE;
+        if (fits(high, percent)) {
+            low = high;
+        }
+        while (low != high && high - low != 1) { // high doesn't fit, difference is treated as unsigned
+            final long middle = low + ((high - low) >>> 1);
+            if (fits(middle, percent)) {
+                low = middle;
+            } else {
+                high = middle;
+            }
+        }
+        this.none = false;
+        this.maxHash = low;
+    }
+
+    public static PercentThreshold of(double percent) {
+        return new PercentThreshold(percent);
+    }
+
+    public boolean fits(long hash) {
+        return !none && hash <= maxHash;
+    }
+
+    public double getPercent() {
+        return percent;
+    }
+
+    /**
+     * Original double comparison of {@link RuleUtils#fitsPercent(String, double)} for an already computed hash,
+     * for percents which are not known in advance
+     */
+    public static boolean fits(long hash, double percent) {
+        final double hashCode = (double) hash + OFFSET; // from 0 to (2 * Long.MAX_VALUE + 1)
+        final double limit = percent / 100 * RANGE;  // from 0 to (2 * Long.MAX_VALUE + 1)
+        return hashCode <= limit;
+    }
+
+    /**
+     * @return same value as Hashing.sipHash24().hashString(value, Charsets.UTF_8).asLong()
+     */
+    public static long hash(String value) {
+        final SipHash state = new SipHash();
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c < 0x80) {
+                state.put(c);
+            } else if (c < 0x800) {
+                state.put(0xC0 | (c >>> 6));
+                state.put(0x80 | (c & 0x3F));
+            } else if (!Character.isSurrogate(c)) {
+                state.put(0xE0 | (c >>> 12));
+                state.put(0x80 | ((c >>> 6) & 0x3F));
+                state.put(0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                state.put(0xF0 | (codePoint >>> 18));
+                state.put(0x80 | ((codePoint >>> 12) & 0x3F));
+                state.put(0x80 | ((codePoint >>> 6) & 0x3F));
+                state.put(0x80 | (codePoint & 0x3F));
+            } else {
+                state.put('?'); // unpaired surrogate is replaced the same way String.getBytes does
+            }
+        }
+        return state.finish();
+    }
+
+    /**
+     * @return same value as Hashing.sipHash24().hashLong(value).asLong()
+     */
+    public static long hash(long value) {
+        final SipHash state = new SipHash();
+        state.putLong(value);
+        return state.finish();
+    }
+
+    /**
+     * @return hash of the json representation of the source, as {@link RuleUtils#fitsPercent(Object, double)} computes it
+     */
+    public static <T> long jsonHash(T source) {
+        return hash(RuleUtils.toJSON(source));
+    }
+
+    /**
+     * SipHash-2-4 state fed byte by byte, short lived so that it doesn't escape the hash method
+     */
+    private static final class SipHash {
+        private long v0 = K0 ^ 0x736f6d6570736575L;
+        private long v1 = K1 ^ 0x646f72616e646f6dL;
+        private long v2 = K0 ^ 0x6c7967656e657261L;
+        private long v3 = K1 ^ 0x7465646279746573L;
+        private long m;
+        private long count;
+
+        private void put(int b) {
+            m |= (b & 0xFFL) << ((count & 7) << 3);
+            if ((++count & 7) == 0) {
+                process(m);
+                m = 0;
+            }
+        }
+
+        private void putLong(long value) {
+            process(value);
+            count += 8;
+        }
+
+        private long finish() {
+            process(m ^ (count << 56));
+            v2 ^= 0xFFL;
+            round();
+            round();
+            round();
+            round();
+            return v0 ^ v1 ^ v2 ^ v3;
+        }
+
+        private void process(long word) {
+            v3 ^= word;
+            round();
+            round();
+            v0 ^= word;
+        }
+
+        private void round() {
+            v0 += v1;
+            v2 += v3;
+            v1 = Long.rotateLeft(v1, 13);
+            v3 = Long.rotateLeft(v3, 16);
+            v1 ^= v0;
+            v3 ^= v2;
+            v0 = Long.rotateLeft(v0, 32);
+            v2 += v1;
+            v0 += v3;
+            v1 = Long.rotateLeft(v1, 17);
+            v3 = Long.rotateLeft(v3, 21);
+            v1 ^= v2;
+            v3 ^= v0;
+            v2 = Long.rotateLeft(v2, 32);
+        }
+    }
+}
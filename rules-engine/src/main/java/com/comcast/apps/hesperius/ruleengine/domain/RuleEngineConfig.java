@@ -28,6 +28,14 @@ import java.util.List;
 public class RuleEngineConfig {
     private List<String> evaluatorClasses = new ArrayList<String>();
     private boolean allowDefaultOperationsOverrides = true;
+    private int patternCacheSize = 10000;
+    private long patternMatchLimit = 1000000;
+    private boolean optimizeRules = false;
+    private long optimizeRulesAfter = 1000;
+    private boolean profileRules = false;
+    private int profileSampleRate = 100;
+    private int bulkParallelism = 0;
+    private int parserCacheSize = 10000;
 
     public List<String> getEvaluatorClasses() {
         return evaluatorClasses;
@@ -45,6 +53,94 @@ public class RuleEngineConfig {
         this.allowDefaultOperationsOverrides = allowDefaultOperationsOverrides;
     }
 
+    /**
+     * max number of compiled regular expressions kept by {@link PatternCache}
+     */
+    public int getPatternCacheSize() {
+        return patternCacheSize;
+    }
+
+    public void setPatternCacheSize(int patternCacheSize) {
+        this.patternCacheSize = patternCacheSize;
+    }
+
+    /**
+     * max number of input char reads single regex match may perform before it is aborted as pathological, 0 means no limit
+     */
+    public long getPatternMatchLimit() {
+        return patternMatchLimit;
+    }
+
+    public void setPatternMatchLimit(long patternMatchLimit) {
+        this.patternMatchLimit = patternMatchLimit;
+    }
+
+    /**
+     * if compiled rules may evaluate compound parts in order other than declared, see RuleOptimizer
+     */
+    public boolean isOptimizeRules() {
+        return optimizeRules;
+    }
+
+    public void setOptimizeRules(boolean optimizeRules) {
+        this.optimizeRules = optimizeRules;
+    }
+
+    /**
+     * number of sampled evaluations of a compiled rule after which it is reordered by observed condition statistics
+     */
+    public long getOptimizeRulesAfter() {
+        return optimizeRulesAfter;
+    }
+
+    public void setOptimizeRulesAfter(long optimizeRulesAfter) {
+        this.optimizeRulesAfter = optimizeRulesAfter;
+    }
+
+    /**
+     * if evaluations of labeled rules are sampled into RuleProfiler from startup, may be switched later over JMX
+     */
+    public boolean isProfileRules() {
+        return profileRules;
+    }
+
+    public void setProfileRules(boolean profileRules) {
+        this.profileRules = profileRules;
+    }
+
+    /**
+     * one of this number of evaluations is profiled
+     */
+    public int getProfileSampleRate() {
+        return profileSampleRate;
+    }
+
+    public void setProfileSampleRate(int profileSampleRate) {
+        this.profileSampleRate = profileSampleRate;
+    }
+
+    /**
+     * number of threads evaluating contexts in bulk, 0 means number of available processors
+     */
+    public int getBulkParallelism() {
+        return bulkParallelism;
+    }
+
+    public void setBulkParallelism(int bulkParallelism) {
+        this.bulkParallelism = bulkParallelism;
+    }
+
+    /**
+     * max number of tokenized rule expressions kept by formula import parser
+     */
+    public int getParserCacheSize() {
+        return parserCacheSize;
+    }
+
+    public void setParserCacheSize(int parserCacheSize) {
+        this.parserCacheSize = parserCacheSize;
+    }
+
     public static enum Provider {
         INSTANCE();
 
@@ -23,6 +23,7 @@ package com.comcast.apps.hesperius.ruleengine.domain;
 
 import com.comcast.apps.hesperius.ruleengine.domain.standard.BaseEvaluator;
 import com.comcast.apps.hesperius.ruleengine.domain.standard.StandardOperation;
+import com.comcast.apps.hesperius.ruleengine.main.api.EvaluationContext;
 import com.comcast.apps.hesperius.ruleengine.main.api.FreeArgType;
 import com.comcast.apps.hesperius.ruleengine.main.api.IEvaluators;
 import com.comcast.apps.hesperius.ruleengine.main.api.Operation;
@@ -32,16 +33,17 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.ObjectWriter;
-import com.google.common.base.Charsets;
 import com.google.common.base.Function;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
-import com.google.common.hash.Hashing;
 
 import javax.xml.bind.DataBindingException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 public final class RuleUtils {
 
@@ -77,20 +79,26 @@ public final class RuleUtils {
         return result;
     }
 
+    /**
+     * Converts fixedArg collection of IN operation into hash set, so that contains() is O(1) instead of linear scan.
+     * Anything else is returned as is.
+     */
+    public static Object toHashSet(Object fixedArgValue) {
+        if (fixedArgValue instanceof Collection && !(fixedArgValue instanceof Set)) {
+            return new HashSet<Object>((Collection<?>) fixedArgValue);
+        }
+        return fixedArgValue;
+    }
+
+    /**
+     * @see PercentThreshold for evaluation against a percent known in advance
+     */
     public static boolean fitsPercent(final String str, double percent) {
-        final double OFFSET = (double)Long.MAX_VALUE + 1;
-        final double RANGE = (double)Long.MAX_VALUE * 2 + 1;
-        double hashCode = (double)Hashing.sipHash24().hashString(str, Charsets.UTF_8).asLong() + OFFSET; // from 0 to (2 * Long.MAX_VALUE + 1)
-        double limit = percent / 100 * RANGE;  // from 0 to (2 * Long.MAX_VALUE + 1)
-        return (hashCode <= limit);
+        return PercentThreshold.fits(PercentThreshold.hash(str), percent);
     }
 
     public static boolean fitsPercent(final Long l, double percent) {
-        final double OFFSET = (double)Long.MAX_VALUE + 1;
-        final double RANGE = (double)Long.MAX_VALUE * 2 + 1;
-        double hashCode = (double)Hashing.sipHash24().hashLong(l).asLong() + OFFSET; // from 0 to (2 * Long.MAX_VALUE + 1)
-        double limit = percent / 100 * RANGE;  // from 0 to (2 * Long.MAX_VALUE + 1)
-        return (hashCode <= limit);
+        return PercentThreshold.fits(PercentThreshold.hash(l), percent);
     }
 
     /**
@@ -168,12 +176,29 @@ public final class RuleUtils {
     protected static class ComparingEvaluator<T extends Comparable<T>> extends BaseEvaluator {
         protected final Function<String, T> freeArgConverter;
         protected final Function<Integer, Boolean> evaluation;
+        private final boolean longFixedArg;
 
         protected ComparingEvaluator(FreeArgType freeArgType, Operation operation, Class<T> fixedArgClass,
                                      Function<String, T> freeArgConverter, Function<Integer, Boolean> evaluation) {
             super(freeArgType, operation, fixedArgClass);
             this.freeArgConverter = freeArgConverter;
             this.evaluation = evaluation;
+            this.longFixedArg = fixedArgClass == Long.class;
+        }
+
+        /**
+         * Long fixedArg stored as another number or string is converted once, so comparison doesn't parse it
+         */
+        @Override
+        public Object prepare(Object fixedArgValue) {
+            if (!longFixedArg || fixedArgValue == null || fixedArgValue instanceof Long) {
+                return fixedArgValue;
+            }
+            try {
+                return Long.valueOf(String.valueOf(fixedArgValue));
+            } catch (NumberFormatException e) {
+                return fixedArgValue; // fails on evaluation as before
+            }
         }
 
         /**
@@ -183,13 +208,23 @@ public final class RuleUtils {
         @Override
         @SuppressWarnings("unchecked")
         protected boolean evaluateInternal(String freeArgValue, Object fixedArgValue) {
-            T freeArgActualValue = freeArgConverter.apply(freeArgValue);
+            return evaluateConverted(freeArgConverter.apply(freeArgValue), fixedArgValue);
+        }
+
+        @Override
+        protected boolean evaluateInternal(EvaluationContext context, String freeArgName, String freeArgValue, Object fixedArgValue) {
+            return evaluateConverted(context.get(freeArgName, freeArgConverter), fixedArgValue);
+        }
+
+        @SuppressWarnings("unchecked")
+        private boolean evaluateConverted(T freeArgActualValue, Object fixedArgValue) {
             if (freeArgActualValue == null) {
                 return false;
             }
             final int comparisonResult;
-            final Class<?> fixedArgClass = getFixedArgClasses().iterator().next();
-            if (fixedArgClass == Long.class) {
+            if (longFixedArg && fixedArgValue instanceof Long && freeArgActualValue instanceof Long) {
+                comparisonResult = Long.compare((Long) freeArgActualValue, (Long) fixedArgValue);
+            } else if (longFixedArg) {
                 comparisonResult = RuleUtils.compare(freeArgActualValue, Long.valueOf(String.valueOf(fixedArgValue)));
             } else {
                 comparisonResult = RuleUtils.compare(freeArgActualValue, (T) fixedArgValue);
@@ -21,17 +21,23 @@
  */
 package com.comcast.apps.hesperius.ruleengine.domain.additional;
 
+import com.comcast.apps.hesperius.ruleengine.domain.PercentThreshold;
 import com.comcast.apps.hesperius.ruleengine.domain.RuleUtils;
 import com.comcast.apps.hesperius.ruleengine.domain.additional.data.IpAddress;
 import com.comcast.apps.hesperius.ruleengine.domain.additional.data.IpAddressGroup;
 import com.comcast.apps.hesperius.ruleengine.domain.additional.data.MacAddress;
+import com.comcast.apps.hesperius.ruleengine.domain.additional.data.MacAddressSet;
 import com.comcast.apps.hesperius.ruleengine.domain.additional.data.Time;
 import com.comcast.apps.hesperius.ruleengine.domain.standard.BaseEvaluator;
+import com.comcast.apps.hesperius.ruleengine.domain.standard.PercentEvaluator;
 import com.comcast.apps.hesperius.ruleengine.domain.standard.StandardOperation;
+import com.comcast.apps.hesperius.ruleengine.main.api.EvaluationContext;
 import com.comcast.apps.hesperius.ruleengine.main.impl.Evaluators;
 import com.google.common.base.Function;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 public class AuxEvaluators extends Evaluators {
@@ -45,6 +51,27 @@ public class AuxEvaluators extends Evaluators {
         return InstanceHolder.INSTANCE.EVALUATORS;
     }
 
+    /**
+     * null for invalid address, conversion is cached in {@link EvaluationContext} either way
+     */
+    private static final Function<String, IpAddress> IP_ADDRESS = new Function<String, IpAddress>() {
+        @Override
+        public IpAddress apply(String input) {
+            try {
+                return new IpAddress(input);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    };
+
+    private static final Function<String, MacAddress> MAC_ADDRESS = new Function<String, MacAddress>() {
+        @Override
+        public MacAddress apply(String input) {
+            return new MacAddress(input);
+        }
+    };
+
     {
         // ================================    TimeEvaluators    ==================================================
         add(RuleUtils.generateComparingEvaluators(AuxFreeArgType.TIME, Time.class, new Function<String, Time>() {
@@ -60,6 +87,12 @@ public class AuxEvaluators extends Evaluators {
             protected boolean evaluateInternal(String freeArgValue, Object fixedArgValue) {
                 return IpAddress.parse(freeArgValue).equals(fixedArgValue);
             }
+
+            @Override
+            protected boolean evaluateInternal(EvaluationContext context, String freeArgName, String freeArgValue, Object fixedArgValue) {
+                final IpAddress ipAddress = context.get(freeArgName, IP_ADDRESS);
+                return (ipAddress != null ? ipAddress : IpAddress.parse(freeArgValue)).equals(fixedArgValue); // parse throws same as above
+            }
         });
 
         add(new BaseEvaluator(AuxFreeArgType.IP_ADDRESS, StandardOperation.IN, IpAddressGroup.class) {
@@ -67,21 +100,30 @@ public class AuxEvaluators extends Evaluators {
             protected boolean evaluateInternal(String freeArgValue, Object fixedArgValue) {
                 return ((IpAddressGroup)fixedArgValue).isInRange(freeArgValue);
             }
-        });
 
-        add(new BaseEvaluator(AuxFreeArgType.IP_ADDRESS, StandardOperation.PERCENT, Double.class) {
+            /**
+             * same as {@link IpAddressGroup#isInRange(String...)}, which accepts single addresses only
+             */
             @Override
-            protected boolean evaluateInternal(String freeArgValue, Object fixedArgValue) {
-                return RuleUtils.fitsPercent(freeArgValue, (Double)fixedArgValue);
+            protected boolean evaluateInternal(EvaluationContext context, String freeArgName, String freeArgValue, Object fixedArgValue) {
+                final IpAddress ipAddress = context.get(freeArgName, IP_ADDRESS);
+                return ipAddress != null && !ipAddress.isCidrBlock() && ((IpAddressGroup)fixedArgValue).isInRange(ipAddress);
             }
         });
 
+        add(new PercentEvaluator(AuxFreeArgType.IP_ADDRESS, PercentThreshold.STRING_HASH));
+
         // ==============================    MacAddressEvaluators    ==============================================
         add(new BaseEvaluator(AuxFreeArgType.MAC_ADDRESS, StandardOperation.IS, MacAddress.class) {
             @Override
             public boolean evaluateInternal(String freeArgValue, Object fixedArgValue) {
                 return MacAddress.parse(freeArgValue).equals(fixedArgValue);
             }
+
+            @Override
+            protected boolean evaluateInternal(EvaluationContext context, String freeArgName, String freeArgValue, Object fixedArgValue) {
+                return context.get(freeArgName, MAC_ADDRESS).equals(fixedArgValue);
+            }
         });
 
         add(new BaseEvaluator(AuxFreeArgType.MAC_ADDRESS, StandardOperation.LIKE, String.class) {
@@ -89,12 +131,28 @@ public class AuxEvaluators extends Evaluators {
             public boolean evaluateInternal(String freeArgValue, Object fixedArgValue) {
                 return MacAddress.parse(freeArgValue).matches((String) fixedArgValue);
             }
+
+            @Override
+            protected boolean evaluateInternal(EvaluationContext context, String freeArgName, String freeArgValue, Object fixedArgValue) {
+                return context.get(freeArgName, MAC_ADDRESS).matches((String) fixedArgValue);
+            }
         });
 
         add(new BaseEvaluator(AuxFreeArgType.MAC_ADDRESS, StandardOperation.IN, Collection.class) { // Collection<MacAddress>
             @Override
             public boolean evaluateInternal(String freeArgValue, Object fixedArgValue) {
-                MacAddress freeArgMac = new MacAddress(freeArgValue);
+                return contains(fixedArgValue, new MacAddress(freeArgValue));
+            }
+
+            @Override
+            protected boolean evaluateInternal(EvaluationContext context, String freeArgName, String freeArgValue, Object fixedArgValue) {
+                return contains(fixedArgValue, context.get(freeArgName, MAC_ADDRESS));
+            }
+
+            private boolean contains(Object fixedArgValue, MacAddress freeArgMac) {
+                if (fixedArgValue instanceof MacAddressSet) {
+                    return ((MacAddressSet) fixedArgValue).contains(freeArgMac);
+                }
 
                 for (Object value : (Collection<MacAddress>)fixedArgValue) {
                     if (value instanceof Map) {
@@ -112,12 +170,44 @@ public class AuxEvaluators extends Evaluators {
                 }
                 return false;
             }
+
+            /**
+             * collects every MacAddress of the collection (including values of nested maps) into {@link MacAddressSet}.
+             * other values are skipped since they are never equal to MacAddress
+             */
+            @Override
+            public Object prepare(Object fixedArgValue) {
+                if (!(fixedArgValue instanceof Collection)) {
+                    return fixedArgValue;
+                }
+                List<MacAddress> addresses = new ArrayList<>();
+                for (Object value : (Collection<?>) fixedArgValue) {
+                    if (value instanceof Map) {
+                        for (Object macValue : ((Map) value).values()) {
+                            if (macValue instanceof MacAddress) {
+                                addresses.add((MacAddress) macValue);
+                            }
+                        }
+                    } else if (value instanceof MacAddress) {
+                        addresses.add((MacAddress) value);
+                    }
+                }
+                return new MacAddressSet(addresses);
+            }
         });
 
         add(new BaseEvaluator(AuxFreeArgType.MAC_ADDRESS, StandardOperation.ANY_MATCHED, Collection.class) { // Collection<String>
             @Override
             public boolean evaluateInternal(String freeArgValue, Object fixedArgValue) {
-                MacAddress freeArgMac = new MacAddress(freeArgValue);
+                return anyMatched(fixedArgValue, new MacAddress(freeArgValue));
+            }
+
+            @Override
+            protected boolean evaluateInternal(EvaluationContext context, String freeArgName, String freeArgValue, Object fixedArgValue) {
+                return anyMatched(fixedArgValue, context.get(freeArgName, MAC_ADDRESS));
+            }
+
+            private boolean anyMatched(Object fixedArgValue, MacAddress freeArgMac) {
                 for (String value : (Collection<String>)fixedArgValue) {
                     if (freeArgMac.matches(value)) {
                         return true;
@@ -127,11 +217,6 @@ public class AuxEvaluators extends Evaluators {
             }
         });
 
-        add(new BaseEvaluator(AuxFreeArgType.MAC_ADDRESS, StandardOperation.PERCENT, Double.class) {
-            @Override
-            public boolean evaluateInternal(String freeArgValue, Object fixedArgValue) {
-                return RuleUtils.fitsPercent(freeArgValue, (Double)fixedArgValue);
-            }
-        });
+        add(new PercentEvaluator(AuxFreeArgType.MAC_ADDRESS, PercentThreshold.STRING_HASH));
     }
 }
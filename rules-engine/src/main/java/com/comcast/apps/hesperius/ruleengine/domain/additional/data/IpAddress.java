@@ -26,30 +26,32 @@ import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import sun.net.util.IPAddressUtil;
 
-import java.math.BigInteger;
-import java.net.Inet6Address;
-import java.net.InetAddress;
-import java.net.UnknownHostException;
-import java.nio.ByteBuffer;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
 
 /**
  * Models ip address as well as CIDR block notation to denote subnets and allows for checking if another address
  * or subnet is in the range of this subnet.
  *
+ * Low and high bounds of the range are kept as unsigned 128 bit numbers split into two longs (IPv4 address occupies
+ * lower 32 bits), so range checks and comparison neither allocate nor go through {@link java.net.InetAddress}.
+ *
  * ToStringSerializer + constructor with string argument allows serialization / deserialization as ipAddress string.
  */
 @JsonSerialize(using = ToStringSerializer.class)
 public final class IpAddress implements Comparable<IpAddress> {
 
+    private static final int IPV4_BITS = 32;
+    private static final int IPV6_BITS = 128;
+
     private String address;
-    private InetAddress baseAddress;
     @JsonIgnore
-    private InetAddress lowAddress;
+    private long lowMsb;
+    @JsonIgnore
+    private long lowLsb;
+    @JsonIgnore
+    private long highMsb;
     @JsonIgnore
-    private InetAddress highAddress;
+    private long highLsb;
     @JsonIgnore
     private boolean ipv6 = false;
     @JsonIgnore
@@ -67,11 +69,11 @@ public final class IpAddress implements Comparable<IpAddress> {
     }
 
     public String getLowAddress() {
-        return lowAddress.getHostAddress();
+        return format(lowMsb, lowLsb);
     }
 
     public String getHighAddress() {
-        return highAddress.getHostAddress();
+        return format(highMsb, highLsb);
     }
 
     public boolean isIpv6() {
@@ -86,9 +88,26 @@ public final class IpAddress implements Comparable<IpAddress> {
         return address;
     }
 
+    long getLowMsb() {
+        return lowMsb;
+    }
+
+    long getLowLsb() {
+        return lowLsb;
+    }
+
+    long getHighMsb() {
+        return highMsb;
+    }
+
+    long getHighLsb() {
+        return highLsb;
+    }
+
     /**
      * Returns true if the in address is in the range of any of the collection
      * of addresses. False if not.
+     * Linear scan, use {@link IpAddressGroup#isInRange(IpAddress...)} for repeated checks against the same addresses.
      */
     public static boolean isInRange(IpAddress in, Collection<IpAddress> addresses) {
         if (addresses == null) {
@@ -108,6 +127,13 @@ public final class IpAddress implements Comparable<IpAddress> {
      * addresses are the same).
      */
     public boolean isInRange(String ip) {
+        if (ip == null) {
+            return false;
+        }
+        final long ipv4 = parseDottedQuad(ip);
+        if (ipv4 >= 0) {
+            return isInRange(0, ipv4, 0, ipv4);
+        }
         return isValid(ip) && isInRange(new IpAddress(ip));
     }
 
@@ -115,19 +141,12 @@ public final class IpAddress implements Comparable<IpAddress> {
      * True if the given ip address is in my address range, false otherwise.
      */
     public boolean isInRange(IpAddress in) {
-        if (in == null) {
-            return false;
-        }
-        BigInteger low = new BigInteger(1, lowAddress.getAddress());
-        BigInteger hi = new BigInteger(1, highAddress.getAddress());
-        BigInteger target_low = new BigInteger(1, in.lowAddress.getAddress());
-        BigInteger target_hi = new BigInteger(1, in.highAddress.getAddress());
-
-        return lessOrEquals(low, target_low) && lessOrEquals(target_hi, hi);
+        return in != null && isInRange(in.lowMsb, in.lowLsb, in.highMsb, in.highLsb);
     }
 
-    private boolean lessOrEquals(BigInteger first, BigInteger second) {
-        return first.compareTo(second) <= 0;
+    private boolean isInRange(long targetLowMsb, long targetLowLsb, long targetHighMsb, long targetHighLsb) {
+        return compare(lowMsb, lowLsb, targetLowMsb, targetLowLsb) <= 0
+                && compare(targetHighMsb, targetHighLsb, highMsb, highLsb) <= 0;
     }
 
     boolean parseAndInit(String s) {
@@ -141,74 +160,130 @@ public final class IpAddress implements Comparable<IpAddress> {
             baseIpAddress = s.substring(0, index);
         }
 
-        if (!isValid(baseIpAddress))
+        byte[] bytes = IPAddressUtil.textToNumericFormatV4(baseIpAddress);
+        if (bytes == null) {
+            // IPv4-mapped IPv6 addresses are converted to 4 bytes, same as InetAddress.getByName does
+            bytes = IPAddressUtil.textToNumericFormatV6(baseIpAddress);
+        }
+        if (bytes == null)
             return false;
 
-        try {
-            baseAddress = InetAddress.getByName(baseIpAddress);
-            ipv6 = baseAddress instanceof Inet6Address;
-            if (!cidrBlock) {
-                lowAddress = baseAddress;
-                highAddress = baseAddress;
-                return true;
+        ipv6 = bytes.length == 16;
+        long msb = 0;
+        long lsb = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes.length - i > 8) {
+                msb = (msb << 8) | (bytes[i] & 0xFF);
+            } else {
+                lsb = (lsb << 8) | (bytes[i] & 0xFF);
             }
-            String prefixPart = s.substring(index + 1);
-            int prefixMaxValue = ipv6? 128 : 32;
-            int prefix = Integer.parseInt(prefixPart);
-            if (prefix < 0 || prefix > prefixMaxValue)
-                return false;
-            calculateRange(prefix);
-        } catch (Exception e) {
+        }
+        if (!cidrBlock) {
+            lowMsb = highMsb = msb;
+            lowLsb = highLsb = lsb;
+            return true;
+        }
+        int prefix;
+        try {
+            prefix = Integer.parseInt(s.substring(index + 1));
+        } catch (NumberFormatException e) {
             return false;
         }
+        int prefixMaxValue = ipv6 ? IPV6_BITS : IPV4_BITS;
+        if (prefix < 0 || prefix > prefixMaxValue)
+            return false;
+        calculateRange(msb, lsb, prefixMaxValue - prefix);
         return true;
     }
 
-    private void calculateRange(int prefix) throws UnknownHostException {
+    /**
+     * @param hostBits number of low bits which are zeroed in the low bound and set in the high bound, 0..128
+     */
+    private void calculateRange(long msb, long lsb, int hostBits) {
+        // shift distance is taken mod 64 in java, so full words are handled separately
+        long lsbHostMask = hostBits >= 64 ? -1L : (1L << hostBits) - 1;
+        long msbHostMask = hostBits <= 64 ? 0L : (hostBits >= 128 ? -1L : (1L << (hostBits - 64)) - 1);
+
+        lowMsb = msb & ~msbHostMask;
+        lowLsb = lsb & ~lsbHostMask;
+        highMsb = lowMsb | msbHostMask;
+        highLsb = lowLsb | lsbHostMask;
+    }
 
-        ByteBuffer maskBuffer;
-        int prefixSize;
-        if (baseAddress.getAddress().length == 4) {
-            maskBuffer = ByteBuffer.allocate(4).putInt(-1);
-            prefixSize = 4;
-        } else {
-            maskBuffer = ByteBuffer.allocate(16).putLong(-1L).putLong(-1L);
-            prefixSize = 16;
+    /**
+     * Parses plain a.b.c.d notation without allocation, accepts exactly what {@link IPAddressUtil#textToNumericFormatV4}
+     * accepts for 4 decimal octets.
+     *
+     * @return unsigned 32 bit address or -1 if ip is not in a.b.c.d form, which doesn't mean it's invalid
+     */
+    static long parseDottedQuad(String ip) {
+        final int length = ip.length();
+        if (length < 7 || length > 15) {
+            return -1;
         }
-
-        BigInteger mask = (new BigInteger(1, maskBuffer.array())).not().shiftRight(prefix);
-
-        BigInteger ipVal = new BigInteger(1, baseAddress.getAddress());
-
-        BigInteger lowIp = ipVal.and(mask);
-        BigInteger hiIp = lowIp.add(mask.not());
-
-        byte[] lowIpArr = modifyArray(lowIp.toByteArray(), prefixSize);
-        byte[] hiIpArr = modifyArray(hiIp.toByteArray(), prefixSize);
-
-        lowAddress = InetAddress.getByAddress(lowIpArr);
-        highAddress = InetAddress.getByAddress(hiIpArr);
-
+        long result = 0;
+        int octet = 0;
+        int digits = 0;
+        int dots = 0;
+        for (int i = 0; i < length; i++) {
+            final char c = ip.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = octet * 10 + (c - '0');
+                if (++digits > 3 || octet > 0xFF) {
+                    return -1;
+                }
+            } else if (c == '.' && digits > 0 && ++dots <= 3) {
+                result = (result << 8) | octet;
+                octet = 0;
+                digits = 0;
+            } else {
+                return -1;
+            }
+        }
+        if (dots != 3 || digits == 0) {
+            return -1;
+        }
+        return (result << 8) | octet;
     }
 
-    private byte[] modifyArray(byte[] array, int prefixSize) {
-        int counter = 0;
-        List<Byte> aList = new ArrayList<Byte>();
-        while (counter < prefixSize && (array.length - 1 - counter >= 0)) {
-            aList.add(0, array[array.length - 1 - counter]);
-            counter++;
+    /**
+     * Compares two unsigned 128 bit numbers
+     */
+    static int compare(long msb1, long lsb1, long msb2, long lsb2) {
+        if (msb1 != msb2) {
+            return compareUnsigned(msb1, msb2);
         }
+        return compareUnsigned(lsb1, lsb2);
+    }
 
-        int size = aList.size();
-        for (int i = 0; i < (prefixSize - size); i++) {
-            aList.add(0, (byte) 0);
-        }
+    private static int compareUnsigned(long first, long second) {
+        final long a = first + Long.MIN_VALUE;
+        final long b = second + Long.MIN_VALUE;
+        return a < b ? -1 : (a == b ? 0 : 1);
+    }
 
-        byte[] result = new byte[aList.size()];
-        for (int i = 0; i < aList.size(); i++) {
-            result[i] = aList.get(i);
+    /**
+     * Same text as {@link java.net.InetAddress#getHostAddress()} would return
+     */
+    private String format(long msb, long lsb) {
+        final StringBuilder result = new StringBuilder(ipv6 ? 39 : 15);
+        if (!ipv6) {
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                result.append((lsb >>> shift) & 0xFF);
+                if (shift > 0) {
+                    result.append('.');
+                }
+            }
+            return result.toString();
         }
-        return result;
+        for (int i = 0; i < 8; i++) {
+            final long word = i < 4 ? msb : lsb;
+            result.append(Long.toHexString((word >>> (48 - 16 * (i % 4))) & 0xFFFF));
+            if (i < 7) {
+                result.append(':');
+            }
+        }
+        return result.toString();
     }
 
     /**
@@ -260,10 +335,7 @@ public final class IpAddress implements Comparable<IpAddress> {
         if (o == null) {
             return 1;
         } else {
-            BigInteger low = new BigInteger(1, lowAddress.getAddress());
-            BigInteger target = new BigInteger(1, o.lowAddress.getAddress());
-            return low.compareTo(target);
+            return compare(lowMsb, lowLsb, o.lowMsb, o.lowLsb);
         }
     }
 }
-
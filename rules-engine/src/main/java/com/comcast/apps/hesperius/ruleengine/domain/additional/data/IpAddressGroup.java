@@ -24,6 +24,8 @@ package com.comcast.apps.hesperius.ruleengine.domain.additional.data;
 //import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
 //import org.apache.commons.lang3.builder.ToStringStyle;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
@@ -39,6 +41,12 @@ public class IpAddressGroup {
 
     private Set<IpAddress> ipAddresses = new HashSet<IpAddress>();
 
+    /**
+     * Built on first range check, dropped when addresses are replaced
+     */
+    @JsonIgnore
+    private transient volatile IpAddressIndex index;
+
     public IpAddressGroup() {
     }
 
@@ -69,11 +77,10 @@ public class IpAddressGroup {
         if (adrs == null) {
             return false;
         }
-        for (IpAddress ip : ipAddresses) {
-            for (IpAddress s : adrs) {
-                if (ip.isInRange(s)) {
-                    return true;
-                }
+        final IpAddressIndex index = getIndex();
+        for (IpAddress s : adrs) {
+            if (index.contains(s)) {
+                return true;
             }
         }
         return false;
@@ -87,11 +94,10 @@ public class IpAddressGroup {
         if (adrs == null) {
             return false;
         }
-        for (IpAddress ip : ipAddresses) {
-            for (IpAddress s : adrs) {
-                if (ip.isInRange(s)) {
-                    return true;
-                }
+        final IpAddressIndex index = getIndex();
+        for (IpAddress s : adrs) {
+            if (index.contains(s)) {
+                return true;
             }
         }
         return false;
@@ -105,16 +111,27 @@ public class IpAddressGroup {
         if (adrs == null) {
             return false;
         }
-        for (IpAddress ip : ipAddresses) {
-            for (String s : adrs) {
-                if (ip.isInRange(s)) {
-                    return true;
-                }
+        final IpAddressIndex index = getIndex();
+        for (String s : adrs) {
+            if (index.contains(s)) {
+                return true;
             }
         }
         return false;
     }
 
+    /**
+     * Index is rebuilt if addresses were replaced or the set was resized in place since it was built
+     */
+    private IpAddressIndex getIndex() {
+        IpAddressIndex result = index;
+        if (result == null || !result.isBuiltFrom(ipAddresses)) {
+            result = new IpAddressIndex(ipAddresses);
+            index = result;
+        }
+        return result;
+    }
+
     public String getId() {
         return id;
     }
@@ -137,6 +154,7 @@ public class IpAddressGroup {
 
     public void setIpAddresses(Set<IpAddress> addresses) {
         this.ipAddresses = addresses;
+        this.index = null;
     }
 
     @Override
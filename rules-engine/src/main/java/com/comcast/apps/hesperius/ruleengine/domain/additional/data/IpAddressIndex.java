@@ -0,0 +1,191 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.apps.hesperius.ruleengine.domain.additional.data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable sorted index of address ranges of {@link IpAddressGroup}, answers {@link IpAddress#isInRange(IpAddress)}
+ * against the whole group with a binary search.
+ *
+ * Overlapping ranges are merged, adjacent ones are not: CIDR blocks are either nested or disjoint, so every merged range
+ * is one of the original blocks and an address or subnet is in the index exactly when it is in range of some group member.
+ * Ranges that fit in 32 bits (IPv4) and the rest (IPv6) are kept in separate arrays, the 32 bit ones as plain longs.
+ * As {@link IpAddress} compares addresses numerically, a lookup checks both arrays when the target fits in 32 bits.
+ */
+final class IpAddressIndex {
+
+    private static final long IPV4_MAX = 0xFFFFFFFFL;
+
+    private static final Comparator<IpAddress> BY_LOW_THEN_WIDEST = new Comparator<IpAddress>() {
+        @Override
+        public int compare(IpAddress a, IpAddress b) {
+            final int result = a.compareTo(b);
+            return result != 0 ? result : IpAddress.compare(b.getHighMsb(), b.getHighLsb(), a.getHighMsb(), a.getHighLsb());
+        }
+    };
+
+    private final Collection<IpAddress> source;
+    private final int sourceSize;
+
+    private final long[] ipv4Low;
+    private final long[] ipv4High;
+    private final long[] ipv6LowMsb;
+    private final long[] ipv6LowLsb;
+    private final long[] ipv6HighMsb;
+    private final long[] ipv6HighLsb;
+    private final int ipv4Size;
+    private final int ipv6Size;
+
+    IpAddressIndex(Collection<IpAddress> addresses) {
+        source = addresses;
+        sourceSize = addresses != null ? addresses.size() : 0;
+        final List<IpAddress> ipv4 = new ArrayList<IpAddress>();
+        final List<IpAddress> ipv6 = new ArrayList<IpAddress>();
+        if (addresses != null) {
+            for (IpAddress address : addresses) {
+                if (address == null) {
+                    continue;
+                }
+                if (fitsIpv4(address.getHighMsb(), address.getHighLsb())) {
+                    ipv4.add(address);
+                } else {
+                    ipv6.add(address);
+                }
+            }
+        }
+        Collections.sort(ipv4, BY_LOW_THEN_WIDEST);
+        Collections.sort(ipv6, BY_LOW_THEN_WIDEST);
+
+        ipv4Low = new long[ipv4.size()];
+        ipv4High = new long[ipv4.size()];
+        int count = 0;
+        for (IpAddress address : ipv4) {
+            if (count > 0 && address.getLowLsb() <= ipv4High[count - 1]) {
+                ipv4High[count - 1] = Math.max(ipv4High[count - 1], address.getHighLsb());
+                continue;
+            }
+            ipv4Low[count] = address.getLowLsb();
+            ipv4High[count] = address.getHighLsb();
+            count++;
+        }
+        ipv4Size = count;
+
+        ipv6LowMsb = new long[ipv6.size()];
+        ipv6LowLsb = new long[ipv6.size()];
+        ipv6HighMsb = new long[ipv6.size()];
+        ipv6HighLsb = new long[ipv6.size()];
+        count = 0;
+        for (IpAddress address : ipv6) {
+            final int last = count - 1;
+            if (count > 0 && IpAddress.compare(address.getLowMsb(), address.getLowLsb(), ipv6HighMsb[last], ipv6HighLsb[last]) <= 0) {
+                if (IpAddress.compare(address.getHighMsb(), address.getHighLsb(), ipv6HighMsb[last], ipv6HighLsb[last]) > 0) {
+                    ipv6HighMsb[last] = address.getHighMsb();
+                    ipv6HighLsb[last] = address.getHighLsb();
+                }
+                continue;
+            }
+            ipv6LowMsb[count] = address.getLowMsb();
+            ipv6LowLsb[count] = address.getLowLsb();
+            ipv6HighMsb[count] = address.getHighMsb();
+            ipv6HighLsb[count] = address.getHighLsb();
+            count++;
+        }
+        ipv6Size = count;
+    }
+
+    /**
+     * @return true if index was built from the given collection and it was not resized since then
+     */
+    boolean isBuiltFrom(Collection<IpAddress> addresses) {
+        return source == addresses && sourceSize == (addresses != null ? addresses.size() : 0);
+    }
+
+    boolean contains(IpAddress address) {
+        return address != null && contains(address.getLowMsb(), address.getLowLsb(), address.getHighMsb(), address.getHighLsb());
+    }
+
+    /**
+     * Same as {@link IpAddressIndex#contains(IpAddress)} for address string, doesn't allocate for plain IPv4 addresses
+     */
+    boolean contains(String address) {
+        if (address == null) {
+            return false;
+        }
+        final long ipv4 = IpAddress.parseDottedQuad(address);
+        if (ipv4 >= 0) {
+            return contains(0, ipv4, 0, ipv4);
+        }
+        return IpAddress.isValid(address) && contains(new IpAddress(address));
+    }
+
+    int size() {
+        return ipv4Size + ipv6Size;
+    }
+
+    private boolean contains(long lowMsb, long lowLsb, long highMsb, long highLsb) {
+        if (fitsIpv4(highMsb, highLsb)) {
+            final int i = floorIpv4(lowLsb);
+            if (i >= 0 && highLsb <= ipv4High[i]) {
+                return true;
+            }
+        }
+        final int i = floorIpv6(lowMsb, lowLsb);
+        return i >= 0 && IpAddress.compare(highMsb, highLsb, ipv6HighMsb[i], ipv6HighLsb[i]) <= 0;
+    }
+
+    /**
+     * @return index of the last range starting at or before low, -1 if none
+     */
+    private int floorIpv4(long low) {
+        int from = 0;
+        int to = ipv4Size - 1;
+        while (from <= to) {
+            final int middle = (from + to) >>> 1;
+            if (ipv4Low[middle] <= low) {
+                from = middle + 1;
+            } else {
+                to = middle - 1;
+            }
+        }
+        return to;
+    }
+
+    private int floorIpv6(long lowMsb, long lowLsb) {
+        int from = 0;
+        int to = ipv6Size - 1;
+        while (from <= to) {
+            final int middle = (from + to) >>> 1;
+            if (IpAddress.compare(ipv6LowMsb[middle], ipv6LowLsb[middle], lowMsb, lowLsb) <= 0) {
+                from = middle + 1;
+            } else {
+                to = middle - 1;
+            }
+        }
+        return to;
+    }
+
+    private static boolean fitsIpv4(long msb, long lsb) {
+        return msb == 0 && lsb >= 0 && lsb <= IPV4_MAX;
+    }
+}
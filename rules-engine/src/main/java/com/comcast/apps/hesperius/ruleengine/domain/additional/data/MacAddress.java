@@ -21,9 +21,12 @@
  */
 package com.comcast.apps.hesperius.ruleengine.domain.additional.data;
 
+import com.comcast.apps.hesperius.ruleengine.domain.PatternCache;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 
+import java.util.regex.Pattern;
+
 /**
  * Simple value class for mac addresses that makes sure address is valid and
  * normalizes to colon separated all uppercase format: 00:21:E9:E3:20:EE
@@ -33,7 +36,7 @@ import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 @JsonSerialize(using = ToStringSerializer.class)
 public final class MacAddress {
 
-    private static final String MAC_ADDRESS_PATTERN = "^([0-9A-F]{2}[:-]){5}([0-9A-F]{2})$";
+    private static final Pattern MAC_ADDRESS_PATTERN = Pattern.compile("^([0-9A-F]{2}[:-]){5}([0-9A-F]{2})$");
 
     private String macAddress;
 
@@ -80,11 +83,25 @@ public final class MacAddress {
         if (macAddress == null || macAddress.trim().length() == 0) {
             return false;
         }
-        return normalize(macAddress).trim().toUpperCase().matches(MAC_ADDRESS_PATTERN);
+        return MAC_ADDRESS_PATTERN.matcher(normalize(macAddress).trim().toUpperCase()).matches();
+    }
+
+    /**
+     * @return 48 bit numeric value of this address
+     */
+    public long toLong() {
+        long result = 0;
+        for (int i = 0; i < macAddress.length(); i++) {
+            final int digit = Character.digit(macAddress.charAt(i), 16);
+            if (digit >= 0) {
+                result = (result << 4) | digit;
+            }
+        }
+        return result;
     }
 
     public boolean matches(String regex) {
-        return macAddress.matches(regex);
+        return PatternCache.get().matches(macAddress, regex);
     }
 
     @Override
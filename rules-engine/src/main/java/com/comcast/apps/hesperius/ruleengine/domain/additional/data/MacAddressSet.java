@@ -0,0 +1,89 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.apps.hesperius.ruleengine.domain.additional.data;
+
+import java.util.Collection;
+
+/**
+ * Immutable set of mac addresses kept as primitive 48 bit values {@link MacAddress#toLong()} in open addressing hash table,
+ * so lookup neither allocates nor compares strings.
+ */
+public final class MacAddressSet {
+
+    private static final long EMPTY = -1L; // can't be a 48 bit mac value
+
+    private final long[] table;
+    private final int mask;
+    private final int size;
+
+    public MacAddressSet(Collection<MacAddress> addresses) {
+        int capacity = 2;
+        while (capacity < addresses.size() * 2) {
+            capacity <<= 1;
+        }
+        table = new long[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            table[i] = EMPTY;
+        }
+        int count = 0;
+        for (MacAddress address : addresses) {
+            if (add(address.toLong())) {
+                count++;
+            }
+        }
+        size = count;
+    }
+
+    public boolean contains(MacAddress address) {
+        return address != null && contains(address.toLong());
+    }
+
+    public boolean contains(long address) {
+        int i = index(address);
+        while (table[i] != EMPTY) {
+            if (table[i] == address) {
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private boolean add(long address) {
+        int i = index(address);
+        while (table[i] != EMPTY) {
+            if (table[i] == address) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        table[i] = address;
+        return true;
+    }
+
+    private int index(long address) {
+        final long hash = address * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
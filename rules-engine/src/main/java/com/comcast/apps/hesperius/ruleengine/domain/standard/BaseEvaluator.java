@@ -21,6 +21,7 @@
  */
 package com.comcast.apps.hesperius.ruleengine.domain.standard;
 
+import com.comcast.apps.hesperius.ruleengine.main.api.EvaluationContext;
 import com.comcast.apps.hesperius.ruleengine.main.api.FreeArgType;
 import com.comcast.apps.hesperius.ruleengine.main.api.IConditionEvaluator;
 import com.comcast.apps.hesperius.ruleengine.main.api.Operation;
@@ -51,6 +52,14 @@ public abstract class BaseEvaluator implements IConditionEvaluator {
 
     protected abstract boolean evaluateInternal(String freeArgValue, Object fixedArgValue);
 
+    /**
+     * Same as {@link #evaluateInternal(String, Object)}, evaluators which convert free arg value should take it
+     * from the context by {@link EvaluationContext#get(String, com.google.common.base.Function)}
+     */
+    protected boolean evaluateInternal(EvaluationContext context, String freeArgName, String freeArgValue, Object fixedArgValue) {
+        return evaluateInternal(freeArgValue, fixedArgValue);
+    }
+
     @Override
     public boolean evaluate(IReadonlyCondition condition, Map<String, String> context) {
         String freeArgValue = null;
@@ -63,6 +72,19 @@ public abstract class BaseEvaluator implements IConditionEvaluator {
         return evaluateInternal(freeArgValue, condition.getFixedArg() != null ? condition.getFixedArg().getValue() : null);
     }
 
+    @Override
+    public boolean evaluate(IReadonlyCondition condition, EvaluationContext context) {
+        String freeArgValue = null;
+        if (!freeArgType.equals(StandardFreeArgType.VOID)) {
+            freeArgValue = context.get(condition.getFreeArg().getName());
+            if (freeArgValue == null || (!freeArgType.equals(StandardFreeArgType.ANY) && freeArgValue.isEmpty())) {
+                return false;
+            }
+        }
+        return evaluateInternal(context, condition.getFreeArg().getName(), freeArgValue,
+                condition.getFixedArg() != null ? condition.getFixedArg().getValue() : null);
+    }
+
     @Override
     public FreeArgType getFreeArgType() {
         return freeArgType;
@@ -78,6 +100,16 @@ public abstract class BaseEvaluator implements IConditionEvaluator {
         return fixedArgClasses;
     }
 
+    @Override
+    public Object prepare(Object fixedArgValue) {
+        return fixedArgValue;
+    }
+
+    @Override
+    public boolean isDeterministic() {
+        return true;
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public void validate(Object fixedArgValue) throws RuleValidationException {
@@ -0,0 +1,72 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.apps.hesperius.ruleengine.domain.standard;
+
+import com.comcast.apps.hesperius.ruleengine.domain.PercentThreshold;
+import com.comcast.apps.hesperius.ruleengine.main.api.EvaluationContext;
+import com.comcast.apps.hesperius.ruleengine.main.api.FreeArgType;
+import com.google.common.base.Function;
+
+/**
+ * PERCENT operation: free arg value fits if its hash falls into the first fixedArg percent of the hash range.
+ * Percent is prepared into {@link PercentThreshold}, and hash of the value is computed once per
+ * {@link EvaluationContext}, so evaluating many percent conditions against one context costs a long comparison each.
+ */
+public class PercentEvaluator extends BaseEvaluator {
+
+    private final Function<String, Long> hash;
+
+    /**
+     * @param hash {@link PercentThreshold#STRING_HASH}, {@link PercentThreshold#LONG_HASH} or another converter
+     *             returning null for values which never fit
+     */
+    public PercentEvaluator(FreeArgType freeArgType, Function<String, Long> hash) {
+        super(freeArgType, StandardOperation.PERCENT, Double.class);
+        this.hash = hash;
+    }
+
+    @Override
+    protected boolean evaluateInternal(String freeArgValue, Object fixedArgValue) {
+        return fits(hash.apply(freeArgValue), fixedArgValue);
+    }
+
+    @Override
+    protected boolean evaluateInternal(EvaluationContext context, String freeArgName, String freeArgValue, Object fixedArgValue) {
+        return fits(context.get(freeArgName, hash), fixedArgValue);
+    }
+
+    @Override
+    public Object prepare(Object fixedArgValue) {
+        try {
+            return PercentThreshold.of(Double.valueOf(String.valueOf(fixedArgValue)));
+        } catch (NumberFormatException e) {
+            return fixedArgValue;
+        }
+    }
+
+    private static boolean fits(Long hash, Object fixedArgValue) {
+        if (hash == null) {
+            return false;
+        }
+        if (fixedArgValue instanceof PercentThreshold) {
+            return ((PercentThreshold) fixedArgValue).fits(hash);
+        }
+        return PercentThreshold.fits(hash, Double.valueOf(String.valueOf(fixedArgValue)));
+    }
+}
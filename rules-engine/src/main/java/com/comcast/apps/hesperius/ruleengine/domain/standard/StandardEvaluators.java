@@ -18,6 +18,8 @@
  */
 package com.comcast.apps.hesperius.ruleengine.domain.standard;
 
+import com.comcast.apps.hesperius.ruleengine.domain.PatternCache;
+import com.comcast.apps.hesperius.ruleengine.domain.PercentThreshold;
 import com.comcast.apps.hesperius.ruleengine.domain.RuleUtils;
 import com.comcast.apps.hesperius.ruleengine.main.api.IConditionEvaluator;
 import com.comcast.apps.hesperius.ruleengine.main.impl.Evaluators;
@@ -80,7 +82,7 @@ public class StandardEvaluators extends Evaluators {
         add(new BaseEvaluator(StandardFreeArgType.STRING, StandardOperation.LIKE, String.class) {
             @Override
             public boolean evaluateInternal(String freeArgValue, Object fixedArgValue) {
-                return freeArgValue.matches((String) fixedArgValue);
+                return PatternCache.get().matches(freeArgValue, (String) fixedArgValue);
             }
         });
 
@@ -89,13 +91,18 @@ public class StandardEvaluators extends Evaluators {
             public boolean evaluateInternal(String freeArgValue, Object fixedArgValue) {
                 return ((Collection)fixedArgValue).contains(freeArgValue);
             }
+
+            @Override
+            public Object prepare(Object fixedArgValue) {
+                return RuleUtils.toHashSet(fixedArgValue);
+            }
         });
 
         add(new BaseEvaluator(StandardFreeArgType.STRING, StandardOperation.ANY_MATCHED, Collection.class) { // Collection<String>
             @Override
             public boolean evaluateInternal(String freeArgValue, Object fixedArgValue) {
                 for (String value : (Collection<String>)fixedArgValue) {
-                    if (freeArgValue.matches(value)) {
+                    if (PatternCache.get().matches(freeArgValue, value)) {
                         return true;
                     }
                 }
@@ -103,12 +110,7 @@ public class StandardEvaluators extends Evaluators {
             }
         });
 
-        add(new BaseEvaluator(StandardFreeArgType.STRING, StandardOperation.PERCENT, Double.class) {
-            @Override
-            public boolean evaluateInternal(String freeArgValue, Object fixedArgValue) {
-                return RuleUtils.fitsPercent(freeArgValue, Double.valueOf(String.valueOf(fixedArgValue)));
-            }
-        });
+        add(new PercentEvaluator(StandardFreeArgType.STRING, PercentThreshold.STRING_HASH));
 
         // ================================    LongEvaluators    ==================================================
         add(RuleUtils.generateComparingEvaluators(StandardFreeArgType.LONG, Long.class, new Function<String, Long>() {
@@ -133,21 +135,15 @@ public class StandardEvaluators extends Evaluators {
                 }
                 return ((Collection)fixedArgValue).contains(freeArgLong);
             }
-        });
 
-        add(new BaseEvaluator(StandardFreeArgType.LONG, StandardOperation.PERCENT, Double.class) {
             @Override
-            public boolean evaluateInternal(String freeArgValue, Object fixedArgValue) {
-                final Long freeArgValueLong;
-                try {
-                    freeArgValueLong = Long.parseLong(freeArgValue);
-                } catch (NumberFormatException e) {
-                    return false;
-                }
-                return RuleUtils.fitsPercent(freeArgValueLong, Double.valueOf(String.valueOf(fixedArgValue)));
+            public Object prepare(Object fixedArgValue) {
+                return RuleUtils.toHashSet(fixedArgValue);
             }
         });
 
+        add(new PercentEvaluator(StandardFreeArgType.LONG, PercentThreshold.LONG_HASH));
+
         // ================================    VoidEvaluators    ==================================================
         add(new BaseEvaluator(StandardFreeArgType.VOID, StandardOperation.IS, Boolean.class) {
             @Override
@@ -162,6 +158,11 @@ public class StandardEvaluators extends Evaluators {
             public boolean evaluateInternal(String freeArgValue, Object fixedArgValue) {
                 return random.nextDouble() * 100 < Double.valueOf(String.valueOf(fixedArgValue));
             }
+
+            @Override
+            public boolean isDeterministic() {
+                return false;
+            }
         });
 
     }
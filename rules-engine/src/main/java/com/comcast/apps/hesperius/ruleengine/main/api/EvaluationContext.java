@@ -0,0 +1,170 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.apps.hesperius.ruleengine.main.api;
+
+import com.google.common.base.Function;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Free arg values of a single request together with their typed forms.
+ *
+ * Evaluators get typed value by {@link #get(String, Function)}: value is converted by the given function on first
+ * request only and then reused by every condition evaluated against this context, instead of parsing ip, mac,
+ * time etc. from string for each condition. Functions are compared by identity, so they are expected to be constants.
+ *
+ * Underlying values must not be modified while context is used. Not thread safe, intended to be confined to a request.
+ */
+public final class EvaluationContext {
+
+    private static final Object NULL = new Object();
+
+    private final Map<String, String> values;
+    private Map<Function<String, ?>, Map<String, Object>> converted;
+
+    private EvaluationContext(Map<String, String> values) {
+        this.values = values;
+    }
+
+    private EvaluationContext(Builder builder) {
+        this.values = builder.values;
+        this.converted = builder.converted;
+    }
+
+    /**
+     * Wraps given map without copying
+     */
+    public static EvaluationContext of(Map<String, String> values) {
+        return new EvaluationContext(values);
+    }
+
+    /**
+     * Copies given map with values trimmed, same as
+     * {@link com.comcast.apps.hesperius.ruleengine.domain.RuleUtils#normalizeContext(Map)} but trims each value once
+     */
+    public static EvaluationContext normalized(Map<String, String> values) {
+        final Builder builder = new Builder(values.size());
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            builder.put(entry.getKey(), entry.getValue());
+        }
+        return builder.build();
+    }
+
+    public static Builder builder() {
+        return new Builder(16);
+    }
+
+    public String get(String name) {
+        return values.get(name);
+    }
+
+    /**
+     * @return converter result for value of the given free arg, null if value is null. Conversion errors are
+     * not cached and thrown on every call, null results are cached.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String name, Function<String, T> converter) {
+        final String value = values.get(name);
+        if (value == null) {
+            return null;
+        }
+        if (converted == null) {
+            converted = new IdentityHashMap<Function<String, ?>, Map<String, Object>>();
+        }
+        final Map<String, Object> byName = byName(converted, converter);
+        final Object result = byName.get(name);
+        if (result != null) {
+            return result != NULL ? (T) result : null;
+        }
+        final T typed = converter.apply(value);
+        byName.put(name, typed != null ? typed : NULL);
+        return typed;
+    }
+
+    /**
+     * @return read only view of free arg values
+     */
+    public Map<String, String> asMap() {
+        return Collections.unmodifiableMap(values);
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(values);
+    }
+
+    private static Map<String, Object> byName(Map<Function<String, ?>, Map<String, Object>> converted, Function<String, ?> converter) {
+        Map<String, Object> byName = converted.get(converter);
+        if (byName == null) {
+            byName = new HashMap<String, Object>();
+            converted.put(converter, byName);
+        }
+        return byName;
+    }
+
+    /**
+     * Collects free arg values of a request into a new context. Values are trimmed as by {@link #normalized(Map)},
+     * later value of the same free arg replaces earlier one.
+     */
+    public static final class Builder {
+
+        private final Map<String, String> values;
+        private Map<Function<String, ?>, Map<String, Object>> converted;
+
+        private Builder(int expectedSize) {
+            this.values = new HashMap<String, String>(expectedSize * 2);
+        }
+
+        public Builder put(String name, String value) {
+            values.put(name, value != null ? value.trim() : null);
+            if (converted != null) {
+                for (Map<String, Object> byName : converted.values()) {
+                    byName.remove(name);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Puts value together with its typed form, which is then returned by {@link EvaluationContext#get(String, Function)}
+         * for the given converter without converting the value. Useful when caller already has the typed value
+         * the string was formatted from.
+         */
+        public <T> Builder put(String name, String value, Function<String, T> converter, T typed) {
+            put(name, value);
+            if (value != null) {
+                if (converted == null) {
+                    converted = new IdentityHashMap<Function<String, ?>, Map<String, Object>>();
+                }
+                byName(converted, converter).put(name, typed != null ? typed : NULL);
+            }
+            return this;
+        }
+
+        /**
+         * Builder must not be used after this call, values are not copied
+         */
+        public EvaluationContext build() {
+            return new EvaluationContext(this);
+        }
+    }
+}
@@ -19,9 +19,13 @@
 package com.comcast.apps.hesperius.ruleengine.main.api;
 
 import com.comcast.apps.hesperius.ruleengine.main.api.internal.Marker;
+import com.comcast.apps.hesperius.ruleengine.main.api.internal.MarkerIds;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 
 /**
  * @see com.comcast.apps.hesperius.ruleengine.domain.standard.StandardFreeArgType
@@ -29,12 +33,40 @@ import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 @JsonSerialize(using = ToStringSerializer.class)
 public final class FreeArgType extends Marker {
 
+    private static final MarkerIds IDS = new MarkerIds();
+    private static final ConcurrentMap<String, FreeArgType> INTERNED = new ConcurrentHashMap<String, FreeArgType>();
+
+    /**
+     * @return the same instance for equal names
+     */
     public static FreeArgType forName(String name) {
-        return new FreeArgType(name);
+        FreeArgType result = INTERNED.get(name);
+        if (result == null) {
+            final FreeArgType created = new FreeArgType(name);
+            result = INTERNED.putIfAbsent(name, created);
+            if (result == null) {
+                result = created;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException if no marker has such {@link #getId() id}
+     */
+    public static FreeArgType forId(int id) {
+        return forName(IDS.name(id));
     }
 
     private FreeArgType(String name) {
-        super(name);
+        super(name, IDS);
+    }
+
+    /**
+     * @return number of distinct names, every {@link #getId()} is less than this value
+     */
+    public static int count() {
+        return IDS.size();
     }
 
     @Override
@@ -40,6 +40,13 @@ import java.util.Map;
  * {@link IRuleProcessor#validate(com.comcast.apps.hesperius.ruleengine.main.api.internal.IReadonlyRule)} provides
  * addition validation and also delegates to {@link #validate(Object)}.
  *
+ * FixedArg value may be converted once into form which is cheaper to evaluate {@link #prepare(Object)},
+ * e.g. collection of IN operation into hash set. Compiled rules keep prepared values and pass them to
+ * {@link #evaluate(IReadonlyCondition, Map)} instead of original ones, see {@link com.comcast.apps.hesperius.ruleengine.main.impl.CompiledRule}.
+ *
+ * Compiled rules evaluate against {@link EvaluationContext} {@link #evaluate(IReadonlyCondition, EvaluationContext)},
+ * where free arg value converted to its type (ip, mac, time etc.) is shared by all conditions of the request.
+ *
  * @see com.comcast.apps.hesperius.ruleengine.domain.standard.BaseEvaluator
  */
 public interface IConditionEvaluator {
@@ -50,6 +57,11 @@ public interface IConditionEvaluator {
      */
     boolean evaluate(IReadonlyCondition condition, Map<String, String> context);
 
+    /**
+     * Same as {@link #evaluate(IReadonlyCondition, Map)}, free arg may be taken already converted from the context
+     */
+    boolean evaluate(IReadonlyCondition condition, EvaluationContext context);
+
     FreeArgType getFreeArgType();
 
     Operation getOperation();
@@ -57,4 +69,17 @@ public interface IConditionEvaluator {
     Collection<Class<?>> getFixedArgClasses();
 
     void validate(Object fixedArgValue) throws RuleValidationException;
+
+    /**
+     * Converts fixedArg value into form used for evaluation. Evaluator must accept both original and prepared value.
+     * Must not fail on values which don't pass {@link #validate(Object)}, such values should be returned as is.
+     * Evaluators which don't need conversion return fixedArgValue itself.
+     */
+    Object prepare(Object fixedArgValue);
+
+    /**
+     * @return false if evaluator may give different results for the same condition and context, e.g. random percent.
+     * Compiled rules never share or memoize results of such conditions within a session.
+     */
+    boolean isDeterministic();
 }
@@ -23,7 +23,11 @@ package com.comcast.apps.hesperius.ruleengine.main.api;
 
 import com.comcast.apps.hesperius.ruleengine.main.api.internal.IReadonlyRule;
 import com.comcast.apps.hesperius.ruleengine.main.api.internal.IReadonlyCondition;
+import com.comcast.apps.hesperius.ruleengine.main.impl.CompiledRule;
+import com.comcast.apps.hesperius.ruleengine.main.impl.EvaluationSession;
 
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -37,5 +41,49 @@ public interface IRuleProcessor<T extends IReadonlyCondition, U extends IReadonl
 
     <U1 extends U>boolean evaluate(U1 rule, Map<String, String> context);
 
+    /**
+     * Evaluates rules compiled once against each of the contexts in parallel, see
+     * {@link com.comcast.apps.hesperius.ruleengine.main.impl.BulkEvaluator}. Results are computed lazily ahead of iteration.
+     *
+     * @return for each context in the same order rules matched by it in the order of rules, same as {@link #filter(Iterable, Map)}
+     */
+    <U1 extends U> Iterator<List<U1>> evaluateAll(Iterable<U1> rules, Iterable<? extends Map<String, String>> contexts);
+
+    /**
+     * Same as {@link #evaluateAll(Iterable, Iterable)} but only first matched rule is looked for
+     *
+     * @return for each context in the same order first rule matched by it or null, same as {@link #find(Iterable, Map)}
+     */
+    <U1 extends U> Iterator<U1> findAll(Iterable<U1> rules, Iterable<? extends Map<String, String>> contexts);
+
     <U1 extends U> void validate(U1 rule) throws RuleValidationException;
+
+    /**
+     * Compiles rule into immutable program with evaluators resolved, see {@link CompiledRule}.
+     * Each call produces a new program.
+     */
+    <U1 extends U> CompiledRule<U1> compile(U1 rule);
+
+    /**
+     * Same as {@link #compile(IReadonlyRule)} but program is cached by rule identity.
+     * Intended for rules owned by read only caches: rule must not be modified once it was passed here.
+     * Cached program is replaced by a reordered one once enough condition statistics were collected.
+     */
+    <U1 extends U> CompiledRule<U1> getCompiled(U1 rule);
+
+    boolean evaluate(CompiledRule<? extends U> rule, Map<String, String> context);
+
+    boolean evaluate(CompiledRule<? extends U> rule, EvaluationContext context);
+
+    /**
+     * Evaluates rule against session context reusing results of conditions already evaluated in the session,
+     * see {@link EvaluationSession}.
+     */
+    boolean evaluate(CompiledRule<? extends U> rule, EvaluationSession session);
+
+    /**
+     * Same as {@link #evaluate(CompiledRule, EvaluationSession)}, a sample of evaluations is profiled under the given
+     * category and rule id when {@link com.comcast.apps.hesperius.ruleengine.main.impl.RuleProfiler} is enabled.
+     */
+    boolean evaluate(CompiledRule<? extends U> rule, EvaluationSession session, String category, String ruleId);
 }
@@ -19,21 +19,53 @@
 package com.comcast.apps.hesperius.ruleengine.main.api;
 
 import com.comcast.apps.hesperius.ruleengine.main.api.internal.Marker;
+import com.comcast.apps.hesperius.ruleengine.main.api.internal.MarkerIds;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 /**
  * @see {@link com.comcast.apps.hesperius.ruleengine.domain.standard.StandardOperation}
  */
 @JsonSerialize(using = ToStringSerializer.class)
 public final class Operation extends Marker {
 
+    private static final MarkerIds IDS = new MarkerIds();
+    private static final ConcurrentMap<String, Operation> INTERNED = new ConcurrentHashMap<String, Operation>();
+
+    /**
+     * @return the same instance for equal names
+     */
     public static Operation forName(String name) {
-        return new Operation(name);
+        Operation result = INTERNED.get(name);
+        if (result == null) {
+            final Operation created = new Operation(name);
+            result = INTERNED.putIfAbsent(name, created);
+            if (result == null) {
+                result = created;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException if no marker has such {@link #getId() id}
+     */
+    public static Operation forId(int id) {
+        return forName(IDS.name(id));
     }
 
     private Operation(String name) {
-        super(name);
+        super(name, IDS);
+    }
+
+    /**
+     * @return number of distinct names, every {@link #getId()} is less than this value
+     */
+    public static int count() {
+        return IDS.size();
     }
 
     @Override
@@ -21,6 +21,7 @@ package com.comcast.apps.hesperius.ruleengine.main.api.internal;
 /**
  * The idea is subclasses will be final and will implement {@link #validateType(Object)} according to it javadoc.
  * Thus subclasses can be considered as strong typed text constant.
+ * Each subclass also numbers its names by {@link MarkerIds}, so that equal markers share an {@link #getId() id}.
  *
  * @see com.comcast.apps.hesperius.ruleengine.main.api.Operation
  * @see com.comcast.apps.hesperius.ruleengine.main.api.FreeArgType
@@ -28,12 +29,21 @@ package com.comcast.apps.hesperius.ruleengine.main.api.internal;
 public abstract class Marker {
 
     protected final String name;
+    private final int id;
 
-    protected Marker(String name) {
+    protected Marker(String name, MarkerIds ids) {
         if (name == null) {
             throw new IllegalArgumentException("name is null");
         }
         this.name = name;
+        this.id = ids.of(name);
+    }
+
+    /**
+     * @return small non-negative number unique for the name among markers of the same subclass
+     */
+    public final int getId() {
+        return id;
     }
 
     /**
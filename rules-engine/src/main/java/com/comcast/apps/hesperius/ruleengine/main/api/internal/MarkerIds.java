@@ -0,0 +1,66 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.apps.hesperius.ruleengine.main.api.internal;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Assigns small consecutive ids to marker names of one {@link Marker} subclass, so that markers can index arrays.
+ * Equal markers always get the same id. Ids are never released, the number of distinct names is expected to be small.
+ */
+public final class MarkerIds {
+
+    private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+    private final List<String> names = new CopyOnWriteArrayList<String>();
+
+    public int of(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("name is null");
+        }
+        Integer id = ids.get(name);
+        if (id == null) {
+            synchronized (this) {
+                id = ids.get(name);
+                if (id == null) {
+                    id = names.size();
+                    names.add(name);
+                    ids.put(name, id);
+                }
+            }
+        }
+        return id;
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException if id was not assigned
+     */
+    public String name(int id) {
+        return names.get(id);
+    }
+
+    /**
+     * @return number of ids assigned so far, every id is less than this value
+     */
+    public int size() {
+        return names.size();
+    }
+}
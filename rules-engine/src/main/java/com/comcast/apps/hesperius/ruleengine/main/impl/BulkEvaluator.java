@@ -0,0 +1,211 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.apps.hesperius.ruleengine.main.impl;
+
+import com.comcast.apps.hesperius.ruleengine.domain.RuleEngineConfig;
+import com.comcast.apps.hesperius.ruleengine.main.api.EvaluationContext;
+import com.comcast.apps.hesperius.ruleengine.main.api.internal.IReadonlyRule;
+import com.google.common.collect.UnmodifiableIterator;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Evaluates one set of compiled rules against many contexts on a fork-join pool, e.g. for rollout previews or
+ * what-if analysis over recorded device contexts.
+ *
+ * Contexts are read lazily in chunks of {@link #CHUNK_SIZE}, at most {@link #PENDING_CHUNKS} chunks are evaluated
+ * ahead of the consumer, so neither contexts nor results are ever materialized as a whole. Results come out in
+ * the order of contexts. Each leaf task reuses one {@link EvaluationSession} for all of its contexts.
+ * Exception thrown by evaluation of any context is rethrown to the consumer.
+ */
+public final class BulkEvaluator {
+
+    static final int CHUNK_SIZE = 4096;
+    static final int LEAF_SIZE = 128;
+    static final int PENDING_CHUNKS = 2;
+
+    private static enum InstanceHolder {
+        INSTANCE;
+        BulkEvaluator EVALUATOR = of(RuleEngineConfig.Provider.INSTANCE.getConfig());
+    }
+
+    /**
+     * @return evaluator shared by rule processors created with default configuration
+     */
+    public static BulkEvaluator get() {
+        return InstanceHolder.INSTANCE.EVALUATOR;
+    }
+
+    private final ForkJoinPool pool;
+
+    /**
+     * @param parallelism number of threads, available processors if not positive
+     */
+    public BulkEvaluator(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    public static BulkEvaluator of(RuleEngineConfig config) {
+        return new BulkEvaluator(config.getBulkParallelism());
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * @return for each context rules matched by it in the order of rules
+     */
+    public <U extends IReadonlyRule<?, ?>> Iterator<List<U>> evaluateAll(final List<CompiledRule<U>> rules, Iterable<? extends Map<String, String>> contexts) {
+        return new Results<List<U>>(contexts.iterator(), new Evaluation<List<U>>() {
+            @Override
+            public List<U> evaluate(EvaluationSession session) {
+                List<U> result = null;
+                for (CompiledRule<U> rule : rules) {
+                    if (rule.evaluate(session)) {
+                        if (result == null) {
+                            result = new ArrayList<U>(4);
+                        }
+                        result.add(rule.getRule());
+                    }
+                }
+                return (result != null) ? Collections.unmodifiableList(result) : Collections.<U>emptyList();
+            }
+        });
+    }
+
+    /**
+     * @return for each context first rule matched by it, null if none matched
+     */
+    public <U extends IReadonlyRule<?, ?>> Iterator<U> findAll(final List<CompiledRule<U>> rules, Iterable<? extends Map<String, String>> contexts) {
+        return new Results<U>(contexts.iterator(), new Evaluation<U>() {
+            @Override
+            public U evaluate(EvaluationSession session) {
+                for (CompiledRule<U> rule : rules) {
+                    if (rule.evaluate(session)) {
+                        return rule.getRule();
+                    }
+                }
+                return null;
+            }
+        });
+    }
+
+    private static interface Evaluation<R> {
+        R evaluate(EvaluationSession session);
+    }
+
+    /**
+     * Consumes contexts in chunks, keeping up to {@link #PENDING_CHUNKS} chunks submitted to the pool
+     */
+    private final class Results<R> extends UnmodifiableIterator<R> {
+        private final Iterator<? extends Map<String, String>> contexts;
+        private final Evaluation<R> evaluation;
+        private final ArrayDeque<Chunk<R>> pending = new ArrayDeque<Chunk<R>>();
+        private Chunk<R> current;
+        private int position;
+
+        private Results(Iterator<? extends Map<String, String>> contexts, Evaluation<R> evaluation) {
+            this.contexts = contexts;
+            this.evaluation = evaluation;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (current != null && position < current.results.length) {
+                return true;
+            }
+            submit();
+            if (pending.isEmpty()) {
+                current = null;
+                return false;
+            }
+            current = pending.poll();
+            current.join();
+            position = 0;
+            submit();
+            return true;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public R next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return (R) current.results[position++];
+        }
+
+        private void submit() {
+            while (pending.size() < PENDING_CHUNKS && contexts.hasNext()) {
+                final List<Map<String, String>> chunk = new ArrayList<Map<String, String>>(CHUNK_SIZE);
+                while (chunk.size() < CHUNK_SIZE && contexts.hasNext()) {
+                    chunk.add(contexts.next());
+                }
+                final Chunk<R> task = new Chunk<R>(chunk, new Object[chunk.size()], 0, chunk.size(), evaluation);
+                pool.execute(task);
+                pending.add(task);
+            }
+        }
+    }
+
+    private static final class Chunk<R> extends RecursiveAction {
+        private final List<Map<String, String>> contexts;
+        private final Object[] results;
+        private final int from;
+        private final int to;
+        private final Evaluation<R> evaluation;
+
+        private Chunk(List<Map<String, String>> contexts, Object[] results, int from, int to, Evaluation<R> evaluation) {
+            this.contexts = contexts;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.evaluation = evaluation;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > LEAF_SIZE) {
+                final int middle = (from + to) >>> 1;
+                invokeAll(new Chunk<R>(contexts, results, from, middle, evaluation),
+                        new Chunk<R>(contexts, results, middle, to, evaluation));
+                return;
+            }
+            EvaluationSession session = null;
+            for (int i = from; i < to; i++) {
+                final EvaluationContext context = EvaluationContext.of(contexts.get(i));
+                if (session == null) {
+                    session = new EvaluationSession(context);
+                } else {
+                    session.reset(context);
+                }
+                results[i] = evaluation.evaluate(session);
+            }
+        }
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.apps.hesperius.ruleengine.main.impl;
+
+import com.comcast.apps.hesperius.ruleengine.main.api.EvaluationContext;
+import com.comcast.apps.hesperius.ruleengine.main.api.FixedArg;
+import com.comcast.apps.hesperius.ruleengine.main.api.FreeArg;
+import com.comcast.apps.hesperius.ruleengine.main.api.IConditionEvaluator;
+import com.comcast.apps.hesperius.ruleengine.main.api.IEvaluators;
+import com.comcast.apps.hesperius.ruleengine.main.api.Operation;
+import com.comcast.apps.hesperius.ruleengine.main.api.Relation;
+import com.comcast.apps.hesperius.ruleengine.main.api.RuleValidationException;
+import com.comcast.apps.hesperius.ruleengine.main.api.internal.IReadonlyCondition;
+import com.comcast.apps.hesperius.ruleengine.main.api.internal.IReadonlyRule;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Immutable, flattened form of a rule tree {@link IReadonlyRule}.
+ *
+ * Every condition of the tree becomes one instruction with its evaluator already resolved and fixedArg value
+ * converted by {@link IConditionEvaluator#prepare(Object)}. Negation and AND/OR short-circuiting are resolved into
+ * jump targets at compile time, so evaluation is a plain loop over arrays: evaluate instruction, pick next instruction
+ * by result, stop when jumped to {@link #MATCH} or {@link #NO_MATCH}.
+ *
+ * Result is identical to {@link RuleProcessor#evaluate(IReadonlyRule, Map)} for any valid rule.
+ * Conditions are also assigned {@link ConditionSlot}s so that rules evaluated in one {@link EvaluationSession}
+ * share results of equal conditions.
+ * If compiled with enabled {@link RuleOptimizer} compound parts may be evaluated in a different order with the same
+ * result, and a sample of evaluations is recorded to the condition statistics the optimizer relies on.
+ * Compiled form does not track changes of the source rule, so rule must not be modified after compilation.
+ *
+ * @see RuleProcessor#compile(IReadonlyRule)
+ */
+public final class CompiledRule<U extends IReadonlyRule<?, ?>> {
+
+    static final int MATCH = -1;
+    static final int NO_MATCH = -2;
+    private static final int SAMPLE_RATE = 16;
+
+    private final U rule;
+    private final IReadonlyCondition[] conditions;
+    private final IConditionEvaluator[] evaluators;
+    private final ConditionSlot[] slots;
+    private final int[] sources;
+    private final boolean[] negated;
+    private final int[] onTrue;
+    private final int[] onFalse;
+    private final RuleOptimizer optimizer;
+    private final boolean reoptimized;
+    private long sampledEvaluations; // updated without synchronization, estimate only
+
+    private CompiledRule(U rule, int size, RuleOptimizer optimizer, boolean reoptimized) {
+        this.rule = rule;
+        this.optimizer = optimizer;
+        this.reoptimized = reoptimized;
+        this.conditions = new IReadonlyCondition[size];
+        this.evaluators = new IConditionEvaluator[size];
+        this.slots = new ConditionSlot[size];
+        this.sources = new int[size];
+        this.negated = new boolean[size];
+        this.onTrue = new int[size];
+        this.onFalse = new int[size];
+    }
+
+    /**
+     * @throws RuleValidationException if rule (or any of its compound parts) has neither condition nor compound parts
+     */
+    public static <U extends IReadonlyRule<?, ?>> CompiledRule<U> compile(U rule, IEvaluators evaluators) {
+        return compile(rule, evaluators, RuleOptimizer.DISABLED);
+    }
+
+    /**
+     * @throws RuleValidationException if rule (or any of its compound parts) has neither condition nor compound parts
+     */
+    public static <U extends IReadonlyRule<?, ?>> CompiledRule<U> compile(U rule, IEvaluators evaluators, RuleOptimizer optimizer) {
+        final CompiledRule<U> result = new CompiledRule<U>(rule, countConditions(rule), optimizer, false);
+        result.emit(rule, 0, 0, MATCH, NO_MATCH, evaluators);
+        return result;
+    }
+
+    /**
+     * Compiles the source rule again in the order chosen by statistics sampled so far.
+     * Result is never due for reoptimization, so a rule is recompiled at most once.
+     */
+    CompiledRule<U> reoptimize(IEvaluators evaluators) {
+        final CompiledRule<U> result = new CompiledRule<U>(rule, conditions.length, optimizer, true);
+        result.emit(rule, 0, 0, MATCH, NO_MATCH, evaluators);
+        return result;
+    }
+
+    public boolean evaluate(Map<String, String> context) {
+        return evaluate(EvaluationContext.of(context));
+    }
+
+    public boolean evaluate(EvaluationContext context) {
+        final boolean sample = isSampled();
+        int pc = 0;
+        while (pc >= 0) {
+            final IConditionEvaluator evaluator = evaluators[pc];
+            if (evaluator == null) {
+                throw new IllegalStateException("No evaluator found for FreeArgType = " + conditions[pc].getFreeArg().getType()
+                        + ", Operation " + conditions[pc].getOperation());
+            }
+            final boolean result = evaluator.evaluate(conditions[pc], context);
+            if (sample) {
+                slots[pc].record(result);
+            }
+            pc = (result != negated[pc]) ? onTrue[pc] : onFalse[pc];
+        }
+        return pc == MATCH;
+    }
+
+    /**
+     * Same as {@link #evaluate(EvaluationContext)} against session context, condition results are memoized in the session
+     */
+    public boolean evaluate(EvaluationSession session) {
+        final boolean sample = isSampled();
+        int pc = 0;
+        while (pc >= 0) {
+            final IConditionEvaluator evaluator = evaluators[pc];
+            if (evaluator == null) {
+                throw new IllegalStateException("No evaluator found for FreeArgType = " + conditions[pc].getFreeArg().getType()
+                        + ", Operation " + conditions[pc].getOperation());
+            }
+            final boolean result = session.evaluate(slots[pc], evaluator, conditions[pc]);
+            if (sample) {
+                slots[pc].record(result);
+            }
+            pc = (result != negated[pc]) ? onTrue[pc] : onFalse[pc];
+        }
+        return pc == MATCH;
+    }
+
+    /**
+     * Same as {@link #evaluate(EvaluationSession)}, time of the whole evaluation and of each evaluated condition
+     * is recorded into the profile
+     */
+    boolean evaluate(EvaluationSession session, RuleProfile profile) {
+        final boolean sample = isSampled();
+        final long start = System.nanoTime();
+        long time = start;
+        int pc = 0;
+        while (pc >= 0) {
+            final IConditionEvaluator evaluator = evaluators[pc];
+            if (evaluator == null) {
+                throw new IllegalStateException("No evaluator found for FreeArgType = " + conditions[pc].getFreeArg().getType()
+                        + ", Operation " + conditions[pc].getOperation());
+            }
+            final boolean result = session.evaluate(slots[pc], evaluator, conditions[pc]);
+            final long now = System.nanoTime();
+            profile.recordCondition(sources[pc], result, now - time);
+            time = now;
+            if (sample) {
+                slots[pc].record(result);
+            }
+            pc = (result != negated[pc]) ? onTrue[pc] : onFalse[pc];
+        }
+        profile.record(pc == MATCH, time - start);
+        return pc == MATCH;
+    }
+
+    /**
+     * @return source rule this program was compiled from
+     */
+    public U getRule() {
+        return rule;
+    }
+
+    /**
+     * @return number of conditions (instructions) in this program
+     */
+    public int size() {
+        return conditions.length;
+    }
+
+    /**
+     * @return true if rule was not reoptimized yet and enough statistics were sampled since compilation
+     * to compile it again in a better order
+     */
+    boolean isReoptimizationDue() {
+        return optimizer.isEnabled() && !reoptimized && sampledEvaluations >= optimizer.getReoptimizeAfter();
+    }
+
+    private boolean isSampled() {
+        if (!optimizer.isEnabled() || ThreadLocalRandom.current().nextInt(SAMPLE_RATE) != 0) {
+            return false;
+        }
+        sampledEvaluations++;
+        return true;
+    }
+
+    /**
+     * Writes instructions of the given rule starting at pc. Result of the rule transfers control to whenTrue or whenFalse.
+     * Reproduces {@link RuleProcessor#evaluate(IReadonlyRule, Map)}: a part following a true result is skipped if related by OR,
+     * a part following a false result stops evaluation of the whole compound if related by AND.
+     * Parts are written in the order chosen by {@link RuleOptimizer#order(List, IEvaluators)}, relations stay by position.
+     * Each instruction remembers position of its condition in the source rule, starting at source for this rule.
+     *
+     * @return pc right after the last written instruction
+     */
+    private int emit(IReadonlyRule<?, ?> rule, int pc, int source, int whenTrue, int whenFalse, IEvaluators evaluators) {
+        if (!rule.isCompound()) {
+            final IReadonlyCondition condition = rule.getCondition();
+            final IConditionEvaluator evaluator = evaluators.getEvaluator(condition.getFreeArg().getType(), condition.getOperation());
+            this.conditions[pc] = (evaluator != null) ? prepare(condition, evaluator) : condition;
+            this.evaluators[pc] = evaluator;
+            this.slots[pc] = ConditionSlot.of(condition, evaluator);
+            this.sources[pc] = source;
+            this.negated[pc] = rule.isNegated();
+            this.onTrue[pc] = whenTrue;
+            this.onFalse[pc] = whenFalse;
+            return pc + 1;
+        }
+        if (rule.isNegated()) {
+            final int swap = whenTrue;
+            whenTrue = whenFalse;
+            whenFalse = swap;
+        }
+        final List<? extends IReadonlyRule<?, ?>> parts = rule.getCompoundParts();
+        final int[] order = optimizer.order(parts, evaluators);
+        final int[] sizes = new int[parts.size()];
+        final int[] sourceStarts = new int[parts.size()];
+        for (int i = 0; i < parts.size(); i++) {
+            sizes[i] = countConditions(parts.get(i));
+            sourceStarts[i] = (i == 0) ? source : sourceStarts[i - 1] + sizes[i - 1];
+        }
+        final int[] starts = new int[parts.size() + 1];
+        starts[0] = pc;
+        for (int i = 0; i < parts.size(); i++) {
+            starts[i + 1] = starts[i] + sizes[order[i]];
+        }
+        for (int i = 0; i < parts.size(); i++) {
+            int partTrue = whenTrue;
+            for (int j = i + 1; j < parts.size(); j++) {
+                if (parts.get(j).getRelation() != Relation.OR) {
+                    partTrue = starts[j];
+                    break;
+                }
+            }
+            final boolean hasNext = i + 1 < parts.size();
+            final int partFalse = (hasNext && parts.get(i + 1).getRelation() != Relation.AND) ? starts[i + 1] : whenFalse;
+            emit(parts.get(order[i]), starts[i], sourceStarts[order[i]], partTrue, partFalse, evaluators);
+        }
+        return starts[parts.size()];
+    }
+
+    private static IReadonlyCondition prepare(IReadonlyCondition condition, IConditionEvaluator evaluator) {
+        if (condition.getFixedArg() == null) {
+            return condition;
+        }
+        final Object value = condition.getFixedArg().getValue();
+        final Object prepared = evaluator.prepare(value);
+        if (prepared == value) {
+            return condition;
+        }
+        return new PreparedCondition(condition.getFreeArg(), condition.getOperation(), FixedArg.from(prepared));
+    }
+
+    private static int countConditions(IReadonlyRule<?, ?> rule) {
+        if (!rule.isCompound()) {
+            return 1;
+        }
+        final List<? extends IReadonlyRule<?, ?>> parts = rule.getCompoundParts();
+        if (parts == null || parts.isEmpty()) {
+            throw new RuleValidationException("Rule must have either condition or compoundParts");
+        }
+        int result = 0;
+        for (IReadonlyRule<?, ?> part : parts) {
+            result += countConditions(part);
+        }
+        return result;
+    }
+
+    /**
+     * Copy of a condition holding prepared fixedArg value, never exposed outside of compiled rule
+     */
+    private static final class PreparedCondition implements IReadonlyCondition {
+        private final FreeArg freeArg;
+        private final Operation operation;
+        private final FixedArg fixedArg;
+
+        private PreparedCondition(FreeArg freeArg, Operation operation, FixedArg fixedArg) {
+            this.freeArg = freeArg;
+            this.operation = operation;
+            this.fixedArg = fixedArg;
+        }
+
+        @Override
+        public FreeArg getFreeArg() {
+            return freeArg;
+        }
+
+        @Override
+        public Operation getOperation() {
+            return operation;
+        }
+
+        @Override
+        public FixedArg getFixedArg() {
+            return fixedArg;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.apps.hesperius.ruleengine.main.impl;
+
+import com.comcast.apps.hesperius.ruleengine.main.api.FreeArg;
+import com.comcast.apps.hesperius.ruleengine.main.api.IConditionEvaluator;
+import com.comcast.apps.hesperius.ruleengine.main.api.Operation;
+import com.comcast.apps.hesperius.ruleengine.main.api.internal.IReadonlyCondition;
+import com.google.common.base.Objects;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.collect.MapMaker;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Identifies a condition for memoization in {@link EvaluationSession}: equal conditions of different rules share
+ * the same slot, so within a session each of them is evaluated once.
+ *
+ * Slots are interned weakly and live as long as some compiled rule refers to them. Only conditions with plain fixedArg
+ * values (strings, numbers, booleans and collections of them) are shared. Other values, e.g. ip address groups,
+ * may define equality by id only, so each such condition instance gets its own slot. Conditions of non-deterministic
+ * evaluators get their own slot too and are never memoized, see {@link IConditionEvaluator#isDeterministic()}.
+ *
+ * Slot also keeps sampled match statistics of the condition used by {@link RuleOptimizer}.
+ * Counters are updated without synchronization, lost updates are acceptable for estimates.
+ */
+final class ConditionSlot {
+
+    private static final Interner<ConditionSlot> INTERNER = Interners.newWeakInterner();
+    private static final ConcurrentMap<IReadonlyCondition, ConditionSlot> UNIQUE = new MapMaker().weakKeys().makeMap(); // by identity
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    private final int id = SEQUENCE.incrementAndGet(); // 0 is reserved for empty cells of the session table
+    private final FreeArg freeArg;
+    private final Operation operation;
+    private final Object value;
+    private final int hashCode;
+    private final boolean memoized;
+    private long evaluations;
+    private long matches;
+
+    private ConditionSlot(FreeArg freeArg, Operation operation, Object value, boolean memoized) {
+        this.freeArg = freeArg;
+        this.operation = operation;
+        this.value = value;
+        this.memoized = memoized;
+        this.hashCode = Objects.hashCode(freeArg, operation, value);
+    }
+
+    static ConditionSlot of(IReadonlyCondition condition) {
+        return of(condition, null);
+    }
+
+    /**
+     * @param evaluator evaluator of the condition, null if not resolved
+     */
+    static ConditionSlot of(IReadonlyCondition condition, IConditionEvaluator evaluator) {
+        final Object value = condition.getFixedArg() != null ? condition.getFixedArg().getValue() : null;
+        final boolean deterministic = evaluator == null || evaluator.isDeterministic();
+        final ConditionSlot slot = new ConditionSlot(condition.getFreeArg(), condition.getOperation(), value, deterministic);
+        if (deterministic && isPlain(value)) {
+            return INTERNER.intern(slot);
+        }
+        final ConditionSlot existing = UNIQUE.putIfAbsent(condition, slot);
+        return existing != null ? existing : slot;
+    }
+
+    int getId() {
+        return id;
+    }
+
+    /**
+     * @return false if condition must be evaluated each time, see {@link IConditionEvaluator#isDeterministic()}
+     */
+    boolean isMemoized() {
+        return memoized;
+    }
+
+    void record(boolean result) {
+        evaluations++;
+        if (result) {
+            matches++;
+        }
+    }
+
+    long getEvaluations() {
+        return evaluations;
+    }
+
+    /**
+     * @return observed probability of the condition (not negated) to be true, 0.5 if not observed yet
+     */
+    double getMatchRate() {
+        return (matches + 1.0) / (evaluations + 2.0);
+    }
+
+    private static boolean isPlain(Object value) {
+        if (value instanceof Collection) {
+            for (Object element : (Collection<?>) value) {
+                if (!isPlainElement(element)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return value == null || isPlainElement(value);
+    }
+
+    private static boolean isPlainElement(Object value) {
+        return value instanceof String || value instanceof Number || value instanceof Boolean;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ConditionSlot)) return false;
+        final ConditionSlot other = (ConditionSlot) o;
+        return hashCode == other.hashCode
+                && Objects.equal(freeArg, other.freeArg)
+                && Objects.equal(operation, other.operation)
+                && Objects.equal(value, other.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+}
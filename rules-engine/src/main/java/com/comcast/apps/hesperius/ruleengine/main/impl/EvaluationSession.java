@@ -0,0 +1,126 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.apps.hesperius.ruleengine.main.impl;
+
+import com.comcast.apps.hesperius.ruleengine.main.api.EvaluationContext;
+import com.comcast.apps.hesperius.ruleengine.main.api.IConditionEvaluator;
+import com.comcast.apps.hesperius.ruleengine.main.api.internal.IReadonlyCondition;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Evaluation of many compiled rules against one context, e.g. all firmware rules for a single request.
+ * Result of each distinct condition is computed once and reused by every rule containing an equal condition,
+ * see {@link ConditionSlot}.
+ *
+ * Context must not be modified while session is used. Not thread safe, intended to be confined to a request.
+ */
+public final class EvaluationSession {
+
+    private EvaluationContext context;
+
+    /* open addressing table: slot id (0 = empty) -> result */
+    private int[] slots = new int[32];
+    private boolean[] results = new boolean[32];
+    private int size;
+    private int hits;
+
+    public EvaluationSession(Map<String, String> context) {
+        this(EvaluationContext.of(context));
+    }
+
+    public EvaluationSession(EvaluationContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Starts the session over for another context keeping allocated memory, see {@link BulkEvaluator}
+     */
+    void reset(EvaluationContext context) {
+        this.context = context;
+        if (size > 0) {
+            Arrays.fill(slots, 0);
+            size = 0;
+        }
+        hits = 0;
+    }
+
+    public EvaluationContext getContext() {
+        return context;
+    }
+
+    /**
+     * @return number of distinct conditions evaluated so far
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return number of condition evaluations answered from memo
+     */
+    public int getHits() {
+        return hits;
+    }
+
+    boolean evaluate(ConditionSlot slot, IConditionEvaluator evaluator, IReadonlyCondition condition) {
+        if (!slot.isMemoized()) {
+            return evaluator.evaluate(condition, context);
+        }
+        final int id = slot.getId();
+        int i = index(id, slots.length);
+        while (slots[i] != 0) {
+            if (slots[i] == id) {
+                hits++;
+                return results[i];
+            }
+            i = (i + 1) & (slots.length - 1);
+        }
+        final boolean result = evaluator.evaluate(condition, context);
+        slots[i] = id;
+        results[i] = result;
+        if (++size * 2 > slots.length) {
+            resize();
+        }
+        return result;
+    }
+
+    private void resize() {
+        final int[] oldSlots = slots;
+        final boolean[] oldResults = results;
+        slots = new int[oldSlots.length * 2];
+        results = new boolean[oldSlots.length * 2];
+        for (int j = 0; j < oldSlots.length; j++) {
+            if (oldSlots[j] != 0) {
+                int i = index(oldSlots[j], slots.length);
+                while (slots[i] != 0) {
+                    i = (i + 1) & (slots.length - 1);
+                }
+                slots[i] = oldSlots[j];
+                results[i] = oldResults[j];
+            }
+        }
+    }
+
+    private static int index(int id, int length) {
+        final int hash = id * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (length - 1);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.apps.hesperius.ruleengine.main.impl;
+
+import com.comcast.apps.hesperius.ruleengine.main.api.FreeArgType;
+import com.comcast.apps.hesperius.ruleengine.main.api.IConditionEvaluator;
+import com.comcast.apps.hesperius.ruleengine.main.api.IEvaluators;
+import com.comcast.apps.hesperius.ruleengine.main.api.Operation;
+import com.google.common.collect.ImmutableList;
+
+import java.util.Iterator;
+
+/**
+ * Immutable snapshot of {@link IEvaluators} kept as a dispatch table indexed by {@link FreeArgType#getId()} and
+ * {@link Operation#getId()}, so lookup is two array reads without hashing or comparing marker names.
+ * Table is filled through {@link IEvaluators#getEvaluator(FreeArgType, Operation)} of the source for every marker known
+ * at the moment of freezing, so lookup overrides of the source (e.g. EXISTS of {@link
+ * com.comcast.apps.hesperius.ruleengine.domain.standard.StandardEvaluators}) are preserved.
+ * Markers first created later are resolved by the source, which therefore must not be modified after freezing.
+ *
+ * @see #of(IEvaluators)
+ */
+public final class EvaluatorTable implements IEvaluators {
+
+    private final IConditionEvaluator[][] table;
+    private final ImmutableList<IConditionEvaluator> evaluators;
+    private final IEvaluators source;
+
+    private EvaluatorTable(IConditionEvaluator[][] table, ImmutableList<IConditionEvaluator> evaluators, IEvaluators source) {
+        this.table = table;
+        this.evaluators = evaluators;
+        this.source = source;
+    }
+
+    public static EvaluatorTable of(IEvaluators source) {
+        final int operations = Operation.count();
+        final IConditionEvaluator[][] table = new IConditionEvaluator[FreeArgType.count()][operations];
+        for (int type = 0; type < table.length; type++) {
+            for (int operation = 0; operation < operations; operation++) {
+                table[type][operation] = source.getEvaluator(FreeArgType.forId(type), Operation.forId(operation));
+            }
+        }
+        return new EvaluatorTable(table, ImmutableList.copyOf(source), source);
+    }
+
+    /**
+     * @throws UnsupportedOperationException always, table is immutable
+     */
+    @Override
+    public void add(IConditionEvaluator evaluator) {
+        throw new UnsupportedOperationException("evaluator table is immutable");
+    }
+
+    /**
+     * @throws UnsupportedOperationException always, table is immutable
+     */
+    @Override
+    public void add(IEvaluators evaluators) {
+        throw new UnsupportedOperationException("evaluator table is immutable");
+    }
+
+    @Override
+    public IConditionEvaluator getEvaluator(FreeArgType type, Operation operation) {
+        final int typeId = type.getId();
+        final int operationId = operation.getId();
+        if (typeId >= table.length || operationId >= table[typeId].length) {
+            return source.getEvaluator(type, operation);
+        }
+        return table[typeId][operationId];
+    }
+
+    @Override
+    public Iterator<IConditionEvaluator> iterator() {
+        return evaluators.iterator();
+    }
+
+    public int size() {
+        return evaluators.size();
+    }
+}
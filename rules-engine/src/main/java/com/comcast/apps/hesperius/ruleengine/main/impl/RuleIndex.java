@@ -0,0 +1,202 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.apps.hesperius.ruleengine.main.impl;
+
+import com.comcast.apps.hesperius.ruleengine.domain.standard.StandardFreeArgType;
+import com.comcast.apps.hesperius.ruleengine.domain.standard.StandardOperation;
+import com.comcast.apps.hesperius.ruleengine.main.api.Relation;
+import com.comcast.apps.hesperius.ruleengine.main.api.internal.IReadonlyCondition;
+import com.comcast.apps.hesperius.ruleengine.main.api.internal.IReadonlyRule;
+import com.google.common.base.Function;
+import com.google.common.primitives.Ints;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable discrimination index over an ordered collection of rules, which allows to skip rules that can't match
+ * given context without evaluating them.
+ *
+ * For every rule a mandatory condition is looked up: non-negated STRING IS or STRING IN condition on one of indexed
+ * free args which must be true for the whole rule to be true, i.e. reachable from the root through non-negated
+ * compound parts that are ANDed with the final result. Rule is put into a bucket of each value such condition accepts,
+ * free args are tried in the given order and the first one found is used. Rules without such condition are kept
+ * as remainder.
+ *
+ * {@link #getCandidates(Map)} returns remainder plus rules from the buckets of context values in original order.
+ * Every rule not returned would evaluate to false against the context, assuming STRING IS/IN are evaluated by
+ * {@link com.comcast.apps.hesperius.ruleengine.domain.standard.StandardEvaluators}.
+ */
+public final class RuleIndex<T> {
+
+    private final List<T> rules;
+    private final String[] freeArgNames;
+    private final List<Map<String, int[]>> buckets;
+    private final BitSet remainder;
+
+    private RuleIndex(List<T> rules, String[] freeArgNames, List<Map<String, int[]>> buckets, BitSet remainder) {
+        this.rules = rules;
+        this.freeArgNames = freeArgNames;
+        this.buckets = buckets;
+        this.remainder = remainder;
+    }
+
+    /**
+     * @param rules         rules in evaluation order
+     * @param ruleExtractor returns rule tree of the given element, null is treated as non-indexable
+     * @param freeArgNames  names of STRING free args to index by, in order of preference
+     */
+    public static <T> RuleIndex<T> build(Iterable<? extends T> rules, Function<? super T, ? extends IReadonlyRule<?, ?>> ruleExtractor,
+                                         String... freeArgNames) {
+        final List<T> ruleList = new ArrayList<T>();
+        for (T rule : rules) {
+            ruleList.add(rule);
+        }
+        final List<Map<String, List<Integer>>> positions = new ArrayList<Map<String, List<Integer>>>();
+        for (int i = 0; i < freeArgNames.length; i++) {
+            positions.add(new HashMap<String, List<Integer>>());
+        }
+        final BitSet remainder = new BitSet(ruleList.size());
+        for (int i = 0; i < ruleList.size(); i++) {
+            final List<IReadonlyCondition> mandatory = new ArrayList<IReadonlyCondition>();
+            final IReadonlyRule<?, ?> rule = ruleExtractor.apply(ruleList.get(i));
+            if (rule != null) {
+                collectMandatoryConditions(rule, mandatory);
+            }
+            if (!addToBucket(i, mandatory, freeArgNames, positions)) {
+                remainder.set(i);
+            }
+        }
+        final List<Map<String, int[]>> buckets = new ArrayList<Map<String, int[]>>();
+        for (Map<String, List<Integer>> byValue : positions) {
+            final Map<String, int[]> bucket = new HashMap<String, int[]>();
+            for (Map.Entry<String, List<Integer>> entry : byValue.entrySet()) {
+                bucket.put(entry.getKey(), Ints.toArray(entry.getValue()));
+            }
+            buckets.add(bucket);
+        }
+        return new RuleIndex<T>(Collections.unmodifiableList(ruleList), freeArgNames.clone(), buckets, remainder);
+    }
+
+    /**
+     * @return rules which may match the context, in original order
+     */
+    public List<T> getCandidates(Map<String, String> context) {
+        final BitSet candidates = (BitSet) remainder.clone();
+        for (int i = 0; i < freeArgNames.length; i++) {
+            final String value = context.get(freeArgNames[i]);
+            final int[] bucket = value != null ? buckets.get(i).get(value) : null;
+            if (bucket != null) {
+                for (int position : bucket) {
+                    candidates.set(position);
+                }
+            }
+        }
+        final List<T> result = new ArrayList<T>(candidates.cardinality());
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            result.add(rules.get(i));
+        }
+        return result;
+    }
+
+    public int size() {
+        return rules.size();
+    }
+
+    /**
+     * @return number of rules which are returned as candidates for any context
+     */
+    public int getRemainderSize() {
+        return remainder.cardinality();
+    }
+
+    /**
+     * Compound rule is evaluated as a left fold, so walking from the last part back: a part related by AND must be true
+     * as well as everything before it, a part with no relation (or the first one) must be true and overrides everything
+     * before it, a part related by OR makes neither it nor preceding parts mandatory.
+     */
+    private static void collectMandatoryConditions(IReadonlyRule<?, ?> rule, List<IReadonlyCondition> result) {
+        if (rule.isNegated()) {
+            return;
+        }
+        if (!rule.isCompound()) {
+            result.add(rule.getCondition());
+            return;
+        }
+        final List<? extends IReadonlyRule<?, ?>> parts = rule.getCompoundParts();
+        if (parts == null) {
+            return;
+        }
+        for (int i = parts.size() - 1; i >= 0; i--) {
+            final IReadonlyRule<?, ?> part = parts.get(i);
+            if (i > 0 && part.getRelation() == Relation.OR) {
+                return;
+            }
+            collectMandatoryConditions(part, result);
+            if (i > 0 && part.getRelation() == null) {
+                return;
+            }
+        }
+    }
+
+    private static boolean addToBucket(int position, List<IReadonlyCondition> mandatory, String[] freeArgNames,
+                                       List<Map<String, List<Integer>>> positions) {
+        for (int i = 0; i < freeArgNames.length; i++) {
+            for (IReadonlyCondition condition : mandatory) {
+                if (!isIndexable(condition, freeArgNames[i])) {
+                    continue;
+                }
+                final Object value = condition.getFixedArg().getValue();
+                final Collection<?> values = (value instanceof Collection) ? (Collection<?>) value : Collections.singleton(value);
+                for (Object element : values) {
+                    if (element instanceof String) { // evaluators compare String free arg value with equals
+                        List<Integer> bucket = positions.get(i).get(element);
+                        if (bucket == null) {
+                            bucket = new ArrayList<Integer>();
+                            positions.get(i).put((String) element, bucket);
+                        }
+                        if (bucket.isEmpty() || bucket.get(bucket.size() - 1) != position) {
+                            bucket.add(position);
+                        }
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isIndexable(IReadonlyCondition condition, String freeArgName) {
+        if (condition == null || condition.getFreeArg() == null || condition.getFixedArg() == null
+                || !StandardFreeArgType.STRING.equals(condition.getFreeArg().getType())
+                || !freeArgName.equals(condition.getFreeArg().getName())) {
+            return false;
+        }
+        final Object value = condition.getFixedArg().getValue();
+        if (StandardOperation.IS.equals(condition.getOperation())) {
+            return value != null && !(value instanceof Collection);
+        }
+        return StandardOperation.IN.equals(condition.getOperation()) && value instanceof Collection;
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.apps.hesperius.ruleengine.main.impl;
+
+import com.comcast.apps.hesperius.ruleengine.domain.RuleEngineConfig;
+import com.comcast.apps.hesperius.ruleengine.domain.additional.AuxFreeArgType;
+import com.comcast.apps.hesperius.ruleengine.domain.standard.StandardFreeArgType;
+import com.comcast.apps.hesperius.ruleengine.domain.standard.StandardOperation;
+import com.comcast.apps.hesperius.ruleengine.main.api.FreeArgType;
+import com.comcast.apps.hesperius.ruleengine.main.api.IConditionEvaluator;
+import com.comcast.apps.hesperius.ruleengine.main.api.IEvaluators;
+import com.comcast.apps.hesperius.ruleengine.main.api.Operation;
+import com.comcast.apps.hesperius.ruleengine.main.api.Relation;
+import com.comcast.apps.hesperius.ruleengine.main.api.internal.IReadonlyCondition;
+import com.comcast.apps.hesperius.ruleengine.main.api.internal.IReadonlyRule;
+import com.google.common.collect.ImmutableTable;
+
+import java.util.List;
+
+/**
+ * Chooses order in which {@link CompiledRule} evaluates compound parts.
+ *
+ * Only parts of a run joined by the same relation are reordered: a run of OR parts gives the same result in any order,
+ * and so does such a run together with the part preceding it when that part is evaluated unconditionally (first part
+ * or part with null relation). A run of AND parts is reordered only when it ends the compound: false result inside
+ * the run stops the whole compound while false result of its last part lets following OR or null related parts
+ * be evaluated, so otherwise order matters. Within a run parts go in ascending order of
+ * cost / P(short-circuit), where cost comes from static cost classes of the evaluators and probability of a condition
+ * to be true is observed at runtime by sampling, see {@link ConditionSlot#getMatchRate()}.
+ *
+ * Conditions that may throw for some context values (e.g. unparsable mac address) and conditions of evaluators
+ * not provided by the engine are never moved ahead of parts that originally preceded them, so reordered rule
+ * doesn't evaluate them where original order would have short-circuited.
+ */
+public final class RuleOptimizer {
+
+    public static final RuleOptimizer DISABLED = new RuleOptimizer(false, 0);
+
+    private static final String BUILT_IN_PACKAGE = "com.comcast.apps.hesperius.ruleengine.domain.";
+    private static final int UNKNOWN_COST = 10;
+    private static final double MIN_PROBABILITY = 0.01;
+
+    /**
+     * relative cost of built-in evaluators, positive if evaluator never throws and is deterministic, negative otherwise
+     */
+    private static final ImmutableTable<FreeArgType, Operation, Integer> COSTS = ImmutableTable.<FreeArgType, Operation, Integer>builder()
+            .put(StandardFreeArgType.ANY, StandardOperation.EXISTS, 1)
+            .put(StandardFreeArgType.VOID, StandardOperation.IS, 1)
+            .put(StandardFreeArgType.VOID, StandardOperation.PERCENT, -2) // random
+            .put(StandardFreeArgType.STRING, StandardOperation.IS, 1)
+            .put(StandardFreeArgType.STRING, StandardOperation.IN, 2)
+            .put(StandardFreeArgType.STRING, StandardOperation.PERCENT, 4)
+            .put(StandardFreeArgType.STRING, StandardOperation.LIKE, -6) // invalid regex
+            .put(StandardFreeArgType.STRING, StandardOperation.ANY_MATCHED, -8)
+            .put(StandardFreeArgType.LONG, StandardOperation.IS, 2)
+            .put(StandardFreeArgType.LONG, StandardOperation.GT, 2)
+            .put(StandardFreeArgType.LONG, StandardOperation.GTE, 2)
+            .put(StandardFreeArgType.LONG, StandardOperation.LT, 2)
+            .put(StandardFreeArgType.LONG, StandardOperation.LTE, 2)
+            .put(StandardFreeArgType.LONG, StandardOperation.IN, 2)
+            .put(StandardFreeArgType.LONG, StandardOperation.PERCENT, 4)
+            .put(AuxFreeArgType.IP_ADDRESS, StandardOperation.IN, 3)
+            .put(AuxFreeArgType.IP_ADDRESS, StandardOperation.IS, -3)
+            .put(AuxFreeArgType.MAC_ADDRESS, StandardOperation.IS, -3)
+            .put(AuxFreeArgType.MAC_ADDRESS, StandardOperation.IN, -3)
+            .put(AuxFreeArgType.MAC_ADDRESS, StandardOperation.LIKE, -6)
+            .put(AuxFreeArgType.MAC_ADDRESS, StandardOperation.ANY_MATCHED, -8)
+            .build();
+
+    private final boolean enabled;
+    private final long reoptimizeAfter;
+
+    /**
+     * @param reoptimizeAfter number of sampled evaluations after which compiled rule is compiled again with updated statistics
+     */
+    public RuleOptimizer(boolean enabled, long reoptimizeAfter) {
+        this.enabled = enabled;
+        this.reoptimizeAfter = reoptimizeAfter;
+    }
+
+    public static RuleOptimizer of(RuleEngineConfig config) {
+        return new RuleOptimizer(config.isOptimizeRules(), config.getOptimizeRulesAfter());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    long getReoptimizeAfter() {
+        return reoptimizeAfter;
+    }
+
+    /**
+     * @return order[i] is index of the part to be evaluated i-th, relation at position i stays the one of parts.get(i)
+     */
+    int[] order(List<? extends IReadonlyRule<?, ?>> parts, IEvaluators evaluators) {
+        final int[] order = new int[parts.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        if (!enabled || order.length < 2) {
+            return order;
+        }
+        final Estimate[] estimates = new Estimate[order.length];
+        for (int i = 0; i < order.length; i++) {
+            estimates[i] = estimate(parts.get(i), evaluators);
+        }
+        int start = 0;
+        while (start < order.length) {
+            final Relation relation = (start == 0 || parts.get(start).getRelation() == null)
+                    ? (start + 1 < order.length ? parts.get(start + 1).getRelation() : null)
+                    : parts.get(start).getRelation();
+            int end = start + 1;
+            while (relation != null && end < order.length && parts.get(end).getRelation() == relation) {
+                end++;
+            }
+            if (end - start > 1 && (relation == Relation.OR || end == order.length)) {
+                sort(order, start, end, estimates, relation == Relation.AND);
+            }
+            start = end;
+        }
+        return order;
+    }
+
+    /**
+     * Selection sort by rank, unsafe part is eligible only when all parts originally preceding it are placed
+     */
+    private static void sort(int[] order, int start, int end, Estimate[] estimates, boolean and) {
+        final boolean[] placed = new boolean[end - start];
+        for (int position = start; position < end; position++) {
+            int best = -1;
+            boolean earliest = true;
+            for (int i = start; i < end; i++) {
+                if (placed[i - start]) {
+                    continue;
+                }
+                if ((estimates[i].safe || earliest)
+                        && (best < 0 || estimates[i].rank(and) < estimates[best].rank(and))) {
+                    best = i;
+                }
+                earliest = false;
+            }
+            placed[best - start] = true;
+            order[position] = best;
+        }
+    }
+
+    private Estimate estimate(IReadonlyRule<?, ?> rule, IEvaluators evaluators) {
+        final Estimate result;
+        if (!rule.isCompound()) {
+            final IReadonlyCondition condition = rule.getCondition();
+            final int cost = cost(condition, evaluators.getEvaluator(condition.getFreeArg().getType(), condition.getOperation()));
+            result = new Estimate(Math.abs(cost), ConditionSlot.of(condition).getMatchRate(), cost > 0);
+        } else {
+            final List<? extends IReadonlyRule<?, ?>> parts = rule.getCompoundParts();
+            result = estimate(parts.get(0), evaluators);
+            for (int i = 1; i < parts.size(); i++) {
+                final Estimate part = estimate(parts.get(i), evaluators);
+                final Relation relation = parts.get(i).getRelation();
+                if (relation == Relation.AND) {
+                    result.cost += result.probability * part.cost;
+                    result.probability *= part.probability;
+                } else if (relation == Relation.OR) {
+                    result.cost += (1 - result.probability) * part.cost;
+                    result.probability += (1 - result.probability) * part.probability;
+                } else {
+                    result.cost += part.cost;
+                    result.probability = part.probability;
+                }
+                result.safe &= part.safe;
+            }
+        }
+        if (rule.isNegated()) {
+            result.probability = 1 - result.probability;
+        }
+        return result;
+    }
+
+    private static int cost(IReadonlyCondition condition, IConditionEvaluator evaluator) {
+        if (evaluator == null || !evaluator.getClass().getName().startsWith(BUILT_IN_PACKAGE)) {
+            return -UNKNOWN_COST;
+        }
+        final FreeArgType type = StandardOperation.EXISTS.equals(condition.getOperation())
+                ? StandardFreeArgType.ANY : condition.getFreeArg().getType();
+        final Integer cost = COSTS.get(type, condition.getOperation());
+        return cost != null ? cost : -UNKNOWN_COST;
+    }
+
+    private static final class Estimate {
+        private double cost;
+        private double probability;
+        private boolean safe;
+
+        private Estimate(double cost, double probability, boolean safe) {
+            this.cost = cost;
+            this.probability = probability;
+            this.safe = safe;
+        }
+
+        /**
+         * expected cost per short-circuit: false stops AND run, true stops OR run
+         */
+        private double rank(boolean and) {
+            return cost / Math.max(and ? 1 - probability : probability, MIN_PROBABILITY);
+        }
+    }
+}
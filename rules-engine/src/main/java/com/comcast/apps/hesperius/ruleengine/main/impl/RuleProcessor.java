@@ -21,6 +21,8 @@
  */
 package com.comcast.apps.hesperius.ruleengine.main.impl;
 
+import com.comcast.apps.hesperius.ruleengine.domain.RuleEngineConfig;
+import com.comcast.apps.hesperius.ruleengine.main.api.EvaluationContext;
 import com.comcast.apps.hesperius.ruleengine.main.api.IConditionEvaluator;
 import com.comcast.apps.hesperius.ruleengine.main.api.Operation;
 import com.comcast.apps.hesperius.ruleengine.main.api.RuleValidationException;
@@ -32,17 +34,54 @@ import com.comcast.apps.hesperius.ruleengine.main.api.Relation;
 import com.comcast.apps.hesperius.ruleengine.main.api.internal.IReadonlyRule;
 import com.comcast.apps.hesperius.ruleengine.main.api.internal.IReadonlyCondition;
 import com.google.common.base.Predicate;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 public class RuleProcessor<T extends IReadonlyCondition, U extends IReadonlyRule<T, U>> implements IRuleProcessor<T, U> {
 
     protected final IEvaluators evaluators;
+    private final RuleOptimizer optimizer;
+    private final RuleProfiler profiler;
+    private final BulkEvaluator bulkEvaluator;
+
+    /**
+     * weak keys are compared by identity, so each rule instance is compiled once and dropped together with the instance
+     */
+    private final LoadingCache<U, CompiledRule<U>> compiledRules = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build(new CacheLoader<U, CompiledRule<U>>() {
+                @Override
+                public CompiledRule<U> load(U rule) {
+                    return compile(rule);
+                }
+            });
 
     public RuleProcessor(IEvaluators evaluators) {
+        this(evaluators, RuleOptimizer.of(RuleEngineConfig.Provider.INSTANCE.getConfig()));
+    }
+
+    public RuleProcessor(IEvaluators evaluators, RuleOptimizer optimizer) {
+        this(evaluators, optimizer, RuleProfiler.get());
+    }
+
+    public RuleProcessor(IEvaluators evaluators, RuleOptimizer optimizer, RuleProfiler profiler) {
+        this(evaluators, optimizer, profiler, BulkEvaluator.get());
+    }
+
+    public RuleProcessor(IEvaluators evaluators, RuleOptimizer optimizer, RuleProfiler profiler, BulkEvaluator bulkEvaluator) {
         this.evaluators = evaluators;
+        this.optimizer = optimizer;
+        this.profiler = profiler;
+        this.bulkEvaluator = bulkEvaluator;
     }
 
     @Override
@@ -68,6 +107,24 @@ public class RuleProcessor<T extends IReadonlyCondition, U extends IReadonlyRule
         }).orNull();
     }
 
+    @Override
+    public <U1 extends U> Iterator<List<U1>> evaluateAll(Iterable<U1> rules, Iterable<? extends Map<String, String>> contexts) {
+        return bulkEvaluator.evaluateAll(compileAll(rules), contexts);
+    }
+
+    @Override
+    public <U1 extends U> Iterator<U1> findAll(Iterable<U1> rules, Iterable<? extends Map<String, String>> contexts) {
+        return bulkEvaluator.findAll(compileAll(rules), contexts);
+    }
+
+    private <U1 extends U> List<CompiledRule<U1>> compileAll(Iterable<U1> rules) {
+        final List<CompiledRule<U1>> result = new ArrayList<CompiledRule<U1>>();
+        for (U1 rule : rules) {
+            result.add(compile(rule));
+        }
+        return result;
+    }
+
     @Override
     public <U1 extends U> void validate(U1 rule) throws RuleValidationException {
         validateRule(rule);
@@ -104,6 +161,49 @@ public class RuleProcessor<T extends IReadonlyCondition, U extends IReadonlyRule
         return result;
     }
 
+    @Override
+    public <U1 extends U> CompiledRule<U1> compile(U1 rule) {
+        return CompiledRule.compile(rule, evaluators, optimizer);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <U1 extends U> CompiledRule<U1> getCompiled(U1 rule) {
+        try {
+            CompiledRule<U1> compiled = (CompiledRule<U1>) compiledRules.getUnchecked(rule);
+            if (compiled.isReoptimizationDue()) { // concurrent callers may compile twice, either result is valid
+                compiled = compiled.reoptimize(evaluators);
+                compiledRules.put(rule, (CompiledRule<U>) compiled);
+            }
+            return compiled;
+        } catch (UncheckedExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    @Override
+    public boolean evaluate(CompiledRule<? extends U> rule, Map<String, String> context) {
+        return rule.evaluate(context);
+    }
+
+    @Override
+    public boolean evaluate(CompiledRule<? extends U> rule, EvaluationContext context) {
+        return rule.evaluate(context);
+    }
+
+    @Override
+    public boolean evaluate(CompiledRule<? extends U> rule, EvaluationSession session) {
+        return rule.evaluate(session);
+    }
+
+    @Override
+    public boolean evaluate(CompiledRule<? extends U> rule, EvaluationSession session, String category, String ruleId) {
+        if (!profiler.isSampled()) {
+            return rule.evaluate(session);
+        }
+        return rule.evaluate(session, profiler.getProfile(category, ruleId, rule.getRule()));
+    }
+
     protected boolean evaluate(T rule, boolean negation, Map<String, String> context) {
         FreeArg freeArg = rule.getFreeArg();
         IConditionEvaluator evaluator = evaluators.getEvaluator(freeArg.getType(), rule.getOperation());
@@ -0,0 +1,211 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.apps.hesperius.ruleengine.main.impl;
+
+import com.comcast.apps.hesperius.ruleengine.main.api.internal.IReadonlyCondition;
+import com.comcast.apps.hesperius.ruleengine.main.api.internal.IReadonlyRule;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Sampled evaluation statistics of one rule collected by {@link RuleProfiler}: number of evaluations, matches and
+ * nanoseconds spent, for the rule and for each of its conditions. Conditions are listed in declaration order
+ * regardless of the order {@link RuleOptimizer} evaluates them in.
+ *
+ * Counts are of sampled evaluations only, estimated totals are scaled by the sample rate.
+ */
+public final class RuleProfile {
+
+    private static final int MAX_FIXED_ARG_LENGTH = 100;
+    private static final int EVALUATIONS = 0;
+    private static final int MATCHES = 1;
+    private static final int NANOS = 2;
+    private static final int COUNTERS = 3;
+
+    private final String category;
+    private final String ruleId;
+    private final int sampleRate;
+    private final String[] conditions;
+    private final StripedCounters counters;
+    private volatile IReadonlyRule<?, ?> rule;
+
+    RuleProfile(String category, String ruleId, IReadonlyRule<?, ?> rule, int sampleRate) {
+        this.category = category;
+        this.ruleId = ruleId;
+        this.rule = rule;
+        this.sampleRate = sampleRate;
+        final List<String> descriptions = new ArrayList<String>();
+        describe(rule, descriptions);
+        this.conditions = descriptions.toArray(new String[descriptions.size()]);
+        this.counters = new StripedCounters(COUNTERS * (conditions.length + 1));
+    }
+
+    /**
+     * @return true if profile collects statistics of the given rule: same instance or an equal one reloaded
+     * under the same id
+     */
+    boolean isProfiling(IReadonlyRule<?, ?> rule) {
+        if (this.rule == rule) {
+            return true;
+        }
+        if (rule.equals(this.rule)) {
+            this.rule = rule;
+            return true;
+        }
+        return false;
+    }
+
+    void record(boolean matched, long nanos) {
+        record(0, matched, nanos);
+    }
+
+    /**
+     * @param condition index of the condition in declaration order
+     */
+    void recordCondition(int condition, boolean result, long nanos) {
+        record(COUNTERS * (condition + 1), result, nanos);
+    }
+
+    private void record(int base, boolean result, long nanos) {
+        counters.add(base + EVALUATIONS, 1);
+        if (result) {
+            counters.add(base + MATCHES, 1);
+        }
+        counters.add(base + NANOS, nanos);
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public String getRuleId() {
+        return ruleId;
+    }
+
+    public long getSampledEvaluations() {
+        return counters.sum(EVALUATIONS);
+    }
+
+    public long getSampledMatches() {
+        return counters.sum(MATCHES);
+    }
+
+    public long getSampledNanos() {
+        return counters.sum(NANOS);
+    }
+
+    public long getAverageNanos() {
+        return average(0);
+    }
+
+    public long getEstimatedEvaluations() {
+        return getSampledEvaluations() * sampleRate;
+    }
+
+    public long getEstimatedNanos() {
+        return getSampledNanos() * sampleRate;
+    }
+
+    public List<ConditionProfile> getConditions() {
+        final List<ConditionProfile> result = new ArrayList<ConditionProfile>(conditions.length);
+        for (int i = 0; i < conditions.length; i++) {
+            final int base = COUNTERS * (i + 1);
+            result.add(new ConditionProfile(conditions[i], counters.sum(base + EVALUATIONS), counters.sum(base + MATCHES),
+                    counters.sum(base + NANOS), average(base)));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    @Override
+    public String toString() {
+        return category + "/" + ruleId + ": evaluations=" + getEstimatedEvaluations() + ", averageNanos=" + getAverageNanos()
+                + ", estimatedNanos=" + getEstimatedNanos() + ", matches=" + getSampledMatches() + "/" + getSampledEvaluations();
+    }
+
+    private long average(int base) {
+        final long evaluations = counters.sum(base + EVALUATIONS);
+        return evaluations > 0 ? counters.sum(base + NANOS) / evaluations : 0;
+    }
+
+    private static void describe(IReadonlyRule<?, ?> rule, List<String> descriptions) {
+        if (!rule.isCompound()) {
+            descriptions.add(describe(rule.getCondition()));
+            return;
+        }
+        for (IReadonlyRule<?, ?> part : rule.getCompoundParts()) {
+            describe(part, descriptions);
+        }
+    }
+
+    private static String describe(IReadonlyCondition condition) {
+        final StringBuilder result = new StringBuilder();
+        result.append(condition.getFreeArg() != null ? condition.getFreeArg().getName() : null).append(' ').append(condition.getOperation());
+        if (condition.getFixedArg() != null) {
+            final Object fixedArgValue = condition.getFixedArg().getValue();
+            if (fixedArgValue instanceof Collection) {
+                result.append(" (").append(((Collection<?>) fixedArgValue).size()).append(" values)");
+            }
+            final String value = String.valueOf(fixedArgValue);
+            result.append(' ').append(value.length() > MAX_FIXED_ARG_LENGTH ? value.substring(0, MAX_FIXED_ARG_LENGTH) + "..." : value);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Sampled statistics of a single condition, evaluations answered from {@link EvaluationSession} memo included
+     */
+    public static final class ConditionProfile {
+        private final String condition;
+        private final long sampledEvaluations;
+        private final long sampledMatches;
+        private final long sampledNanos;
+        private final long averageNanos;
+
+        private ConditionProfile(String condition, long sampledEvaluations, long sampledMatches, long sampledNanos, long averageNanos) {
+            this.condition = condition;
+            this.sampledEvaluations = sampledEvaluations;
+            this.sampledMatches = sampledMatches;
+            this.sampledNanos = sampledNanos;
+            this.averageNanos = averageNanos;
+        }
+
+        public String getCondition() {
+            return condition;
+        }
+
+        public long getSampledEvaluations() {
+            return sampledEvaluations;
+        }
+
+        public long getSampledMatches() {
+            return sampledMatches;
+        }
+
+        public long getSampledNanos() {
+            return sampledNanos;
+        }
+
+        public long getAverageNanos() {
+            return averageNanos;
+        }
+    }
+}
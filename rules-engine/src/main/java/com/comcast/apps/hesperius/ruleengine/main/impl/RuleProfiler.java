@@ -0,0 +1,167 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.apps.hesperius.ruleengine.main.impl;
+
+import com.comcast.apps.hesperius.ruleengine.domain.RuleEngineConfig;
+import com.comcast.apps.hesperius.ruleengine.main.api.internal.IReadonlyRule;
+import com.google.common.collect.Ordering;
+import com.google.common.primitives.Longs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Optional instrumentation of compiled rule evaluation: one of {@link #getSampleRate()} evaluations labeled with
+ * category and rule id is timed per condition and recorded into {@link RuleProfile} of the rule, so that expensive
+ * rules (bad regex, giant IN list) can be found in production at a fraction of a percent of evaluation cost.
+ *
+ * Disabled by default, see {@link RuleEngineConfig#isProfileRules()}, and may be switched at runtime over JMX.
+ * Profile of a rule id is started over when the rule under that id changes.
+ */
+public final class RuleProfiler implements RuleProfilerMBean {
+
+    private static final int TOP_RULES = 10;
+
+    private static enum InstanceHolder {
+        INSTANCE;
+        RuleProfiler PROFILER = of(RuleEngineConfig.Provider.INSTANCE.getConfig());
+    }
+
+    /**
+     * @return profiler shared by rule processors created with default configuration
+     */
+    public static RuleProfiler get() {
+        return InstanceHolder.INSTANCE.PROFILER;
+    }
+
+    private static final Comparator<RuleProfile> BY_SAMPLED_NANOS = new Comparator<RuleProfile>() {
+        @Override
+        public int compare(RuleProfile left, RuleProfile right) {
+            return Longs.compare(left.getSampledNanos(), right.getSampledNanos());
+        }
+    };
+
+    private final int sampleRate;
+    private final ConcurrentMap<String, ConcurrentMap<String, RuleProfile>> profiles = new ConcurrentHashMap<String, ConcurrentMap<String, RuleProfile>>();
+    private volatile boolean enabled;
+
+    public RuleProfiler(boolean enabled, int sampleRate) {
+        this.enabled = enabled;
+        this.sampleRate = Math.max(sampleRate, 1);
+    }
+
+    public static RuleProfiler of(RuleEngineConfig config) {
+        return new RuleProfiler(config.isProfileRules(), config.getProfileSampleRate());
+    }
+
+    /**
+     * @return true if the current evaluation should be profiled
+     */
+    boolean isSampled() {
+        return enabled && (sampleRate == 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0);
+    }
+
+    RuleProfile getProfile(String category, String ruleId, IReadonlyRule<?, ?> rule) {
+        ConcurrentMap<String, RuleProfile> byId = profiles.get(category);
+        if (byId == null) {
+            final ConcurrentMap<String, RuleProfile> created = new ConcurrentHashMap<String, RuleProfile>();
+            byId = profiles.putIfAbsent(category, created);
+            if (byId == null) {
+                byId = created;
+            }
+        }
+        RuleProfile profile = byId.get(ruleId);
+        if (profile == null || !profile.isProfiling(rule)) {
+            profile = new RuleProfile(category, ruleId, rule, sampleRate);
+            byId.put(ruleId, profile); // concurrent first samples may each start a profile, one of them wins
+        }
+        return profile;
+    }
+
+    /**
+     * @return profiles of the category in descending order of time spent
+     */
+    public List<RuleProfile> getTop(String category, int limit) {
+        final ConcurrentMap<String, RuleProfile> byId = profiles.get(category);
+        if (byId == null) {
+            return Collections.emptyList();
+        }
+        return Ordering.from(BY_SAMPLED_NANOS).greatestOf(byId.values(), limit);
+    }
+
+    public Set<String> getCategories() {
+        return Collections.unmodifiableSet(new TreeSet<String>(profiles.keySet()));
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public int getProfiledRules() {
+        int result = 0;
+        for (ConcurrentMap<String, RuleProfile> byId : profiles.values()) {
+            result += byId.size();
+        }
+        return result;
+    }
+
+    @Override
+    public String[] getTopRules() {
+        final List<String> result = new ArrayList<String>();
+        for (String category : getCategories()) {
+            result.addAll(Arrays.asList(topRules(category, TOP_RULES)));
+        }
+        return result.toArray(new String[result.size()]);
+    }
+
+    @Override
+    public String[] topRules(String category, int limit) {
+        final List<RuleProfile> top = getTop(category, limit);
+        final String[] result = new String[top.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = top.get(i).toString();
+        }
+        return result;
+    }
+
+    @Override
+    public void reset() {
+        profiles.clear();
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.apps.hesperius.ruleengine.main.impl;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed number of long counters, each split into stripes chosen by thread, so that threads updating the same
+ * counter mostly write to different cache lines. Reads sum the stripes and are not atomic across counters.
+ */
+final class StripedCounters {
+
+    private static final int STRIPES = stripes();
+    private static final int PADDING = 8; // longs per cache line, keeps neighbouring stripes apart
+
+    private final AtomicLongArray values;
+    private final int size;
+    private final int stride;
+
+    StripedCounters(int size) {
+        this.size = size;
+        this.stride = size + PADDING;
+        this.values = new AtomicLongArray(stride * STRIPES);
+    }
+
+    void add(int counter, long delta) {
+        values.getAndAdd(stripe() * stride + counter, delta);
+    }
+
+    long sum(int counter) {
+        long result = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            result += values.get(i * stride + counter);
+        }
+        return result;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private static int stripe() {
+        return (int) Thread.currentThread().getId() & (STRIPES - 1);
+    }
+
+    private static int stripes() {
+        final int processors = Math.min(Runtime.getRuntime().availableProcessors(), 16);
+        return Integer.highestOneBit(processors * 2 - 1); // nearest power of two not less than processors
+    }
+}
@@ -21,6 +21,7 @@
  */
 package com.comcast.apps.hesperius.ruleengine.parser;
 
+import com.comcast.apps.hesperius.ruleengine.RuleEngine;
 import com.comcast.apps.hesperius.ruleengine.domain.standard.StandardFreeArgType;
 import com.comcast.apps.hesperius.ruleengine.domain.standard.StandardOperation;
 import com.comcast.apps.hesperius.ruleengine.main.api.FixedArg;
@@ -33,198 +34,187 @@ import com.google.common.base.CharMatcher;
 import com.google.common.base.Splitter;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.StringTokenizer;
+import java.util.HashSet;
+import java.util.Set;
 
+/**
+ * Parses expressions like <code>(model IN [X1, X2] OR env IS QA) AND NOT firmwareVersion LIKE "^X1_.*"</code> into a rule.
+ *
+ * Single pass recursive descent over the input: tokens are read one at a time straight from the string,
+ * AND binds tighter than OR, both are left associative. NOT negates the condition of the next operation.
+ * Only space separates words, double quotes and square brackets enclose values taken as is,
+ * value in square brackets of IN operation is split by comma.
+ */
 public class Parser {
-    private String str;
-    private Rule rule;
-    private LinkedList<Token> infixQueue = new LinkedList<>();
-    private LinkedList<Token> postfixQueue = new LinkedList<>();
+    private static final String NOT_OPERATOR = "NOT";
+    private static final Splitter IN_SPLITTER = Splitter.on(',').trimResults(CharMatcher.anyOf(" \""));
+    private static final Set<String> OPERATIONS = new HashSet<>();
+    static {
+        for (Operation operation : RuleEngine.getSupportedOperations()) {
+            OPERATIONS.add(operation.toString());
+        }
+    }
+
+    private enum TokenType {
+        ARG, OPERATION, AND, OR, BRACKET_LEFT, BRACKET_RIGHT, END
+    }
+
+    private final String str;
+    private final Rule rule;
+
+    /* current token */
+    private int position;
+    private TokenType type;
+    private String value;
+    private boolean negated;
+    private boolean pendingNot;
 
     public Parser (String str) {
         this.str = str;
-        rule = parse();
+        next();
+        rule = parseOr();
+        if (type == TokenType.BRACKET_RIGHT) {
+            throw new IllegalStateException("Unexpected right bracket in " + str);
+        }
+        if (type != TokenType.END) {
+            throw new IllegalStateException("Failed to parse expression " + str);
+        }
     }
 
     public Rule getRule() {
         return rule;
     }
 
-    private Rule parse() {
-        tokenize();
-        toPostfix();
-
-        return evaluate();
+    private Rule parseOr() {
+        Rule result = parseAnd();
+        while (type == TokenType.OR) {
+            next();
+            result = buildCompoundRule(result, parseAnd(), Relation.OR);
+        }
+        return result;
     }
 
-    private void tokenize() {
-        StringTokenizer tokenizer = new StringTokenizer(str, Separator.getTokenizerSeparatorsCharset(), true);
-        while (tokenizer.hasMoreTokens()) {
-            String current = tokenizer.nextToken();
-            if (Separator.SPACE.value.equals(current))
-                continue;
-
-            if (Separator.ROUND_BRACKET_LEFT.value.equals(current)) {
-                infixQueue.addLast(new Token(Token.TokenType.BRACKET_LEFT));
-            } else if (Separator.ROUND_BRACKET_RIGHT.value.equals(current)) {
-                infixQueue.addLast(new Token(Token.TokenType.BRACKET_RIGHT));
-            } else if (Separator.QUOTE.value.equals(current)) {
-                infixQueue.addLast(new Token(getPhrase(tokenizer, Separator.QUOTE.value), Token.TokenType.ARG));
-            } else if (Separator.SQUARE_BRACKET_LEFT.value.equals(current)) {
-                infixQueue.addLast(new Token(getPhrase(tokenizer, Separator.SQUARE_BRACKET_RIGHT.value), Token.TokenType.ARG));
-            } else if (Token.OperationToken.isOperation(current)) {
-                Token.OperationToken token = new Token.OperationToken(current);
-                infixQueue.addLast(token);
-            } else if (Token.RelationToken.isRelation(current)) {
-                infixQueue.addLast(new Token.RelationToken(current));
-            } else {
-                infixQueue.addLast(new Token(current, Token.TokenType.ARG));
-            }
+    private Rule parseAnd() {
+        Rule result = parsePrimary();
+        while (type == TokenType.AND) {
+            next();
+            result = buildCompoundRule(result, parsePrimary(), Relation.AND);
         }
+        return result;
     }
 
-    private String getPhrase(StringTokenizer tokenizer, String phraseEnd) {
-        StringBuilder value = new StringBuilder();
-        while (tokenizer.hasMoreTokens()) {
-            String innerToken = tokenizer.nextToken();
-            if (phraseEnd.equals(innerToken)) {
-                break;
+    private Rule parsePrimary() {
+        if (type == TokenType.BRACKET_LEFT) {
+            next();
+            final Rule result = parseOr();
+            if (type != TokenType.BRACKET_RIGHT) {
+                throw new IllegalStateException("Failed to parse expression " + str);
             }
-            value.append(innerToken);
+            next();
+            return result;
+        }
+        if (type != TokenType.ARG) {
+            throw new IllegalStateException("Failed to parse expression " + str);
+        }
+        final String freeArg = value;
+        next();
+        if (type != TokenType.OPERATION) {
+            throw new IllegalStateException("Failed to parse expression " + str);
         }
-        return value.toString();
+        final Operation operation = Operation.forName(value);
+        final boolean negatedOperation = negated;
+        next();
+        if (type != TokenType.ARG) {
+            throw new IllegalStateException("Failed to parse expression " + str);
+        }
+        final Rule result = buildRule(value, freeArg, operation, negatedOperation);
+        next();
+        return result;
     }
 
-    private void toPostfix() {
-        LinkedList<Token> shuntingStack = new LinkedList<>();
-        LinkedList<Token> queue = new LinkedList<>(infixQueue);
-
-        Token t;
-        boolean isNegatedOperation = false;
-        while (queue.size() > 0) {
-            t = queue.removeFirst();
-            if (t.getType() == Token.TokenType.ARG) {
-                postfixQueue.addLast(t);
-            } else if (t.getType() == Token.TokenType.RELATION) {
-                while (shuntingStack.size() > 0 && shuntingStack.getLast().getPriority() >= t.getPriority()) {
-                    postfixQueue.addLast(shuntingStack.removeLast());
-                }
-                shuntingStack.addLast(t);
-            } else if (t.getType() == Token.TokenType.OPERATION) {
-                if (Token.OperationToken.NOT_OPERATOR.equals(t.getValue())) {
-                    isNegatedOperation = true;
-                } else {
-                    if (isNegatedOperation) {
-                        ((Token.OperationToken)t).setNegated(true);
-                        isNegatedOperation = false;
-                    }
-                    shuntingStack.addLast(t);
-                }
-            } else if (t.getType() == Token.TokenType.BRACKET_LEFT) {
-                shuntingStack.addLast(t);
-            } else if (t.getType() == Token.TokenType.BRACKET_RIGHT) {
-                if (shuntingStack.size() == 0) {
-                    throw new IllegalStateException("Unexpected right bracket in " + str);
-                }
-                while (shuntingStack.getLast().getType() != Token.TokenType.BRACKET_LEFT) {
-                    postfixQueue.addLast(shuntingStack.removeLast());
-
-                    if (shuntingStack.size() == 0) {
-                        throw new IllegalStateException("Unexpected right bracket in " + str);
-                    }
-                }
-                shuntingStack.removeLast();
+    /**
+     * Reads next token into type and value. NOT is not a token, it marks the next operation as negated.
+     */
+    private void next() {
+        while (true) {
+            while (position < str.length() && str.charAt(position) == ' ') {
+                position++;
             }
-        }
-
-        while (shuntingStack.size() > 0) {
-            if (shuntingStack.getLast().getType() != Token.TokenType.OPERATION
-                    && shuntingStack.getLast().getType() != Token.TokenType.RELATION) {
-                throw new IllegalStateException("Failed to parse expression " + str);
+            if (position == str.length()) {
+                type = TokenType.END;
+                return;
+            }
+            final char c = str.charAt(position);
+            if (c == '(' || c == ')') {
+                position++;
+                type = (c == '(') ? TokenType.BRACKET_LEFT : TokenType.BRACKET_RIGHT;
+                return;
+            }
+            if (c == ']') {
+                position++;
+                type = TokenType.ARG;
+                value = "]";
+                return;
+            }
+            if (c == '"' || c == '[') {
+                final int end = str.indexOf(c == '"' ? '"' : ']', position + 1);
+                value = str.substring(position + 1, end >= 0 ? end : str.length());
+                position = end >= 0 ? end + 1 : str.length();
+                type = TokenType.ARG;
+                return;
+            }
+            final int start = position;
+            while (position < str.length() && !isSeparator(str.charAt(position))) {
+                position++;
+            }
+            final String word = str.substring(start, position);
+            final String upperCase = word.toUpperCase();
+            if (NOT_OPERATOR.equals(upperCase)) {
+                pendingNot = true;
+            } else if (OPERATIONS.contains(upperCase)) {
+                type = TokenType.OPERATION;
+                value = upperCase;
+                negated = pendingNot;
+                pendingNot = false;
+                return;
+            } else if (Relation.AND.name().equals(upperCase)) {
+                type = TokenType.AND;
+                return;
+            } else if (Relation.OR.name().equals(upperCase)) {
+                type = TokenType.OR;
+                return;
             } else {
-                postfixQueue.addLast(shuntingStack.removeLast());
+                type = TokenType.ARG;
+                value = word;
+                return;
             }
         }
     }
 
-    private Rule evaluate() {
-        LinkedList<Token> queue = new LinkedList<>(postfixQueue);
-        LinkedList<String> args = new LinkedList<>();
-        LinkedList<Rule> rules = new LinkedList<>();
-        Token token;
-        while (queue.size() > 0) {
-            token = queue.removeFirst();
-            if (token.getType() == Token.TokenType.ARG) {
-                args.addLast(token.getValue());
-            } else if (token.getType() == Token.TokenType.RELATION) {
-                Rule right = rules.removeLast();
-                Rule left = rules.removeLast();
-
-                rules.addLast(buildCompoundRule(left, right, token));
-            } else if (token.getType() == Token.TokenType.OPERATION) {
-                String fixedArg = args.removeLast();
-                String freeArg = args.removeLast();
-
-                rules.addLast(buildRule(fixedArg, freeArg, (Token.OperationToken)token));
-            }
-        }
-
-        if (rules.size() != 1) {
-            throw new IllegalStateException("Failed to parse rule " + str);
-        }
-
-        return rules.getLast();
+    private static boolean isSeparator(char c) {
+        return c == ' ' || c == '(' || c == ')' || c == '"' || c == '[' || c == ']';
     }
 
-    private Rule buildRule(String fixedArg, String freeArg, Token.OperationToken operationToken) {
+    private Rule buildRule(String fixedArg, String freeArg, Operation operation, boolean negated) {
         Rule rule = new Rule();
-        Operation operation = Operation.forName(operationToken.getValue());
         FixedArg fixedArgument = (operation.equals(StandardOperation.IN))
-                ? FixedArg.from(Splitter.on(",").trimResults(CharMatcher.anyOf(Separator.getTrimCharset())).splitToList(fixedArg))
+                ? FixedArg.from(IN_SPLITTER.splitToList(fixedArg))
                 : FixedArg.from(fixedArg);
         rule.setCondition(
                 new Condition(
                         new FreeArg(StandardFreeArgType.STRING, freeArg), operation, fixedArgument));
-        rule.setNegated(operationToken.isNegated());
+        rule.setNegated(negated);
 
         return rule;
     }
 
-    private Rule buildCompoundRule(Rule left, Rule right, Token relation) {
+    private Rule buildCompoundRule(Rule left, Rule right, Relation relation) {
         Rule compound = new Rule();
-        compound.setCompoundParts(new ArrayList<Rule>());
+        compound.setCompoundParts(new ArrayList<Rule>(2));
         compound.getCompoundParts().add(left);
         compound.getCompoundParts().add(right);
-        right.setRelation(Relation.valueOf(relation.getValue()));
+        right.setRelation(relation);
 
         return compound;
     }
-
-    private static enum Separator {
-        ROUND_BRACKET_LEFT("("), ROUND_BRACKET_RIGHT(")"), QUOTE("\""), SQUARE_BRACKET_LEFT("["), SQUARE_BRACKET_RIGHT("]"), SPACE(" ");
-
-        private String value;
-        private Separator(String value) {
-            this.value = value;
-        }
-
-        private static String getTrimCharset() {
-            return SPACE.value + QUOTE.value;
-        }
-
-        private static String getTokenizerSeparatorsCharset() {
-            StringBuilder sb = new StringBuilder();
-            for (Separator item : Separator.values()) {
-                sb.append(item);
-            }
-            return sb.toString();
-        }
-
-        @Override
-        public String toString() {
-            return value;
-        }
-    }
 }
-
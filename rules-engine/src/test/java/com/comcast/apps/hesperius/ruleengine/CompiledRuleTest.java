@@ -0,0 +1,199 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.apps.hesperius.ruleengine;
+
+import com.comcast.apps.hesperius.ruleengine.domain.additional.AuxFreeArgType;
+import com.comcast.apps.hesperius.ruleengine.domain.additional.data.MacAddress;
+import com.comcast.apps.hesperius.ruleengine.domain.standard.StandardFreeArgType;
+import com.comcast.apps.hesperius.ruleengine.domain.standard.StandardOperation;
+import com.comcast.apps.hesperius.ruleengine.main.api.FixedArg;
+import com.comcast.apps.hesperius.ruleengine.main.api.FreeArg;
+import com.comcast.apps.hesperius.ruleengine.main.api.IRuleProcessor;
+import com.comcast.apps.hesperius.ruleengine.main.api.Operation;
+import com.comcast.apps.hesperius.ruleengine.main.api.Relation;
+import com.comcast.apps.hesperius.ruleengine.main.api.RuleValidationException;
+import com.comcast.apps.hesperius.ruleengine.main.impl.CompiledRule;
+import com.comcast.apps.hesperius.ruleengine.main.impl.Condition;
+import com.comcast.apps.hesperius.ruleengine.main.impl.EvaluationSession;
+import com.comcast.apps.hesperius.ruleengine.main.impl.Rule;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class CompiledRuleTest {
+
+    private static final Relation[] RELATIONS = {Relation.AND, Relation.OR, null};
+
+    private IRuleProcessor<Condition, Rule> processor = RuleEngine.getRuleProcessor();
+
+    private Map<String, String> context = ImmutableMap.of("model", "X1", "env", "QA");
+
+    @Test
+    public void compiledRuleMatchesTreeEvaluation() {
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            Rule rule = randomRule(random, 3);
+            CompiledRule<Rule> compiled = processor.compile(rule);
+            Assert.assertEquals("rule #" + i, processor.evaluate(rule, context), processor.evaluate(compiled, context));
+        }
+    }
+
+    @Test
+    public void compiledRuleIsCachedByIdentity() {
+        Rule rule = Rule.Builder.of(condition("model", "X1")).and(condition("env", "QA")).build();
+        Assert.assertSame(processor.getCompiled(rule), processor.getCompiled(rule));
+        Assert.assertNotSame(processor.getCompiled(rule), processor.getCompiled(Rule.Builder.of(rule).build()));
+        Assert.assertEquals(2, processor.getCompiled(rule).size());
+        Assert.assertTrue(processor.evaluate(processor.getCompiled(rule), context));
+    }
+
+    @Test
+    public void inConditionsAreEvaluatedOnPreparedValues() {
+        Rule stringIn = rule(new Condition(new FreeArg(StandardFreeArgType.STRING, "model"), StandardOperation.IN,
+                FixedArg.from(Arrays.asList("X0", "X1", "X2"))));
+        Rule longIn = rule(new Condition(new FreeArg(StandardFreeArgType.LONG, "age"), StandardOperation.IN,
+                FixedArg.from(Arrays.asList(1L, 25L))));
+        Rule macIn = rule(new Condition(new FreeArg(AuxFreeArgType.MAC_ADDRESS, "mac"), StandardOperation.IN,
+                FixedArg.from(Arrays.<Object>asList(MacAddress.parse("00:00:00:00:00:00"),
+                        Collections.singletonMap("key", MacAddress.parse("AA:BB:CC:DD:EE:FF"))))));
+
+        for (Map<String, String> context : Arrays.<Map<String, String>>asList(
+                ImmutableMap.of("model", "X1", "age", "25", "mac", "aa-bb-cc-dd-ee-ff"),
+                ImmutableMap.of("model", "X3", "age", "26", "mac", "00:00:00:00:00:00"),
+                ImmutableMap.of("model", "x1", "age", "1", "mac", "11:BB:CC:DD:EE:FF"))) {
+            for (Rule rule : Arrays.asList(stringIn, longIn, macIn)) {
+                Assert.assertEquals(processor.evaluate(rule, context), processor.evaluate(processor.compile(rule), context));
+            }
+        }
+        Assert.assertTrue(processor.evaluate(processor.compile(macIn), ImmutableMap.of("mac", "AABBCCDDEEFF")));
+        Assert.assertFalse(processor.evaluate(processor.compile(stringIn), ImmutableMap.of("model", "X3")));
+    }
+
+    @Test
+    public void longComparisonsAreEvaluatedOnPreparedValues() {
+        for (Object fixedArg : Arrays.<Object>asList(10L, 10, "10")) {
+            for (Operation operation : Arrays.asList(StandardOperation.IS, StandardOperation.GT, StandardOperation.GTE,
+                    StandardOperation.LT, StandardOperation.LTE)) {
+                Rule rule = rule(new Condition(new FreeArg(StandardFreeArgType.LONG, "age"), operation, FixedArg.from(fixedArg)));
+                for (String age : Arrays.asList("9", "10", "11", "-10", "abc")) {
+                    Map<String, String> context = ImmutableMap.of("age", age);
+                    Assert.assertEquals(operation + " " + fixedArg + " " + age, processor.evaluate(rule, context),
+                            processor.evaluate(processor.compile(rule), context));
+                }
+            }
+        }
+        Assert.assertTrue(processor.evaluate(processor.compile(rule(new Condition(new FreeArg(StandardFreeArgType.LONG, "age"),
+                StandardOperation.GT, FixedArg.from("10")))), ImmutableMap.of("age", "11")));
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void invalidLongFixedArgFailsOnEvaluation() {
+        Rule rule = rule(new Condition(new FreeArg(StandardFreeArgType.LONG, "age"), StandardOperation.GT, FixedArg.from("ten")));
+        processor.evaluate(processor.compile(rule), ImmutableMap.of("age", "11"));
+    }
+
+    @Test
+    public void sessionEvaluationMatchesContextEvaluation() {
+        Random random = new Random(43);
+        EvaluationSession session = new EvaluationSession(context);
+        List<CompiledRule<Rule>> compiledRules = new ArrayList<CompiledRule<Rule>>(); // slots live as long as compiled rules
+        for (int i = 0; i < 5000; i++) {
+            CompiledRule<Rule> compiled = processor.compile(randomRule(random, 3));
+            compiledRules.add(compiled);
+            Assert.assertEquals("rule #" + i, processor.evaluate(compiled, context), processor.evaluate(compiled, session));
+        }
+        Assert.assertEquals(2, session.size());
+    }
+
+    @Test
+    public void sessionSharesResultsOfEqualConditions() {
+        Rule first = Rule.Builder.of(condition("model", "X1")).and(condition("env", "QA")).build();
+        Rule second = Rule.Builder.of(condition("env", "QA")).and(condition("model", "X2")).build();
+        CompiledRule<Rule> compiledFirst = processor.compile(first);
+        CompiledRule<Rule> compiledSecond = processor.compile(second);
+        EvaluationSession session = new EvaluationSession(context);
+
+        Assert.assertTrue(processor.evaluate(compiledFirst, session));
+        Assert.assertFalse(processor.evaluate(compiledSecond, session));
+        Assert.assertEquals(3, session.size());
+        Assert.assertEquals(1, session.getHits());
+    }
+
+    @Test
+    public void randomConditionsAreNeitherSharedNorMemoized() {
+        CompiledRule<Rule> first = processor.compile(rule(percent(50.0)));
+        CompiledRule<Rule> second = processor.compile(rule(percent(50.0)));
+        boolean differ = false;
+        boolean repeatDiffers = false;
+        for (int i = 0; i < 200; i++) {
+            EvaluationSession session = new EvaluationSession(context);
+            boolean result = processor.evaluate(first, session);
+            differ |= result != processor.evaluate(second, session);
+            repeatDiffers |= result != processor.evaluate(first, session);
+            Assert.assertEquals(0, session.size());
+        }
+        Assert.assertTrue(differ);
+        Assert.assertTrue(repeatDiffers);
+    }
+
+    @Test(expected = RuleValidationException.class)
+    public void compileFailsOnInvalidRule() {
+        Rule rule = new Rule();
+        rule.setCompoundParts(Collections.<Rule>emptyList());
+        processor.compile(rule);
+    }
+
+    private Rule randomRule(Random random, int depth) {
+        Rule rule = new Rule();
+        rule.setNegated(random.nextBoolean());
+        if (depth == 0 || random.nextInt(3) == 0) {
+            rule.setCondition(new Condition(new FreeArg(StandardFreeArgType.VOID, ""), StandardOperation.IS, FixedArg.from(random.nextBoolean())));
+            return rule;
+        }
+        rule.setCompoundParts(new ArrayList<Rule>());
+        int size = 1 + random.nextInt(5);
+        for (int i = 0; i < size; i++) {
+            Rule part = randomRule(random, depth - 1);
+            if (i > 0) {
+                part.setRelation(RELATIONS[random.nextInt(RELATIONS.length)]);
+            }
+            rule.getCompoundParts().add(part);
+        }
+        return rule;
+    }
+
+    private Rule rule(Condition condition) {
+        return Rule.Builder.of(condition).build();
+    }
+
+    private Condition percent(double percent) {
+        return new Condition(new FreeArg(StandardFreeArgType.VOID, ""), StandardOperation.PERCENT, FixedArg.from(percent));
+    }
+
+    private Condition condition(String name, String value) {
+        return new Condition(new FreeArg(StandardFreeArgType.STRING, name), StandardOperation.IS, FixedArg.from(value));
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.apps.hesperius.ruleengine;
+
+import com.comcast.apps.hesperius.ruleengine.domain.additional.AuxFreeArgType;
+import com.comcast.apps.hesperius.ruleengine.domain.additional.data.IpAddress;
+import com.comcast.apps.hesperius.ruleengine.domain.additional.data.IpAddressGroup;
+import com.comcast.apps.hesperius.ruleengine.domain.additional.data.MacAddress;
+import com.comcast.apps.hesperius.ruleengine.domain.additional.data.Time;
+import com.comcast.apps.hesperius.ruleengine.domain.standard.StandardOperation;
+import com.comcast.apps.hesperius.ruleengine.main.api.EvaluationContext;
+import com.comcast.apps.hesperius.ruleengine.main.api.FixedArg;
+import com.comcast.apps.hesperius.ruleengine.main.api.FreeArg;
+import com.comcast.apps.hesperius.ruleengine.main.api.FreeArgType;
+import com.comcast.apps.hesperius.ruleengine.main.api.IRuleProcessor;
+import com.comcast.apps.hesperius.ruleengine.main.api.Operation;
+import com.comcast.apps.hesperius.ruleengine.main.impl.Condition;
+import com.comcast.apps.hesperius.ruleengine.main.impl.Rule;
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class EvaluationContextTest {
+
+    private IRuleProcessor<Condition, Rule> processor = RuleEngine.getRuleProcessor();
+
+    @Test
+    public void typedEvaluationMatchesMapEvaluation() {
+        IpAddressGroup group = new IpAddressGroup();
+        group.setIpAddresses(Sets.newHashSet(new IpAddress("10.0.0.0/8"), new IpAddress("192.168.1.1"), new IpAddress("2001:db8::/32")));
+        List<Rule> rules = Arrays.asList(
+                rule(AuxFreeArgType.IP_ADDRESS, "ip", StandardOperation.IN, group),
+                rule(AuxFreeArgType.IP_ADDRESS, "ip", StandardOperation.IS, new IpAddress("192.168.1.1")),
+                rule(AuxFreeArgType.MAC_ADDRESS, "mac", StandardOperation.IS, MacAddress.parse("AA:BB:CC:DD:EE:FF")),
+                rule(AuxFreeArgType.MAC_ADDRESS, "mac", StandardOperation.LIKE, "AA:BB:.*"),
+                rule(AuxFreeArgType.MAC_ADDRESS, "mac", StandardOperation.IN, Arrays.asList(MacAddress.parse("00:00:00:00:00:01"))),
+                rule(AuxFreeArgType.TIME, "time", StandardOperation.GTE, Time.parse("10:00:00")));
+
+        for (Map<String, String> context : Arrays.<Map<String, String>>asList(
+                ImmutableMap.of("ip", "10.1.2.3", "mac", "aa-bb-cc-dd-ee-ff", "time", "11:00:00"),
+                ImmutableMap.of("ip", "192.168.1.1", "mac", "00:00:00:00:00:01", "time", "09:59:59"),
+                ImmutableMap.of("ip", "2001:db8::1", "mac", "AABBCCDDEEFF", "time", "10:00:00"),
+                ImmutableMap.of("ip", "172.16.0.1", "mac", "AA:BB:00:00:00:00", "time", "23:00:00"))) {
+            EvaluationContext typed = EvaluationContext.of(context);
+            for (Rule rule : rules) {
+                boolean expected = processor.evaluate(rule, context);
+                Assert.assertEquals(rule + " " + context, expected, processor.evaluate(processor.compile(rule), typed));
+                Assert.assertEquals(rule + " " + context, expected, processor.evaluate(processor.compile(rule), typed));
+            }
+        }
+    }
+
+    @Test
+    public void invalidIpIsNotInRange() {
+        IpAddressGroup group = new IpAddressGroup();
+        group.setIpAddresses(Collections.singleton(new IpAddress("10.0.0.0/8")));
+        Rule rule = rule(AuxFreeArgType.IP_ADDRESS, "ip", StandardOperation.IN, group);
+        for (String ip : Arrays.asList("invalid", "10.0.0.0/8", "10.0.0.300")) {
+            Map<String, String> context = Collections.singletonMap("ip", ip);
+            Assert.assertFalse(processor.evaluate(rule, context));
+            Assert.assertFalse(processor.evaluate(processor.compile(rule), EvaluationContext.of(context)));
+        }
+    }
+
+    @Test
+    public void conversionIsCachedPerConverterAndName() {
+        final int[] calls = {0};
+        Function<String, Integer> converter = new Function<String, Integer>() {
+            @Override
+            public Integer apply(String input) {
+                calls[0]++;
+                return input.startsWith("-") ? null : Integer.valueOf(input.length());
+            }
+        };
+        EvaluationContext context = EvaluationContext.of(ImmutableMap.of("a", "xyz", "b", "-"));
+
+        Assert.assertEquals(Integer.valueOf(3), context.get("a", converter));
+        Assert.assertEquals(Integer.valueOf(3), context.get("a", converter));
+        Assert.assertNull(context.get("b", converter));
+        Assert.assertNull(context.get("b", converter));
+        Assert.assertNull(context.get("c", converter));
+        Assert.assertEquals(2, calls[0]);
+    }
+
+    @Test
+    public void normalizedContextTrimsValues() {
+        EvaluationContext context = EvaluationContext.normalized(ImmutableMap.of("model", " X1 ", "env", "QA"));
+        Assert.assertEquals("X1", context.get("model"));
+        Assert.assertEquals("QA", context.get("env"));
+        Assert.assertEquals(2, context.asMap().size());
+    }
+
+    @Test
+    public void builtContextReturnsGivenTypedValue() {
+        Function<String, Integer> converter = new Function<String, Integer>() {
+            @Override
+            public Integer apply(String input) {
+                return Integer.valueOf(input.trim());
+            }
+        };
+        EvaluationContext context = EvaluationContext.builder()
+                .put("a", " 1 ", converter, 100)
+                .put("b", "2", converter, 200)
+                .put("b", " 3 ")
+                .put("c", null)
+                .build();
+
+        Assert.assertEquals("1", context.get("a"));
+        Assert.assertEquals(Integer.valueOf(100), context.get("a", converter));
+        Assert.assertEquals("3", context.get("b"));
+        Assert.assertEquals(Integer.valueOf(3), context.get("b", converter));
+        Assert.assertNull(context.get("c", converter));
+        Assert.assertEquals(3, context.asMap().size());
+    }
+
+    private Rule rule(FreeArgType type, String name, Operation operation, Object fixedArg) {
+        return Rule.Builder.of(new Condition(new FreeArg(type, name), operation, FixedArg.from(fixedArg))).build();
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.apps.hesperius.ruleengine;
+
+import com.comcast.apps.hesperius.ruleengine.domain.standard.StandardFreeArgType;
+import com.comcast.apps.hesperius.ruleengine.domain.standard.StandardOperation;
+import com.comcast.apps.hesperius.ruleengine.main.api.FixedArg;
+import com.comcast.apps.hesperius.ruleengine.main.api.FreeArg;
+import com.comcast.apps.hesperius.ruleengine.main.api.IRuleProcessor;
+import com.comcast.apps.hesperius.ruleengine.main.api.Relation;
+import com.comcast.apps.hesperius.ruleengine.main.impl.Condition;
+import com.comcast.apps.hesperius.ruleengine.main.impl.Rule;
+import com.comcast.apps.hesperius.ruleengine.main.impl.RuleIndex;
+import com.google.common.base.Functions;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class RuleIndexTest {
+
+    private static final Relation[] RELATIONS = {Relation.AND, Relation.AND, Relation.OR, null};
+    private static final String[] NAMES = {"model", "env", "firmwareVersion"};
+    private static final String[] VALUES = {"A", "B", "C", "D"};
+
+    private IRuleProcessor<Condition, Rule> processor = RuleEngine.getRuleProcessor();
+
+    @Test
+    public void candidatesContainEveryMatchingRuleInOriginalOrder() {
+        Random random = new Random(11);
+        List<Rule> rules = new ArrayList<Rule>();
+        for (int i = 0; i < 3000; i++) {
+            rules.add(randomRule(random, 3));
+        }
+        RuleIndex<Rule> index = RuleIndex.build(rules, Functions.<Rule>identity(), "model", "env");
+        Assert.assertTrue(index.getRemainderSize() < rules.size());
+
+        for (int i = 0; i < 100; i++) {
+            Map<String, String> context = ImmutableMap.of("model", VALUES[random.nextInt(VALUES.length)],
+                    "env", VALUES[random.nextInt(VALUES.length)], "firmwareVersion", VALUES[random.nextInt(VALUES.length)]);
+            List<Rule> candidates = index.getCandidates(context);
+            List<Rule> expected = new ArrayList<Rule>();
+            for (Rule rule : rules) {
+                if (processor.evaluate(rule, context)) {
+                    expected.add(rule);
+                }
+            }
+            List<Rule> matched = new ArrayList<Rule>();
+            int previous = -1;
+            for (Rule candidate : candidates) {
+                int position = indexOf(rules, candidate);
+                Assert.assertTrue(position > previous);
+                previous = position;
+                if (processor.evaluate(candidate, context)) {
+                    matched.add(candidate);
+                }
+            }
+            Assert.assertEquals(expected, matched);
+            Assert.assertTrue(candidates.size() < rules.size());
+        }
+    }
+
+    @Test
+    public void onlyMandatoryConditionsAreIndexed() {
+        Rule modelAndEnv = Rule.Builder.of(condition("model", "A")).and(condition("env", "QA")).build();
+        Rule modelOrEnv = Rule.Builder.of(condition("model", "A")).or(condition("env", "QA")).build();
+        Rule negatedModel = Rule.Builder.of(condition("model", "A")).build();
+        negatedModel.setNegated(true);
+        Rule modelIn = Rule.Builder.of(new Condition(new FreeArg(StandardFreeArgType.STRING, "model"), StandardOperation.IN,
+                FixedArg.from(Arrays.asList("B", "C")))).build();
+        List<Rule> rules = Arrays.asList(modelAndEnv, modelOrEnv, negatedModel, modelIn);
+        RuleIndex<Rule> index = RuleIndex.build(rules, Functions.<Rule>identity(), "model");
+
+        Assert.assertEquals(2, index.getRemainderSize());
+        Assert.assertEquals(Arrays.asList(modelAndEnv, modelOrEnv, negatedModel), index.getCandidates(ImmutableMap.of("model", "A")));
+        Assert.assertEquals(Arrays.asList(modelOrEnv, negatedModel, modelIn), index.getCandidates(ImmutableMap.of("model", "C")));
+        Assert.assertEquals(Arrays.asList(modelOrEnv, negatedModel), index.getCandidates(ImmutableMap.<String, String>of()));
+    }
+
+    private int indexOf(List<Rule> rules, Rule rule) {
+        for (int i = 0; i < rules.size(); i++) {
+            if (rules.get(i) == rule) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private Rule randomRule(Random random, int depth) {
+        Rule rule = new Rule();
+        rule.setNegated(random.nextInt(5) == 0);
+        if (depth == 0 || random.nextInt(3) == 0) {
+            String name = NAMES[random.nextInt(NAMES.length)];
+            if (random.nextBoolean()) {
+                rule.setCondition(condition(name, VALUES[random.nextInt(VALUES.length)]));
+            } else {
+                rule.setCondition(new Condition(new FreeArg(StandardFreeArgType.STRING, name), StandardOperation.IN,
+                        FixedArg.from(Arrays.asList(VALUES[random.nextInt(VALUES.length)], VALUES[random.nextInt(VALUES.length)]))));
+            }
+            return rule;
+        }
+        rule.setCompoundParts(new ArrayList<Rule>());
+        int size = 1 + random.nextInt(4);
+        for (int i = 0; i < size; i++) {
+            Rule part = randomRule(random, depth - 1);
+            if (i > 0) {
+                part.setRelation(RELATIONS[random.nextInt(RELATIONS.length)]);
+            }
+            rule.getCompoundParts().add(part);
+        }
+        return rule;
+    }
+
+    private Condition condition(String name, String value) {
+        return new Condition(new FreeArg(StandardFreeArgType.STRING, name), StandardOperation.IS, FixedArg.from(value));
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.apps.hesperius.ruleengine.domain;
+
+import com.google.common.base.Strings;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.regex.PatternSyntaxException;
+
+public class PatternCacheTest {
+
+    @Test
+    public void compiledPatternIsReused() {
+        PatternCache cache = new PatternCache(new RuleEngineConfig());
+
+        Assert.assertTrue(cache.matches("X1-1", "X1.*"));
+        Assert.assertFalse(cache.matches("XG1", "X1.*"));
+        Assert.assertSame(cache.getPattern("X1.*"), cache.getPattern("X1.*"));
+
+        Assert.assertEquals(1, cache.getStats().missCount());
+        Assert.assertEquals(3, cache.getStats().hitCount());
+    }
+
+    @Test
+    public void matchExceedingLimitIsAborted() {
+        RuleEngineConfig config = new RuleEngineConfig();
+        config.setPatternMatchLimit(20);
+        PatternCache cache = new PatternCache(config);
+
+        // any engine reads each char of the input at least once to match all of it
+        Assert.assertFalse(cache.matches(Strings.repeat("a", 100), "a*"));
+        Assert.assertEquals(1, cache.getAbortedMatches());
+        Assert.assertTrue(cache.matches("aab", "a+b"));
+        Assert.assertEquals(1, cache.getAbortedMatches());
+    }
+
+    @Test(expected = PatternSyntaxException.class)
+    public void invalidPatternFails() {
+        new PatternCache(new RuleEngineConfig()).matches("value", "[a-");
+    }
+}
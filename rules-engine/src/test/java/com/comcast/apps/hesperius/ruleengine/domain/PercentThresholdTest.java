@@ -0,0 +1,109 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.apps.hesperius.ruleengine.domain;
+
+import com.comcast.apps.hesperius.ruleengine.RuleEngine;
+import com.comcast.apps.hesperius.ruleengine.domain.standard.StandardFreeArgType;
+import com.comcast.apps.hesperius.ruleengine.domain.standard.StandardOperation;
+import com.comcast.apps.hesperius.ruleengine.main.api.EvaluationContext;
+import com.comcast.apps.hesperius.ruleengine.main.api.FixedArg;
+import com.comcast.apps.hesperius.ruleengine.main.api.FreeArg;
+import com.comcast.apps.hesperius.ruleengine.main.api.FreeArgType;
+import com.comcast.apps.hesperius.ruleengine.main.api.IRuleProcessor;
+import com.comcast.apps.hesperius.ruleengine.main.impl.Condition;
+import com.comcast.apps.hesperius.ruleengine.main.impl.Rule;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hashing;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.Random;
+
+public class PercentThresholdTest {
+
+    private static final double[] PERCENTS = {0, 100, -1, 101, Double.NaN, 50, 0.001, 33.3, 99.999, 1e-20, 100 - 1e-13};
+
+    @Test
+    public void hashIsSipHash24() {
+        Random random = new Random(11);
+        char[] alphabet = "aZ09:-_. \u00e9\u0416\u20ac\ud83d\ude00\ud800\udc00".toCharArray();
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder builder = new StringBuilder();
+            int length = random.nextInt(40);
+            for (int j = 0; j < length; j++) {
+                builder.append(alphabet[random.nextInt(alphabet.length)]); // includes unpaired surrogates
+            }
+            String value = builder.toString();
+            Assert.assertEquals(value, Hashing.sipHash24().hashString(value, Charsets.UTF_8).asLong(), PercentThreshold.hash(value));
+            long number = random.nextLong();
+            Assert.assertEquals(Hashing.sipHash24().hashLong(number).asLong(), PercentThreshold.hash(number));
+        }
+    }
+
+    @Test
+    public void thresholdMatchesDoubleComparison() {
+        Random random = new Random(12);
+        double[] percents = new double[PERCENTS.length + 200];
+        System.arraycopy(PERCENTS, 0, percents, 0, PERCENTS.length);
+        for (int i = PERCENTS.length; i < percents.length; i++) {
+            percents[i] = random.nextDouble() * 100;
+        }
+        for (double percent : percents) {
+            PercentThreshold threshold = PercentThreshold.of(percent);
+            long boundary = (long) (percent / 100 * 18446744073709551616.0 - 9223372036854775808.0);
+            for (int i = -1000; i <= 1000; i++) {
+                assertSameBucket(threshold, boundary + i);
+                assertSameBucket(threshold, Long.MIN_VALUE + i + 1000);
+                assertSameBucket(threshold, Long.MAX_VALUE - i - 1000);
+                assertSameBucket(threshold, random.nextLong());
+            }
+        }
+    }
+
+    @Test
+    public void preparedPercentConditionKeepsBuckets() {
+        IRuleProcessor<Condition, Rule> processor = RuleEngine.getRuleProcessor();
+        Random random = new Random(13);
+        for (int i = 0; i < 200; i++) {
+            double percent = random.nextDouble() * 100;
+            Rule stringPercent = rule(StandardFreeArgType.STRING, percent);
+            Rule longPercent = rule(StandardFreeArgType.LONG, percent);
+            for (int j = 0; j < 50; j++) {
+                String mac = String.format("%012X", random.nextLong() & 0xFFFFFFFFFFFFL);
+                String account = String.valueOf(random.nextLong());
+                Map<String, String> context = ImmutableMap.of("key", mac);
+                Assert.assertEquals(RuleUtils.fitsPercent(mac, percent), processor.evaluate(processor.compile(stringPercent), context));
+                Assert.assertEquals(RuleUtils.fitsPercent(mac, percent), processor.evaluate(stringPercent, context));
+                Assert.assertEquals(RuleUtils.fitsPercent(Long.valueOf(account), percent),
+                        processor.evaluate(processor.compile(longPercent), EvaluationContext.of(ImmutableMap.of("key", account))));
+            }
+        }
+        Assert.assertFalse(processor.evaluate(processor.compile(rule(StandardFreeArgType.LONG, 100)), ImmutableMap.of("key", "x")));
+    }
+
+    private static void assertSameBucket(PercentThreshold threshold, long hash) {
+        Assert.assertEquals(threshold.getPercent() + " " + hash, PercentThreshold.fits(hash, threshold.getPercent()), threshold.fits(hash));
+    }
+
+    private static Rule rule(FreeArgType type, double percent) {
+        return Rule.Builder.of(new Condition(new FreeArg(type, "key"), StandardOperation.PERCENT, FixedArg.from(percent))).build();
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.apps.hesperius.ruleengine.domain.additional.data;
+
+import com.google.common.collect.Sets;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+public class IpAddressGroupTest {
+
+    @Test
+    public void indexMatchesLinearScan() {
+        Random random = new Random(7);
+        for (int i = 0; i < 200; i++) {
+            Set<IpAddress> addresses = new HashSet<IpAddress>();
+            int size = random.nextInt(50);
+            for (int j = 0; j < size; j++) {
+                addresses.add(new IpAddress(randomAddress(random, true)));
+            }
+            IpAddressGroup group = new IpAddressGroup();
+            group.setIpAddresses(addresses);
+            for (int j = 0; j < 200; j++) {
+                IpAddress address = new IpAddress(randomAddress(random, random.nextInt(4) == 0));
+                Assert.assertEquals(address.toString(), IpAddress.isInRange(address, addresses), group.isInRange(address));
+                if (!address.isCidrBlock()) {
+                    Assert.assertEquals(address.toString(), IpAddress.isInRange(address, addresses), group.isInRange(address.toString()));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void subnetSpanningAdjacentBlocksIsNotInRange() {
+        IpAddressGroup group = new IpAddressGroup();
+        group.setIpAddresses(Sets.newHashSet(new IpAddress("10.0.0.0/25"), new IpAddress("10.0.0.128/25")));
+        Assert.assertTrue(group.isInRange(new IpAddress("10.0.0.128/26")));
+        Assert.assertFalse(group.isInRange(new IpAddress("10.0.0.0/24")));
+        Assert.assertTrue(group.isInRange("10.0.0.255"));
+        Assert.assertFalse(group.isInRange("10.0.1.0", "bad address", null));
+    }
+
+    @Test
+    public void indexFollowsAddressChanges() {
+        IpAddressGroup group = new IpAddressGroup();
+        Assert.assertFalse(group.isInRange("10.0.0.1"));
+        group.getIpAddresses().add(new IpAddress("10.0.0.0/8"));
+        Assert.assertTrue(group.isInRange("10.0.0.1"));
+        group.setIpAddresses(Sets.newHashSet(new IpAddress("2001:db8::/32")));
+        Assert.assertFalse(group.isInRange("10.0.0.1"));
+        Assert.assertTrue(group.isInRange("2001:db8::1"));
+        Assert.assertTrue(new IpAddressGroup(group).isInRange("2001:db8:ffff::"));
+    }
+
+    private String randomAddress(Random random, boolean cidr) {
+        if (random.nextInt(5) == 0) {
+            String address = "2001:db8:" + Integer.toHexString(random.nextInt(4)) + "::" + Integer.toHexString(random.nextInt(0x10000));
+            return cidr ? address + "/" + (32 + random.nextInt(97)) : address;
+        }
+        String address = "10." + random.nextInt(2) + "." + random.nextInt(4) + "." + random.nextInt(256);
+        return cidr ? address + "/" + (8 + random.nextInt(25)) : address;
+    }
+}
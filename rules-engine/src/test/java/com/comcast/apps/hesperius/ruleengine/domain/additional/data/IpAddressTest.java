@@ -0,0 +1,78 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.apps.hesperius.ruleengine.domain.additional.data;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IpAddressTest {
+
+    @Test
+    public void cidrBlockBounds() {
+        assertBounds("10.0.0.0/8", "10.0.0.0", "10.255.255.255");
+        assertBounds("1.2.3.4/32", "1.2.3.4", "1.2.3.4");
+        assertBounds("1.2.3.4/0", "0.0.0.0", "255.255.255.255");
+        assertBounds("2001:db8::/32", "2001:db8:0:0:0:0:0:0", "2001:db8:ffff:ffff:ffff:ffff:ffff:ffff");
+        assertBounds("2001:db8::1/64", "2001:db8:0:0:0:0:0:0", "2001:db8:0:0:ffff:ffff:ffff:ffff");
+        assertBounds("2001:db8::1/65", "2001:db8:0:0:0:0:0:0", "2001:db8:0:0:7fff:ffff:ffff:ffff");
+        assertBounds("::/0", "0:0:0:0:0:0:0:0", "ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff");
+    }
+
+    @Test
+    public void isInRange() {
+        IpAddress subnet = new IpAddress("192.168.0.0/16");
+        Assert.assertTrue(subnet.isInRange("192.168.255.255"));
+        Assert.assertTrue(subnet.isInRange(new IpAddress("192.168.1.0/24")));
+        Assert.assertTrue(subnet.isInRange(new IpAddress("192.168.0.0")));
+        Assert.assertFalse(subnet.isInRange("192.169.0.0"));
+        Assert.assertFalse(subnet.isInRange(new IpAddress("192.168.0.0/15")));
+        Assert.assertFalse(subnet.isInRange("192.168.0.256"));
+        Assert.assertFalse(subnet.isInRange((String) null));
+
+        IpAddress ipv6Subnet = new IpAddress("fe80::/10");
+        Assert.assertTrue(ipv6Subnet.isInRange("febf:ffff::1"));
+        Assert.assertFalse(ipv6Subnet.isInRange("fec0::"));
+        Assert.assertTrue(new IpAddress("::ffff:10.0.0.1").isInRange("10.0.0.1"));
+    }
+
+    @Test
+    public void invalidAddresses() {
+        for (String address : new String[] {"", "1.2.3.4/33", "::1/129", "1.2.3.4/-1", "1.2.3.4/x", "1.2.3.4.5", "gg::1"}) {
+            try {
+                new IpAddress(address);
+                Assert.fail(address);
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void compareByLowBound() {
+        Assert.assertTrue(new IpAddress("10.0.0.0/8").compareTo(new IpAddress("10.0.0.1")) < 0);
+        Assert.assertTrue(new IpAddress("255.0.0.0").compareTo(new IpAddress("1.0.0.0")) > 0);
+        Assert.assertTrue(new IpAddress("ffff::").compareTo(new IpAddress("::1")) > 0);
+        Assert.assertEquals(0, new IpAddress("10.0.0.0/8").compareTo(new IpAddress("10.0.0.0")));
+    }
+
+    private void assertBounds(String address, String low, String high) {
+        IpAddress ipAddress = new IpAddress(address);
+        Assert.assertEquals(low, ipAddress.getLowAddress());
+        Assert.assertEquals(high, ipAddress.getHighAddress());
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.apps.hesperius.ruleengine.main.impl;
+
+import com.comcast.apps.hesperius.ruleengine.domain.standard.StandardEvaluators;
+import com.comcast.apps.hesperius.ruleengine.domain.standard.StandardFreeArgType;
+import com.comcast.apps.hesperius.ruleengine.domain.standard.StandardOperation;
+import com.comcast.apps.hesperius.ruleengine.main.api.FixedArg;
+import com.comcast.apps.hesperius.ruleengine.main.api.FreeArg;
+import com.comcast.apps.hesperius.ruleengine.main.api.Operation;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+public class BulkEvaluatorTest {
+
+    private RuleProcessor<Condition, Rule> processor = new RuleProcessor<Condition, Rule>(StandardEvaluators.get(),
+            RuleOptimizer.DISABLED, new RuleProfiler(false, 1), new BulkEvaluator(3));
+
+    private List<Rule> rules = Arrays.asList(
+            Rule.Builder.of(condition("model", StandardOperation.IS, "X1")).and(condition("env", StandardOperation.IS, "QA")).build(),
+            Rule.Builder.of(condition("model", StandardOperation.LIKE, "X.*")).build(),
+            Rule.Builder.of(condition("env", StandardOperation.IN, Arrays.asList("PROD", "QA"))).or(condition("model", StandardOperation.IS, "X3")).build());
+
+    @Test
+    public void resultsMatchSingleContextEvaluationInContextOrder() {
+        Random random = new Random(44);
+        List<Map<String, String>> contexts = new ArrayList<Map<String, String>>();
+        for (int i = 0; i < BulkEvaluator.CHUNK_SIZE * 2 + 17; i++) {
+            contexts.add(ImmutableMap.of("model", "X" + random.nextInt(5), "env", random.nextBoolean() ? "QA" : "DEV"));
+        }
+
+        Iterator<List<Rule>> all = processor.evaluateAll(rules, contexts);
+        Iterator<Rule> first = processor.findAll(rules, contexts);
+        for (Map<String, String> context : contexts) {
+            Assert.assertEquals(Lists.newArrayList(processor.filter(rules, context)), all.next());
+            Assert.assertSame(processor.find(rules, context), first.next());
+        }
+        Assert.assertFalse(all.hasNext());
+        Assert.assertFalse(first.hasNext());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void noContextsGiveNoResults() {
+        Iterator<List<Rule>> results = processor.evaluateAll(rules, Collections.<Map<String, String>>emptyList());
+        Assert.assertFalse(results.hasNext());
+        results.next();
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void evaluationErrorIsRethrownToConsumer() {
+        Rule invalid = Rule.Builder.of(new Condition(new FreeArg(StandardFreeArgType.LONG, "age"), StandardOperation.GT,
+                FixedArg.from("ten"))).build();
+        Iterator<Rule> results = processor.findAll(Collections.singletonList(invalid),
+                Collections.<Map<String, String>>singletonList(ImmutableMap.of("age", "11")));
+        results.next();
+    }
+
+    private static Condition condition(String name, Operation operation, Object value) {
+        return new Condition(new FreeArg(StandardFreeArgType.STRING, name), operation, FixedArg.from(value));
+    }
+}
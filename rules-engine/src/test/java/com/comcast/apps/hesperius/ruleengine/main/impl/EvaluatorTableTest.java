@@ -0,0 +1,80 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.apps.hesperius.ruleengine.main.impl;
+
+import com.comcast.apps.hesperius.ruleengine.domain.additional.AuxEvaluators;
+import com.comcast.apps.hesperius.ruleengine.domain.standard.StandardEvaluators;
+import com.comcast.apps.hesperius.ruleengine.domain.standard.StandardFreeArgType;
+import com.comcast.apps.hesperius.ruleengine.domain.standard.StandardOperation;
+import com.comcast.apps.hesperius.ruleengine.main.api.FreeArgType;
+import com.comcast.apps.hesperius.ruleengine.main.api.IConditionEvaluator;
+import com.comcast.apps.hesperius.ruleengine.main.api.Operation;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EvaluatorTableTest {
+
+    @Test
+    public void tableResolvesSameEvaluatorsAsSource() {
+        Evaluators source = new Evaluators();
+        source.add(StandardEvaluators.get());
+        source.add(AuxEvaluators.get());
+        EvaluatorTable table = EvaluatorTable.of(source);
+
+        int count = 0;
+        for (IConditionEvaluator evaluator : source) {
+            Assert.assertSame(evaluator, table.getEvaluator(evaluator.getFreeArgType(), evaluator.getOperation()));
+            count++;
+        }
+        Assert.assertEquals(count, table.size());
+        Assert.assertNull(table.getEvaluator(StandardFreeArgType.VOID, StandardOperation.LIKE));
+        Assert.assertNull(table.getEvaluator(FreeArgType.forName("UNKNOWN_TYPE"), StandardOperation.IS));
+        Assert.assertNull(table.getEvaluator(StandardFreeArgType.STRING, Operation.forName("UNKNOWN_OPERATION")));
+    }
+
+    @Test
+    public void tableKeepsLookupOverridesOfSource() {
+        EvaluatorTable table = EvaluatorTable.of(StandardEvaluators.get());
+
+        IConditionEvaluator exists = StandardEvaluators.get().getEvaluator(StandardFreeArgType.ANY, StandardOperation.EXISTS);
+        Assert.assertSame(exists, table.getEvaluator(StandardFreeArgType.STRING, StandardOperation.EXISTS));
+        Assert.assertSame(exists, table.getEvaluator(FreeArgType.forName("TYPE_CREATED_AFTER_FREEZING"), StandardOperation.EXISTS));
+        Assert.assertNull(table.getEvaluator(StandardFreeArgType.VOID, StandardOperation.EXISTS));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void tableIsImmutable() {
+        EvaluatorTable.of(StandardEvaluators.get()).add(new Evaluators());
+    }
+
+    @Test
+    public void equalMarkersShareId() throws Exception {
+        Assert.assertSame(StandardOperation.IS, Operation.forName("IS"));
+        Assert.assertSame(StandardFreeArgType.STRING, FreeArgType.forName("STRING"));
+
+        ObjectMapper mapper = new ObjectMapper();
+        Operation deserialized = mapper.readValue("\"IN\"", Operation.class);
+        Assert.assertEquals(StandardOperation.IN, deserialized);
+        Assert.assertEquals(StandardOperation.IN.getId(), deserialized.getId());
+        Assert.assertEquals(StandardFreeArgType.LONG.getId(), mapper.readValue("\"LONG\"", FreeArgType.class).getId());
+        Assert.assertNotEquals(StandardOperation.IS.getId(), StandardOperation.IN.getId());
+        Assert.assertTrue(StandardOperation.IN.getId() < Operation.count());
+    }
+}
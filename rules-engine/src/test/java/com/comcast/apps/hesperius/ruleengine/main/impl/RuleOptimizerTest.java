@@ -0,0 +1,200 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.apps.hesperius.ruleengine.main.impl;
+
+import com.comcast.apps.hesperius.ruleengine.RuleEngine;
+import com.comcast.apps.hesperius.ruleengine.domain.additional.AuxFreeArgType;
+import com.comcast.apps.hesperius.ruleengine.domain.additional.data.MacAddress;
+import com.comcast.apps.hesperius.ruleengine.domain.standard.StandardEvaluators;
+import com.comcast.apps.hesperius.ruleengine.domain.standard.StandardFreeArgType;
+import com.comcast.apps.hesperius.ruleengine.domain.standard.StandardOperation;
+import com.comcast.apps.hesperius.ruleengine.main.api.FixedArg;
+import com.comcast.apps.hesperius.ruleengine.main.api.FreeArg;
+import com.comcast.apps.hesperius.ruleengine.main.api.FreeArgType;
+import com.comcast.apps.hesperius.ruleengine.main.api.IRuleProcessor;
+import com.comcast.apps.hesperius.ruleengine.main.api.Operation;
+import com.comcast.apps.hesperius.ruleengine.main.api.Relation;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class RuleOptimizerTest {
+
+    private static final Relation[] RELATIONS = {Relation.AND, Relation.AND, Relation.OR, Relation.OR, null};
+
+    private static final List<Map<String, String>> RECORDED_CONTEXTS = Arrays.<Map<String, String>>asList(
+            ImmutableMap.of("model", "X1", "env", "PROD", "age", "10", "estbMac", "AA:BB:CC:DD:EE:01"),
+            ImmutableMap.of("model", "X1", "env", "QA", "age", "35", "estbMac", "AA:BB:CC:DD:EE:02"),
+            ImmutableMap.of("model", "X2", "env", "PROD", "age", "abc", "estbMac", "AA:BB:CC:DD:EE:03"),
+            ImmutableMap.of("model", "X3", "env", "DEV", "age", "20", "estbMac", "not a mac"),
+            ImmutableMap.of("model", "X2", "env", "PROD", "estbMac", "AABBCCDDEE01"),
+            ImmutableMap.of("model", "X1", "env", "PROD", "age", "21", "estbMac", ""));
+
+    private final IRuleProcessor<Condition, Rule> reference = RuleEngine.getRuleProcessor();
+    private final StandardEvaluators evaluators = StandardEvaluators.get();
+    private final RuleOptimizer optimizer = new RuleOptimizer(true, 1);
+
+    @Test
+    public void reorderedRulesMatchDeclaredOrderOnRecordedContexts() {
+        RuleProcessor<Condition, Rule> processor = new RuleProcessor<Condition, Rule>(evaluators, optimizer);
+        Random random = new Random(7);
+        List<Rule> rules = new ArrayList<Rule>();
+        for (int i = 0; i < 500; i++) {
+            rules.add(randomRule(random, 3));
+        }
+        for (int round = 0; round < 10; round++) { // let statistics and reoptimization kick in
+            for (Rule rule : rules) {
+                for (Map<String, String> context : RECORDED_CONTEXTS) {
+                    final boolean expected;
+                    try {
+                        expected = reference.evaluate(rule, context);
+                    } catch (RuntimeException e) {
+                        continue; // reordering may only skip a failing condition, never reach one
+                    }
+                    Assert.assertEquals("rule #" + rules.indexOf(rule) + " " + context, expected,
+                            processor.evaluate(processor.getCompiled(rule), context));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void ruleIsReoptimizedOnlyOnce() {
+        RuleProcessor<Condition, Rule> processor = new RuleProcessor<Condition, Rule>(evaluators, optimizer);
+        Rule rule = Rule.Builder.of(is("model", "opt-X1")).and(is("env", "opt-QA")).build();
+        CompiledRule<Rule> compiled = processor.getCompiled(rule);
+        for (int i = 0; i < 10000 && processor.getCompiled(rule) == compiled; i++) {
+            processor.evaluate(processor.getCompiled(rule), RECORDED_CONTEXTS.get(0));
+        }
+        CompiledRule<Rule> reoptimized = processor.getCompiled(rule);
+        Assert.assertNotSame(compiled, reoptimized);
+
+        for (int i = 0; i < 10000; i++) {
+            processor.evaluate(processor.getCompiled(rule), RECORDED_CONTEXTS.get(0));
+        }
+        Assert.assertSame(reoptimized, processor.getCompiled(rule));
+        Assert.assertFalse(reoptimized.isReoptimizationDue());
+    }
+
+    @Test
+    public void cheapConditionsGoFirstInAndRun() {
+        List<Rule> parts = Arrays.asList(
+                percent("model", 50.5),
+                part(Relation.AND, leaf(StandardFreeArgType.STRING, "env", StandardOperation.IN, Arrays.asList("opt-QA", "opt-PROD"))),
+                part(Relation.AND, is("model", "opt-X1")));
+        Assert.assertArrayEquals(new int[]{2, 1, 0}, optimizer.order(parts, evaluators));
+        Assert.assertArrayEquals(new int[]{0, 1, 2}, RuleOptimizer.DISABLED.order(parts, evaluators));
+    }
+
+    @Test
+    public void failingConditionIsNotMovedAhead() {
+        Rule mac = leaf(AuxFreeArgType.MAC_ADDRESS, "estbMac", StandardOperation.IS, MacAddress.parse("AA:BB:CC:DD:EE:FF"));
+        Assert.assertArrayEquals(new int[]{0, 1}, optimizer.order(Arrays.asList(is("model", "opt-X1"), part(Relation.AND, mac)), evaluators));
+        Assert.assertArrayEquals(new int[]{1, 0}, optimizer.order(Arrays.asList(mac, part(Relation.AND, is("model", "opt-X1"))), evaluators));
+    }
+
+    @Test
+    public void onlyPartsJoinedBySameRelationAreReordered() {
+        // (percent OR env) AND model
+        Assert.assertArrayEquals(new int[]{1, 0, 2}, optimizer.order(Arrays.asList(
+                percent("model", 50.5), part(Relation.OR, is("env", "opt-QA")), part(Relation.AND, is("model", "opt-X1"))), evaluators));
+        // (percent OR percent) AND model: model must not move ahead of OR run
+        Assert.assertArrayEquals(new int[]{0, 1, 2}, optimizer.order(Arrays.asList(
+                percent("model", 50.5), part(Relation.OR, percent("env", 50.5)), part(Relation.AND, is("model", "opt-X1"))), evaluators));
+        // (percent AND model) OR percent OR env: AND run followed by other parts keeps order, OR run is reordered on its own
+        Assert.assertArrayEquals(new int[]{0, 1, 3, 2}, optimizer.order(Arrays.asList(
+                percent("model", 50.5), part(Relation.AND, is("model", "opt-X1")),
+                part(Relation.OR, percent("env", 50.5)), part(Relation.OR, is("env", "opt-QA"))), evaluators));
+        Assert.assertArrayEquals(new int[]{0, 1, 2}, optimizer.order(Arrays.asList(
+                percent("model", 50.5), part(Relation.AND, is("model", "opt-X1")), part(null, is("env", "opt-QA"))), evaluators));
+        // null relation starts a new run
+        Assert.assertArrayEquals(new int[]{0, 2, 1}, optimizer.order(Arrays.asList(
+                percent("model", 50.5), part(null, percent("env", 50.5)), part(Relation.AND, is("env", "opt-QA"))), evaluators));
+    }
+
+    @Test
+    public void observedSelectivityDecidesAmongEqualCosts() {
+        Rule rare = is("model", "opt-rare");
+        Rule common = is("env", "opt-common");
+        for (int i = 0; i < 100; i++) {
+            ConditionSlot.of(rare.getCondition()).record(i == 0);
+            ConditionSlot.of(common.getCondition()).record(i != 0);
+        }
+        Assert.assertArrayEquals(new int[]{1, 0}, optimizer.order(Arrays.asList(common, part(Relation.AND, rare)), evaluators));
+        Assert.assertArrayEquals(new int[]{0, 1}, optimizer.order(Arrays.asList(common, part(Relation.OR, rare)), evaluators));
+    }
+
+    private Rule part(Relation relation, Rule rule) {
+        rule.setRelation(relation);
+        return rule;
+    }
+
+    private Rule is(String name, String value) {
+        return leaf(StandardFreeArgType.STRING, name, StandardOperation.IS, value);
+    }
+
+    private Rule percent(String name, double percent) {
+        return leaf(StandardFreeArgType.STRING, name, StandardOperation.PERCENT, percent);
+    }
+
+    private Rule randomRule(Random random, int depth) {
+        Rule rule = new Rule();
+        rule.setNegated(random.nextInt(4) == 0);
+        if (depth == 0 || random.nextInt(3) == 0) {
+            rule.setCondition(randomCondition(random));
+            return rule;
+        }
+        rule.setCompoundParts(new ArrayList<Rule>());
+        int size = 1 + random.nextInt(5);
+        for (int i = 0; i < size; i++) {
+            Rule part = randomRule(random, depth - 1);
+            if (i > 0) {
+                part.setRelation(RELATIONS[random.nextInt(RELATIONS.length)]);
+            }
+            rule.getCompoundParts().add(part);
+        }
+        return rule;
+    }
+
+    private Condition randomCondition(Random random) {
+        switch (random.nextInt(7)) {
+            case 0: return condition(StandardFreeArgType.STRING, "model", StandardOperation.IS, "X" + (1 + random.nextInt(3)));
+            case 1: return condition(StandardFreeArgType.STRING, "env", StandardOperation.IN, Arrays.asList("QA", "DEV"));
+            case 2: return condition(StandardFreeArgType.STRING, "model", StandardOperation.PERCENT, (double) random.nextInt(100));
+            case 3: return condition(StandardFreeArgType.LONG, "age", StandardOperation.GT, (long) random.nextInt(40));
+            case 4: return condition(StandardFreeArgType.STRING, "env", StandardOperation.LIKE, random.nextBoolean() ? "PR.*" : "[");
+            case 5: return condition(AuxFreeArgType.MAC_ADDRESS, "estbMac", StandardOperation.IS, MacAddress.parse("AA:BB:CC:DD:EE:0" + random.nextInt(4)));
+            default: return condition(StandardFreeArgType.ANY, "age", StandardOperation.EXISTS, null);
+        }
+    }
+
+    private Rule leaf(FreeArgType type, String name, Operation operation, Object fixedArg) {
+        return Rule.Builder.of(condition(type, name, operation, fixedArg)).build();
+    }
+
+    private Condition condition(FreeArgType type, String name, Operation operation, Object fixedArg) {
+        return new Condition(new FreeArg(type, name), operation, fixedArg != null ? FixedArg.from(fixedArg) : null);
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.apps.hesperius.ruleengine.main.impl;
+
+import com.comcast.apps.hesperius.ruleengine.domain.standard.StandardEvaluators;
+import com.comcast.apps.hesperius.ruleengine.domain.standard.StandardFreeArgType;
+import com.comcast.apps.hesperius.ruleengine.domain.standard.StandardOperation;
+import com.comcast.apps.hesperius.ruleengine.main.api.FixedArg;
+import com.comcast.apps.hesperius.ruleengine.main.api.FreeArg;
+import com.comcast.apps.hesperius.ruleengine.main.api.Operation;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class RuleProfilerTest {
+
+    private final Map<String, String> context = ImmutableMap.of("model", "X1", "env", "QA");
+
+    @Test
+    public void sampledEvaluationsAreRecordedPerRuleAndCondition() {
+        RuleProfiler profiler = new RuleProfiler(true, 1);
+        RuleProcessor<Condition, Rule> processor = new RuleProcessor<Condition, Rule>(StandardEvaluators.get(), new RuleOptimizer(true, 1), profiler);
+        Rule rule = Rule.Builder.of(condition("model", StandardOperation.LIKE, "X.*"))
+                .and(condition("env", StandardOperation.IN, Arrays.asList("QA", "PROD")))
+                .or(condition("model", StandardOperation.IS, "X2")).build();
+
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(processor.evaluate(processor.getCompiled(rule), new EvaluationSession(context), "FirmwareRule", "rule1"));
+        }
+
+        RuleProfile profile = profiler.getTop("FirmwareRule", 10).get(0);
+        Assert.assertEquals("rule1", profile.getRuleId());
+        Assert.assertEquals(100, profile.getSampledEvaluations());
+        Assert.assertEquals(100, profile.getSampledMatches());
+        Assert.assertTrue(profile.getSampledNanos() > 0);
+
+        List<RuleProfile.ConditionProfile> conditions = profile.getConditions(); // declaration order whatever order evaluated in
+        Assert.assertEquals(3, conditions.size());
+        Assert.assertEquals("model LIKE X.*", conditions.get(0).getCondition());
+        Assert.assertEquals("env IN (2 values) [QA, PROD]", conditions.get(1).getCondition());
+        Assert.assertEquals(100, conditions.get(0).getSampledMatches());
+        Assert.assertEquals(100, conditions.get(1).getSampledEvaluations());
+        Assert.assertEquals(0, conditions.get(2).getSampledEvaluations());
+    }
+
+    @Test
+    public void topRulesAreSortedByTimeSpent() {
+        RuleProfiler profiler = new RuleProfiler(true, 1);
+        RuleProcessor<Condition, Rule> processor = new RuleProcessor<Condition, Rule>(StandardEvaluators.get(), RuleOptimizer.DISABLED, profiler);
+        Rule cheap = Rule.Builder.of(condition("model", StandardOperation.IS, "X1")).build();
+        Rule expensive = Rule.Builder.of(condition("model", StandardOperation.LIKE, "(X|Y)*.*(1|2)+")).build();
+        EvaluationSession session = new EvaluationSession(context);
+        for (int i = 0; i < 200; i++) {
+            processor.evaluate(processor.getCompiled(cheap), session, "FeatureRule", "cheap");
+            processor.evaluate(processor.getCompiled(expensive), new EvaluationSession(context), "FeatureRule", "expensive");
+        }
+        processor.evaluate(processor.getCompiled(cheap), session, "Formula", "cheap");
+
+        Assert.assertEquals(Arrays.asList("FeatureRule", "Formula"), Arrays.asList(profiler.getCategories().toArray()));
+        Assert.assertEquals("expensive", profiler.getTop("FeatureRule", 10).get(0).getRuleId());
+        Assert.assertEquals(1, profiler.getTop("FeatureRule", 1).size());
+        Assert.assertEquals(3, profiler.getProfiledRules());
+        Assert.assertEquals(3, profiler.getTopRules().length);
+
+        profiler.reset();
+        Assert.assertEquals(0, profiler.getProfiledRules());
+    }
+
+    @Test
+    public void profileStartsOverWhenRuleChanges() {
+        RuleProfiler profiler = new RuleProfiler(true, 1);
+        RuleProcessor<Condition, Rule> processor = new RuleProcessor<Condition, Rule>(StandardEvaluators.get(), RuleOptimizer.DISABLED, profiler);
+        Rule rule = Rule.Builder.of(condition("model", StandardOperation.IS, "X1")).build();
+        processor.evaluate(processor.getCompiled(rule), new EvaluationSession(context), "FirmwareRule", "id");
+        processor.evaluate(processor.getCompiled(Rule.Builder.of(rule).build()), new EvaluationSession(context), "FirmwareRule", "id");
+        Assert.assertEquals(2, profiler.getTop("FirmwareRule", 1).get(0).getSampledEvaluations());
+
+        processor.evaluate(processor.getCompiled(Rule.Builder.of(condition("model", StandardOperation.IS, "X2")).build()),
+                new EvaluationSession(context), "FirmwareRule", "id");
+        Assert.assertEquals(1, profiler.getTop("FirmwareRule", 1).get(0).getSampledEvaluations());
+        Assert.assertEquals(0, profiler.getTop("FirmwareRule", 1).get(0).getSampledMatches());
+    }
+
+    @Test
+    public void disabledProfilerRecordsNothing() {
+        RuleProfiler profiler = new RuleProfiler(false, 1);
+        RuleProcessor<Condition, Rule> processor = new RuleProcessor<Condition, Rule>(StandardEvaluators.get(), RuleOptimizer.DISABLED, profiler);
+        Rule rule = Rule.Builder.of(condition("model", StandardOperation.IS, "X1")).build();
+        Assert.assertTrue(processor.evaluate(processor.getCompiled(rule), new EvaluationSession(context), "FirmwareRule", "id"));
+        Assert.assertEquals(0, profiler.getProfiledRules());
+
+        profiler.setEnabled(true);
+        Assert.assertTrue(processor.evaluate(processor.getCompiled(rule), new EvaluationSession(context), "FirmwareRule", "id"));
+        Assert.assertEquals(1, profiler.getProfiledRules());
+    }
+
+    private static Condition condition(String name, Operation operation, Object value) {
+        return new Condition(new FreeArg(StandardFreeArgType.STRING, name), operation, FixedArg.from(value));
+    }
+}
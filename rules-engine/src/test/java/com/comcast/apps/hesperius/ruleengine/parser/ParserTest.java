@@ -83,6 +83,18 @@ public class ParserTest {
         Assert.assertFalse(processor.evaluate(result, Collections.singletonMap("User-Agent", "test")));
     }
 
+    @Test
+    public void testNegationAppliesToNextCondition() throws Exception {
+        Assert.assertEquals("((A IS B) AND (( NOT C IS D)))", new Parser("A IS B AND NOT C IS D").getRule().toString());
+        Assert.assertEquals("(( NOT A IS B) OR ((C IS D)))", new Parser("NOT (A IS B OR C IS D)").getRule().toString());
+        Assert.assertEquals("( NOT A IS x (y) z)", new Parser("A not is \"x (y) z\"").getRule().toString());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testInvalidExpressionMissingFixedArg() throws Exception {
+        new Parser("A IS B AND C IS").getRule();
+    }
+
     @Test
     public void testRelationsPriority() throws Exception {
         Assert.assertEquals("((A IS B) OR (((C IS D) AND ((Z IS Y)))))", new Parser("A IS B OR C IS D AND Z IS Y").getRule().toString());
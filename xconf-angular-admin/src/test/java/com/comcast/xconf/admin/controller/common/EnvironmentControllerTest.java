@@ -166,7 +166,7 @@ public class EnvironmentControllerTest extends BaseControllerTest {
         for(int i = 0; i < 3; i++) {
             Environment environment = changeId(createEnvironment(), "environmentId" + i);
             environmentDAO.setOne(environment.getId(), environment);
-            environments.add(QueriesHelper.nullifyUnwantedFields(environment));
+            environments.add(environment);
         }
 
         mockMvc.perform(get("/environment"))
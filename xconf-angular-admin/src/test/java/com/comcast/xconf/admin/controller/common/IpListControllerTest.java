@@ -254,7 +254,7 @@ public class IpListControllerTest extends BaseControllerTest {
         for(int i = 0; i < 3; i++) {
             GenericNamespacedList ipList = changeNamespacedListId(createIpList(), "ipListId" + i);
             genericNamespacedListDAO.setOne(ipList.getId(), ipList);
-            namespacedLists.add(QueriesHelper.nullifyUnwantedFields(ipList));
+            namespacedLists.add(ipList);
         }
         mockMvc.perform(post("/genericnamespacedlist/filtered")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -267,7 +267,7 @@ public class MacListControllerTest extends BaseControllerTest {
         for(int i = 0; i < 3; i++) {
             GenericNamespacedList macList = changeNamespacedListId(createMacList(), "macListId" + i);
             genericNamespacedListDAO.setOne(macList.getId(), macList);
-            namespacedLists.add(QueriesHelper.nullifyUnwantedFields(macList));
+            namespacedLists.add(macList);
         }
 
         mockMvc.perform(post("/genericnamespacedlist/filtered")
@@ -166,7 +166,7 @@ public class ModelControllerTest extends BaseControllerTest {
         for(int i = 0; i < 3; i++) {
             Model model1 = changeId(createModel(), "modelId" + i);
             modelDAO.setOne(model1.getId(), model1);
-            models.add(QueriesHelper.nullifyUnwantedFields(model1));
+            models.add(model1);
         }
 
         mockMvc.perform(get("/model"))
@@ -177,10 +177,10 @@ public class ModelControllerTest extends BaseControllerTest {
     @Test
     public void searchByContext() throws Exception {
         Model model = createModel();
+        model.setDescription("modelDescription2");
         modelDAO.setOne(model.getId(), model);
         Model model1 = createModel();
         model1.setId(UUID.randomUUID().toString());
-        model.setDescription("modelDescription2");
         modelDAO.setOne(model1.getId(), model1);
         Map<String, String> context = new HashMap<>();
         context.put(SearchFields.ID, model.getId());
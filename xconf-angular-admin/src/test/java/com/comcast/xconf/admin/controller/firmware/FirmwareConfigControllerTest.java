@@ -75,7 +75,6 @@ public class FirmwareConfigControllerTest extends BaseControllerTest {
     public void testGetFirmwareConfigById() throws Exception {
         FirmwareConfig firmwareConfig = createFirmwareConfig();
         firmwareConfigDAO.setOne(firmwareConfig.getId(), firmwareConfig);
-        nullifyUnwantedFields(firmwareConfig);
 
         performRequestAndVerifyResponse(FirmwareConfigController.URL_MAPPING + "/" + firmwareConfig.getId(), firmwareConfig);
     }
@@ -84,7 +83,6 @@ public class FirmwareConfigControllerTest extends BaseControllerTest {
     public void testGetFirmwareConfigsByModel() throws Exception {
         FirmwareConfig firmwareConfig = createFirmwareConfig();
         firmwareConfigDAO.setOne(firmwareConfig.getId(), firmwareConfig);
-        firmwareConfig = nullifyUnwantedFields(firmwareConfig);
         String modelId = firmwareConfig.getSupportedModelIds().iterator().next();
 
         performRequestAndVerifyResponse(FirmwareConfigController.URL_MAPPING + "/model/{modelId}", modelId, Collections.singleton(firmwareConfig));
@@ -207,7 +205,7 @@ public class FirmwareConfigControllerTest extends BaseControllerTest {
         for(int i = 0; i < 3; i++) {
             FirmwareConfig firmwareConfig = changeFirmwareConfigIdAndDescription(createFirmwareConfig(), "description" + i, "firmwareConfig" + i);
             firmwareConfigDAO.setOne(firmwareConfig.getId(), firmwareConfig);
-            firmwareConfigs.add(QueriesHelper.nullifyUnwantedFields(firmwareConfig));
+            firmwareConfigs.add(firmwareConfig);
         }
 
         mockMvc.perform(get("/" + FirmwareConfigController.URL_MAPPING))
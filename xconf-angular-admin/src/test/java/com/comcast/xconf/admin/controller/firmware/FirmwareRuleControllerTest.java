@@ -184,9 +184,10 @@ public class FirmwareRuleControllerTest extends BaseControllerTest {
         String id = "id";
         String notUniqueName = "notUniqueName";
         FirmwareRule firmwareRule = createAndSaveFirmwareRule(id, ApplicableAction.Type.RULE);
-        FirmwareRule firmwareRuleNotUniqueName = createAndSaveFirmwareRule("someId", ApplicableAction.Type.RULE);
+        FirmwareRule firmwareRuleNotUniqueName = createFirmwareRule("someId", ApplicableAction.Type.RULE);
         firmwareRuleNotUniqueName.setName(notUniqueName);
         firmwareRuleNotUniqueName.getRule().getCondition().setFixedArg(FixedArg.from("someUniqueFixedArg"));
+        firmwareRuleDao.setOne(firmwareRuleNotUniqueName.getId(), firmwareRuleNotUniqueName);
         FirmwareRule firmwareRuleToUpdate = createFirmwareRule(id, ApplicableAction.Type.RULE);
         firmwareRuleToUpdate.setName(notUniqueName);
 
@@ -0,0 +1,88 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.xconf;
+
+import com.comcast.apps.hesperius.ruleengine.main.api.EvaluationContext;
+import com.google.common.base.Function;
+import org.joda.time.LocalTime;
+import org.joda.time.format.ISODateTimeFormat;
+
+/**
+ * Parsing of time arguments shared by local time evaluators.
+ *
+ * Fixed time is parsed once when rule is compiled by {@link #prepareFixedTime(Object)}, comparison of local times is then
+ * a comparison of longs. Original string value is kept as well: whether fixedArg is a time may depend on free arg name,
+ * and unparsable value fails on evaluation as before.
+ */
+public final class LocalTimeArgs {
+
+    /**
+     * Converts date time of the context to local time. Single instance, so that value converted
+     * by {@link EvaluationContext#get(String, Function)} is shared by all time conditions of the context.
+     */
+    public static final Function<String, LocalTime> DATE_TIME_TO_LOCAL_TIME = new Function<String, LocalTime>() {
+        @Override
+        public LocalTime apply(String input) {
+            return ISODateTimeFormat.dateTimeParser().parseDateTime(input).toLocalTime();
+        }
+    };
+
+    private LocalTimeArgs() {
+    }
+
+    public static Object prepareFixedTime(Object fixedArgValue) {
+        if (fixedArgValue instanceof String) {
+            return new FixedTime((String) fixedArgValue);
+        }
+        return fixedArgValue;
+    }
+
+    /**
+     * @throws IllegalArgumentException if value is not a time
+     */
+    public static LocalTime fixedTime(Object fixedArgValue) {
+        if (fixedArgValue instanceof FixedTime && ((FixedTime) fixedArgValue).time != null) {
+            return ((FixedTime) fixedArgValue).time;
+        }
+        return LocalTime.parse(fixedValue(fixedArgValue));
+    }
+
+    public static String fixedValue(Object fixedArgValue) {
+        if (fixedArgValue instanceof FixedTime) {
+            return ((FixedTime) fixedArgValue).value;
+        }
+        return (String) fixedArgValue;
+    }
+
+    private static final class FixedTime {
+        private final String value;
+        private final LocalTime time; // null if value is not a time
+
+        private FixedTime(String value) {
+            this.value = value;
+            LocalTime parsed;
+            try {
+                parsed = LocalTime.parse(value);
+            } catch (IllegalArgumentException e) {
+                parsed = null;
+            }
+            this.time = parsed;
+        }
+    }
+}
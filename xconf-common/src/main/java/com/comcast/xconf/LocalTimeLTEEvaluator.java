@@ -23,26 +23,16 @@ package com.comcast.xconf;
 
 import com.comcast.apps.hesperius.ruleengine.domain.standard.BaseEvaluator;
 import com.comcast.apps.hesperius.ruleengine.domain.standard.StandardOperation;
+import com.comcast.apps.hesperius.ruleengine.main.api.EvaluationContext;
 import com.comcast.apps.hesperius.ruleengine.main.api.FreeArgType;
 import com.comcast.apps.hesperius.ruleengine.main.api.Operation;
 import com.google.common.base.Function;
 import org.joda.time.LocalTime;
 import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
-import org.joda.time.format.ISODateTimeFormat;
-
-import javax.annotation.Nullable;
 
 public class LocalTimeLTEEvaluator extends BaseEvaluator {
 
-    protected static final  Function<String, LocalTime> freeArgConverter = new Function<String, LocalTime>() {
-        @Nullable
-        @Override
-        public LocalTime apply(@Nullable String s) {
-            return ISODateTimeFormat.dateTimeParser().parseDateTime(s).toLocalTime();
-        }
-    };
-
     protected static final Function<Integer, Boolean> evaluation = new Function<Integer, Boolean>() {
         @Override
         public Boolean apply(Integer integer) {
@@ -61,8 +51,23 @@ public class LocalTimeLTEEvaluator extends BaseEvaluator {
     @Override
     @SuppressWarnings("unchecked")
     protected boolean evaluateInternal(String freeArgValue, Object fixedArgValue) {
-        LocalTime freeArgActualValue = freeArgConverter.apply(freeArgValue);
-        int comparisonResult = freeArgActualValue.compareTo(LocalTime.parse((String)fixedArgValue));
+        LocalTime freeArgActualValue = LocalTimeArgs.DATE_TIME_TO_LOCAL_TIME.apply(freeArgValue);
+        int comparisonResult = freeArgActualValue.compareTo(LocalTimeArgs.fixedTime(fixedArgValue));
+        return evaluation.apply(comparisonResult);
+    }
+
+    /**
+     * same as above, parsed freeArg value is shared by all LOCAL_TIME conditions of the context
+     */
+    @Override
+    protected boolean evaluateInternal(EvaluationContext context, String freeArgName, String freeArgValue, Object fixedArgValue) {
+        LocalTime freeArgActualValue = context.get(freeArgName, LocalTimeArgs.DATE_TIME_TO_LOCAL_TIME);
+        int comparisonResult = freeArgActualValue.compareTo(LocalTimeArgs.fixedTime(fixedArgValue));
         return evaluation.apply(comparisonResult);
     }
+
+    @Override
+    public Object prepare(Object fixedArgValue) {
+        return LocalTimeArgs.prepareFixedTime(fixedArgValue);
+    }
 }
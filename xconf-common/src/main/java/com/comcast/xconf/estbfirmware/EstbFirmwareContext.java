@@ -23,7 +23,9 @@ package com.comcast.xconf.estbfirmware;
 
 import com.comcast.apps.hesperius.ruleengine.domain.additional.data.IpAddress;
 import com.comcast.apps.hesperius.ruleengine.domain.additional.data.MacAddress;
+import com.comcast.apps.hesperius.ruleengine.main.api.EvaluationContext;
 import com.comcast.xconf.Environment;
+import com.comcast.xconf.LocalTimeArgs;
 import com.comcast.xconf.StbContext;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.core.JsonGenerator;
@@ -582,6 +584,43 @@ public class EstbFirmwareContext {
         context.set(StbContext.PARTNER_ID, partnerId);
     }
 
+    /**
+     * @return normalized properties of the request for evaluation of compiled rules, see {@link #toEvaluationContextBuilder()}
+     */
+    public EvaluationContext toEvaluationContext() {
+        return toEvaluationContextBuilder().build();
+    }
+
+    /**
+     * Same values as {@link #getProperties()}, trimmed, collected straight from the request without an intermediate map.
+     * Local time is put along with the time string, so time conditions don't parse it back.
+     */
+    public EvaluationContext.Builder toEvaluationContextBuilder() {
+        EvaluationContext.Builder builder = EvaluationContext.builder();
+        for (Map.Entry<String, List<String>> entry : context.entrySet()) {
+            List<String> values = entry.getValue();
+            builder.put(entry.getKey(), values != null && !values.isEmpty() ? values.get(0) : null);
+        }
+
+        List<String> capabilities = getCapabilities();
+        if (capabilities != null) {
+            for (String capability : capabilities) {
+                builder.put(capability, "");
+            }
+        }
+
+        DateTimeZone timeZone = offsetToTimeZone(getTimeZoneOffset());
+        builder.put(StbContext.TIME_ZONE, timeZone.toString());
+
+        LocalDateTime time = getTime();
+        if (time == null) {
+            time = new LocalDateTime(timeZone);
+        }
+        builder.put(StbContext.TIME, time.toString(), LocalTimeArgs.DATE_TIME_TO_LOCAL_TIME, time.toLocalTime());
+
+        return builder;
+    }
+
     public Map<String, String> getProperties() {
         Map<String, String> map = context.toSingleValueMap();
 
@@ -21,6 +21,7 @@
  */
 package com.comcast.xconf.logupload;
 
+import com.comcast.apps.hesperius.ruleengine.main.api.EvaluationContext;
 import com.comcast.xconf.StbContext;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
@@ -176,4 +177,11 @@ public class LogUploaderContext {
     public Map<String, String> getProperties() {
         return context;
     }
+
+    /**
+     * @return properties of the request with values trimmed for evaluation of compiled rules
+     */
+    public EvaluationContext toEvaluationContext() {
+        return EvaluationContext.normalized(context);
+    }
 }
@@ -21,13 +21,12 @@
  */
 package com.comcast.xconf;
 
+import com.comcast.apps.hesperius.ruleengine.domain.RuleUtils;
 import com.comcast.apps.hesperius.ruleengine.main.api.*;
 import com.comcast.apps.hesperius.ruleengine.main.impl.Condition;
 import com.comcast.apps.hesperius.ruleengine.main.impl.Rule;
-import com.google.common.base.Charsets;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Iterables;
-import com.google.common.hash.Hashing;
 import com.google.common.primitives.Booleans;
 import org.apache.commons.collections.CollectionUtils;
 import org.slf4j.Logger;
@@ -87,11 +86,7 @@ public class RuleHelper {
     }
 
     public static boolean fitsPercent(String accountId, double percent) {
-        final double OFFSET = (double)Long.MAX_VALUE + 1;
-        final double RANGE = (double)Long.MAX_VALUE * 2 + 1;
-        double hashCode = (double)Hashing.sipHash24().hashString(accountId, Charsets.UTF_8).asLong() + OFFSET; // from 0 to (2 * Long.MAX_VALUE + 1)
-        double limit = percent / 100 * RANGE;  // from 0 to (2 * Long.MAX_VALUE + 1)
-        return (hashCode <= limit); // XAPPS-1978 hashCode is tested for fitness
+        return RuleUtils.fitsPercent(accountId, percent); // XAPPS-1978 hashCode is tested for fitness
     }
 
     public static boolean isOrContains(final Rule rule, final Operation op) {
@@ -21,7 +21,9 @@
  */
 package com.comcast.xconf.contextconfig;
 
+import com.comcast.apps.hesperius.ruleengine.main.impl.RuleProfiler;
 import com.comcast.hesperius.dataaccess.support.controlleradvice.ResponseExceptionHandler;
+import com.comcast.xconf.info.RuleProfilerController;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
@@ -46,4 +48,9 @@ public class InfoWebConfig extends WebMvcConfigurationSupport {
         return new ResponseExceptionHandler();
     }
 
+    @Bean
+    public RuleProfilerController ruleProfilerController() {
+        return new RuleProfilerController(RuleProfiler.get());
+    }
+
 }
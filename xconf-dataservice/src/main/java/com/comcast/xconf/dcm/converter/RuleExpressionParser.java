@@ -21,14 +21,19 @@
  */
 package com.comcast.xconf.dcm.converter;
 
+import com.comcast.apps.hesperius.ruleengine.domain.RuleEngineConfig;
 import com.comcast.apps.hesperius.ruleengine.main.api.Relation;
 import com.comcast.apps.hesperius.ruleengine.main.impl.Rule;
 import com.comcast.xconf.dcm.manager.web.FormulaDataObject;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.LinkedList;
-import java.util.StringTokenizer;
+import java.util.List;
 
 @Component
 public class RuleExpressionParser {
@@ -36,55 +41,68 @@ public class RuleExpressionParser {
     @Autowired
     private FormulaRuleBuilder builder;
 
+    /**
+     * tokens depend on expression only, so expressions repeated across formulas of a bulk import are tokenized once
+     */
+    private final LoadingCache<String, List<Token>> tokens = CacheBuilder.newBuilder()
+            .maximumSize(RuleEngineConfig.Provider.INSTANCE.getConfig().getParserCacheSize())
+            .build(new CacheLoader<String, List<Token>>() {
+                @Override
+                public List<Token> load(String str) {
+                    return tokenize(str);
+                }
+            });
+
     public Rule getRule(String str, FormulaDataObject dataObject) {
-        LinkedList<Token> infixQueue = tokenize(str);
+        List<Token> infixQueue = tokens.getUnchecked(str);
 
         return evaluate(infixQueue, str, dataObject);
     }
 
-    private LinkedList<Token> tokenize(String str) {
-        LinkedList<Token> infixQueue = new LinkedList<>();
-        StringTokenizer tokenizer = new StringTokenizer(str, Separator.getTokenizerSeparatorsCharset(), true);
-        while (tokenizer.hasMoreTokens()) {
-            String current = tokenizer.nextToken();
-            if (Separator.SPACE.value.equals(current)
-                    || Separator.ROUND_BRACKET_LEFT.value.equals(current)
-                    || Separator.ROUND_BRACKET_RIGHT.value.equals(current)
-                    || Separator.SQUARE_BRACKET_LEFT.value.equals(current))
+    /**
+     * Single pass over the expression. Spaces, round brackets and left square bracket are skipped,
+     * text in double quotes is a single argument.
+     */
+    private static List<Token> tokenize(String str) {
+        ImmutableList.Builder<Token> infixQueue = ImmutableList.builder();
+        int position = 0;
+        while (position < str.length()) {
+            char c = str.charAt(position);
+            if (c == ' ' || c == '(' || c == ')' || c == '[') {
+                position++;
                 continue;
-
-            if (Separator.QUOTE.value.equals(current)) {
-                infixQueue.addLast(new Token(getPhrase(tokenizer, Separator.QUOTE.value), Token.TokenType.ARG));
-            } else if (Token.OperationToken.isOperation(current)) {
-                Token.OperationToken token = new Token.OperationToken(current);
-                infixQueue.addLast(token);
+            }
+            if (c == '"') {
+                int end = str.indexOf('"', position + 1);
+                infixQueue.add(new Token(str.substring(position + 1, end >= 0 ? end : str.length()), Token.TokenType.ARG));
+                position = end >= 0 ? end + 1 : str.length();
+                continue;
+            }
+            int start = position++;
+            if (c != ']') {
+                while (position < str.length() && !isSeparator(str.charAt(position))) {
+                    position++;
+                }
+            }
+            String current = str.substring(start, position);
+            if (Token.OperationToken.isOperation(current)) {
+                infixQueue.add(new Token.OperationToken(current));
             } else if (Token.RelationToken.isRelation(current)) {
-                infixQueue.addLast(new Token.RelationToken(current));
+                infixQueue.add(new Token.RelationToken(current));
             } else {
-                infixQueue.addLast(new Token(current, Token.TokenType.ARG));
+                infixQueue.add(new Token(current, Token.TokenType.ARG));
             }
         }
-        return infixQueue;
+        return infixQueue.build();
     }
 
-    private String getPhrase(StringTokenizer tokenizer, String phraseEnd) {
-        StringBuilder value = new StringBuilder();
-        while (tokenizer.hasMoreTokens()) {
-            String innerToken = tokenizer.nextToken();
-            if (phraseEnd.equals(innerToken)) {
-                break;
-            }
-            value.append(innerToken);
-        }
-        return value.toString();
+    private static boolean isSeparator(char c) {
+        return c == ' ' || c == '(' || c == ')' || c == '"' || c == '[' || c == ']';
     }
 
-    private Rule evaluate(LinkedList<Token> postfixQueue, String str, FormulaDataObject dataObject) {
-        LinkedList<Token> queue = new LinkedList<>(postfixQueue);
-        Token token;
+    private Rule evaluate(List<Token> infixQueue, String str, FormulaDataObject dataObject) {
         LinkedList<Rule> compoundParts = new LinkedList();
-        while (queue.size() > 0) {
-            token = queue.removeFirst();
+        for (Token token : infixQueue) {
             if (token.getType() == Token.TokenType.ARG) {
                 addRule(compoundParts, token, dataObject);
             } else if (token.getType() == Token.TokenType.RELATION) {
@@ -130,30 +148,4 @@ public class RuleExpressionParser {
             compoundParts.addLast(last);
         }
     }
-    private enum Separator {
-        ROUND_BRACKET_LEFT("("), ROUND_BRACKET_RIGHT(")"), QUOTE("\""), SQUARE_BRACKET_LEFT("["), SQUARE_BRACKET_RIGHT("]"), SPACE(" ");
-
-        private String value;
-        Separator(String value) {
-            this.value = value;
-        }
-
-        private static String getTrimCharset() {
-            return SPACE.value + QUOTE.value;
-        }
-
-        private static String getTokenizerSeparatorsCharset() {
-            StringBuilder sb = new StringBuilder();
-            for (Separator item : Separator.values()) {
-                sb.append(item);
-            }
-            return sb.toString();
-        }
-
-        @Override
-        public String toString() {
-            return value;
-        }
-    }
 }
-
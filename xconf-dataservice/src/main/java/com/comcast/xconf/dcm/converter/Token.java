@@ -88,13 +88,17 @@ class Token {
         static final String NOT_OPERATOR = "NOT";
         private boolean negated;
 
-        private static Set<Operation> supportedOperations = new HashSet<Operation>(RuleEngine.getSupportedOperations());
+        /* names rather than operations, so that checking arbitrary words doesn't create operations */
+        private static Set<String> supportedOperations = new HashSet<String>();
         static {
-            supportedOperations.add(Operation.forName(NOT_OPERATOR));
+            for (Operation operation : RuleEngine.getSupportedOperations()) {
+                supportedOperations.add(operation.toString());
+            }
+            supportedOperations.add(NOT_OPERATOR);
         }
 
         static boolean isOperation(String str) {
-            return supportedOperations.contains(Operation.forName(str.toUpperCase()));
+            return supportedOperations.contains(str.toUpperCase());
         }
 
         public OperationToken(String value) {
@@ -24,7 +24,12 @@ package com.comcast.xconf.dcm.ruleengine;
 import com.comcast.apps.hesperius.ruleengine.RuleEngine;
 import com.comcast.apps.hesperius.ruleengine.main.api.IRuleProcessor;
 import com.comcast.apps.hesperius.ruleengine.main.impl.Condition;
+import com.comcast.apps.hesperius.ruleengine.main.impl.EvaluationSession;
 import com.comcast.apps.hesperius.ruleengine.main.impl.Rule;
+import com.comcast.apps.hesperius.ruleengine.main.impl.RuleIndex;
+import com.comcast.hesperius.dataaccess.core.cache.CacheManager;
+import com.comcast.hesperius.dataaccess.core.cache.CacheSnapshot;
+import com.comcast.hesperius.dataaccess.core.cache.DerivedView;
 import com.comcast.hesperius.dataaccess.core.dao.ISimpleCachedDAO;
 import com.comcast.xconf.SortingManager;
 import com.comcast.xconf.firmware.ApplicationType;
@@ -32,31 +37,51 @@ import com.comcast.xconf.logupload.DCMGenericRule;
 import com.comcast.xconf.logupload.LogUploaderContext;
 import com.comcast.xconf.logupload.Settings;
 import com.comcast.xconf.logupload.SettingsUtil;
-import com.google.common.base.Optional;
+import com.google.common.base.Function;
+import com.google.common.base.Functions;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.util.List;
+import javax.annotation.PostConstruct;
 
 @Component
 public class LogUploadRuleBase {
 
+    private static final String[] INDEXED_FREE_ARGS = {LogUploaderContext.MODEL, LogUploaderContext.ENV,
+            LogUploaderContext.PARTNER_ID, LogUploaderContext.APPLICATION};
+
     private SettingsUtil settingsUtil = new SettingsUtil();
 
+    private IRuleProcessor<Condition, Rule> processor = RuleEngine.getRuleProcessor();
+
+    /**
+     * index of all rules sorted by priority
+     */
+    private DerivedView<RuleIndex<DCMGenericRule>> ruleIndex;
+
     @Autowired
     private SettingsDAO settingsDAO;
 
     @Autowired
     private ISimpleCachedDAO<String, DCMGenericRule> dcmRuleDAO;
 
+    @PostConstruct
+    public void registerViews() {
+        ruleIndex = CacheManager.registerView("DCMRuleIndex", new Function<CacheSnapshot, RuleIndex<DCMGenericRule>>() {
+            @Override
+            public RuleIndex<DCMGenericRule> apply(CacheSnapshot snapshot) {
+                return RuleIndex.build(SortingManager.sortRulesByPriorityAsc(snapshot.getGeneration(dcmRuleDAO).values()),
+                        Functions.<DCMGenericRule>identity(), INDEXED_FREE_ARGS);
+            }
+        }, dcmRuleDAO);
+    }
+
     public Settings eval(LogUploaderContext context) {
         Settings settings = new Settings();
 
-        List<DCMGenericRule> rules = SortingManager.sortRulesByPriorityAsc(Optional.presentInstances(dcmRuleDAO.asLoadingCache().asMap().values()));
-        for (DCMGenericRule rule : rules) {
-            IRuleProcessor<Condition, Rule> processor = RuleEngine.getRuleProcessor();
-
-            if (ApplicationType.equals(rule.getApplicationType(), context.getApplication()) && processor.evaluate(rule, context.getProperties())) {
+        EvaluationSession session = new EvaluationSession(context.toEvaluationContext());
+        for (DCMGenericRule rule : ruleIndex.get().getCandidates(session.getContext().asMap())) {
+            if (ApplicationType.equals(rule.getApplicationType(), context.getApplication()) && processor.evaluate(processor.getCompiled(rule), session, rule.getRuleType(), rule.getId())) {
                 settingsUtil.copySettings(settings, settingsDAO.get(rule.getId()), rule, context.getEstbMacAddress(), context.getTimeZone());
             }
 
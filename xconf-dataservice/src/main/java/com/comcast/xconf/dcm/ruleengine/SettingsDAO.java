@@ -68,7 +68,7 @@ public class SettingsDAO {
 
             String uploadRepositoryId = logUploadSettings.getUploadRepositoryId();
             if (uploadRepositoryId != null && !uploadRepositoryId.isEmpty()) {
-                UploadRepository uploadRepository = uploadRepositoryDAO.getOne(uploadRepositoryId);
+                UploadRepository uploadRepository = uploadRepositoryDAO.getOneReadOnly(uploadRepositoryId);
                 if (uploadRepository != null) {
                     settings.setLusUploadRepositoryName(uploadRepository.getName());
                     settings.setLusUploadRepositoryURL(buildUrl(uploadRepository.getProtocol(), uploadRepository.getUrl()));
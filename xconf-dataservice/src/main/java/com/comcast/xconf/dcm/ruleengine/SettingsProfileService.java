@@ -21,18 +21,24 @@
  */
 package com.comcast.xconf.dcm.ruleengine;
 
+import com.comcast.hesperius.dataaccess.core.cache.CacheGeneration;
+import com.comcast.hesperius.dataaccess.core.cache.CacheManager;
+import com.comcast.hesperius.dataaccess.core.cache.CacheSnapshot;
+import com.comcast.hesperius.dataaccess.core.cache.DerivedView;
 import com.comcast.hesperius.dataaccess.core.dao.ISimpleCachedDAO;
 import com.comcast.xconf.logupload.settings.SettingProfile;
 import com.comcast.xconf.logupload.settings.SettingRule;
+import com.comcast.xconf.logupload.settings.SettingType;
 import com.comcast.xconf.util.EvaluatorHelper;
-import com.google.common.base.Optional;
-import com.google.common.base.Predicate;
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.Iterables;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
 import java.util.*;
 
 @Service
@@ -42,6 +48,29 @@ public class SettingsProfileService {
     @Autowired
     private ISimpleCachedDAO<String, SettingRule> settingRuleDAO;
 
+    /**
+     * setting rules by setting type of their bound profile
+     */
+    private DerivedView<ImmutableListMultimap<SettingType, SettingRule>> settingRulesByType;
+
+    @PostConstruct
+    public void registerViews() {
+        settingRulesByType = CacheManager.registerView("SettingRulesByType", new Function<CacheSnapshot, ImmutableListMultimap<SettingType, SettingRule>>() {
+            @Override
+            public ImmutableListMultimap<SettingType, SettingRule> apply(CacheSnapshot snapshot) {
+                final CacheGeneration<String, SettingProfile> profiles = snapshot.getGeneration(settingProfileDao);
+                final ImmutableListMultimap.Builder<SettingType, SettingRule> result = ImmutableListMultimap.builder();
+                for (SettingRule settingRule : snapshot.getGeneration(settingRuleDAO).values()) {
+                    final SettingProfile settingProfile = settingRule.getBoundSettingId() != null ? profiles.get(settingRule.getBoundSettingId()) : null;
+                    if (settingProfile != null && settingProfile.getSettingType() != null) {
+                        result.put(settingProfile.getSettingType(), settingRule);
+                    }
+                }
+                return result.build();
+            }
+        }, settingRuleDAO, settingProfileDao);
+    }
+
     public SettingRule getSettingRuleByTypeForContext(final String settingType, final Map<String, String> context) {
         return EvaluatorHelper.getEntityRuleForContext(getSettingRulesBySettingType(settingType), context);
     }
@@ -52,15 +81,14 @@ public class SettingsProfileService {
     }
 
     public Iterable<SettingRule> getSettingRulesBySettingType(final String settingType) {
-        return Iterables.filter(Optional.presentInstances(settingRuleDAO.asLoadingCache().asMap().values()),
-                new Predicate<SettingRule>() {
-                    @Override
-                    public boolean apply(SettingRule input) {
-                        final SettingProfile settingProfile = settingProfileDao.getOne(input.getBoundSettingId(), false);
-                        return settingProfile != null
-                                ? settingProfile.getSettingType().isApplicableTo(settingType) : false;
-                    }
-                });
+        final ImmutableListMultimap<SettingType, SettingRule> rulesByType = settingRulesByType.get();
+        final List<Iterable<SettingRule>> result = new ArrayList<>();
+        for (SettingType type : rulesByType.keySet()) {
+            if (type.isApplicableTo(settingType)) {
+                result.add(rulesByType.get(type));
+            }
+        }
+        return Iterables.concat(result);
     }
 
     public Map<String, List<SettingRule>> getSettingRulesWithConfig(Set<String> settingTypes, Map<String, String> context) {
@@ -22,13 +22,20 @@
 package com.comcast.xconf.estbfirmware;
 
 import com.comcast.apps.hesperius.ruleengine.RuleEngine;
+import com.comcast.apps.hesperius.ruleengine.domain.PercentThreshold;
 import com.comcast.apps.hesperius.ruleengine.domain.RuleUtils;
 import com.comcast.apps.hesperius.ruleengine.domain.additional.data.IpAddress;
 import com.comcast.apps.hesperius.ruleengine.domain.standard.StandardOperation;
+import com.comcast.apps.hesperius.ruleengine.main.api.EvaluationContext;
 import com.comcast.apps.hesperius.ruleengine.main.api.FixedArg;
 import com.comcast.apps.hesperius.ruleengine.main.api.IRuleProcessor;
 import com.comcast.apps.hesperius.ruleengine.main.impl.Condition;
+import com.comcast.apps.hesperius.ruleengine.main.impl.EvaluationSession;
 import com.comcast.apps.hesperius.ruleengine.main.impl.Rule;
+import com.comcast.apps.hesperius.ruleengine.main.impl.RuleIndex;
+import com.comcast.hesperius.dataaccess.core.cache.CacheManager;
+import com.comcast.hesperius.dataaccess.core.cache.CacheSnapshot;
+import com.comcast.hesperius.dataaccess.core.cache.DerivedView;
 import com.comcast.hesperius.dataaccess.core.dao.ISimpleCachedDAO;
 import com.comcast.xconf.ConfigNames;
 import com.comcast.xconf.GenericNamespacedList;
@@ -41,9 +48,11 @@ import com.comcast.xconf.firmware.*;
 import com.comcast.xconf.firmware.FirmwareRule;
 import com.comcast.xconf.service.GenericNamespacedListQueriesService;
 import com.comcast.xconf.util.RuleUtil;
-import com.google.common.base.Optional;
+import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
@@ -54,6 +63,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
 import java.util.*;
 
 @Component
@@ -64,6 +74,15 @@ public class EstbFirmwareRuleBase {
     public static final String PERCENT_FILTER_NAME = "PercentFilter";
     public static final String FIRMWARE_SOURCE = "firmwareVersionSource";
 
+    private static final String[] INDEXED_FREE_ARGS = {StbContext.MODEL, StbContext.ENVIRONMENT, StbContext.PARTNER_ID};
+
+    private static final Function<FirmwareRule, Rule> GET_RULE = new Function<FirmwareRule, Rule>() {
+        @Override
+        public Rule apply(FirmwareRule input) {
+            return input.getRule();
+        }
+    };
+
     @Autowired
     private ISimpleCachedDAO<String, FirmwareRule> firmwareRuleDao;
     @Autowired
@@ -80,15 +99,46 @@ public class EstbFirmwareRuleBase {
 
     private IRuleProcessor<Condition, Rule> processor = RuleEngine.getRuleProcessor();
 
+    /**
+     * application type -> rule type -> rules, see {@link ApplicationType#get(String)}
+     */
+    private DerivedView<Map<String, ImmutableSetMultimap<String, FirmwareRule>>> rulesByType;
+    /**
+     * application type -> rule type -> index of {@link #rulesByType} rules of that type
+     */
+    private DerivedView<Map<String, Map<String, RuleIndex<FirmwareRule>>>> ruleIndexes;
+    private DerivedView<ImmutableListMultimap<ApplicableAction.Type, FirmwareRuleTemplate>> templatesByPriority;
+    private DerivedView<ImmutableListMultimap<ApplicableAction.Type, FirmwareRuleTemplate>> templatesByPriorityDesc;
+
     private boolean driAlwaysReply = true;
 
     private String driStateIdentifiers = "P-DRI,B-DRI";
 
+    @PostConstruct
+    public void registerViews() {
+        rulesByType = CacheManager.registerView("FirmwareRulesByType", new Function<CacheSnapshot, Map<String, ImmutableSetMultimap<String, FirmwareRule>>>() {
+            @Override
+            public Map<String, ImmutableSetMultimap<String, FirmwareRule>> apply(CacheSnapshot snapshot) {
+                return sort(snapshot.getGeneration(firmwareRuleDao).values());
+            }
+        }, firmwareRuleDao);
+        ruleIndexes = CacheManager.registerView("FirmwareRuleIndexes", new Function<CacheSnapshot, Map<String, Map<String, RuleIndex<FirmwareRule>>>>() {
+            @Override
+            public Map<String, Map<String, RuleIndex<FirmwareRule>>> apply(CacheSnapshot snapshot) {
+                return index(rulesByType.get(snapshot));
+            }
+        }, firmwareRuleDao);
+        templatesByPriority = CacheManager.registerView("FirmwareRuleTemplatesByPriority",
+                sortTemplates(firmwareRuleTemplateDao, false), firmwareRuleTemplateDao);
+        templatesByPriorityDesc = CacheManager.registerView("FirmwareRuleTemplatesByPriorityDesc",
+                sortTemplates(firmwareRuleTemplateDao, true), firmwareRuleTemplateDao);
+    }
+
     public EvaluationResult eval(EstbFirmwareContext context, String applicationType) {
         EvaluationResult result = new EvaluationResult();
-        Multimap<String, FirmwareRule> rules = sort(Optional.presentInstances(firmwareRuleDao.asLoadingCache().asMap().values()), applicationType);
+        Map<String, RuleIndex<FirmwareRule>> rules = getRuleIndexes(applicationType);
 
-        FirmwareRule matchedRule = findMatchedRule(rules, ApplicableAction.Type.RULE_TEMPLATE, context.getProperties(), context.convert().getBypassFilters());
+        FirmwareRule matchedRule = findMatchedRule(rules, applicationType, ApplicableAction.Type.RULE_TEMPLATE, context.toEvaluationContext(), context.convert().getBypassFilters());
         if (matchedRule == null) {
             log.info("no rules matched context: " + context);
             result.setDescription("No rules matched");
@@ -99,7 +149,7 @@ public class EstbFirmwareRuleBase {
         FirmwareConfigFacade firmwareConfig = null;
         String boundConfigId = getBoundConfigId(context, matchedRule, result.getAppliedVersionInfo());
         if (StringUtils.isNotBlank(boundConfigId)) { // check for no-op rules
-            FirmwareConfig config = firmwareConfigDAO.getOne(boundConfigId);
+            FirmwareConfig config = firmwareConfigDAO.getOneReadOnly(boundConfigId);
             if (config == null) {
                 log.warn("no config found by {}: {} boundConfigId: {}, it was deleted", matchedRule.getType(), matchedRule.getName(), boundConfigId);
                 result.setDescription("no config found by id: " + boundConfigId);
@@ -181,11 +231,15 @@ public class EstbFirmwareRuleBase {
         if (ruleAction.getConfigEntries() != null) {
             double currentPercent = 0;
             Object source = context.getEstbMac() != null ? context.getEstbMac() : context;
+            Long sourceHash = null; // same for every entry, only the percent grows
             for (RuleAction.ConfigEntry entry : ruleAction.getConfigEntries()) {
                 Double percentage = entry.getPercentage();
                 if (percentage != null && percentage > 0) {
                     currentPercent += percentage;
-                    if (RuleUtils.fitsPercent(source, currentPercent)) {
+                    if (sourceHash == null) {
+                        sourceHash = PercentThreshold.jsonHash(source);
+                    }
+                    if (PercentThreshold.fits(sourceHash, currentPercent)) {
                         appliedVersionInfo.put(FIRMWARE_SOURCE, "MultipleVersionDistribution");
                         return entry.getConfigId();
                     }
@@ -211,21 +265,26 @@ public class EstbFirmwareRuleBase {
     }
 
     private FirmwareConfig getFirmwareConfig(String id) {
-        return StringUtils.isNotBlank(id) ? firmwareConfigDAO.getOne(id): null;
+        return StringUtils.isNotBlank(id) ? firmwareConfigDAO.getOneReadOnly(id): null;
     }
 
-    private List<FirmwareRule> findMatchedRules(Multimap<String, FirmwareRule> rules, ApplicableAction.Type templateType,
-                                                Map<String, String> contextMap, Set<String> bypassFilters, boolean isSingle, boolean reverse) {
+    private List<FirmwareRule> findMatchedRules(Map<String, RuleIndex<FirmwareRule>> rules, String applicationType, ApplicableAction.Type templateType,
+                                                EvaluationContext context, Set<String> bypassFilters, boolean isSingle, boolean reverse) {
         List<FirmwareRule> results = new ArrayList<>();
         List<FirmwareRuleTemplate> templates = getSortedTemplate(templateType, reverse);
+        EvaluationSession session = new EvaluationSession(context);
         for (FirmwareRuleTemplate template : templates) {
             String ruleType = template.getId();
             if (bypassFilters.contains(ruleType)) {
                 continue;
             }
-            Collection<FirmwareRule> firmwareRules = rules.get(ruleType);
+            RuleIndex<FirmwareRule> index = rules.get(ruleType);
+            if (index == null) {
+                continue;
+            }
+            Collection<FirmwareRule> firmwareRules = index.getCandidates(context.asMap());
             for (FirmwareRule firmwareRule : firmwareRules) {
-                if (firmwareRule.isActive() && processor.evaluate(firmwareRule.getRule(), contextMap)) {
+                if (firmwareRule.isActive() && processor.evaluate(processor.getCompiled(firmwareRule.getRule()), session, firmwareRule.getRuleType(), firmwareRule.getId())) {
                     results.add(firmwareRule);
                     if (CollectionUtils.isNotEmpty(template.getByPassFilters())) {
                         bypassFilters.addAll(template.getByPassFilters());
@@ -239,28 +298,29 @@ public class EstbFirmwareRuleBase {
         return results;
     }
 
-    private FirmwareRule findMatchedRule(Multimap<String, FirmwareRule> rules, ApplicableAction.Type templateType, Map<String, String> contextMap, Set<String> bypassFilters) {
-        List<FirmwareRule> matchedRules = findMatchedRules(rules, templateType, contextMap, bypassFilters, true, false);
+    private FirmwareRule findMatchedRule(Map<String, RuleIndex<FirmwareRule>> rules, String applicationType, ApplicableAction.Type templateType, EvaluationContext context, Set<String> bypassFilters) {
+        List<FirmwareRule> matchedRules = findMatchedRules(rules, applicationType, templateType, context, bypassFilters, true, false);
         return matchedRules.isEmpty() ? null : matchedRules.get(0);
     }
 
     /**
      * Evaluate rules and collect properties from matched rules. All matched rules will be added into applied filters list
-     * @param rules multimap with all firmware rules
+     * @param rules rule type -> index of firmware rules of that type
+     * @param applicationType application type of the rules
      * @param templateType template type
      * @param context request context
      * @param bypassFilters filters to exclude from evaluation
      * @param appliedFilters list to collect all applied filters
      * @return map with properties defined in matching rules
      */
-    private Map<String, Object> applyMatchedFilters(Multimap<String, FirmwareRule> rules, ApplicableAction.Type templateType,
-                                                    Map<String, String> context, Set<String> bypassFilters, List<Object> appliedFilters) {
+    private Map<String, Object> applyMatchedFilters(Map<String, RuleIndex<FirmwareRule>> rules, String applicationType, ApplicableAction.Type templateType,
+                                                    EvaluationContext context, Set<String> bypassFilters, List<Object> appliedFilters) {
         Map<String, Object> map = new HashMap<>();
-        List<FirmwareRule> matchedRules = findMatchedRules(rules, templateType, context, bypassFilters, false, true);
+        List<FirmwareRule> matchedRules = findMatchedRules(rules, applicationType, templateType, context, bypassFilters, false, true);
         for (FirmwareRule firmwareRule : matchedRules) {
             if (firmwareRule.getApplicableAction() instanceof DefinePropertiesAction) {
                 DefinePropertiesAction action = (DefinePropertiesAction) firmwareRule.getApplicableAction();
-                FirmwareRuleTemplate template = firmwareRuleTemplateDao.getOne(firmwareRule.getType(), false);
+                FirmwareRuleTemplate template = firmwareRuleTemplateDao.getOneReadOnly(firmwareRule.getType());
                 map.putAll(convertProperties(template, action.getProperties()));
                 if (CollectionUtils.isNotEmpty(action.getByPassFilters())) {
                     bypassFilters.addAll(action.getByPassFilters());
@@ -303,7 +363,7 @@ public class EstbFirmwareRuleBase {
     /**
      * @return true if firmware output must be blocked, false if must be returned
      */
-    private boolean doFilters(EstbFirmwareContext context, String applicationType, Multimap<String, FirmwareRule> rules, EvaluationResult evaluationResult) {
+    private boolean doFilters(EstbFirmwareContext context, String applicationType, Map<String, RuleIndex<FirmwareRule>> rules, EvaluationResult evaluationResult) {
         EstbFirmwareContext.Converted convertedContext = context.convert();
         Set<String> bypassFilters = convertedContext.getBypassFilters();
         List<Object> appliedFilters = evaluationResult.getAppliedFilters();
@@ -311,20 +371,20 @@ public class EstbFirmwareRuleBase {
         FirmwareConfigFacade firmwareConfig = evaluationResult.getFirmwareConfig();
         String filterId = getRoundRobinIdByApplication(applicationType);
         DownloadLocationRoundRobinFilterValue downloadLocationRoundRobinFilterValue =
-                (DownloadLocationRoundRobinFilterValue) singletonFilterValueDAO.getOne(filterId);
+                (DownloadLocationRoundRobinFilterValue) singletonFilterValueDAO.getOneReadOnly(filterId);
         if (downloadLocationRoundRobinFilterValue != null) {
             if (DownloadLocationRoundRobinFilter.filter(firmwareConfig, downloadLocationRoundRobinFilterValue, convertedContext)) {
                 appliedFilters.add(downloadLocationRoundRobinFilterValue);
             }
         }
 
-        Map<String, String> contextProperties = context.getProperties();
-
         // download protocol should be setup in download location filter
-        contextProperties.put(StbContext.DOWNLOAD_PROTOCOL, firmwareConfig.getFirmwareDownloadProtocol());
-        contextProperties.put(StbContext.MATCHED_RULE_TYPE, evaluationResult.getMatchedRule().getType());
+        EvaluationContext evaluationContext = context.toEvaluationContextBuilder()
+                .put(StbContext.DOWNLOAD_PROTOCOL, firmwareConfig.getFirmwareDownloadProtocol())
+                .put(StbContext.MATCHED_RULE_TYPE, evaluationResult.getMatchedRule().getType())
+                .build();
 
-        Map<String, Object> map = applyMatchedFilters(rules, ApplicableAction.Type.DEFINE_PROPERTIES_TEMPLATE, contextProperties, bypassFilters, appliedFilters);
+        Map<String, Object> map = applyMatchedFilters(rules, applicationType, ApplicableAction.Type.DEFINE_PROPERTIES_TEMPLATE, evaluationContext, bypassFilters, appliedFilters);
 
         firmwareConfig.putAll(map);
 
@@ -340,7 +400,7 @@ public class EstbFirmwareRuleBase {
             firmwareConfig.setRebootImmediately(true);
         }
 
-        FirmwareRule blockingFilter = findMatchedRule(rules, ApplicableAction.Type.BLOCKING_FILTER_TEMPLATE, contextProperties, bypassFilters);
+        FirmwareRule blockingFilter = findMatchedRule(rules, applicationType, ApplicableAction.Type.BLOCKING_FILTER_TEMPLATE, evaluationContext, bypassFilters);
         boolean blocked = blockingFilter != null;
         if (blocked) {
             appliedFilters.add(blockingFilter);
@@ -367,38 +427,76 @@ public class EstbFirmwareRuleBase {
         return blocked;
     }
 
-    private static Multimap<String, FirmwareRule> sort(Iterable<FirmwareRule> rules, String applicationType) {
-        Multimap<String, FirmwareRule> result = HashMultimap.create();
+    private Map<String, RuleIndex<FirmwareRule>> getRuleIndexes(String applicationType) {
+        Map<String, RuleIndex<FirmwareRule>> indexes = ruleIndexes.get().get(ApplicationType.get(applicationType));
+        return indexes != null ? indexes : Collections.<String, RuleIndex<FirmwareRule>>emptyMap();
+    }
+
+    private static Map<String, Map<String, RuleIndex<FirmwareRule>>> index(Map<String, ImmutableSetMultimap<String, FirmwareRule>> rulesByType) {
+        Map<String, Map<String, RuleIndex<FirmwareRule>>> result = new HashMap<>();
+        for (Map.Entry<String, ImmutableSetMultimap<String, FirmwareRule>> byApplicationType : rulesByType.entrySet()) {
+            Map<String, RuleIndex<FirmwareRule>> indexes = new HashMap<>();
+            for (Map.Entry<String, Collection<FirmwareRule>> byType : byApplicationType.getValue().asMap().entrySet()) {
+                indexes.put(byType.getKey(), RuleIndex.build(byType.getValue(), GET_RULE, INDEXED_FREE_ARGS));
+            }
+            result.put(byApplicationType.getKey(), Collections.unmodifiableMap(indexes));
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    private static Map<String, ImmutableSetMultimap<String, FirmwareRule>> sort(Iterable<FirmwareRule> rules) {
+        Map<String, Multimap<String, FirmwareRule>> sorted = new HashMap<>();
         for (FirmwareRule rule : rules) {
             if (rule.getType() == null) {
                 log.error("ruleType is null: " + rule);
                 continue;
             }
-            if (ApplicationType.equals(rule.getApplicationType(), applicationType)) {
-                result.put(rule.getType(), rule);
+            String applicationType = ApplicationType.get(rule.getApplicationType());
+            Multimap<String, FirmwareRule> byType = sorted.get(applicationType);
+            if (byType == null) {
+                byType = HashMultimap.create();
+                sorted.put(applicationType, byType);
             }
+            byType.put(rule.getType(), rule);
         }
-        return result;
+        Map<String, ImmutableSetMultimap<String, FirmwareRule>> result = new HashMap<>();
+        for (Map.Entry<String, Multimap<String, FirmwareRule>> entry : sorted.entrySet()) {
+            result.put(entry.getKey(), ImmutableSetMultimap.copyOf(entry.getValue()));
+        }
+        return Collections.unmodifiableMap(result);
     }
 
     private List<FirmwareRuleTemplate> getSortedTemplate(final ApplicableAction.Type type, final boolean reverse) {
-        Iterable<FirmwareRuleTemplate> templates = Optional.presentInstances(firmwareRuleTemplateDao.asLoadingCache().asMap().values());
-        List<FirmwareRuleTemplate> all = Lists.newArrayList(Iterables.filter(templates, new Predicate<FirmwareRuleTemplate>() {
-            @Override
-            public boolean apply(FirmwareRuleTemplate input) {
-                return input.getApplicableAction() != null && input.getApplicableAction().getActionType() == type;
-            }
-        }));
-        Collections.sort(all, new Comparator<FirmwareRuleTemplate>() {
+        return (reverse ? templatesByPriorityDesc : templatesByPriority).get().get(type);
+    }
+
+    private static Function<CacheSnapshot, ImmutableListMultimap<ApplicableAction.Type, FirmwareRuleTemplate>> sortTemplates(
+            final ISimpleCachedDAO<String, FirmwareRuleTemplate> templateDao, final boolean reverse) {
+        return new Function<CacheSnapshot, ImmutableListMultimap<ApplicableAction.Type, FirmwareRuleTemplate>>() {
             @Override
-            public int compare(FirmwareRuleTemplate o1, FirmwareRuleTemplate o2) {
-                int p1 = (o1 != null && o1.getPriority() != null) ? o1.getPriority() : 0;
-                int p2 = (o2 != null && o2.getPriority() != null) ? o2.getPriority() : 0;
-                int result = p1 - p2;
-                return reverse ? -1 * result : result;
+            public ImmutableListMultimap<ApplicableAction.Type, FirmwareRuleTemplate> apply(CacheSnapshot snapshot) {
+                List<FirmwareRuleTemplate> all = Lists.newArrayList(Iterables.filter(snapshot.getGeneration(templateDao).values(), new Predicate<FirmwareRuleTemplate>() {
+                    @Override
+                    public boolean apply(FirmwareRuleTemplate input) {
+                        return input.getApplicableAction() != null && input.getApplicableAction().getActionType() != null;
+                    }
+                }));
+                Collections.sort(all, new Comparator<FirmwareRuleTemplate>() {
+                    @Override
+                    public int compare(FirmwareRuleTemplate o1, FirmwareRuleTemplate o2) {
+                        int p1 = (o1 != null && o1.getPriority() != null) ? o1.getPriority() : 0;
+                        int p2 = (o2 != null && o2.getPriority() != null) ? o2.getPriority() : 0;
+                        int result = p1 - p2;
+                        return reverse ? -1 * result : result;
+                    }
+                });
+                ImmutableListMultimap.Builder<ApplicableAction.Type, FirmwareRuleTemplate> byType = ImmutableListMultimap.builder();
+                for (FirmwareRuleTemplate template : all) {
+                    byType.put(template.getApplicableAction().getActionType(), template);
+                }
+                return byType.build();
             }
-        });
-        return all;
+        };
     }
 
     public boolean hasMinimumFirmware(EstbFirmwareContext context) {
@@ -426,7 +524,7 @@ public class EstbFirmwareRuleBase {
 
     public BseConfiguration getBseConfiguration(final IpAddress address) {
         List<BseConfiguration.ModelFirmwareConfiguration> modelConfigs = new ArrayList<>();
-        Iterable<FirmwareRule> firmwareRules = Optional.presentInstances(firmwareRuleDao.asLoadingCache().asMap().values());
+        Iterable<FirmwareRule> firmwareRules = firmwareRuleDao.viewAll();
         for (FirmwareRule firmwareRule : firmwareRules) {
             if (TemplateNames.IP_RULE.equals(firmwareRule.getType()) && !firmwareRule.isNoop() && ApplicationType.equals(firmwareRule.getApplicationType(), ApplicationType.STB)) {
 
@@ -446,7 +544,7 @@ public class EstbFirmwareRuleBase {
         config.setModelConfigurations(modelConfigs);
 
         DownloadLocationRoundRobinFilterValue downloadLocationRoundRobinFilterValue =
-                (DownloadLocationRoundRobinFilterValue) singletonFilterValueDAO.getOne(DownloadLocationRoundRobinFilterValue.SINGLETON_ID);
+                (DownloadLocationRoundRobinFilterValue) singletonFilterValueDAO.getOneReadOnly(DownloadLocationRoundRobinFilterValue.SINGLETON_ID);
         if (downloadLocationRoundRobinFilterValue != null) {
             String[] locations = downloadLocationRoundRobinFilterValue.getDownloadLocations();
             config.setProtocol(FirmwareConfig.DownloadProtocol.tftp.name());
@@ -22,11 +22,13 @@
 package com.comcast.xconf.evaluators;
 
 import com.comcast.apps.hesperius.ruleengine.domain.standard.StandardFreeArgType;
+import com.comcast.apps.hesperius.ruleengine.main.api.EvaluationContext;
 import com.comcast.apps.hesperius.ruleengine.main.api.FreeArgType;
 import com.comcast.apps.hesperius.ruleengine.main.api.IConditionEvaluator;
 import com.comcast.apps.hesperius.ruleengine.main.api.Operation;
 import com.comcast.apps.hesperius.ruleengine.main.api.ValidationException;
 import com.comcast.apps.hesperius.ruleengine.main.api.internal.IReadonlyCondition;
+import com.comcast.xconf.LocalTimeArgs;
 import com.comcast.xconf.StbContext;
 import com.comcast.xconf.util.TimeUtil;
 import com.google.common.base.Function;
@@ -54,13 +56,31 @@ public class BaseTimeEvaluator implements IConditionEvaluator {
         if (StringUtils.isEmpty(freeArgValue)) {
             return false;
         }
-        String fixedArg = (String) condition.getFixedArg().getValue();
+        Object fixedArg = condition.getFixedArg().getValue();
         if (condition.getFreeArg().getName().equals(StbContext.TIME)) {
             LocalTime freeArgActualValue = TimeUtil.parseDateTime(freeArgValue);
-            int comparisonResult = freeArgActualValue.compareTo(LocalTime.parse(fixedArg));
+            int comparisonResult = freeArgActualValue.compareTo(LocalTimeArgs.fixedTime(fixedArg));
             return evaluation.apply(comparisonResult);
         }
-        return evaluation.apply(freeArgValue.compareTo(fixedArg));
+        return evaluation.apply(freeArgValue.compareTo(LocalTimeArgs.fixedValue(fixedArg)));
+    }
+
+    /**
+     * Same as above, time of the context is parsed once for all time conditions
+     */
+    @Override
+    public boolean evaluate(IReadonlyCondition condition, EvaluationContext context) {
+        String freeArgName = condition.getFreeArg().getName();
+        String freeArgValue = context.get(freeArgName);
+        if (StringUtils.isEmpty(freeArgValue)) {
+            return false;
+        }
+        Object fixedArg = condition.getFixedArg().getValue();
+        if (freeArgName.equals(StbContext.TIME)) {
+            LocalTime freeArgActualValue = context.get(freeArgName, LocalTimeArgs.DATE_TIME_TO_LOCAL_TIME);
+            return evaluation.apply(freeArgActualValue.compareTo(LocalTimeArgs.fixedTime(fixedArg)));
+        }
+        return evaluation.apply(freeArgValue.compareTo(LocalTimeArgs.fixedValue(fixedArg)));
     }
 
     @Override
@@ -79,6 +99,19 @@ public class BaseTimeEvaluator implements IConditionEvaluator {
         return Arrays.asList(new Class<?>[]{clazz});
     }
 
+    /**
+     * Fixed time is parsed once when rule is compiled, see {@link LocalTimeArgs}
+     */
+    @Override
+    public Object prepare(Object fixedArgValue) {
+        return LocalTimeArgs.prepareFixedTime(fixedArgValue);
+    }
+
+    @Override
+    public boolean isDeterministic() {
+        return true;
+    }
+
     @Override
     public void validate(Object fixedArgValue) throws ValidationException {
         if (fixedArgValue == null) {
@@ -44,7 +44,7 @@ public class NsListInEvaluator extends BaseEvaluator {
 
     @Override
     protected boolean evaluateInternal(String freeArgValue, Object fixedArgValue) {
-        final GenericNamespacedList nsList = genericListDao.getOne((String) fixedArgValue, false);
+        final GenericNamespacedList nsList = genericListDao.getOneReadOnly((String) fixedArgValue);
         if (nsList == null) {
             log.warn("Can't evaluate rule because NsList doesn't exist. ID: " + fixedArgValue);
             return false;
@@ -24,7 +24,11 @@ package com.comcast.xconf.featurecontrol;
 import com.comcast.apps.hesperius.ruleengine.RuleEngine;
 import com.comcast.apps.hesperius.ruleengine.main.api.IRuleProcessor;
 import com.comcast.apps.hesperius.ruleengine.main.impl.Condition;
+import com.comcast.apps.hesperius.ruleengine.main.impl.EvaluationSession;
 import com.comcast.apps.hesperius.ruleengine.main.impl.Rule;
+import com.comcast.hesperius.dataaccess.core.cache.CacheManager;
+import com.comcast.hesperius.dataaccess.core.cache.CacheSnapshot;
+import com.comcast.hesperius.dataaccess.core.cache.DerivedView;
 import com.comcast.hesperius.dataaccess.core.dao.ISimpleCachedDAO;
 import com.comcast.xconf.MacAddressUtil;
 import com.comcast.xconf.SortingManager;
@@ -36,9 +40,10 @@ import com.comcast.xconf.rfc.Feature;
 import com.comcast.xconf.rfc.FeatureControl;
 import com.comcast.xconf.rfc.FeatureResponse;
 import com.comcast.xconf.rfc.FeatureRule;
+import com.google.common.base.Function;
 import com.google.common.base.Joiner;
-import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
@@ -50,6 +55,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
 import java.util.*;
 
 import static com.comcast.xconf.logupload.LogUploaderContext.PARTNER_ID;
@@ -68,8 +74,20 @@ public class FeatureControlRuleBase {
 
     private IRuleProcessor<Condition, Rule> processor = RuleEngine.getRuleProcessor();
 
+    private DerivedView<ImmutableList<FeatureRule>> featureRulesByPriority;
+
     private static final Logger log = LoggerFactory.getLogger(FeatureControlRuleBase.class);
 
+    @PostConstruct
+    public void registerViews() {
+        featureRulesByPriority = CacheManager.registerView("FeatureRulesByPriority", new Function<CacheSnapshot, ImmutableList<FeatureRule>>() {
+            @Override
+            public ImmutableList<FeatureRule> apply(CacheSnapshot snapshot) {
+                return ImmutableList.copyOf(SortingManager.sortRulesByPriorityAsc(snapshot.getGeneration(featureRuleDAO).values()));
+            }
+        }, featureRuleDAO);
+    }
+
     public FeatureControl eval(Map<String, String> context, String applicationType) {
         FeatureControl featureControl = new FeatureControl();
         List<FeatureRule> appliedFeatureRules = processFeatureRules(context, applicationType);
@@ -92,7 +110,7 @@ public class FeatureControlRuleBase {
             if (StringUtils.isBlank(featureId)) {
                 continue;
             }
-            Feature feature = featureDAO.getOne(featureId);
+            Feature feature = featureDAO.getOneReadOnly(featureId);
             if (feature != null && !featureResponseResult.containsKey(feature.getName())) {
                 FeatureResponse featureResponse = featureConverter.toRfcResponse(feature);
                 featureResponseResult.put(featureResponse.getName(), QueriesHelper.nullifyUnwantedFields(featureResponse));
@@ -101,12 +119,13 @@ public class FeatureControlRuleBase {
     }
 
     public List<FeatureRule> processFeatureRules(final Map<String, String> context, final String applicationType) {
-        List<FeatureRule> featureRules = SortingManager.sortRulesByPriorityAsc(Optional.presentInstances(featureRuleDAO.asLoadingCache().asMap().values()));
+        List<FeatureRule> featureRules = featureRulesByPriority.get();
+        final EvaluationSession session = new EvaluationSession(context);
         return Lists.newArrayList(Iterables.filter(featureRules, new Predicate<FeatureRule>() {
             @Override
             public boolean apply(@Nullable FeatureRule featureRule) {
                 return ApplicationType.equals(applicationType, featureRule.getApplicationType())
-                        && processor.evaluate(featureRule.getRule(), context);
+                        && processor.evaluate(processor.getCompiled(featureRule.getRule()), session, featureRule.getRuleType(), featureRule.getId());
             }
         }));
     }
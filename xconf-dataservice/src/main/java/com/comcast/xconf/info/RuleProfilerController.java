@@ -0,0 +1,60 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.xconf.info;
+
+import com.comcast.apps.hesperius.ruleengine.main.impl.RuleProfile;
+import com.comcast.apps.hesperius.ruleengine.main.impl.RuleProfiler;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Most expensive rules sampled by {@link RuleProfiler}, by rule type (FirmwareRule, Formula, TelemetryRule, FeatureRule...).
+ * Declared as a bean of {@link com.comcast.xconf.contextconfig.InfoWebConfig} so that it is served under /info only.
+ */
+@RequestMapping(RuleProfilerController.URL_MAPPING)
+public class RuleProfilerController {
+
+    public static final String URL_MAPPING = "/ruleProfiles";
+
+    private final RuleProfiler profiler;
+
+    public RuleProfilerController(RuleProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    @RequestMapping(method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public Map<String, List<RuleProfile>> getTopRules(@RequestParam(value = "category", required = false) String category,
+                                                      @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        final Map<String, List<RuleProfile>> result = new LinkedHashMap<>();
+        for (String profiled : profiler.getCategories()) {
+            if (category == null || category.equalsIgnoreCase(profiled)) {
+                result.put(profiled, profiler.getTop(profiled, limit));
+            }
+        }
+        return result;
+    }
+}
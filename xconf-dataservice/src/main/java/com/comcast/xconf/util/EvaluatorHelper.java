@@ -24,6 +24,7 @@ package com.comcast.xconf.util;
 import com.comcast.apps.hesperius.ruleengine.RuleEngine;
 import com.comcast.apps.hesperius.ruleengine.main.api.IRuleProcessor;
 import com.comcast.apps.hesperius.ruleengine.main.impl.Condition;
+import com.comcast.apps.hesperius.ruleengine.main.impl.EvaluationSession;
 import com.comcast.apps.hesperius.ruleengine.main.impl.Rule;
 import com.comcast.xconf.Applicationable;
 import com.comcast.xconf.RuleHelper;
@@ -43,11 +44,12 @@ public class EvaluatorHelper {
     private static final IRuleProcessor<Condition, Rule> processor = RuleEngine.getRuleProcessor();
 
     public static <E extends XRule & Applicationable> Iterable<E> processEntityRules(Iterable<E> entityRuleList, final Map<String, String> context) {
+        final EvaluationSession session = new EvaluationSession(context);
         return Iterables.filter(entityRuleList, new Predicate<E>() {
             @Override
             public boolean apply(@Nullable E rule) {
                 return ApplicationType.equals(context.get(LogUploaderContext.APPLICATION), rule.getApplicationType())
-                        && processor.evaluate(rule.getRule(), context);
+                        && processor.evaluate(processor.getCompiled(rule.getRule()), session, rule.getRuleType(), rule.getId());
             }
         });
     }
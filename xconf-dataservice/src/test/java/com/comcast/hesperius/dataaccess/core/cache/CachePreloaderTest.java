@@ -0,0 +1,173 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.hesperius.dataaccess.core.cache;
+
+import com.comcast.hesperius.dataaccess.core.dao.ForwardingAdsSimpleDao;
+import com.comcast.hesperius.dataaccess.core.dao.IADSSimpleDAO;
+import com.comcast.xconf.Environment;
+import com.google.common.base.Optional;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CachePreloaderTest {
+
+    private final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+
+    @Test
+    public void columnFamiliesAreLoadedInPriorityOrder() throws Exception {
+        CachePreloader preloader = new CachePreloader(1, 10, Arrays.asList("B", "A"));
+        final CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch completed = new CountDownLatch(4);
+        IADSSimpleDAO<String, Environment> blocking = new ForwardingAdsSimpleDao<String, Environment>(null) {
+            @Override
+            public String getColumnFamilyName() {
+                return "X";
+            }
+
+            @Override
+            public Iterable<String> getKeys() {
+                events.add("scan X");
+                try {
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return Collections.singletonList("X1");
+            }
+        };
+        preloader.schedule(blocking, cache("X", null), countDown(completed));    // occupies the only thread
+        for (String cfName : new String[]{"C", "A", "B"}) {
+            preloader.schedule(dao(cfName, cfName + "1"), cache(cfName, null), countDown(completed));
+        }
+        blocked.countDown();
+
+        assertTrue(completed.await(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("scan X", "scan B", "load B", "scan A", "load A", "scan C", "load X", "load C"), events);
+    }
+
+    @Test
+    public void failingChunkIsRetriedAndCountedAsFailed() throws Exception {
+        CachePreloader preloader = new CachePreloader(2, 1, Collections.<String>emptyList());
+        final AtomicInteger completions = new AtomicInteger();
+        final CountDownLatch completed = new CountDownLatch(1);
+
+        preloader.schedule(dao("F", "good", "bad"), cache("F", "bad"), new Runnable() {
+            @Override
+            public void run() {
+                completions.incrementAndGet();
+                completed.countDown();
+            }
+        });
+
+        assertTrue(completed.await(10, TimeUnit.SECONDS));
+        assertEquals(1, completions.get());
+        assertEquals(4, Collections.frequency(events, "load F"));   // one good chunk and three attempts of the bad one
+        CachePreloader.Progress progress = progress(preloader, "F");
+        assertTrue(progress.isDone());
+        assertEquals(2, progress.getTotalKeys());
+        assertEquals(1, progress.getLoadedKeys());
+        assertEquals(1, progress.getFailedKeys());
+    }
+
+    @Test
+    public void emptyColumnFamilyCompletes() throws Exception {
+        CachePreloader preloader = new CachePreloader(1, 10, Collections.<String>emptyList());
+        CountDownLatch completed = new CountDownLatch(1);
+
+        preloader.schedule(dao("E"), cache("E", null), countDown(completed));
+
+        assertTrue(completed.await(10, TimeUnit.SECONDS));
+        CachePreloader.Progress progress = progress(preloader, "E");
+        assertTrue(progress.isDone());
+        assertEquals(0, progress.getTotalKeys());
+    }
+
+    private IADSSimpleDAO<String, Environment> dao(final String cfName, final String... keys) {
+        return new ForwardingAdsSimpleDao<String, Environment>(null) {
+            @Override
+            public String getColumnFamilyName() {
+                return cfName;
+            }
+
+            @Override
+            public Iterable<String> getKeys() {
+                events.add("scan " + cfName);
+                return Arrays.asList(keys);
+            }
+        };
+    }
+
+    /**
+     * @param failingKey loading of a chunk containing this key fails, null if all chunks load
+     */
+    private LoadingCache<String, Optional<Environment>> cache(final String cfName, final String failingKey) {
+        return CacheBuilder.newBuilder().build(new CacheLoader<String, Optional<Environment>>() {
+            @Override
+            public Optional<Environment> load(String key) throws Exception {
+                return loadAll(Collections.singleton(key)).get(key);
+            }
+
+            @Override
+            public Map<String, Optional<Environment>> loadAll(Iterable<? extends String> keys) throws Exception {
+                events.add("load " + cfName);
+                final Map<String, Optional<Environment>> result = new HashMap<>();
+                for (String key : keys) {
+                    if (key.equals(failingKey)) {
+                        throw new IllegalStateException("unavailable");
+                    }
+                    result.put(key, Optional.<Environment>absent());
+                }
+                return result;
+            }
+        });
+    }
+
+    private static Runnable countDown(final CountDownLatch latch) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        };
+    }
+
+    private static CachePreloader.Progress progress(CachePreloader preloader, String cfName) {
+        for (CachePreloader.Progress progress : preloader.getProgress()) {
+            if (progress.getCfName().equals(cfName)) {
+                return progress;
+            }
+        }
+        throw new AssertionError("no progress of " + cfName);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.hesperius.dataaccess.core.cache;
+
+import com.comcast.hesperius.data.annotation.CF;
+import com.comcast.hesperius.dataaccess.core.cache.support.data.ChangedData;
+import com.comcast.hesperius.dataaccess.core.dao.ForwardingAdsSimpleDao;
+import com.comcast.hesperius.dataaccess.core.dao.IADSSimpleDAO;
+import com.comcast.hesperius.dataaccess.core.util.CoreUtil;
+import com.comcast.xconf.Environment;
+import com.comcast.xconf.queries.controllers.BaseQueriesControllerTest;
+import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ChangeBatchTest extends BaseQueriesControllerTest {
+
+    private static final String CF_NAME = Environment.class.getAnnotation(CF.class).cfName();
+
+    @Test
+    public void keyDeletedAndCreatedAgainIsPresent() throws Exception {
+        createAndSaveEnvironment("FIRST");
+        ChangeBatch batch = batch(CacheManager.findSourceByDAOId(environmentDAO.id()));
+        batch.add(change(ChangedData.Operation.DELETE, "FIRST"));
+        batch.add(change(ChangedData.Operation.CREATE, "FIRST"));
+
+        batch.load();
+        batch.apply();
+
+        assertTrue(environmentDAO.asLoadingCache().getIfPresent("FIRST").isPresent());
+    }
+
+    @Test
+    public void truncateDropsEarlierChanges() throws Exception {
+        createAndSaveEnvironment("FIRST");
+        createAndSaveEnvironment("SECOND");
+        try {
+            ChangeBatch batch = batch(CacheManager.findSourceByDAOId(environmentDAO.id()));
+            batch.add(change(ChangedData.Operation.CREATE, "FIRST"));
+            batch.add(change(ChangedData.Operation.TRUNCATE_CF, "FIRST"));
+            batch.add(change(ChangedData.Operation.CREATE, "SECOND"));
+
+            batch.load();
+            batch.apply();
+
+            assertTrue(batch.truncated);
+            assertEquals(Collections.singleton("SECOND"), batch.operations.keySet());
+            assertEquals(Collections.singleton("SECOND"), environmentDAO.asLoadingCache().asMap().keySet());
+        } finally {
+            environmentDAO.deleteOne("FIRST");  // not in cache anymore, so not cleaned up after the test
+        }
+    }
+
+    @Test
+    public void changedKeysAreLoadedByChunks() throws Exception {
+        final AtomicInteger multiGets = new AtomicInteger();
+        final AtomicInteger reads = new AtomicInteger();
+        IADSSimpleDAO<String, Environment> source = new ForwardingAdsSimpleDao<String, Environment>(
+                CacheManager.findSourceByDAOId(environmentDAO.id())) {
+            @Override
+            public Map<String, Optional<Environment>> getAllAsMap(Set<String> keys) {
+                multiGets.incrementAndGet();
+                return Collections.emptyMap();
+            }
+
+            @Override
+            public Environment getOne(String rowKey) {
+                reads.incrementAndGet();
+                return null;
+            }
+        };
+        ChangeBatch batch = batch(source);
+        int keys = 50000;
+        for (int i = 0; i < keys; i++) {
+            batch.add(change(ChangedData.Operation.UPDATE, "KEY" + i));
+        }
+
+        batch.load();
+
+        int chunkSize = CoreUtil.dsconfig.getCacheConfiguration().getKeysetChunkSizeForMassCacheLoad();
+        assertEquals((keys + chunkSize - 1) / chunkSize, multiGets.get());
+        assertEquals(0, reads.get());
+        assertEquals(keys, batch.values.size());
+        assertFalse(batch.values.get("KEY0").isPresent());
+        assertNull(environmentDAO.asLoadingCache().getIfPresent("KEY0"));
+    }
+
+    private ChangeBatch batch(IADSSimpleDAO source) {
+        int daoId = environmentDAO.id();
+        return new ChangeBatch(daoId, CF_NAME, Lists.newArrayList(CacheManager.findTypeParamsByDAOId(daoId)),
+                CacheManager.findCacheByDAOId(daoId), source);
+    }
+
+    private ChangedData change(ChangedData.Operation operation, String key) {
+        ChangedData data = new ChangedData();
+        data.setCfName(CF_NAME);
+        data.setChangedKey(CoreUtil.toJSON(key));
+        data.setOperation(operation);
+        data.setDAOid(environmentDAO.id());
+        return data;
+    }
+}
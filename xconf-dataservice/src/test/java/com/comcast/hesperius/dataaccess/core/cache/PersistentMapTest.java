@@ -0,0 +1,101 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.hesperius.dataaccess.core.cache;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class PersistentMapTest {
+
+    @Test
+    public void matchesHashMapAfterRandomChanges() {
+        Random random = new Random(42);
+        Map<Key, Integer> expected = new HashMap<>();
+        PersistentMap<Key, Integer> map = PersistentMap.empty();
+        for (int i = 0; i < 20000; i++) {
+            Key key = new Key(random.nextInt(3000), random.nextInt(8));  // many keys share a hash
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.minus(key);
+            } else {
+                Integer value = random.nextInt();
+                expected.put(key, value);
+                map = map.plus(key, value);
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected, map);
+        assertEquals(expected, new HashMap<>(map));
+        for (Key key : expected.keySet()) {
+            map = map.minus(key);
+        }
+        assertEquals(0, map.size());
+        assertEquals(0, map.entrySet().size());
+    }
+
+    @Test
+    public void changesDoNotAffectPreviousVersion() {
+        PersistentMap<String, String> first = PersistentMap.<String, String>empty().plus("a", "1").plus("b", "2");
+        PersistentMap<String, String> second = first.plus("a", "changed").minus("b").plus("c", "3");
+
+        assertEquals("1", first.get("a"));
+        assertEquals("2", first.get("b"));
+        assertNull(first.get("c"));
+        assertEquals(2, first.size());
+        assertEquals("changed", second.get("a"));
+        assertNull(second.get("b"));
+        assertEquals(2, second.size());
+    }
+
+    @Test
+    public void unchangedMapIsReturnedAsIs() {
+        String value = "1";
+        PersistentMap<String, String> map = PersistentMap.<String, String>empty().plus("a", value);
+
+        assertSame(map, map.plus("a", value));
+        assertSame(map, map.minus("missing"));
+    }
+
+    private static final class Key {
+        private final int id;
+        private final int hash;
+
+        Key(int id, int hash) {
+            this.id = id;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).id == id && ((Key) o).hash == hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash == 0 ? id : hash;
+        }
+    }
+}
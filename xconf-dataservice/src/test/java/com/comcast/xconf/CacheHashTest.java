@@ -0,0 +1,169 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.xconf;
+
+import com.comcast.hesperius.data.annotation.CF;
+import com.comcast.hesperius.dataaccess.core.cache.CacheManager;
+import com.comcast.hesperius.dataaccess.core.cache.MerkleTree;
+import com.comcast.hesperius.dataaccess.core.cache.mbean.CacheInfo;
+import com.comcast.hesperius.dataaccess.core.dao.DaoFactory;
+import com.comcast.hesperius.dataaccess.core.util.CoreUtil;
+import com.comcast.xconf.queries.controllers.BaseQueriesControllerTest;
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CacheHashTest extends BaseQueriesControllerTest {
+
+    private static final String CF_NAME = Environment.class.getAnnotation(CF.class).cfName();
+
+    @Test
+    public void hashIsSumOfEntityHashes() throws Exception {
+        long empty = CacheManager.calculateHash(CF_NAME);
+
+        createAndSaveEnvironment("FIRST");
+        createAndSaveEnvironment("SECOND");
+        long first = CacheManager.calculateHash(CF_NAME, "FIRST");
+        long second = CacheManager.calculateHash(CF_NAME, "SECOND");
+        assertEquals(empty + first + second, CacheManager.calculateHash(CF_NAME));
+
+        environmentDAO.deleteOne("FIRST");
+        assertEquals(empty + second, CacheManager.calculateHash(CF_NAME));
+        assertEquals(0, CacheManager.calculateHash(CF_NAME, "FIRST"));
+    }
+
+    @Test
+    public void hashFollowsChangedEntity() throws Exception {
+        createAndSaveEnvironment("FIRST");
+        long item = CacheManager.calculateHash(CF_NAME, "FIRST");
+        long total = CacheManager.calculateHash(CF_NAME);
+        assertTrue(item != 0);
+
+        Environment changed = createEnvironment("FIRST");
+        changed.setDescription("changed");
+        environmentDAO.setOne(changed.getId(), changed);
+
+        long changedItem = CacheManager.calculateHash(CF_NAME, "FIRST");
+        assertNotEquals(item, changedItem);
+        assertEquals(total - item + changedItem, CacheManager.calculateHash(CF_NAME));
+        assertEquals(0, CacheManager.calculateHash(CF_NAME, "SECOND"));
+    }
+
+    @Test
+    public void changedEntityIsFoundByMerkleTreeDiff() throws Exception {
+        createAndSaveEnvironment("FIRST");
+        createAndSaveEnvironment("SECOND");
+        MerkleTree before = CacheManager.getMerkleTree(CF_NAME);
+        List<Map<String, Long>> bucketsBefore = new ArrayList<>();
+        for (int bucket = 0; bucket < before.getLeafCount(); bucket++) {
+            bucketsBefore.add(CacheManager.getBucketHashes(CF_NAME, bucket));
+        }
+        Environment changed = createEnvironment("FIRST");
+        changed.setDescription("changed");
+        environmentDAO.setOne(changed.getId(), changed);
+
+        MerkleTree after = CacheManager.getMerkleTree(CF_NAME);
+        assertEquals(1, before.diff(after).size());
+        int bucket = before.diff(after).get(0);
+        assertEquals(Collections.singleton("FIRST"), CacheManager.diffBucket(CF_NAME, bucket, bucketsBefore.get(bucket)));
+        assertTrue(after.diff(CacheManager.getMerkleTree(CF_NAME)).isEmpty());
+    }
+
+    @Test
+    public void repairReloadsOnlyGivenKeys() throws Exception {
+        createAndSaveEnvironment("FIRST");
+        createAndSaveEnvironment("SECOND");
+        long secondHash = CacheManager.calculateHash(CF_NAME, "SECOND");
+        for (String id : new String[]{"FIRST", "SECOND"}) {
+            Environment changed = createEnvironment(id);
+            changed.setDescription("changed");
+            DaoFactory.Simple.createDAO(String.class, Environment.class).setOne(id, changed);   // not seen by cache
+        }
+
+        assertEquals(Collections.singletonList("FIRST"), CacheManager.repair(CF_NAME, Collections.singleton("FIRST")));
+
+        assertEquals("changed", environmentDAO.getOne("FIRST").getDescription());
+        assertEquals("descr", environmentDAO.getOne("SECOND").getDescription());
+        assertEquals(secondHash, CacheManager.calculateHash(CF_NAME, "SECOND"));
+    }
+
+    @Test
+    public void tombstonesAreCountedAndCompacted() throws Exception {
+        createAndSaveEnvironment("FIRST");
+        assertNull(environmentDAO.getOne("MISSING"));
+        CacheInfo info = CacheManager.getCacheMBeans().get(CF_NAME);
+
+        assertEquals(1, info.getNonAbsentCount());
+        assertEquals(1, info.getTombstoneCount());
+        assertEquals(1, info.compactTombstones());
+        assertEquals(0, info.getTombstoneCount());
+        assertEquals(1, info.getNonAbsentCount());
+        assertEquals("descr", environmentDAO.getOne("FIRST").getDescription());
+    }
+
+    @Test
+    public void concurrentWritesOfOneKeyLeaveHashOfStoredValue() throws Exception {
+        long empty = CacheManager.calculateHash(CF_NAME);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Void>> writes = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                final String description = "descr" + i;
+                writes.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        Environment environment = createEnvironment("FIRST");
+                        environment.setDescription(description);
+                        environmentDAO.setOne(environment.getId(), environment);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> write : writes) {
+                write.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        String stored;
+        long hash;
+        do {    // consistency provider may still apply logged changes of the key
+            stored = CoreUtil.toJSON(environmentDAO.getOne("FIRST"));
+            hash = CacheManager.calculateHash(CF_NAME, "FIRST");
+        } while (!stored.equals(CoreUtil.toJSON(environmentDAO.getOne("FIRST"))));
+        long expected = Hashing.murmur3_128().hashString(stored, Charsets.UTF_8).asLong();
+        assertEquals(expected, hash);
+        assertEquals(empty + expected, CacheManager.calculateHash(CF_NAME));
+    }
+}
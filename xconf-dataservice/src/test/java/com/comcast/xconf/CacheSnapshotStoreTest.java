@@ -0,0 +1,120 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.xconf;
+
+import com.comcast.hesperius.data.annotation.CF;
+import com.comcast.hesperius.dataaccess.core.cache.CacheSnapshotStore;
+import com.comcast.hesperius.dataaccess.core.util.CoreUtil;
+import com.comcast.xconf.estbfirmware.Model;
+import com.comcast.xconf.queries.controllers.BaseQueriesControllerTest;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class CacheSnapshotStoreTest extends BaseQueriesControllerTest {
+
+    private static final String CF_NAME = Environment.class.getAnnotation(CF.class).cfName();
+    private static final long MAX_AGE = 60000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void restoredEntriesEqualWrittenGeneration() throws Exception {
+        createAndSaveEnvironment("FIRST");
+        createAndSaveEnvironment("SECOND");
+        CacheSnapshotStore store = new CacheSnapshotStore(folder.getRoot().getPath(), MAX_AGE);
+        long tick = System.currentTimeMillis();
+        store.write(CF_NAME, String.class, Environment.class, tick, environmentDAO.getGeneration());
+
+        CacheSnapshotStore.Restored restored = store.read(CF_NAME, String.class, Environment.class);
+
+        assertEquals(tick, restored.getTick());
+        assertEquals(2, restored.getEntries().size());
+        for (String id : new String[]{"FIRST", "SECOND"}) {
+            assertEquals(CoreUtil.toJSON(environmentDAO.getOne(id)), CoreUtil.toJSON(restored.getEntries().get(id)));
+        }
+    }
+
+    @Test
+    public void unusableSnapshotIsNotRead() throws Exception {
+        createAndSaveEnvironment("FIRST");
+        CacheSnapshotStore store = new CacheSnapshotStore(folder.getRoot().getPath(), MAX_AGE);
+        assertNull(store.read(CF_NAME, String.class, Environment.class));
+
+        store.write(CF_NAME, String.class, Environment.class, System.currentTimeMillis() - MAX_AGE - 1000, environmentDAO.getGeneration());
+        assertNull(store.read(CF_NAME, String.class, Environment.class));
+
+        store.write(CF_NAME, String.class, Environment.class, System.currentTimeMillis(), environmentDAO.getGeneration());
+        assertNull(store.read(CF_NAME, String.class, Model.class));
+
+        Files.write(new File(folder.getRoot(), CF_NAME + ".snapshot").toPath(), "garbage".getBytes());
+        assertNull(store.read(CF_NAME, String.class, Environment.class));
+    }
+
+    @Test
+    public void snapshotOfAnotherFieldLayoutIsNotRead() throws Exception {
+        createAndSaveEnvironment("FIRST");
+        CacheSnapshotStore store = new CacheSnapshotStore(folder.getRoot().getPath(), MAX_AGE);
+        store.write(CF_NAME, String.class, Environment.class, System.currentTimeMillis(), environmentDAO.getGeneration());
+        assertNotNull(store.read(CF_NAME, String.class, Environment.class));
+
+        try (RandomAccessFile file = new RandomAccessFile(new File(folder.getRoot(), CF_NAME + ".snapshot"), "rw")) {
+            file.seek(16);  // fingerprint follows magic, format version and tick
+            file.writeLong(CacheSnapshotStore.fingerprint(String.class, Reordered.class));
+        }
+        assertNull(store.read(CF_NAME, String.class, Environment.class));
+    }
+
+    @Test
+    public void fingerprintFollowsFieldLayout() {
+        assertEquals(CacheSnapshotStore.fingerprint(Layout.class), CacheSnapshotStore.fingerprint(SameLayout.class));
+        assertNotEquals(CacheSnapshotStore.fingerprint(Layout.class), CacheSnapshotStore.fingerprint(Reordered.class));
+        assertNotEquals(CacheSnapshotStore.fingerprint(Layout.class), CacheSnapshotStore.fingerprint(Retyped.class));
+    }
+
+    private static class Layout {
+        String id;
+        String description;
+    }
+
+    private static class SameLayout {
+        String id;
+        String description;
+    }
+
+    private static class Reordered {
+        String description;
+        String id;
+    }
+
+    private static class Retyped {
+        String id;
+        Long description;
+    }
+}
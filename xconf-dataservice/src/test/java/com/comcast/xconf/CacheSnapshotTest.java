@@ -0,0 +1,125 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.xconf;
+
+import com.comcast.hesperius.dataaccess.core.cache.CacheGeneration;
+import com.comcast.hesperius.dataaccess.core.cache.CacheManager;
+import com.comcast.hesperius.dataaccess.core.cache.CacheSnapshot;
+import com.comcast.xconf.queries.controllers.BaseQueriesControllerTest;
+import com.google.common.collect.Iterables;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CacheSnapshotTest extends BaseQueriesControllerTest {
+
+    @After
+    public void releaseSnapshot() {
+        CacheSnapshot.release();
+    }
+
+    @Test
+    public void pinnedSnapshotDoesNotSeeLaterChanges() throws Exception {
+        createAndSaveEnvironment("FIRST");
+        CacheSnapshot pinned = CacheSnapshot.pin();
+
+        Environment changed = createEnvironment("FIRST");
+        changed.setDescription("changed");
+        environmentDAO.setOne(changed.getId(), changed);
+        createAndSaveEnvironment("SECOND");
+
+        assertEquals("descr", environmentDAO.getOneReadOnly("FIRST").getDescription());
+        assertEquals(1, Iterables.size(environmentDAO.viewAll()));
+        assertSame(pinned.getGeneration(environmentDAO.id()), environmentDAO.getGeneration());
+
+        CacheSnapshot.release();
+
+        assertEquals("changed", environmentDAO.getOneReadOnly("FIRST").getDescription());
+        assertEquals(2, Iterables.size(environmentDAO.viewAll()));
+        CacheGeneration<String, Environment> current = environmentDAO.getGeneration();
+        assertEquals(2, current.size());
+        assertTrue(current.getVersion() > pinned.getVersion());
+    }
+
+    @Test
+    public void writtenInstanceIsNotShared() throws Exception {
+        Environment written = createEnvironment("FIRST");
+        environmentDAO.setOne(written.getId(), written);
+        written.setDescription("changed after write");
+
+        assertEquals("descr", environmentDAO.getOneReadOnly("FIRST").getDescription());
+        assertEquals("descr", environmentDAO.getGeneration().get("FIRST").getDescription());
+    }
+
+    @Test
+    public void keyMissingInPinnedSnapshotIsReadFromCache() throws Exception {
+        CacheSnapshot.pin();
+        createAndSaveEnvironment("SECOND");
+
+        assertEquals("SECOND", environmentDAO.getOneReadOnly("SECOND").getId());
+        assertEquals("SECOND", environmentDAO.getOneReadOnly("SECOND").getId());
+        assertNull(environmentDAO.getOneReadOnly("MISSING"));
+        assertFalse(environmentDAO.asLoadingCache().getIfPresent("MISSING").isPresent());
+        assertNull(environmentDAO.getOneReadOnly("MISSING"));
+    }
+
+    @Test
+    public void changedCacheGetsNewGeneration() throws Exception {
+        createAndSaveEnvironment("FIRST");
+        CacheSnapshot before = CacheManager.getSnapshot();
+        assertTrue(before.<String, Environment>getGeneration(environmentDAO.id()).containsKey("FIRST"));
+
+        environmentDAO.deleteOne("FIRST");
+        CacheSnapshot after = CacheManager.getSnapshot();
+
+        assertTrue(after.getVersion() > before.getVersion());
+        assertFalse(after.<String, Environment>getGeneration(environmentDAO.id()).containsKey("FIRST"));
+        assertTrue(before.<String, Environment>getGeneration(environmentDAO.id()).containsKey("FIRST"));
+    }
+
+    @Test
+    public void generationIsKeptUntilItsEntriesChange() throws Exception {
+        createAndSaveEnvironment("FIRST");
+        CacheGeneration<String, Environment> before = environmentDAO.getGeneration();
+
+        assertNull(environmentDAO.getOne("MISSING"));
+        assertSame(before, environmentDAO.getGeneration());
+
+        createAndSaveEnvironment("SECOND");
+        CacheGeneration<String, Environment> after = environmentDAO.getGeneration();
+        assertEquals(before.size() + 1, after.size());
+        assertSame(before.get("FIRST"), after.get("FIRST"));
+    }
+
+    @Test
+    public void lazilyLoadedKeyIsInNextSnapshot() throws Exception {
+        createAndSaveEnvironment("FIRST");
+        environmentDAO.invalidateOne("FIRST");
+        assertFalse(CacheManager.getSnapshot().<String, Environment>getGeneration(environmentDAO.id()).containsKey("FIRST"));
+
+        assertEquals("FIRST", environmentDAO.getOne("FIRST").getId());
+
+        assertTrue(CacheManager.getSnapshot().<String, Environment>getGeneration(environmentDAO.id()).containsKey("FIRST"));
+    }
+}
@@ -22,6 +22,7 @@
 package com.comcast.xconf;
 
 import com.comcast.hesperius.dataaccess.core.cache.CacheManager;
+import com.comcast.hesperius.dataaccess.core.cache.ChangeBatchTest;
 import com.comcast.hesperius.dataaccess.core.util.CoreUtil;
 import com.comcast.xconf.dcm.converter.DcmRuleConverterTest;
 import com.comcast.xconf.dcm.formula.*;
@@ -84,7 +85,11 @@ import java.io.IOException;
         PercentFilterTestCase1.class, PercentFilterTestCase2.class, PercentFilterTestCase3.class,
         PercentFilterTestCase4.class, PercentFilterTestCase5.class, PercentFilterTestCase6.class,
         FeatureControlSettingTest.class,
-        PercentageBeanQueriesControllerTest.class
+        PercentageBeanQueriesControllerTest.class,
+        CacheSnapshotTest.class,
+        DerivedViewTest.class,
+        CacheHashTest.class, CacheSnapshotStoreTest.class,
+        ChangeBatchTest.class
 })
 public class CompleteTestSuite {
 
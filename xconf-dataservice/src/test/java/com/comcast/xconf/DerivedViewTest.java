@@ -0,0 +1,78 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.xconf;
+
+import com.comcast.hesperius.dataaccess.core.cache.CacheManager;
+import com.comcast.hesperius.dataaccess.core.cache.CacheSnapshot;
+import com.comcast.hesperius.dataaccess.core.cache.DerivedView;
+import com.comcast.xconf.queries.controllers.BaseQueriesControllerTest;
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableSortedSet;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DerivedViewTest extends BaseQueriesControllerTest {
+
+    @After
+    public void releaseSnapshot() {
+        CacheSnapshot.release();
+    }
+
+    @Test
+    public void viewIsBuiltOncePerSourceGeneration() throws Exception {
+        DerivedView<ImmutableSortedSet<String>> view = registerEnvironmentIdsView();
+        createAndSaveEnvironment("FIRST");
+        CacheSnapshot.pin();
+
+        ImmutableSortedSet<String> ids = view.get();
+        assertEquals(ImmutableSortedSet.of("FIRST"), ids);
+        assertSame(ids, view.get());
+        assertEquals(1, view.getBuildCount());
+
+        createAndSaveEnvironment("SECOND");
+        assertSame(ids, view.get());
+
+        CacheSnapshot.release();
+
+        assertEquals(ImmutableSortedSet.of("FIRST", "SECOND"), view.get());
+        assertTrue(view.getBuildCount() > 1);
+    }
+
+    @Test
+    public void registeredViewReplacesViewOfTheSameName() throws Exception {
+        DerivedView<ImmutableSortedSet<String>> first = registerEnvironmentIdsView();
+        DerivedView<ImmutableSortedSet<String>> second = registerEnvironmentIdsView();
+
+        assertSame(second, CacheManager.getViews().get("EnvironmentIds"));
+        assertEquals(first.get(), second.get());
+    }
+
+    private DerivedView<ImmutableSortedSet<String>> registerEnvironmentIdsView() {
+        return CacheManager.registerView("EnvironmentIds", new Function<CacheSnapshot, ImmutableSortedSet<String>>() {
+            @Override
+            public ImmutableSortedSet<String> apply(CacheSnapshot snapshot) {
+                return ImmutableSortedSet.copyOf(snapshot.getGeneration(environmentDAO).asMap().keySet());
+            }
+        }, environmentDAO);
+    }
+}
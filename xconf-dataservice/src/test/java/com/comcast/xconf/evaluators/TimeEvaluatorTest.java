@@ -0,0 +1,77 @@
+/*
+ * If not stated otherwise in this file or this component's Licenses.txt file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2018 RDK Management
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.comcast.xconf.evaluators;
+
+import com.comcast.apps.hesperius.ruleengine.domain.standard.StandardFreeArgType;
+import com.comcast.apps.hesperius.ruleengine.domain.standard.StandardOperation;
+import com.comcast.apps.hesperius.ruleengine.main.api.FixedArg;
+import com.comcast.apps.hesperius.ruleengine.main.api.FreeArg;
+import com.comcast.apps.hesperius.ruleengine.main.api.IRuleProcessor;
+import com.comcast.apps.hesperius.ruleengine.main.impl.Condition;
+import com.comcast.apps.hesperius.ruleengine.main.impl.EvaluationSession;
+import com.comcast.apps.hesperius.ruleengine.main.impl.Evaluators;
+import com.comcast.apps.hesperius.ruleengine.main.impl.Rule;
+import com.comcast.apps.hesperius.ruleengine.main.impl.RuleProcessor;
+import com.comcast.xconf.estbfirmware.factory.RuleFactory;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TimeEvaluatorTest {
+
+    private final IRuleProcessor<Condition, Rule> processor = new RuleProcessor<>(timeEvaluators());
+
+    @Test
+    public void compiledTimeRuleMatchesTreeEvaluation() {
+        Rule window = Rule.Builder.of(new Condition(RuleFactory.LOCAL_TIME, StandardOperation.GTE, FixedArg.from("01:00:00")))
+                .and(new Condition(RuleFactory.LOCAL_TIME, StandardOperation.LTE, FixedArg.from("03:30:00"))).build();
+        Rule version = Rule.Builder.of(new Condition(new FreeArg(StandardFreeArgType.STRING, "firmwareVersion"),
+                StandardOperation.GTE, FixedArg.from("01:00:00"))).build();
+
+        for (String time : Arrays.asList("2016-02-07T00:59:59", "2016-02-07T01:00:00", "2016-02-07T02:15:00.250",
+                "2016-02-07T03:30:00", "2016-02-07T03:30:00.001", "2016-02-07T23:00:00Z")) {
+            Map<String, String> context = ImmutableMap.of("time", time, "firmwareVersion", time);
+            for (Rule rule : Arrays.asList(window, version)) {
+                assertEquals(time, processor.evaluate(rule, context), processor.evaluate(processor.compile(rule), context));
+                assertEquals(time, processor.evaluate(rule, context), processor.evaluate(processor.compile(rule), new EvaluationSession(context)));
+            }
+        }
+        assertTrue(processor.evaluate(processor.compile(window), ImmutableMap.of("time", "2016-02-07T03:30:00")));
+        assertFalse(processor.evaluate(processor.compile(window), ImmutableMap.of("time", "2016-02-07T03:30:01")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidFixedTimeFailsOnEvaluation() {
+        Rule rule = Rule.Builder.of(new Condition(RuleFactory.LOCAL_TIME, StandardOperation.GTE, FixedArg.from("1am"))).build();
+        processor.evaluate(processor.compile(rule), ImmutableMap.of("time", "2016-02-07T01:00:00"));
+    }
+
+    private static Evaluators timeEvaluators() {
+        Evaluators evaluators = new Evaluators();
+        evaluators.add(new TimeGTEEvaluator());
+        evaluators.add(new TimeLTEEvaluator());
+        return evaluators;
+    }
+}